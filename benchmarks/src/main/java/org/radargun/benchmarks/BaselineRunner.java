@@ -0,0 +1,87 @@
+package org.radargun.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and checks the scores against baseline thresholds
+ * from {@value #THRESHOLDS}. Accepts the same arguments as JMH's own main.
+ *
+ * The threshold key is the benchmark class simple name and method, followed by
+ * <code>.param-value</code> pairs for parametrized benchmarks; the value is the upper
+ * bound of the score in the benchmark's output time unit. Benchmarks without a threshold
+ * are only reported. Exits with status 1 if any threshold is exceeded.
+ */
+public final class BaselineRunner {
+   private static final String THRESHOLDS = "thresholds.properties";
+
+   private BaselineRunner() {}
+
+   public static void main(String[] args) throws IOException, RunnerException {
+      Options options;
+      try {
+         options = new OptionsBuilder().parent(new CommandLineOptions(args)).build();
+      } catch (CommandLineOptionException e) {
+         System.err.println("Error parsing command line: " + e.getMessage());
+         System.exit(1);
+         return;
+      }
+      Collection<RunResult> results = new Runner(options).run();
+      List<String> failures = check(results, loadThresholds());
+      if (failures.isEmpty()) {
+         System.out.println("All benchmarks are within the baseline thresholds.");
+      } else {
+         failures.forEach(System.err::println);
+         System.exit(1);
+      }
+   }
+
+   static List<String> check(Collection<RunResult> results, Properties thresholds) {
+      List<String> failures = new ArrayList<>();
+      for (RunResult runResult : results) {
+         String key = key(runResult);
+         Result result = runResult.getPrimaryResult();
+         String threshold = thresholds.getProperty(key);
+         if (threshold == null) {
+            System.out.printf("%s: %.3f %s (no threshold)%n", key, result.getScore(), result.getScoreUnit());
+         } else if (result.getScore() > Double.parseDouble(threshold)) {
+            failures.add(String.format("%s: %.3f %s exceeds threshold %s", key, result.getScore(), result.getScoreUnit(), threshold));
+         } else {
+            System.out.printf("%s: %.3f %s (threshold %s)%n", key, result.getScore(), result.getScoreUnit(), threshold);
+         }
+      }
+      return failures;
+   }
+
+   private static String key(RunResult runResult) {
+      String benchmark = runResult.getParams().getBenchmark();
+      int methodDot = benchmark.lastIndexOf('.');
+      StringBuilder sb = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', methodDot - 1) + 1));
+      for (String param : runResult.getParams().getParamsKeys()) {
+         sb.append('.').append(param).append('-').append(runResult.getParams().getParam(param));
+      }
+      return sb.toString();
+   }
+
+   private static Properties loadThresholds() throws IOException {
+      Properties thresholds = new Properties();
+      try (InputStream stream = BaselineRunner.class.getClassLoader().getResourceAsStream(THRESHOLDS)) {
+         if (stream == null) throw new IllegalStateException("Cannot find " + THRESHOLDS);
+         thresholds.load(stream);
+      }
+      return thresholds;
+   }
+}
@@ -0,0 +1,78 @@
+package org.radargun.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.stages.cache.generators.ByteArrayValueGenerator;
+import org.radargun.stages.cache.generators.PooledByteArrayValueGenerator;
+import org.radargun.stages.cache.generators.StringKeyGenerator;
+
+/**
+ * Cost of generating keys and values in cache tests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+   private static final int KEYS = 1024;
+
+   private StringKeyGenerator keyGenerator;
+   private ByteArrayValueGenerator valueGenerator;
+   private PooledByteArrayValueGenerator pooledValueGenerator;
+   private Random random;
+   private long keyIndex;
+   // value generators get the same pre-generated keys, so that key generation is not measured
+   private Object[] keys;
+   private int keyCursor;
+
+   @Setup
+   public void setup() {
+      keyGenerator = new StringKeyGenerator();
+      valueGenerator = new ByteArrayValueGenerator();
+      pooledValueGenerator = new PooledByteArrayValueGenerator();
+      random = new Random(42);
+      keys = new Object[KEYS];
+      for (int i = 0; i < KEYS; ++i) {
+         keys[i] = keyGenerator.generateKey(i);
+      }
+   }
+
+   @Benchmark
+   public Object stringKeyGenerator() {
+      return keyGenerator.generateKey(keyIndex++);
+   }
+
+   @Benchmark
+   public Object byteArrayValueGenerator(ValueSize size) {
+      return valueGenerator.generateValue(nextKey(), size.valueSize, random);
+   }
+
+   @Benchmark
+   public Object pooledByteArrayValueGenerator(ValueSize size) {
+      return pooledValueGenerator.generateValue(nextKey(), size.valueSize, random);
+   }
+
+   private Object nextKey() {
+      return keys[keyCursor++ & (KEYS - 1)];
+   }
+
+   @State(Scope.Benchmark)
+   public static class ValueSize {
+      @Param({"100", "1000", "100000"})
+      private int valueSize;
+   }
+}
@@ -0,0 +1,70 @@
+package org.radargun.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.Operation;
+import org.radargun.stages.test.RatioOperationSelector;
+import org.radargun.stages.test.SchedulingSelector;
+
+/**
+ * Cost of picking the next operation in the stressor loop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectorBenchmark {
+
+   @State(Scope.Benchmark)
+   public static class Selectors {
+      private RatioOperationSelector ratioSelector;
+      private SchedulingSelector<Operation> schedulingSelector;
+
+      @Setup
+      public void setup() {
+         Operation get = Operation.register("Get");
+         Operation put = Operation.register("Put");
+         Operation remove = Operation.register("Remove");
+         ratioSelector = (RatioOperationSelector) new RatioOperationSelector.Builder()
+            .add(get, 80).add(put, 18).add(remove, 2).build();
+         // the frequencies are high enough that the selector never makes the threads wait
+         schedulingSelector = new SchedulingSelector.Builder<>(Operation.class)
+            .add(get, 80_000_000, 1).add(put, 18_000_000, 1).add(remove, 2_000_000, 1).build();
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class ThreadRandom {
+      private Random random;
+
+      @Setup
+      public void setup() {
+         random = new Random(ThreadLocalRandom.current().nextLong());
+      }
+   }
+
+   @Benchmark
+   public Operation ratioOperationSelectorNext(Selectors selectors, ThreadRandom random) {
+      return selectors.ratioSelector.next(random.random);
+   }
+
+   @Benchmark
+   @Threads(4)
+   public Operation schedulingSelectorNextContended(Selectors selectors) throws InterruptedException {
+      return selectors.schedulingSelector.next();
+   }
+}
@@ -0,0 +1,56 @@
+package org.radargun.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.Operation;
+import org.radargun.SerializationHelper;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.BasicStatistics;
+
+/**
+ * Cost of serializing statistics as slaves do when sending results to the master.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+   private BasicStatistics statistics;
+   private ByteBuffer buffer;
+
+   @Setup
+   public void setup() {
+      statistics = new BasicStatistics(new BasicOperationStats());
+      statistics.begin();
+      for (String name : new String[] {"Get", "Put", "Remove", "Query"}) {
+         Operation operation = Operation.register(name);
+         for (int i = 0; i < 1000; ++i) {
+            statistics.record(operation, 0, 1000 + i, i % 100 != 0);
+         }
+      }
+      statistics.end();
+      buffer = ByteBuffer.allocate(1024);
+   }
+
+   @Benchmark
+   public ByteBuffer serializeObjectWithLength() throws IOException {
+      buffer.clear();
+      // keep the grown buffer to measure the steady state
+      buffer = SerializationHelper.serializeObjectWithLength(statistics, buffer);
+      return buffer;
+   }
+}
@@ -0,0 +1,87 @@
+package org.radargun.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.Operation;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.HistogramOperationStats;
+import org.radargun.stats.PeriodicStatistics;
+
+/**
+ * Cost of recording a single request into the statistics used by stressors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+   // power of two so that the index can be masked
+   private static final int DURATIONS = 1024;
+
+   private final long[] durations = new long[DURATIONS];
+   private int index;
+   private Operation operation;
+   private BasicOperationStats basicOperationStats;
+   private HistogramOperationStats histogramOperationStats;
+   private PeriodicStatistics periodicStatistics;
+   private long begin;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      Random random = new Random(42);
+      for (int i = 0; i < DURATIONS; ++i) {
+         // between 10 us and 10 ms
+         durations[i] = TimeUnit.MICROSECONDS.toNanos(10 + random.nextInt(10_000));
+      }
+      operation = Operation.register(StatisticsBenchmark.class.getSimpleName());
+   }
+
+   @Setup(Level.Iteration)
+   public void setupIteration() {
+      basicOperationStats = new BasicOperationStats();
+      histogramOperationStats = new HistogramOperationStats();
+      histogramOperationStats.init();
+      periodicStatistics = new PeriodicStatistics();
+      periodicStatistics.setPeriod(1000);
+      periodicStatistics.begin();
+      begin = System.nanoTime();
+   }
+
+   private long nextDuration() {
+      return durations[index++ & (DURATIONS - 1)];
+   }
+
+   @Benchmark
+   public void basicOperationStatsRecord() {
+      basicOperationStats.record(nextDuration(), true);
+   }
+
+   @Benchmark
+   public void histogramOperationStatsRecord() {
+      histogramOperationStats.record(nextDuration(), true);
+   }
+
+   /**
+    * Each record looks up the bucket through PeriodicStatistics.getCurrentBucket; the buckets
+    * are created on the fly as the wall-clock time advances, as during a real test.
+    */
+   @Benchmark
+   public void periodicStatisticsRecord() {
+      long start = System.nanoTime();
+      periodicStatistics.record(operation, start, start + nextDuration(), true);
+   }
+}
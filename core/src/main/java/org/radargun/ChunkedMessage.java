@@ -0,0 +1,221 @@
+package org.radargun;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Reassembles message sent by slave through {@link SerializationHelper#serializeObjectInChunks(java.io.Serializable, ByteBuffer, java.nio.channels.WritableByteChannel)}
+ * followed by UUID of the next slave generation. The chunks are kept as separate arrays,
+ * so the receiving buffer does not need to grow to the size of the whole message.
+ *
+ * When the message does not arrive at once, it is decoded in background as the chunks arrive,
+ * and the chunks are released as soon as they are decoded; therefore the master does not need
+ * to hold the whole serialized form of large messages (e.g. statistics) in memory.
+ */
+class ChunkedMessage {
+   private static final int LENGTH_BYTES = 4;
+   private static final int UUID_BYTES = 16;
+   private static final ExecutorService DECODER = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "MessageDecoder");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   private final ByteBuffer header = ByteBuffer.allocate(UUID_BYTES);
+   // chunks received before the decoding started
+   private final List<byte[]> chunks = new ArrayList<>();
+   private byte[] chunk;
+   private int chunkPosition;
+   private boolean readingUuid;
+   private long size;
+   private ChunkInputStream stream;
+   private Future<Object> decoded;
+
+   ChunkedMessage() {
+      header.limit(LENGTH_BYTES);
+   }
+
+   /**
+    * Consume data from the buffer.
+    *
+    * @param buffer Buffer in read mode.
+    * @return True if the whole message has been read, remaining data in buffer belong to the next message.
+    */
+   boolean consume(ByteBuffer buffer) {
+      while (buffer.hasRemaining()) {
+         if (chunk != null) {
+            int length = Math.min(buffer.remaining(), chunk.length - chunkPosition);
+            buffer.get(chunk, chunkPosition, length);
+            chunkPosition += length;
+            if (chunkPosition == chunk.length) {
+               if (stream != null) {
+                  stream.add(chunk);
+               } else {
+                  chunks.add(chunk);
+               }
+               chunk = null;
+            }
+            continue;
+         }
+         while (header.hasRemaining() && buffer.hasRemaining()) {
+            header.put(buffer.get());
+         }
+         if (header.hasRemaining()) {
+            break;
+         }
+         if (readingUuid) {
+            return true;
+         }
+         int length = header.getInt(0);
+         header.clear();
+         if (length == 0) {
+            readingUuid = true;
+            if (stream != null) {
+               stream.finish();
+            }
+         } else if (length < 0) {
+            throw new IllegalStateException("Invalid chunk length " + length);
+         } else {
+            header.limit(LENGTH_BYTES);
+            chunk = new byte[length];
+            chunkPosition = 0;
+            size += length;
+         }
+      }
+      if (readingUuid && !header.hasRemaining()) {
+         return true;
+      }
+      // the rest of the message has not arrived yet, start decoding what we have
+      if (decoded == null && !chunks.isEmpty()) {
+         stream = new ChunkInputStream();
+         chunks.forEach(stream::add);
+         chunks.clear();
+         if (readingUuid) {
+            stream.finish();
+         }
+         ChunkInputStream input = stream;
+         decoded = DECODER.submit(() -> SerializationHelper.deserialize(input));
+      }
+      return false;
+   }
+
+   /**
+    * @return Total size of the serialized object.
+    */
+   long size() {
+      return size;
+   }
+
+   Object deserialize() throws IOException {
+      if (decoded == null) {
+         List<InputStream> streams = new ArrayList<>(chunks.size());
+         for (byte[] bytes : chunks) {
+            streams.add(new ByteArrayInputStream(bytes));
+         }
+         chunks.clear();
+         return SerializationHelper.deserialize(new SequenceInputStream(Collections.enumeration(streams)));
+      }
+      try {
+         return decoded.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while decoding message");
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+         }
+         throw new IOException("Failed to decode message", e.getCause());
+      }
+   }
+
+   /**
+    * Stops decoding of message that won't be completed, e.g. because the connection was closed.
+    */
+   void discard() {
+      if (stream != null) {
+         stream.finish();
+      }
+   }
+
+   /**
+    * @return UUID of the next generation of the slave, or null if the slave will continue.
+    */
+   UUID nextUuid() {
+      long msb = header.getLong(0);
+      long lsb = header.getLong(8);
+      return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+   }
+
+   /**
+    * Stream of chunks handed over from the thread receiving the message.
+    */
+   private static class ChunkInputStream extends InputStream {
+      private static final byte[] END = new byte[0];
+
+      private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+      private byte[] current;
+      private int position;
+
+      void add(byte[] chunk) {
+         queue.add(chunk);
+      }
+
+      void finish() {
+         queue.add(END);
+      }
+
+      @Override
+      public int read() throws IOException {
+         if (!nextChunk()) {
+            return -1;
+         }
+         return current[position++] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) throws IOException {
+         if (length == 0) {
+            return 0;
+         }
+         if (!nextChunk()) {
+            return -1;
+         }
+         int read = Math.min(length, current.length - position);
+         System.arraycopy(current, position, bytes, offset, read);
+         position += read;
+         return read;
+      }
+
+      private boolean nextChunk() throws IOException {
+         while (current == null || position == current.length) {
+            if (current == END) {
+               return false;
+            }
+            try {
+               // release the decoded chunk before waiting for next one
+               current = null;
+               current = queue.take();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new InterruptedIOException();
+            }
+            position = 0;
+         }
+         return true;
+      }
+   }
+}
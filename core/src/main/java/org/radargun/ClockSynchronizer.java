@@ -0,0 +1,93 @@
+package org.radargun;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.reporting.Timeline;
+import org.radargun.utils.ClockOffsetEstimator;
+import org.radargun.utils.ClockSync;
+import org.radargun.utils.TimeService;
+
+/**
+ * Periodically estimates offset of slave's clock against master's clock and publishes it through {@link ClockSync}.
+ * The exchanges run only during stage execution, when master is waiting for slave's response; the first
+ * synchronization is executed when the first stage starts.
+ */
+class ClockSynchronizer {
+   private static final Log log = LogFactory.getLog(ClockSynchronizer.class);
+   private static final int EXCHANGES_PER_BURST = 8;
+   private static final int MAX_BURSTS = 16;
+   private static final Timeline.Category OFFSET = Timeline.Category.sysCategory("Clock offset (ms)");
+   private static final Timeline.Category ERROR_BOUND = Timeline.Category.sysCategory("Clock offset error bound (ms)");
+
+   private final RemoteMasterConnection connection;
+   private final Supplier<Timeline> timeline;
+   private final long period;
+   private final ClockOffsetEstimator estimator = new ClockOffsetEstimator(MAX_BURSTS);
+   private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ClockSynchronizer");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private volatile long lastSync = Long.MIN_VALUE;
+
+   /**
+    * @param period Period of synchronization, in milliseconds.
+    */
+   ClockSynchronizer(RemoteMasterConnection connection, Supplier<Timeline> timeline, long period) {
+      this.connection = connection;
+      this.timeline = timeline;
+      this.period = period;
+   }
+
+   void start() {
+      executor.scheduleWithFixedDelay(this::synchronize, period, period, TimeUnit.MILLISECONDS);
+   }
+
+   void stop() {
+      executor.shutdownNow();
+   }
+
+   /**
+    * Synchronizes the clock if it was not synchronized yet or the last synchronization is too old.
+    */
+   void stageStarted() {
+      if (lastSync == Long.MIN_VALUE || TimeService.currentTimeMillis() - lastSync > period) {
+         executor.execute(this::synchronize);
+      }
+   }
+
+   private void synchronize() {
+      try {
+         List<ClockOffsetEstimator.Sample> samples = new ArrayList<>(EXCHANGES_PER_BURST);
+         for (int i = 0; i < EXCHANGES_PER_BURST; ++i) {
+            ClockOffsetEstimator.Sample sample = connection.synchronizeClock();
+            if (sample == null) {
+               // the stage has finished
+               break;
+            }
+            samples.add(sample);
+         }
+         ClockOffsetEstimator.Estimate estimate = estimator.addBurst(samples);
+         if (estimate == null) {
+            return;
+         }
+         ClockSync.setEstimate(estimate);
+         lastSync = TimeService.currentTimeMillis();
+         log.debug("Clock synchronized with master: " + estimate);
+         Timeline timeline = this.timeline.get();
+         if (timeline != null) {
+            timeline.addValue(OFFSET, lastSync, estimate.offset);
+            timeline.addValue(ERROR_BOUND, lastSync, estimate.errorBound);
+         }
+      } catch (Exception e) {
+         log.error("Failed to synchronize clock with master", e);
+      }
+   }
+}
@@ -47,6 +47,13 @@ public interface DistStage extends Stage, Serializable {
     */
    StageResult processAckOnMaster(List<DistStageAck> acks);
 
+   /**
+    * Called on master when a slave sends intermediate result while executing the stage.
+    *
+    * @return False if the slave should stop executing the stage.
+    */
+   boolean processProgressOnMaster(DistStageProgress progress);
+
    //TODO: remove the call from stages
 
    /**
@@ -0,0 +1,33 @@
+package org.radargun;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.radargun.state.SlaveState;
+
+/**
+ * Intermediate result sent from slave to the master while the stage is still executing.
+ * Master passes it to {@link DistStage#processProgressOnMaster(DistStageProgress)} and replies
+ * whether the slave should continue executing the stage.
+ */
+public class DistStageProgress implements Serializable {
+   private final int slaveIndex;
+
+   public DistStageProgress(SlaveState slaveState) {
+      slaveIndex = slaveState.getSlaveIndex();
+   }
+
+   public int getSlaveIndex() {
+      return slaveIndex;
+   }
+
+   /**
+    * Delivers the progress to master, blocking until master replies.
+    */
+   public interface Sender {
+      /**
+       * @return False if master requests the stage to be stopped.
+       */
+      boolean send(DistStageProgress progress) throws IOException;
+   }
+}
@@ -66,6 +66,7 @@ public class Master {
                reporters.add(ReporterHelper.createReporter(reporterConfiguration.type, report.getProperties()));
             }
          }
+         state.setThreadStatisticsRequired(reporters.stream().anyMatch(Reporter::requiresThreadStatistics));
 
          long benchmarkStart = TimeService.currentTimeMillis();
          for (Configuration configuration : masterConfig.getConfigurations()) {
@@ -177,6 +178,8 @@ public class Master {
 
       if (result == StageResult.SUCCESS) {
          return stageId + 1;
+      } else if (result == StageResult.REPEAT) {
+         return stageId;
       } else if (result == StageResult.FAIL || result == StageResult.EXIT) {
          returnCode = masterConfig.getConfigurations().indexOf(configuration) + 1;
          if (result == StageResult.EXIT) {
@@ -262,7 +265,7 @@ public class Master {
       }
       List<DistStageAck> responses = null;
       try {
-         responses = connection.runStage(stageId, masterData, numSlaves);
+         responses = connection.runStage(stageId, masterData, numSlaves, stage::processProgressOnMaster);
       } catch (IOException e) {
          log.error("Error when communicating to slaves");
          return StageResult.EXIT;
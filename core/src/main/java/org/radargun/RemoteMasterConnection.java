@@ -11,6 +11,9 @@ import java.util.UUID;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.utils.ArgsHolder;
+import org.radargun.utils.ClockOffsetEstimator;
+import org.radargun.utils.ClockSync;
+import org.radargun.utils.TimeService;
 
 /**
  * Abstracts connection to the master node from slave side.
@@ -24,6 +27,7 @@ public class RemoteMasterConnection {
    private int masterPort;
    private SocketChannel socketChannel;
    private ByteBuffer buffer;
+   private boolean stageRunning;
 
    public RemoteMasterConnection(String masterHost, int masterPort) {
       this.masterHost = masterHost;
@@ -66,6 +70,8 @@ public class RemoteMasterConnection {
          }
       }
       log.info("Successfully established connection with master at: " + masterHost + ":" + masterPort);
+      // messages are written in several chunks; don't let Nagle's algorithm delay the last one
+      socketChannel.socket().setTcpNoDelay(true);
 
       buffer.clear();
       buffer.putInt(slaveIndex);
@@ -155,20 +161,69 @@ public class RemoteMasterConnection {
     * @param nextUuid UUID of the next generation of slaves, or null if this slave will continue
     * @throws IOException
     */
-   public void sendObject(Serializable obj, UUID nextUuid) throws IOException {
-      buffer.clear();
-      buffer = SerializationHelper.serializeObjectWithLength(obj, buffer);
+   public synchronized void sendObject(Serializable obj, UUID nextUuid) throws IOException {
+      // the object is streamed in chunks of buffer's size, so that we don't need to hold all of it in memory
+      SerializationHelper.serializeObjectInChunks(obj, buffer, socketChannel);
       if (nextUuid == null) {
-         buffer = SerializationHelper.appendLong(0, buffer);
-         buffer = SerializationHelper.appendLong(0, buffer);
+         buffer.putLong(0);
+         buffer.putLong(0);
       } else {
-         buffer = SerializationHelper.appendLong(nextUuid.getMostSignificantBits(), buffer);
-         buffer = SerializationHelper.appendLong(nextUuid.getLeastSignificantBits(), buffer);
+         buffer.putLong(nextUuid.getMostSignificantBits());
+         buffer.putLong(nextUuid.getLeastSignificantBits());
       }
-      log.trace("Sending a message to the master, message has " + buffer.position() + " bytes.");
       buffer.flip();
       while (buffer.hasRemaining()) socketChannel.write(buffer);
-      log.info("Message successfully sent to the master");
+      if (obj instanceof DistStageProgress || obj instanceof ClockSync.Request) {
+         log.trace("Progress successfully sent to the master");
+      } else {
+         log.info("Message successfully sent to the master");
+      }
+   }
+
+   /**
+    * Send intermediate result of the currently executed stage and wait for master's reply.
+    * @param progress
+    * @return False if the master requests the stage to be stopped.
+    * @throws IOException
+    */
+   public synchronized boolean sendProgress(DistStageProgress progress) throws IOException {
+      sendObject(progress, null);
+      Object reply = receiveObject();
+      if (!(reply instanceof Boolean)) {
+         throw new IOException("Unexpected reply to progress: " + reply);
+      }
+      return (Boolean) reply;
+   }
+
+   /**
+    * While the stage is running master waits for its result and replies to progress and clock synchronization
+    * requests; other messages (e.g. next stage) cannot arrive.
+    */
+   public synchronized void setStageRunning(boolean stageRunning) {
+      this.stageRunning = stageRunning;
+   }
+
+   /**
+    * Executes single NTP-style exchange with master.
+    * @return Result of the exchange, or null if no stage is running and therefore master would not reply.
+    * @throws IOException
+    */
+   public synchronized ClockOffsetEstimator.Sample synchronizeClock() throws IOException {
+      if (!stageRunning) {
+         return null;
+      }
+      long sendTime = TimeService.currentTimeMillis();
+      long startNanos = TimeService.nanoTime();
+      sendObject(new ClockSync.Request(sendTime), null);
+      Object reply = receiveObject();
+      long roundTripNanos = TimeService.nanoTime() - startNanos;
+      long receiveTime = TimeService.currentTimeMillis();
+      if (!(reply instanceof ClockSync.Response)) {
+         throw new IOException("Unexpected reply to clock synchronization: " + reply);
+      }
+      ClockSync.Response response = (ClockSync.Response) reply;
+      return ClockOffsetEstimator.Sample.of(sendTime, response.masterReceiveTime, response.masterSendTime, receiveTime,
+         roundTripNanos, response.processingNanos);
    }
 
    public void release() throws IOException {
@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import org.radargun.config.Cluster;
 import org.radargun.config.Configuration;
@@ -24,6 +25,7 @@ import org.radargun.config.Scenario;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.reporting.Timeline;
+import org.radargun.utils.ClockSync;
 import org.radargun.utils.SlaveConnectionInfo;
 import org.radargun.utils.TimeService;
 
@@ -40,7 +42,7 @@ public class RemoteSlaveConnection {
    private static final int UUID_BYTES = 16;
    private static final int EXPECTED_SIZE_BYTES = 4;
    private static final int DEFAULT_WRITE_BUFF_CAPACITY = 1024;
-   private static final int DEFAULT_READ_BUFF_CAPACITY = 1024;
+   private static final int READ_BUFF_CAPACITY = 65536;
 
    public static final int DEFAULT_PORT = 2103;
 
@@ -51,7 +53,11 @@ public class RemoteSlaveConnection {
    private ByteBuffer mcastBuffer;
    private Map<SocketChannel, ByteBuffer> writeBufferMap = new HashMap<SocketChannel, ByteBuffer>();
    private Map<SocketChannel, ByteBuffer> readBufferMap = new HashMap<SocketChannel, ByteBuffer>();
+   // messages from slaves are received in chunks
+   private Map<SocketChannel, ChunkedMessage> messageMap = new HashMap<>();
    private List<Object> responses = new ArrayList<Object>();
+   // handles intermediate results of currently executed stage
+   private Predicate<DistStageProgress> progressHandler;
    private Selector communicationSelector;
    private Selector discoverySelector;
    private Map<SocketChannel, Integer> channel2Index = new HashMap<>();
@@ -167,7 +173,7 @@ public class RemoteSlaveConnection {
 
          slaveCount++;
          channel2Index.put(socketChannel, slaveIndex);
-         readBufferMap.put(socketChannel, ByteBuffer.allocate(DEFAULT_READ_BUFF_CAPACITY));
+         readBufferMap.put(socketChannel, ByteBuffer.allocate(READ_BUFF_CAPACITY));
          socketChannel.configureBlocking(false);
          log.trace("Added new slave connection " + slaveIndex + " from: " + socketChannel.socket().getInetAddress());
       }
@@ -211,13 +217,19 @@ public class RemoteSlaveConnection {
       mcastBuffer(numSlaves);
    }
 
-   public List<DistStageAck> runStage(int stageId, Map<String, Object> masterData, int numSlaves) throws IOException {
+   public List<DistStageAck> runStage(int stageId, Map<String, Object> masterData, int numSlaves,
+                                      Predicate<DistStageProgress> progressHandler) throws IOException {
       responses.clear();
       clearBuffer();
       mcastBuffer.putInt(stageId);
       mcastBuffer = SerializationHelper.serializeObjectWithLength((Serializable) masterData, mcastBuffer);
       mcastBuffer(numSlaves);
-      flushBuffers(numSlaves);
+      this.progressHandler = progressHandler;
+      try {
+         flushBuffers(numSlaves);
+      } finally {
+         this.progressHandler = null;
+      }
       ArrayList<DistStageAck> list = new ArrayList<>(responses.size());
       for (Object o : responses) {
          list.add((DistStageAck) o);
@@ -296,45 +308,49 @@ public class RemoteSlaveConnection {
 
       ByteBuffer byteBuffer = readBufferMap.get(socketChannel);
       int value = socketChannel.read(byteBuffer);
-
-      if (byteBuffer.position() >= EXPECTED_SIZE_BYTES) {
-         int expectedSize = byteBuffer.getInt(0);
-         if ((expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES) > byteBuffer.capacity()) {
-            ByteBuffer replacer = ByteBuffer.allocate(expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES);
-            replacer.put(byteBuffer.array(), 0, byteBuffer.position());
-            readBufferMap.put(socketChannel, replacer);
-            if (log.isTraceEnabled())
-               log.trace("Expected size(" + expectedSize + ")" + " is > ByteBuffer's capacity(" +
-                  byteBuffer.capacity() + ")" + ".Replacing " + byteBuffer + " with " + replacer);
-            byteBuffer = replacer;
+      byteBuffer.flip();
+      while (byteBuffer.hasRemaining()) {
+         ChunkedMessage message = messageMap.computeIfAbsent(socketChannel, ch -> new ChunkedMessage());
+         if (!message.consume(byteBuffer)) {
+            break;
          }
-         if (log.isTraceEnabled())
-            log.trace("Expected size: " + expectedSize + ". byteBuffer.position() == " + byteBuffer.position());
-         if (byteBuffer.position() >= expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES) {
-            log.trace("Received response from " + socketChannel.getRemoteAddress());
-            Object response = SerializationHelper.deserialize(byteBuffer.array(), EXPECTED_SIZE_BYTES, expectedSize);
-            long uuidMsb = byteBuffer.getLong(EXPECTED_SIZE_BYTES + expectedSize);
-            long uuidLsb = byteBuffer.getLong(EXPECTED_SIZE_BYTES + expectedSize + 8);
-            if (uuidMsb != 0 && uuidLsb != 0) {
-               // we should expect reconnection
-               int index = channel2Index.get(socketChannel);
-               UUID uuid = new UUID(uuidMsb, uuidLsb);
-               log.tracef("Slave %d (%s) is going to restart with UUID %s", index, socketChannel.getRemoteAddress(), uuid);
-               SlaveRecord record = slaves[index];
-               record.uuid = uuid;
-               record.channel.close();
-               record.channel = null;
-               channel2Index.remove(socketChannel);
-               readBufferMap.remove(socketChannel);
-               reconnections++;
-            }
-            byteBuffer.clear();
-            responses.add(response);
+         messageMap.remove(socketChannel);
+         long receiveTime = TimeService.currentTimeMillis();
+         long receiveNanos = TimeService.nanoTime();
+         log.trace("Received response from " + socketChannel.getRemoteAddress() + ", " + message.size() + " bytes");
+         Object response = message.deserialize();
+         if (response instanceof DistStageProgress) {
+            replyToProgress(key, (DistStageProgress) response);
+            continue;
+         } else if (response instanceof ClockSync.Request) {
+            ClockSync.Request request = (ClockSync.Request) response;
+            reply(key, new ClockSync.Response(request.slaveTime, receiveTime, TimeService.currentTimeMillis(),
+               TimeService.nanoTime() - receiveNanos));
+            continue;
          }
+         UUID nextUuid = message.nextUuid();
+         if (nextUuid != null) {
+            // we should expect reconnection
+            int index = channel2Index.get(socketChannel);
+            log.tracef("Slave %d (%s) is going to restart with UUID %s", index, socketChannel.getRemoteAddress(), nextUuid);
+            SlaveRecord record = slaves[index];
+            record.uuid = nextUuid;
+            record.channel.close();
+            record.channel = null;
+            channel2Index.remove(socketChannel);
+            readBufferMap.remove(socketChannel);
+            reconnections++;
+         }
+         responses.add(response);
       }
+      byteBuffer.compact();
       if (value < 0) {
          Integer slaveIndex = channel2Index.get(socketChannel);
          key.cancel();
+         ChunkedMessage incomplete = messageMap.remove(socketChannel);
+         if (incomplete != null) {
+            incomplete.discard();
+         }
          if (slaveIndex == null) {
             throw new IllegalStateException("Unknown slave for socket " + socketChannel);
          }
@@ -351,6 +367,28 @@ public class RemoteSlaveConnection {
       }
    }
 
+   private void replyToProgress(SelectionKey key, DistStageProgress progress) throws IOException {
+      boolean proceed = true;
+      if (progressHandler == null) {
+         log.warn("Received progress from slave " + progress.getSlaveIndex() + " but no stage is running");
+      } else {
+         try {
+            proceed = progressHandler.test(progress);
+         } catch (Exception e) {
+            log.error("Failed to process progress from slave " + progress.getSlaveIndex(), e);
+         }
+      }
+      reply(key, proceed);
+   }
+
+   private void reply(SelectionKey key, Serializable object) throws IOException {
+      // the slave is blocked until it receives the reply, therefore nothing else can be written to the channel now
+      ByteBuffer reply = SerializationHelper.serializeObjectWithLength(object, ByteBuffer.allocate(DEFAULT_WRITE_BUFF_CAPACITY));
+      reply.flip();
+      writeBufferMap.put((SocketChannel) key.channel(), reply);
+      key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+   }
+
    public void release() {
       if (mcastBuffer != null) {
          try {
@@ -1,12 +1,18 @@
 package org.radargun;
 
 import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Helper class holding serialization logic.
@@ -64,6 +70,116 @@ public final class SerializationHelper {
       }
    }
 
+   /**
+    * Write serialized representation of given object to the channel as a sequence of chunks.
+    * Each chunk is preceded by its length as 4 byte integer, the sequence is terminated by zero length.
+    * The buffer is used for one chunk at a time, therefore the whole serialized representation
+    * is never held in memory.
+    *
+    * @param serializable
+    * @param buffer Buffer with capacity of one chunk (including the length).
+    * @param channel
+    * @throws IOException
+    */
+   public static void serializeObjectInChunks(Serializable serializable, ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+      if (buffer.capacity() < MIN_REMAINING) {
+         throw new IllegalArgumentException("Buffer too small: " + buffer.capacity());
+      }
+      try (ChunkedOutputStream out = new ChunkedOutputStream(buffer, channel); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+         oos.writeObject(serializable);
+      }
+   }
+
+   /**
+    * Deserialize object from a stream, e.g. concatenated chunks written by {@link #serializeObjectInChunks(Serializable, ByteBuffer, WritableByteChannel)}.
+    *
+    * @param stream
+    * @return
+    * @throws IOException
+    */
+   public static Object deserialize(InputStream stream) throws IOException {
+      try (ObjectInputStream ois = new ObjectInputStream(stream)) {
+         return ois.readObject();
+      } catch (ClassNotFoundException e) {
+         throw new IllegalStateException("Unmarshalling exception", e);
+      }
+   }
+
+   /**
+    * Write non-negative long using 1 - 10 bytes, 7 bits per byte.
+    *
+    * @param out
+    * @param value
+    * @throws IOException
+    */
+   public static void writeVarLong(DataOutput out, long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+         out.writeByte((int) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      out.writeByte((int) value);
+   }
+
+   /**
+    * Read long written by {@link #writeVarLong(DataOutput, long)}.
+    *
+    * @param in
+    * @return
+    * @throws IOException
+    */
+   public static long readVarLong(DataInput in) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         byte b = in.readByte();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new StreamCorruptedException("Malformed variable-length long");
+   }
+
+   /**
+    * Write long using zig-zag encoding, so that values close to zero (positive or negative)
+    * take few bytes. Suitable for deltas.
+    *
+    * @param out
+    * @param value
+    * @throws IOException
+    */
+   public static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+      writeVarLong(out, (value << 1) ^ (value >> 63));
+   }
+
+   /**
+    * Read long written by {@link #writeSignedVarLong(DataOutput, long)}.
+    *
+    * @param in
+    * @return
+    * @throws IOException
+    */
+   public static long readSignedVarLong(DataInput in) throws IOException {
+      long value = readVarLong(in);
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   /**
+    * Read version of the serialized format written by the class as the first byte.
+    *
+    * @param in
+    * @param maxVersion Newest version supported by the class.
+    * @param clazz
+    * @return
+    * @throws IOException
+    */
+   public static int readVersion(DataInput in, int maxVersion, Class<?> clazz) throws IOException {
+      int version = in.readUnsignedByte();
+      if (version == 0 || version > maxVersion) {
+         throw new InvalidObjectException("Unsupported serialized version " + version + " of " + clazz.getName());
+      }
+      return version;
+   }
+
    /**
     * Append long to the end of the buffer, possibly reallocating it.
     *
@@ -133,4 +249,65 @@ public final class SerializationHelper {
          return buffer;
       }
    }
+
+   private static class ChunkedOutputStream extends OutputStream {
+      private static final int LENGTH_BYTES = 4;
+
+      private final ByteBuffer buffer;
+      private final WritableByteChannel channel;
+      private boolean closed;
+
+      private ChunkedOutputStream(ByteBuffer buffer, WritableByteChannel channel) {
+         this.buffer = buffer;
+         this.channel = channel;
+         buffer.clear();
+         buffer.position(LENGTH_BYTES);
+      }
+
+      private void writeChunk() throws IOException {
+         buffer.putInt(0, buffer.position() - LENGTH_BYTES);
+         buffer.flip();
+         while (buffer.hasRemaining()) channel.write(buffer);
+         buffer.clear();
+         buffer.position(LENGTH_BYTES);
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+         if (!buffer.hasRemaining()) {
+            writeChunk();
+         }
+         buffer.put((byte) b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+         while (len > 0) {
+            if (!buffer.hasRemaining()) {
+               writeChunk();
+            }
+            int length = Math.min(len, buffer.remaining());
+            buffer.put(b, off, length);
+            off += length;
+            len -= length;
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         if (closed) {
+            return;
+         }
+         closed = true;
+         if (buffer.position() > LENGTH_BYTES) {
+            writeChunk();
+         }
+         // zero-length chunk terminates the object
+         buffer.clear();
+         buffer.putInt(0);
+         buffer.flip();
+         while (buffer.hasRemaining()) channel.write(buffer);
+         buffer.clear();
+      }
+   }
 }
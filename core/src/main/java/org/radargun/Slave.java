@@ -26,6 +26,7 @@ import org.radargun.utils.Utils;
  */
 public class Slave extends SlaveBase {
    private RemoteMasterConnection connection;
+   private ClockSynchronizer clockSynchronizer;
 
    public Slave(RemoteMasterConnection connection) {
       this.connection = connection;
@@ -41,6 +42,12 @@ public class Slave extends SlaveBase {
       state.setMaxClusterSize(connection.receiveSlaveCount());
       log.info("Received slave count " + state.getMaxClusterSize());
       state.setLocalAddress(address);
+      state.setProgressSender(connection::sendProgress);
+      long clockSyncPeriod = Long.getLong("slave.clockSyncPeriod", 30000);
+      if (clockSyncPeriod > 0) {
+         clockSynchronizer = new ClockSynchronizer(connection, state::getTimeline, clockSyncPeriod);
+         clockSynchronizer.start();
+      }
       while (true) {
          Object object = connection.receiveObject();
          log.trace("Received " + object);
@@ -58,6 +65,9 @@ public class Slave extends SlaveBase {
                envs.put(entry.getKey(), Evaluator.parseString(entry.getValue().toString()));
             }
             RestartHelper.spawnSlave(state.getSlaveIndex(), nextUuid, setup.plugin, vmArgs, envs);
+            if (clockSynchronizer != null) {
+               clockSynchronizer.stop();
+            }
             connection.sendObject(null, nextUuid);
             connection.release();
             ShutDownHook.exit(0);
@@ -107,11 +117,17 @@ public class Slave extends SlaveBase {
 
    @Override
    protected Map<String, Object> getNextMasterData() throws IOException {
-      return (Map<String, Object>) connection.receiveObject();
+      Map<String, Object> masterData = (Map<String, Object>) connection.receiveObject();
+      connection.setStageRunning(true);
+      if (clockSynchronizer != null) {
+         clockSynchronizer.stageStarted();
+      }
+      return masterData;
    }
 
    @Override
    protected void sendResponse(DistStageAck response) throws IOException {
+      connection.setStageRunning(false);
       connection.sendObject(response, null);
    }
 
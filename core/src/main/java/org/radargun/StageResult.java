@@ -28,7 +28,12 @@ public enum StageResult {
    /**
     * Continue with the next cycle of the innermost repeat
     */
-   CONTINUE;
+   CONTINUE,
+
+   /**
+    * Execute the same stage again
+    */
+   REPEAT;
 
    public boolean isError() {
       return this == FAIL || this == EXIT;
@@ -5,12 +5,14 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import org.radargun.Operation;
 import org.radargun.config.Cluster;
 import org.radargun.config.Configuration;
 import org.radargun.config.Definition;
 import org.radargun.stats.Statistics;
+import org.radargun.stats.StatsUtils;
 
 /**
  * Data collected during scenarion on one configuration
@@ -174,9 +176,20 @@ public class Report implements Comparable<Report>, Serializable {
        * @param stats
        */
       public void addStatistics(int iteration, int slaveIndex, List<Statistics> stats) {
+         addStatistics(iteration, slaveIndex, stats, true);
+      }
+
+      /**
+       * Set statistics from given slave for given iteration.
+       * @param iteration
+       * @param slaveIndex
+       * @param stats
+       * @param keepThreadStatistics See {@link TestIteration#addStatistics(int, List, boolean)}
+       */
+      public void addStatistics(int iteration, int slaveIndex, List<Statistics> stats, boolean keepThreadStatistics) {
          ensureIterations(iteration + 1);
          TestIteration ti = iterations.get(iteration);
-         ti.addStatistics(slaveIndex, stats);
+         ti.addStatistics(slaveIndex, stats, keepThreadStatistics);
       }
 
       /**
@@ -216,8 +229,16 @@ public class Report implements Comparable<Report>, Serializable {
 
       /* Slave index - Statistics from threads */
       private Map<Integer, List<Statistics>> statistics = new HashMap<>();
+      /* Slave index - number of threads */
+      private Map<Integer, Integer> threadCounts = new HashMap<>();
       private Map<String, TestResult> results = new TreeMap<>();
       private int threadCount;
+      private boolean threadStatisticsDropped;
+      /* Slave index - Statistics merged from all threads, computed in background */
+      private transient Map<Integer, CompletableFuture<Statistics>> nodeStatistics;
+      private transient Statistics totalStatistics;
+      // incremented whenever the statistics change so that the total merged concurrently is not cached when stale
+      private transient int version;
 
       public TestIteration(Test test, int id) {
          this.test = test;
@@ -230,10 +251,61 @@ public class Report implements Comparable<Report>, Serializable {
        * @param slaveStats
        */
       public void addStatistics(int slaveIndex, List<Statistics> slaveStats) {
+         addStatistics(slaveIndex, slaveStats, true);
+      }
+
+      /**
+       * Add statistics for given slave. Merging statistics from all threads starts immediately in background.
+       *
+       * @param slaveIndex
+       * @param slaveStats
+       * @param keepThreadStatistics If false, the statistics from threads are replaced by the merged statistics
+       *                             as soon as these are computed.
+       */
+      public synchronized void addStatistics(int slaveIndex, List<Statistics> slaveStats, boolean keepThreadStatistics) {
+         Integer previousThreads = threadCounts.put(slaveIndex, slaveStats.size());
+         threadCount += slaveStats.size() - (previousThreads == null ? 0 : previousThreads);
          statistics.put(slaveIndex, slaveStats);
-         threadCount += slaveStats.size();
+         totalStatistics = null;
+         version++;
+         CompletableFuture<Statistics> merged = StatsUtils.mergeAsync(slaveStats);
+         if (!keepThreadStatistics) {
+            threadStatisticsDropped = true;
+            merged = merged.thenApply(nodeStats -> {
+               replaceThreadStatistics(slaveIndex, slaveStats, nodeStats);
+               return nodeStats;
+            });
+         }
+         nodeStatistics().put(slaveIndex, merged);
       }
 
+      private synchronized void replaceThreadStatistics(int slaveIndex, List<Statistics> slaveStats, Statistics nodeStats) {
+         // the statistics could have been set again in the meantime
+         if (statistics.get(slaveIndex) == slaveStats) {
+            statistics.put(slaveIndex, nodeStats == null ? Collections.emptyList() : Collections.singletonList(nodeStats));
+         }
+      }
+
+      private Map<Integer, CompletableFuture<Statistics>> nodeStatistics() {
+         if (nodeStatistics == null) {
+            // after deserialization
+            nodeStatistics = new HashMap<>();
+         }
+         return nodeStatistics;
+      }
+
+      private synchronized CompletableFuture<Statistics> nodeStatisticsFuture(int slaveIndex) {
+         CompletableFuture<Statistics> future = nodeStatistics().get(slaveIndex);
+         if (future == null) {
+            List<Statistics> slaveStats = statistics.get(slaveIndex);
+            if (slaveStats == null) {
+               return null;
+            }
+            future = StatsUtils.mergeAsync(slaveStats);
+            nodeStatistics.put(slaveIndex, future);
+         }
+         return future;
+      }
       /**
        * Add the result. The name must be unique in this iteration.
        * @param result
@@ -247,18 +319,69 @@ public class Report implements Comparable<Report>, Serializable {
          }
       }
 
-      public Set<Map.Entry<Integer, List<Statistics>>> getStatistics() {
-         return Collections.unmodifiableSet(statistics.entrySet());
+      public synchronized Set<Map.Entry<Integer, List<Statistics>>> getStatistics() {
+         return Collections.unmodifiableSet(new HashMap<>(statistics).entrySet());
       }
 
-      public List<Statistics> getStatistics(int slaveIndex) {
+      public synchronized List<Statistics> getStatistics(int slaveIndex) {
          return statistics.get(slaveIndex);
       }
 
+      /**
+       * @return Statistics merged from all threads on given slave, or null if the slave did not report any.
+       */
+      public Statistics getNodeStatistics(int slaveIndex) {
+         CompletableFuture<Statistics> future = nodeStatisticsFuture(slaveIndex);
+         // do not wait while holding the lock, the merge may need it
+         return future == null ? null : future.join();
+      }
+
+      /**
+       * @return Statistics merged from all slaves, or null if there are no statistics.
+       */
+      public Statistics getTotalStatistics() {
+         List<Integer> slaves;
+         int mergedVersion;
+         synchronized (this) {
+            if (totalStatistics != null) {
+               return totalStatistics;
+            }
+            slaves = new ArrayList<>(new TreeSet<>(statistics.keySet()));
+            mergedVersion = version;
+         }
+         List<Statistics> nodeStats = new ArrayList<>(slaves.size());
+         for (int slaveIndex : slaves) {
+            nodeStats.add(getNodeStatistics(slaveIndex));
+         }
+         Statistics total = StatsUtils.merge(nodeStats);
+         synchronized (this) {
+            if (totalStatistics == null && mergedVersion == version) {
+               totalStatistics = total;
+            }
+         }
+         return total;
+      }
+
+      /**
+       * @return False if statistics from threads were replaced by statistics merged on each slave.
+       */
+      public boolean hasThreadStatistics() {
+         return !threadStatisticsDropped;
+      }
+
       public int getThreadCount() {
          return threadCount;
       }
 
+      public synchronized int getThreadCount(int slaveIndex) {
+         Integer threads = threadCounts == null ? null : threadCounts.get(slaveIndex);
+         if (threads == null) {
+            List<Statistics> slaveStats = statistics.get(slaveIndex);
+            return slaveStats == null ? 0 : slaveStats.size();
+         }
+         return threads;
+      }
+
       public Map<String, TestResult> getResults() {
          return results == null ? null : Collections.unmodifiableMap(results);
       }
@@ -266,6 +389,11 @@ public class Report implements Comparable<Report>, Serializable {
       public String getValue() {
          return value;
       }
+
+      private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+         // statistics are replaced when merged in background
+         out.defaultWriteObject();
+      }
    }
 
    /**
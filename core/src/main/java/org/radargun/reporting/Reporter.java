@@ -10,4 +10,12 @@ import org.radargun.config.MasterConfig;
  */
 public interface Reporter {
    void run(MasterConfig masterConfig, Collection<Report> reports);
+
+   /**
+    * @return True if the reporter uses statistics from individual stressor threads. When no reporter needs these,
+    *         master replaces them with statistics merged on each slave as soon as the test iteration finishes.
+    */
+   default boolean requiresThreadStatistics() {
+      return false;
+   }
 }
@@ -1,12 +1,19 @@
 package org.radargun.reporting;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+import org.radargun.SerializationHelper;
 import org.radargun.utils.TimeService;
 
 /**
@@ -15,14 +22,17 @@ import org.radargun.utils.TimeService;
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
 public class Timeline implements Serializable, Comparable<Timeline> {
+   private static final int SERIAL_VERSION = 2;
+   private static final AtomicLongFieldUpdater<Timeline> FIRST_TIMESTAMP = AtomicLongFieldUpdater.newUpdater(Timeline.class, "firstTimestamp");
+   private static final AtomicLongFieldUpdater<Timeline> LAST_TIMESTAMP = AtomicLongFieldUpdater.newUpdater(Timeline.class, "lastTimestamp");
 
    public final int slaveIndex;
    /* Events plotted on all charts as marker events. */
    private Map<String, List<MarkerEvent>> events = new HashMap<>();
    /* Values plotted in separate charts */
-   private Map<Category, List<Value>> values = new HashMap<>();
-   private long firstTimestamp = Long.MAX_VALUE;
-   private long lastTimestamp = Long.MIN_VALUE;
+   private transient ConcurrentMap<Category, TimelineSeries> values = new ConcurrentHashMap<>();
+   private volatile long firstTimestamp = Long.MAX_VALUE;
+   private volatile long lastTimestamp = Long.MIN_VALUE;
 
    public Timeline(int slaveIndex) {
       this.slaveIndex = slaveIndex;
@@ -35,17 +45,30 @@ public class Timeline implements Serializable, Comparable<Timeline> {
          events.put(category, cat);
       }
       cat.add(e);
-      updateTimestamps(e);
+      updateTimestamps(e.getStarted(), e.getEnded());
    }
 
-   public synchronized void addValue(Category category, Value e) {
-      List<Value> cat = values.get(category);
-      if (cat == null) {
-         cat = new ArrayList<>();
-         values.put(category, cat);
+   public void addValue(Category category, Value e) {
+      series(category).add(e.timestamp, e.value);
+      updateTimestamps(e.timestamp, e.timestamp);
+   }
+
+   public void addValue(Category category, long timestamp, long value) {
+      series(category).add(timestamp, value);
+      updateTimestamps(timestamp, timestamp);
+   }
+
+   public void addValue(Category category, long timestamp, double value) {
+      series(category).add(timestamp, value);
+      updateTimestamps(timestamp, timestamp);
+   }
+
+   private TimelineSeries series(Category category) {
+      TimelineSeries series = values.get(category);
+      if (series == null) {
+         series = values.computeIfAbsent(category, c -> new TimelineSeries());
       }
-      cat.add(e);
-      updateTimestamps(e);
+      return series;
    }
 
    public boolean containsValuesOfType(Category.Type type) {
@@ -109,21 +132,21 @@ public class Timeline implements Serializable, Comparable<Timeline> {
       }
    }
 
-   private void updateTimestamps(MarkerEvent e) {
-      firstTimestamp = Math.min(firstTimestamp, e.getStarted());
-      lastTimestamp = Math.max(lastTimestamp, e.getEnded());
-   }
-
-   private void updateTimestamps(Value v) {
-      firstTimestamp = Math.min(firstTimestamp, v.getStarted());
-      lastTimestamp = Math.max(lastTimestamp, v.getEnded());
+   private void updateTimestamps(long started, long ended) {
+      // avoid the CAS when the bounds do not change, as is usual for sampled values
+      if (started < firstTimestamp) {
+         FIRST_TIMESTAMP.accumulateAndGet(this, started, Math::min);
+      }
+      if (ended > lastTimestamp) {
+         LAST_TIMESTAMP.accumulateAndGet(this, ended, Math::max);
+      }
    }
 
    public synchronized Set<String> getEventCategories() {
       return events.keySet();
    }
 
-   public synchronized Set<Category> getValueCategories() {
+   public Set<Category> getValueCategories() {
       return values.keySet();
    }
 
@@ -131,7 +154,19 @@ public class Timeline implements Serializable, Comparable<Timeline> {
       return events.get(category);
    }
 
-   public synchronized List<Value> getValues(Category category) {
+   /**
+    * @return View of values recorded so far, or null if there are no values in this category.
+    *         Prefer {@link #getSeries(Category)} when iterating over many values.
+    */
+   public List<Value> getValues(Category category) {
+      TimelineSeries series = values.get(category);
+      return series == null ? null : series.asList();
+   }
+
+   /**
+    * @return Column-oriented storage of values in this category, or null if there are no values.
+    */
+   public TimelineSeries getSeries(Category category) {
       return values.get(category);
    }
 
@@ -271,4 +306,28 @@ public class Timeline implements Serializable, Comparable<Timeline> {
     */
    public static class Request implements Serializable {
    }
+
+   private synchronized void writeObject(ObjectOutputStream s) throws IOException {
+      s.defaultWriteObject();
+      s.writeByte(SERIAL_VERSION);
+      // monitors record a value each second for hours, serializing Value objects would be wasteful
+      // categories can be added concurrently, the count must match the entries written
+      List<Map.Entry<Category, TimelineSeries>> entries = new ArrayList<>(values.entrySet());
+      SerializationHelper.writeVarLong(s, entries.size());
+      for (Map.Entry<Category, TimelineSeries> entry : entries) {
+         s.writeObject(entry.getKey());
+         entry.getValue().writeTo(s);
+      }
+   }
+
+   private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+      s.defaultReadObject();
+      SerializationHelper.readVersion(s, SERIAL_VERSION, Timeline.class);
+      int categories = (int) SerializationHelper.readVarLong(s);
+      values = new ConcurrentHashMap<>();
+      for (int i = 0; i < categories; ++i) {
+         Category category = (Category) s.readObject();
+         values.put(category, TimelineSeries.readFrom(s));
+      }
+   }
 }
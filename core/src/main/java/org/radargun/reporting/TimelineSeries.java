@@ -0,0 +1,275 @@
+package org.radargun.reporting;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.radargun.SerializationHelper;
+
+/**
+ * Values of single {@link Timeline.Category} stored in columns: timestamps and values are kept
+ * in primitive arrays split into fixed-size chunks, therefore recording a sample does not allocate
+ * and growing the series does not copy the recorded data.
+ *
+ * Appending does not lock (only allocation of a new chunk is synchronized); multiple threads
+ * may append concurrently. Readers see all values appended before {@link #size()} was called.
+ *
+ * Integral values are stored as longs, floating-point values as doubles; original type of the number
+ * is retained (other {@link Number} implementations are stored as doubles).
+ */
+public final class TimelineSeries {
+   private static final byte TYPE_BYTE = 1;
+   private static final byte TYPE_SHORT = 2;
+   private static final byte TYPE_INTEGER = 3;
+   private static final byte TYPE_LONG = 4;
+   private static final byte TYPE_FLOAT = 5;
+   private static final byte TYPE_DOUBLE = 6;
+   private static final int CHUNK_BITS = 10;
+   private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+   private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+   private final AtomicInteger reserved = new AtomicInteger();
+   private final AtomicInteger published = new AtomicInteger();
+   private volatile Chunk[] chunks = new Chunk[4];
+
+   public void add(long timestamp, long value) {
+      append(timestamp, value, TYPE_LONG);
+   }
+
+   public void add(long timestamp, double value) {
+      append(timestamp, Double.doubleToRawLongBits(value), TYPE_DOUBLE);
+   }
+
+   public void add(long timestamp, Number value) {
+      byte type = typeOf(value);
+      append(timestamp, isFloating(type) ? Double.doubleToRawLongBits(value.doubleValue()) : value.longValue(), type);
+   }
+
+   /**
+    * @return Number of values in this series.
+    */
+   public int size() {
+      return published.get();
+   }
+
+   public long timestamp(int index) {
+      checkIndex(index);
+      return chunk(index >>> CHUNK_BITS).timestamps[index & CHUNK_MASK];
+   }
+
+   public double doubleValue(int index) {
+      checkIndex(index);
+      Chunk chunk = chunk(index >>> CHUNK_BITS);
+      long bits = chunk.values[index & CHUNK_MASK];
+      return isFloating(chunk.types[index & CHUNK_MASK]) ? Double.longBitsToDouble(bits) : bits;
+   }
+
+   /**
+    * @return Value boxed into the same type as it was recorded.
+    */
+   public Number value(int index) {
+      checkIndex(index);
+      Chunk chunk = chunk(index >>> CHUNK_BITS);
+      return toNumber(chunk.types[index & CHUNK_MASK], chunk.values[index & CHUNK_MASK]);
+   }
+
+   /**
+    * @return Read-only view of values appended so far; {@link Timeline.Value} instances are created on access.
+    */
+   public List<Timeline.Value> asList() {
+      return new ValueList(size());
+   }
+
+   private void append(long timestamp, long bits, byte type) {
+      int index = reserved.getAndIncrement();
+      Chunk chunk = chunk(index >>> CHUNK_BITS);
+      int offset = index & CHUNK_MASK;
+      chunk.timestamps[offset] = timestamp;
+      chunk.values[offset] = bits;
+      chunk.types[offset] = type;
+      // values are published in order; concurrent writers into the same category are rare
+      while (!published.compareAndSet(index, index + 1)) {
+         Thread.yield();
+      }
+   }
+
+   private Chunk chunk(int chunkIndex) {
+      Chunk[] chunks = this.chunks;
+      if (chunkIndex < chunks.length) {
+         Chunk chunk = chunks[chunkIndex];
+         if (chunk != null) {
+            return chunk;
+         }
+      }
+      synchronized (this) {
+         chunks = this.chunks;
+         if (chunkIndex >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, chunkIndex + 1));
+         }
+         Chunk chunk = chunks[chunkIndex];
+         if (chunk == null) {
+            chunk = new Chunk();
+            chunks[chunkIndex] = chunk;
+         }
+         this.chunks = chunks;
+         return chunk;
+      }
+   }
+
+   private void checkIndex(int index) {
+      if (index < 0 || index >= published.get()) {
+         throw new IndexOutOfBoundsException("Index: " + index + ", size: " + published.get());
+      }
+   }
+
+   /**
+    * Writes the series in columns: timestamps are encoded as delta of deltas (regular sampling
+    * makes these zero), types are run-length encoded, integral values as deltas and floating-point
+    * values as XOR with previous value, all using variable-length encoding.
+    */
+   void writeTo(DataOutput out) throws IOException {
+      int size = size();
+      SerializationHelper.writeVarLong(out, size);
+      long previousTimestamp = 0, previousDelta = 0;
+      for (int i = 0; i < size; ++i) {
+         long timestamp = timestamp(i);
+         long delta = timestamp - previousTimestamp;
+         SerializationHelper.writeSignedVarLong(out, delta - previousDelta);
+         previousTimestamp = timestamp;
+         previousDelta = delta;
+      }
+      for (int i = 0; i < size; ) {
+         byte type = type(i);
+         int run = 1;
+         while (i + run < size && type(i + run) == type) {
+            ++run;
+         }
+         out.writeByte(type);
+         SerializationHelper.writeVarLong(out, run);
+         i += run;
+      }
+      long previousLong = 0, previousBits = 0;
+      for (int i = 0; i < size; ++i) {
+         long bits = chunk(i >>> CHUNK_BITS).values[i & CHUNK_MASK];
+         if (isFloating(type(i))) {
+            SerializationHelper.writeVarLong(out, bits ^ previousBits);
+            previousBits = bits;
+         } else {
+            SerializationHelper.writeSignedVarLong(out, bits - previousLong);
+            previousLong = bits;
+         }
+      }
+   }
+
+   static TimelineSeries readFrom(DataInput in) throws IOException {
+      int size = (int) SerializationHelper.readVarLong(in);
+      long[] timestamps = new long[size];
+      long timestamp = 0, delta = 0;
+      for (int i = 0; i < size; ++i) {
+         delta += SerializationHelper.readSignedVarLong(in);
+         timestamp += delta;
+         timestamps[i] = timestamp;
+      }
+      byte[] types = new byte[size];
+      for (int i = 0; i < size; ) {
+         byte type = in.readByte();
+         if (type < TYPE_BYTE || type > TYPE_DOUBLE) {
+            throw new InvalidObjectException("Unknown number type " + type);
+         }
+         int run = (int) SerializationHelper.readVarLong(in);
+         if (run <= 0 || i + run > size) {
+            throw new InvalidObjectException("Invalid run length " + run);
+         }
+         Arrays.fill(types, i, i + run, type);
+         i += run;
+      }
+      TimelineSeries series = new TimelineSeries();
+      long previousLong = 0, previousBits = 0;
+      for (int i = 0; i < size; ++i) {
+         long bits;
+         if (isFloating(types[i])) {
+            bits = previousBits ^ SerializationHelper.readVarLong(in);
+            previousBits = bits;
+         } else {
+            bits = previousLong + SerializationHelper.readSignedVarLong(in);
+            previousLong = bits;
+         }
+         series.append(timestamps[i], bits, types[i]);
+      }
+      return series;
+   }
+
+   private byte type(int index) {
+      return chunk(index >>> CHUNK_BITS).types[index & CHUNK_MASK];
+   }
+
+   private static byte typeOf(Number number) {
+      if (number instanceof Integer) {
+         return TYPE_INTEGER;
+      } else if (number instanceof Long) {
+         return TYPE_LONG;
+      } else if (number instanceof Short) {
+         return TYPE_SHORT;
+      } else if (number instanceof Byte) {
+         return TYPE_BYTE;
+      } else if (number instanceof Float) {
+         return TYPE_FLOAT;
+      } else {
+         return TYPE_DOUBLE;
+      }
+   }
+
+   private static boolean isFloating(byte type) {
+      return type >= TYPE_FLOAT;
+   }
+
+   private static Number toNumber(byte type, long bits) {
+      switch (type) {
+         case TYPE_BYTE:
+            return (byte) bits;
+         case TYPE_SHORT:
+            return (short) bits;
+         case TYPE_INTEGER:
+            return (int) bits;
+         case TYPE_LONG:
+            return bits;
+         case TYPE_FLOAT:
+            return (float) Double.longBitsToDouble(bits);
+         default:
+            return Double.longBitsToDouble(bits);
+      }
+   }
+
+   private static final class Chunk {
+      final long[] timestamps = new long[CHUNK_SIZE];
+      final long[] values = new long[CHUNK_SIZE];
+      final byte[] types = new byte[CHUNK_SIZE];
+   }
+
+   private class ValueList extends AbstractList<Timeline.Value> implements RandomAccess {
+      private final int size;
+
+      private ValueList(int size) {
+         this.size = size;
+      }
+
+      @Override
+      public Timeline.Value get(int index) {
+         if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+         }
+         return new Timeline.Value(timestamp(index), value(index));
+      }
+
+      @Override
+      public int size() {
+         return size;
+      }
+   }
+}
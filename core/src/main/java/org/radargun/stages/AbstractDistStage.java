@@ -9,6 +9,7 @@ import java.util.Set;
 
 import org.radargun.DistStage;
 import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
 import org.radargun.StageResult;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
@@ -141,6 +142,11 @@ public abstract class AbstractDistStage extends AbstractStage implements DistSta
       return result;
    }
 
+   @Override
+   public boolean processProgressOnMaster(DistStageProgress progress) {
+      return true;
+   }
+
    protected void logDurationInfo(List<? extends DistStageAck> acks) {
       if (!log.isInfoEnabled()) return;
 
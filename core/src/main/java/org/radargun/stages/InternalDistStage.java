@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.radargun.DistStage;
 import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
 import org.radargun.config.Stage;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
@@ -44,6 +45,11 @@ public abstract class InternalDistStage extends AbstractStage implements DistSta
       this.slaveState = slaveState;
    }
 
+   @Override
+   public boolean processProgressOnMaster(DistStageProgress progress) {
+      return true;
+   }
+
    @Override
    public boolean shouldExecute() {
       return true;
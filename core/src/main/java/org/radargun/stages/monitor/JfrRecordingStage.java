@@ -0,0 +1,223 @@
+package org.radargun.stages.monitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
+import org.radargun.StageResult;
+import org.radargun.config.Property;
+import org.radargun.config.Stage;
+import org.radargun.stages.AbstractDistStage;
+import org.radargun.stages.test.SlowRequests;
+import org.radargun.state.SlaveState;
+import org.radargun.utils.NanoTimeConverter;
+
+/**
+ * Controls Flight Recorder in slave JVMs. Recording is started before and stopped after the stages that should
+ * be profiled; the recorded files are transferred to master in chunks, as progress of the stopping stage,
+ * so that neither side needs to hold the whole file in memory.
+ */
+@Stage(doc = "Starts or stops Flight Recorder on slaves. When the recording is stopped, the recorded data are " +
+   "written to the output directory on master (or on slaves if collect is false). Requires JVM with Flight Recorder (JDK 11+).")
+public class JfrRecordingStage extends AbstractDistStage {
+   private static final String RECORDING_PREFIX = JfrRecordingStage.class.getName() + ".";
+   private static final int CHUNK_SIZE = 1 << 20;
+
+   public enum Action {
+      START,
+      STOP
+   }
+
+   @Property(optional = false, doc = "Whether the recording should be started or stopped.")
+   protected Action action;
+
+   @Property(doc = "Name of the recording; multiple recordings can run concurrently. Default is 'radargun'.")
+   protected String recordingName = "radargun";
+
+   @Property(doc = "Flight Recorder settings used for the recording: either name of predefined configuration " +
+      "('default' or 'profile') or path to a .jfc file. Default is 'default'.")
+   protected String settings = "default";
+
+   @Property(doc = "When set, stressors emit 'org.radargun.SlowRequest' event for each request that took longer " +
+      "than this threshold. Default is none.", converter = NanoTimeConverter.class)
+   protected Long slowRequestThreshold;
+
+   @Property(doc = "Transfer the recorded file to master when the recording is stopped. Default is true.")
+   protected boolean collect = true;
+
+   @Property(doc = "Directory where the recorded files are written. Default is 'results/jfr'.")
+   protected String outputDirectory = "results" + File.separator + "jfr";
+
+   // bytes of the recording received from each slave
+   private final Map<Integer, Long> received = new HashMap<>();
+
+   @Override
+   public DistStageAck executeOnSlave() {
+      try {
+         switch (action) {
+            case START:
+               return start();
+            case STOP:
+               return stop();
+            default:
+               throw new IllegalStateException();
+         }
+      } catch (NoClassDefFoundError e) {
+         return errorResponse("Flight Recorder is not available in this JVM: " + e.getMessage());
+      } catch (Exception e) {
+         return errorResponse("Failed to " + action.name().toLowerCase() + " recording " + recordingName, e);
+      }
+   }
+
+   private DistStageAck start() throws Exception {
+      if (slaveState.get(RECORDING_PREFIX + recordingName) != null) {
+         return errorResponse("Recording " + recordingName + " is already running");
+      }
+      Configuration configuration = settings.endsWith(".jfc")
+         ? Configuration.create(Paths.get(settings)) : Configuration.getConfiguration(settings);
+      Recording recording = new Recording(configuration);
+      recording.setName(recordingName);
+      if (slowRequestThreshold != null) {
+         recording.enable(SlowRequests.Event.class);
+         SlowRequests.setThreshold(recordingName, Math.max(1, slowRequestThreshold));
+      }
+      recording.start();
+      slaveState.put(RECORDING_PREFIX + recordingName, recording);
+      log.info("Started Flight Recorder recording " + recordingName);
+      return successfulResponse();
+   }
+
+   private DistStageAck stop() throws IOException {
+      Recording recording = (Recording) slaveState.remove(RECORDING_PREFIX + recordingName);
+      if (recording == null) {
+         return errorResponse("Recording " + recordingName + " was not started");
+      }
+      // other recordings may still require the events
+      SlowRequests.setThreshold(recordingName, 0);
+      try {
+         recording.stop();
+         String fileName = getFileName(slaveState.getConfigName(), slaveState.getSlaveIndex());
+         DistStageProgress.Sender sender = slaveState.getProgressSender();
+         if (collect && sender != null) {
+            Path file = Files.createTempFile("radargun-", ".jfr");
+            try {
+               recording.dump(file);
+               return transfer(sender, file, fileName);
+            } finally {
+               Files.delete(file);
+            }
+         } else {
+            if (collect) {
+               log.warn("Cannot transfer the recording to master, keeping it on slave.");
+            }
+            Path file = Paths.get(outputDirectory, fileName);
+            Files.createDirectories(file.getParent());
+            recording.dump(file);
+            log.info("Flight Recorder recording written to " + file.toAbsolutePath());
+            return successfulResponse();
+         }
+      } finally {
+         recording.close();
+      }
+   }
+
+   private DistStageAck transfer(DistStageProgress.Sender sender, Path file, String fileName) throws IOException {
+      long size = 0;
+      byte[] buffer = new byte[CHUNK_SIZE];
+      try (InputStream input = Files.newInputStream(file)) {
+         int read;
+         while ((read = input.read(buffer)) > 0) {
+            byte[] data = read == buffer.length ? buffer : Arrays.copyOf(buffer, read);
+            // blocks until master writes the chunk
+            if (!sender.send(new RecordingChunk(slaveState, fileName, size, data))) {
+               return errorResponse("Master failed to write recording " + fileName);
+            }
+            size += read;
+         }
+      }
+      return new RecordingAck(slaveState, fileName, size);
+   }
+
+   private String getFileName(String configName, int slaveIndex) {
+      return String.format("%s_%s_slave%d.jfr", recordingName, configName, slaveIndex);
+   }
+
+   @Override
+   public boolean processProgressOnMaster(DistStageProgress progress) {
+      if (!(progress instanceof RecordingChunk)) {
+         return super.processProgressOnMaster(progress);
+      }
+      RecordingChunk chunk = (RecordingChunk) progress;
+      Path file = Paths.get(outputDirectory, chunk.fileName);
+      try {
+         if (chunk.offset == 0) {
+            Files.createDirectories(file.getParent());
+            Files.write(file, chunk.data);
+         } else if (received.getOrDefault(chunk.getSlaveIndex(), 0L) == chunk.offset) {
+            Files.write(file, chunk.data, StandardOpenOption.APPEND);
+         } else {
+            log.error("Received chunk of recording " + file + " at offset " + chunk.offset + ", expected "
+               + received.get(chunk.getSlaveIndex()));
+            return false;
+         }
+         received.put(chunk.getSlaveIndex(), chunk.offset + chunk.data.length);
+         return true;
+      } catch (IOException e) {
+         log.error("Failed to write recording from slave " + chunk.getSlaveIndex() + " to " + file, e);
+         return false;
+      }
+   }
+
+   @Override
+   public StageResult processAckOnMaster(List<DistStageAck> acks) {
+      StageResult result = super.processAckOnMaster(acks);
+      if (result.isError()) return result;
+      for (RecordingAck ack : instancesOf(acks, RecordingAck.class)) {
+         Path file = Paths.get(outputDirectory, ack.fileName);
+         long size = received.getOrDefault(ack.getSlaveIndex(), 0L);
+         if (size != ack.size) {
+            log.error("Recording from slave " + ack.getSlaveIndex() + " has " + ack.size + " bytes but "
+               + size + " bytes were written to " + file);
+            return errorResult();
+         }
+         log.info("Flight Recorder recording from slave " + ack.getSlaveIndex() + " written to " + file.toAbsolutePath());
+      }
+      return result;
+   }
+
+   private static class RecordingChunk extends DistStageProgress {
+      private final String fileName;
+      private final long offset;
+      private final byte[] data;
+
+      private RecordingChunk(SlaveState slaveState, String fileName, long offset, byte[] data) {
+         super(slaveState);
+         this.fileName = fileName;
+         this.offset = offset;
+         this.data = data;
+      }
+   }
+
+   private static class RecordingAck extends DistStageAck {
+      private final String fileName;
+      private final long size;
+
+      private RecordingAck(SlaveState slaveState, String fileName, long size) {
+         super(slaveState);
+         this.fileName = fileName;
+         this.size = size;
+      }
+   }
+}
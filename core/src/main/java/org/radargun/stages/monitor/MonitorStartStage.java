@@ -16,6 +16,7 @@ import org.radargun.sysmonitor.NetworkBytesMonitor;
 import org.radargun.sysmonitor.OpenFilesMonitor;
 import org.radargun.sysmonitor.RssMonitor;
 import org.radargun.sysmonitor.SlaveMonitors;
+import org.radargun.sysmonitor.ThreadMonitor;
 import org.radargun.traits.InjectTrait;
 import org.radargun.traits.InternalsExposition;
 import org.radargun.traits.JmxConnectionProvider;
@@ -40,6 +41,10 @@ public class MonitorStartStage extends AbstractDistStage {
    @Property(doc = "Period of statistics collection. The default is 1 second.", converter = TimeConverter.class)
    private long period = 1000;
 
+   @Property(doc = "Report CPU usage and allocation rate of each stressor thread separately, in addition to the totals. " +
+         "Default is false.")
+   private boolean threadDetails = false;
+
    @InjectTrait
    private JmxConnectionProvider jmxConnectionProvider;
 
@@ -67,6 +72,12 @@ public class MonitorStartStage extends AbstractDistStage {
       if (internalsExposition != null) {
          slaveMonitors.addMonitor(new InternalsMonitor(internalsExposition, slaveState.getTimeline()));
       }
+      // test stages register their stressor threads to the monitor found in slave state
+      if (slaveState.get(ThreadMonitor.THREAD_MONITOR) == null) {
+         ThreadMonitor threadMonitor = new ThreadMonitor(slaveState.getTimeline(), threadDetails);
+         slaveMonitors.addMonitor(threadMonitor);
+         slaveState.put(ThreadMonitor.THREAD_MONITOR, threadMonitor);
+      }
 
       slaveMonitors.start();
       return successfulResponse();
@@ -7,6 +7,7 @@ import org.radargun.config.Stage;
 import org.radargun.stages.AbstractDistStage;
 import org.radargun.sysmonitor.MasterMonitors;
 import org.radargun.sysmonitor.SlaveMonitors;
+import org.radargun.sysmonitor.ThreadMonitor;
 
 /**
  *
@@ -22,6 +23,7 @@ public class MonitorStopStage extends AbstractDistStage {
       SlaveMonitors slaveMonitors = (SlaveMonitors) slaveState.get(SlaveMonitors.MONITORS);
       if (slaveMonitors != null) {
          slaveMonitors.stop();
+         slaveState.remove(ThreadMonitor.THREAD_MONITOR);
          return successfulResponse();
       } else {
          return errorResponse("No Monitors object found on slave: " + slaveState.getSlaveIndex());
@@ -0,0 +1,36 @@
+package org.radargun.stages.test;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.radargun.Operation;
+
+/**
+ * Represent an operation that the {@link Stressor} should execute without blocking
+ * and record its duration when the returned future completes.
+ *
+ * @see Stressor#makeRequestAsync(AsyncInvocation)
+ */
+public interface AsyncInvocation<T> {
+   /**
+    * Start the operation. The method should return as soon as the request is sent.
+    */
+   CompletableFuture<T> invoke();
+
+   /**
+    * Operation that was executed.
+    * @return
+    */
+   Operation operation();
+
+   /**
+    * Time when the request was actually sent, e.g. after it has waited for a pooled connection.
+    * Queried after the future completes; time spent before sending is recorded as part of
+    * <code>&lt;operation&gt;.Send</code>.
+    *
+    * @return {@link org.radargun.utils.TimeService#nanoTime()} when the request was sent, or
+    *         {@link Long#MIN_VALUE} if the request was sent when {@link #invoke()} returned.
+    */
+   default long requestSentTime() {
+      return Long.MIN_VALUE;
+   }
+}
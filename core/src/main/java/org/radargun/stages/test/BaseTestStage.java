@@ -45,6 +45,28 @@ public abstract class BaseTestStage extends AbstractDistStage {
    @Property(doc = "Merge statistics from all threads on single node to one record, instead of storing them all in-memory. Default is false.")
    public boolean mergeThreadStats = false;
 
+   @Property(doc = "Length of one sample used for detection of steady state. When set, throughput and mean response time " +
+      "are sampled in this period and results recorded before both metrics stabilize are excluded from the reported " +
+      "statistics; warmup duration is reported for each slave. Note that the warmup is included in the test duration. " +
+      "Default is 0 (all results are reported).", converter = TimeConverter.class)
+   public long steadyStatePeriod = 0;
+
+   @Property(doc = "Number of consecutive samples that must have coefficient of variation below steady-state-max-cv. " +
+      "Default is 5.")
+   public int steadyStateSamples = 5;
+
+   @Property(doc = "Maximum coefficient of variation (standard deviation / mean) of both throughput and mean " +
+      "response time in steady state. Default is 0.05.")
+   public double steadyStateMaxCv = 0.05;
+
+   @Property(doc = "When set, the test is stopped as soon as the confidence interval on the mean throughput and response time " +
+      "(estimated from samples recorded in steady state) is narrower than this fraction of the mean, e.g. 0.01 for +-1%. " +
+      "Requires steady-state-period. Default is 0 (the test runs for the whole duration).")
+   public double confidenceInterval = 0;
+
+   @Property(doc = "Confidence level used with confidence-interval. Default is 0.95.")
+   public double confidenceLevel = 0.95;
+
    protected int testIteration; // first iteration we should use for setting the statistics
 
    @Init
@@ -58,6 +80,18 @@ public abstract class BaseTestStage extends AbstractDistStage {
       if (numOperations < 0) {
          throw new IllegalArgumentException("Test totalNumOperations must be positive. " + numOperations);
       }
+      if (steadyStatePeriod < 0) {
+         throw new IllegalArgumentException("Steady state period must not be negative.");
+      }
+      if (steadyStatePeriod > 0 && steadyStateSamples < 2) {
+         throw new IllegalArgumentException("Steady state detection requires at least 2 samples.");
+      }
+      if (confidenceInterval < 0 || (confidenceInterval > 0 && steadyStatePeriod == 0)) {
+         throw new IllegalArgumentException("Confidence interval must be positive and requires steady-state-period.");
+      }
+      if (confidenceLevel <= 0 || confidenceLevel >= 1) {
+         throw new IllegalArgumentException("Confidence level must be in (0, 1).");
+      }
    }
 
    protected Report.Test getTest(boolean allowExisting) {
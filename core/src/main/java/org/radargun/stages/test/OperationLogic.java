@@ -26,7 +26,8 @@ public abstract class OperationLogic {
 
    /**
     * Execute operation on the stressor using its
-    * {@link Stressor#makeRequest(Invocation)} makeRequest} method.
+    * {@link Stressor#makeRequest(Invocation)} makeRequest} method, or without
+    * blocking through {@link Stressor#makeRequestAsync(AsyncInvocation)}.
     * This operation accounts to the statistics.
     * Note: logic may actually execute more operations
     *
@@ -0,0 +1,107 @@
+package org.radargun.stages.test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.radargun.Operation;
+
+/**
+ * Emits Flight Recorder events for requests executed by {@link Stressor stressors} that took longer than
+ * the threshold, so that latency outliers can be correlated with GC, lock and I/O events in the recording.
+ *
+ * Each recording sets its own threshold; while several recordings run, the lowest threshold applies.
+ * The event class is loaded only when a threshold is set, therefore stressors can run on JVMs without
+ * Flight Recorder.
+ */
+public final class SlowRequests {
+   public static final long NO_KEY = -1;
+
+   private static final Map<String, Long> THRESHOLDS = new ConcurrentHashMap<>();
+   // in nanoseconds, 0 means disabled
+   private static volatile long threshold = 0;
+
+   private SlowRequests() {}
+
+   /**
+    * @param recording Name of the recording requesting the events.
+    * @param threshold Minimal duration of recorded requests, in nanoseconds; 0 removes the threshold.
+    */
+   public static synchronized void setThreshold(String recording, long threshold) {
+      if (threshold > 0) {
+         THRESHOLDS.put(recording, threshold);
+      } else {
+         THRESHOLDS.remove(recording);
+      }
+      SlowRequests.threshold = THRESHOLDS.values().stream().mapToLong(Long::longValue).min().orElse(0);
+   }
+
+   public static long getThreshold() {
+      return threshold;
+   }
+
+   /**
+    * Marks the start of a request.
+    *
+    * @return Handle passed to {@link #end(Object, Operation, long, long, boolean)}, or null if the events are disabled.
+    */
+   static Object begin() {
+      if (threshold <= 0) {
+         return null;
+      }
+      // typed as Object so that the callers don't load the event class
+      Event event = new Event();
+      event.begin();
+      return event;
+   }
+
+   /**
+    * Records the request if its duration exceeds the threshold.
+    *
+    * @param request Handle returned from {@link #begin()}.
+    * @param duration Duration of the request as measured by the stressor, in nanoseconds.
+    */
+   static void end(Object request, Operation operation, long keyId, long duration, boolean successful) {
+      long threshold = SlowRequests.threshold;
+      if (request == null || threshold <= 0 || duration < threshold) {
+         return;
+      }
+      Event event = (Event) request;
+      event.end();
+      event.operation = operation.name;
+      event.keyId = keyId;
+      event.requestDuration = duration;
+      event.successful = successful;
+      event.commit();
+   }
+
+   /**
+    * The event spans the request; for asynchronous requests the event is committed by the thread
+    * that completed the request.
+    */
+   @Name("org.radargun.SlowRequest")
+   @Label("Slow Request")
+   @Category("RadarGun")
+   @Description("Request executed by stressor that took longer than the configured threshold")
+   @Enabled(false)
+   public static class Event extends jdk.jfr.Event {
+      @Label("Operation")
+      String operation;
+
+      @Label("Key Id")
+      @Description("Identifier of the key used by the request, or -1 if the logic did not set it")
+      long keyId;
+
+      @Label("Request Duration")
+      @Timespan(Timespan.NANOSECONDS)
+      long requestDuration;
+
+      @Label("Successful")
+      boolean successful;
+   }
+}
@@ -0,0 +1,131 @@
+package org.radargun.stages.test;
+
+/**
+ * Decides when the test reached steady state from throughput and mean response time sampled in regular periods.
+ *
+ * The test is warmed up when coefficient of variation (standard deviation divided by the mean) of both
+ * metrics over the last {@code window} samples does not exceed {@code maxCv}. Samples added after that
+ * are treated as batch means: the test has converged when the confidence interval on the mean of both
+ * metrics is narrower than {@code relativeHalfWidth} times the mean (estimated from at least {@code window} samples).
+ *
+ * This class is not thread-safe.
+ */
+public class SteadyStateDetector {
+   public enum Phase {
+      /**
+       * The metrics have not converged yet.
+       */
+      WARMUP,
+      /**
+       * The metrics are stable, results are being recorded.
+       */
+      STEADY,
+      /**
+       * The mean of the metrics is known with requested confidence.
+       */
+      CONVERGED
+   }
+
+   private final int window;
+   private final double maxCv;
+   private final double relativeHalfWidth;
+   private final double z;
+   private final double[] throughputs;
+   private final double[] responseTimes;
+   private int samples;
+   private Phase phase = Phase.WARMUP;
+   private final Moments throughputMoments = new Moments();
+   private final Moments responseTimeMoments = new Moments();
+
+   /**
+    * @param window Number of samples used for the steady state check and minimum number of samples for the confidence interval.
+    * @param maxCv Maximum coefficient of variation of the samples in steady state.
+    * @param relativeHalfWidth Half-width of the confidence interval relative to the mean; 0 means that the test never converges.
+    * @param confidenceLevel Probability that the mean lies in the confidence interval, e.g. 0.95.
+    */
+   public SteadyStateDetector(int window, double maxCv, double relativeHalfWidth, double confidenceLevel) {
+      if (window < 2) throw new IllegalArgumentException("Window must contain at least 2 samples");
+      this.window = window;
+      this.maxCv = maxCv;
+      this.relativeHalfWidth = relativeHalfWidth;
+      this.z = normalQuantile(0.5 + confidenceLevel / 2);
+      this.throughputs = new double[window];
+      this.responseTimes = new double[window];
+   }
+
+   /**
+    * @param throughput Operations per second in the sampled period.
+    * @param responseTimeMean Mean response time in the sampled period.
+    * @return Phase of the test after this sample.
+    */
+   public Phase addSample(double throughput, double responseTimeMean) {
+      switch (phase) {
+         case WARMUP:
+            throughputs[samples % window] = throughput;
+            responseTimes[samples % window] = responseTimeMean;
+            ++samples;
+            if (samples >= window && cv(throughputs) <= maxCv && cv(responseTimes) <= maxCv) {
+               phase = Phase.STEADY;
+            }
+            break;
+         case STEADY:
+            throughputMoments.add(throughput);
+            responseTimeMoments.add(responseTimeMean);
+            if (relativeHalfWidth > 0 && throughputMoments.count >= window
+               && throughputMoments.halfWidth(z) <= relativeHalfWidth * throughputMoments.mean
+               && responseTimeMoments.halfWidth(z) <= relativeHalfWidth * responseTimeMoments.mean) {
+               phase = Phase.CONVERGED;
+            }
+            break;
+         default:
+            break;
+      }
+      return phase;
+   }
+
+   public Phase getPhase() {
+      return phase;
+   }
+
+   private static double cv(double[] values) {
+      Moments moments = new Moments();
+      for (double value : values) {
+         moments.add(value);
+      }
+      return moments.mean > 0 ? Math.sqrt(moments.variance()) / moments.mean : Double.POSITIVE_INFINITY;
+   }
+
+   /**
+    * Approximation of the inverse of standard normal distribution function (Abramowitz and Stegun 26.2.23),
+    * absolute error is below 4.5e-4.
+    */
+   static double normalQuantile(double p) {
+      if (p <= 0 || p >= 1) throw new IllegalArgumentException("Probability must be in (0, 1): " + p);
+      double q = p < 0.5 ? p : 1 - p;
+      double t = Math.sqrt(-2 * Math.log(q));
+      double x = t - (2.515517 + 0.802853 * t + 0.010328 * t * t)
+         / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+      return p < 0.5 ? -x : x;
+   }
+
+   private static class Moments {
+      long count;
+      double mean;
+      double m2;
+
+      void add(double value) {
+         ++count;
+         double delta = value - mean;
+         mean += delta / count;
+         m2 += delta * (value - mean);
+      }
+
+      double variance() {
+         return count > 1 ? m2 / (count - 1) : 0;
+      }
+
+      double halfWidth(double z) {
+         return z * Math.sqrt(variance() / count);
+      }
+   }
+}
@@ -1,8 +1,18 @@
 package org.radargun.stages.test;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.radargun.Operation;
 import org.radargun.logging.Log;
@@ -10,7 +20,9 @@ import org.radargun.logging.LogFactory;
 import org.radargun.stats.Request;
 import org.radargun.stats.RequestSet;
 import org.radargun.stats.Statistics;
+import org.radargun.sysmonitor.ThreadMonitor;
 import org.radargun.traits.Transactional;
+import org.radargun.utils.TimeService;
 
 /**
  * Each stressor operates according to its {@link OperationLogic logic} - the instance is private to each thread.
@@ -18,9 +30,29 @@ import org.radargun.traits.Transactional;
  * execute logic's {@link OperationLogic#run(org.radargun.Operation) run} method until
  * the {@link Completion#moreToRun()} returns false.
  *
+ * When the stage sets a {@link TestStage#getRequestPeriod() request period}, the requests are started
+ * according to a fixed schedule and their response time is measured from the intended start,
+ * so that stalls of the service are not hidden by the stressor waiting for the response (coordinated omission).
+ *
+ * Besides blocking {@link #makeRequest(Invocation) requests} the logic can issue
+ * {@link #makeRequestAsync(AsyncInvocation) asynchronous requests}; up to
+ * {@link TestStage#maxInFlightRequests} of these can be outstanding at any moment. Completed asynchronous
+ * requests are recorded by the stressor thread, therefore the statistics are never accessed concurrently.
+ * Requests that do not complete within {@link TestStage#asyncRequestsTimeout} after the test ends
+ * are recorded as failed.
+ *
+ * Requests are recorded using their timestamps only and the {@link RequestSet} used for transactions is reused,
+ * so that the stressor does not allocate any objects per request in steady state and the garbage collection
+ * does not affect the measured response times.
+ *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
-public class Stressor extends Thread {
+public class Stressor extends StressorThread {
+   public static final Operation SCHEDULE_MISSED = Operation.register("Stressor.ScheduleMissed");
+   private static final String UNCORRECTED = "Uncorrected";
+   private static final String SEND = "Send";
+   private static final String RESPONSE = "Response";
+   private static final long NO_INTENDED_START = Long.MIN_VALUE;
    private static Log log = LogFactory.getLog(Stressor.class);
 
    private final TestStage stage;
@@ -32,14 +64,33 @@ public class Stressor extends Thread {
    private final Completion completion;
    private final boolean logTransactionExceptions;
    private long delayBetweenRequests;
+   private final long requestPeriod;
+   private final Map<Operation, Operation> uncorrectedOperations = new HashMap<>();
+   private final Map<Operation, Operation> sendOperations = new HashMap<>();
+   private final Map<Operation, Operation> responseOperations = new HashMap<>();
+   private final int maxInFlightRequests;
+   private final Semaphore inFlightRequests;
+   private final long asyncRequestsTimeout;
+   private final Queue<AsyncRequest> completedRequests = new ConcurrentLinkedQueue<>();
+   private final Set<AsyncRequest> outstandingRequests = ConcurrentHashMap.newKeySet();
 
    private boolean useTransactions;
    private int txRemainingOperations = 0;
    private RequestSet requests;
+   private RequestSet pooledRequests;
    private Transactional.Transaction ongoingTx;
    private Statistics stats;
    private boolean started = false;
    private CountDownLatch threadCountDown;
+   private long intendedStartTime = NO_INTENDED_START;
+   // operations executed and bytes allocated by this thread since the measurement started;
+   // written only by this thread and read after it has terminated
+   private long operations;
+   private long operationsBaseline;
+   private long allocatedBaseline = -1;
+   private long allocatedAtEnd = -1;
+   private volatile boolean baselineRequested;
+   private long keyId = SlowRequests.NO_KEY;
 
    public Stressor(TestStage stage, OperationLogic logic, int globalThreadIndex, int threadIndex, boolean logTransactionExceptions, CountDownLatch threadCountDown, long delayBetweenRequests) {
       super("Stressor-" + threadIndex);
@@ -53,6 +104,10 @@ public class Stressor extends Thread {
       this.logTransactionExceptions = logTransactionExceptions;
       this.threadCountDown = threadCountDown;
       this.delayBetweenRequests = delayBetweenRequests;
+      this.requestPeriod = stage.getRequestPeriod();
+      this.maxInFlightRequests = stage.maxInFlightRequests;
+      this.inFlightRequests = new Semaphore(maxInFlightRequests);
+      this.asyncRequestsTimeout = stage.asyncRequestsTimeout;
    }
 
    private boolean recording() {
@@ -71,6 +126,7 @@ public class Stressor extends Thread {
          log.error("Unexpected error in stressor!", e);
          stage.setTerminated();
       } finally {
+         allocatedAtEnd = ThreadMonitor.getAllocatedBytes(Thread.currentThread());
          if (stats != null) {
             stats.end();
          }
@@ -112,13 +168,19 @@ public class Stressor extends Thread {
          }
 
          stats.begin();
+         takeAllocationBaseline();
          this.started = true;
          completion.start();
          int i = 0;
+         // spread the schedules of stressors evenly over the period
+         long scheduledStart = requestPeriod > 0 ? TimeService.nanoTime() + requestPeriod * globalThreadIndex / stage.getTotalThreads() : 0;
          while (!stage.isTerminated()) {
             Operation operation = operationSelector.next(random);
             if (!completion.moreToRun()) break;
             try {
+               if (requestPeriod > 0) {
+                  scheduledStart = awaitSchedule(scheduledStart);
+               }
                logic.run(operation);
                if (delayBetweenRequests > 0)
                   sleep(delayBetweenRequests);
@@ -129,15 +191,92 @@ public class Stressor extends Thread {
                interrupt();
             }
             i++;
+            operations++;
+            if (baselineRequested) {
+               baselineRequested = false;
+               takeAllocationBaseline();
+            }
             completion.logProgress(i);
          }
       } finally {
          if (txRemainingOperations > 0) {
             endTransactionAndRegisterStats(null);
          }
+         awaitAsyncRequests();
       }
    }
 
+   /**
+    * Waits until all asynchronous requests complete, or until the timeout expires; requests that are still
+    * outstanding after that are recorded as failed.
+    */
+   private void awaitAsyncRequests() {
+      boolean completed;
+      try {
+         completed = inFlightRequests.tryAcquire(maxInFlightRequests, asyncRequestsTimeout, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+         log.trace("Stressor interrupted.", e);
+         interrupt();
+         completed = false;
+      }
+      if (completed) {
+         try {
+            registerCompletedRequests();
+         } finally {
+            inFlightRequests.release(maxInFlightRequests);
+         }
+         return;
+      }
+      int failed = 0;
+      for (AsyncRequest asyncRequest : outstandingRequests) {
+         // the request could have completed concurrently
+         if (outstandingRequests.remove(asyncRequest)) {
+            asyncRequest.completed(false);
+            asyncRequest.register();
+            failed++;
+         }
+      }
+      registerCompletedRequests();
+      if (failed > 0) {
+         log.warn(failed + " asynchronous requests did not complete within " + asyncRequestsTimeout
+            + " ms after the test has finished, recorded as failed.");
+      }
+   }
+
+   /**
+    * Waits until the scheduled start of the request and marks it as the intended start time
+    * for the next request.
+    *
+    * @return Scheduled start of the following request.
+    */
+   private long awaitSchedule(long scheduledStart) throws InterruptedException {
+      long now;
+      while ((now = TimeService.nanoTime()) < scheduledStart) {
+         LockSupport.parkNanos(scheduledStart - now);
+         if (isInterrupted()) {
+            throw new InterruptedException();
+         }
+      }
+      intendedStartTime = scheduledStart;
+      if (now - scheduledStart > requestPeriod && recording()) {
+         // the duration of this request is the delay after the schedule
+         stats.record(SCHEDULE_MISSED, scheduledStart, now, true);
+      }
+      return scheduledStart + requestPeriod;
+   }
+
+   private Operation uncorrected(Operation operation) {
+      return uncorrectedOperations.computeIfAbsent(operation, op -> op.derive(UNCORRECTED));
+   }
+
+   private Operation send(Operation operation) {
+      return sendOperations.computeIfAbsent(operation, op -> op.derive(SEND));
+   }
+
+   private Operation response(Operation operation) {
+      return responseOperations.computeIfAbsent(operation, op -> op.derive(RESPONSE));
+   }
+
    public <T> T wrap(T resource) {
       return ongoingTx.wrap(resource);
    }
@@ -152,12 +291,9 @@ public class Stressor extends Thread {
             ongoingTx = stage.transactional.getTransaction();
             logic.transactionStarted();
             if (recording()) {
-               requests = stats.requestSet();
-            }
-            Request beginRequest = startTransaction();
-            if (requests != null && beginRequest != null) {
-               requests.add(beginRequest);
+               requests = requestSet();
             }
+            startTransaction();
             txRemainingOperations = stage.transactionSize;
          } catch (TransactionException e) {
             throw new OperationLogic.RequestException(e);
@@ -166,10 +302,19 @@ public class Stressor extends Thread {
 
       T result = null;
       Exception exception = null;
-      Request request = recording() ? stats.startRequest() : null;
+      boolean recording = recording();
+      long scheduledStartTime = intendedStartTime;
+      // only the first request executed by the logic was scheduled
+      intendedStartTime = NO_INTENDED_START;
+      Object slowRequest = SlowRequests.begin();
+      long startTime = TimeService.nanoTime();
+      long endTime;
       try {
          result = invocation.invoke();
-         succeeded(request, invocation.operation());
+         endTime = TimeService.nanoTime();
+         if (recording) {
+            recordRequest(invocation.operation(), scheduledStartTime, startTime, endTime, true);
+         }
          // make sure that the return value cannot be optimized away
          // however, we can't be 100% sure about reordering without
          // volatile writes/reads here
@@ -178,14 +323,17 @@ public class Stressor extends Thread {
             txRemainingOperations--;
          }
       } catch (Exception e) {
-         failed(request, invocation.operation());
+         endTime = TimeService.nanoTime();
+         if (recording) {
+            recordRequest(invocation.operation(), scheduledStartTime, startTime, endTime, false);
+         }
          log.warn("Error in request", e);
          txRemainingOperations = 0;
          exception = e;
       }
-      if (requests != null && request != null && recording()) {
-         requests.add(request);
-      }
+
+      SlowRequests.end(slowRequest, invocation.operation(), keyId, endTime - startTime, exception == null);
+      keyId = SlowRequests.NO_KEY;
 
       if (useTransactions && txRemainingOperations <= 0) {
          endTransactionAndRegisterStats(stage.isSingleTxType() ? invocation.txOperation() : null);
@@ -196,6 +344,108 @@ public class Stressor extends Thread {
       return result;
    }
 
+   /**
+    * Starts the invocation without waiting for its completion. If there are already
+    * {@link TestStage#maxInFlightRequests} outstanding requests, blocks until one of them completes.
+    * Besides the whole request, the time spent sending the request and waiting for the response
+    * is recorded as <code>&lt;operation&gt;.Send</code> and <code>&lt;operation&gt;.Response</code>;
+    * the request is considered sent when {@link AsyncInvocation#invoke()} returns unless the invocation
+    * reports {@link AsyncInvocation#requestSentTime() later time}.
+    *
+    * @return Future completed after the request is accounted to the statistics.
+    */
+   public <T> CompletableFuture<T> makeRequestAsync(AsyncInvocation<T> invocation) throws OperationLogic.RequestException {
+      if (useTransactions) {
+         throw new IllegalStateException("Asynchronous requests cannot be executed in transactions.");
+      }
+      try {
+         inFlightRequests.acquire();
+      } catch (InterruptedException e) {
+         interrupt();
+         throw new OperationLogic.RequestException(e);
+      }
+      registerCompletedRequests();
+
+      AsyncRequest asyncRequest = new AsyncRequest(invocation.operation(), recording(), intendedStartTime, keyId,
+         SlowRequests.begin(), TimeService.nanoTime());
+      intendedStartTime = NO_INTENDED_START;
+      keyId = SlowRequests.NO_KEY;
+      outstandingRequests.add(asyncRequest);
+      CompletableFuture<T> future;
+      try {
+         future = invocation.invoke();
+      } catch (Exception e) {
+         outstandingRequests.remove(asyncRequest);
+         asyncRequest.completed(false);
+         asyncRequest.register();
+         inFlightRequests.release();
+         log.warn("Error in request", e);
+         throw new OperationLogic.RequestException(e);
+      }
+      asyncRequest.sent();
+      return future.whenComplete((result, throwable) -> {
+         if (!outstandingRequests.remove(asyncRequest)) {
+            // the stressor has stopped waiting and recorded the request as failed
+            return;
+         }
+         asyncRequest.sent(invocation.requestSentTime());
+         if (throwable == null) {
+            asyncRequest.completed(true);
+            Blackhole.consume(result);
+         } else {
+            asyncRequest.completed(false);
+            log.warn("Error in request", throwable);
+         }
+         completedRequests.add(asyncRequest);
+         inFlightRequests.release();
+      });
+   }
+
+   /**
+    * Record the asynchronous requests completed since last call. Executed only by the stressor thread.
+    */
+   private void registerCompletedRequests() {
+      AsyncRequest asyncRequest;
+      while ((asyncRequest = completedRequests.poll()) != null) {
+         asyncRequest.register();
+      }
+   }
+
+   /**
+    * Records request that started and completed at given times, unless the recording has already finished.
+    * When the request was scheduled to start earlier, the response time is measured from the scheduled start
+    * and the time measured from the actual start is recorded as uncorrected.
+    *
+    * @param scheduledStartTime Intended start of the request or {@link #NO_INTENDED_START}.
+    */
+   private void recordRequest(Operation operation, long scheduledStartTime, long startTime, long endTime, boolean successful) {
+      if (!recording()) {
+         return;
+      }
+      if (scheduledStartTime != NO_INTENDED_START) {
+         stats.record(operation, scheduledStartTime, endTime, successful);
+         stats.record(uncorrected(operation), startTime, endTime, successful);
+         startTime = scheduledStartTime;
+      } else {
+         stats.record(operation, startTime, endTime, successful);
+      }
+      if (requests != null) {
+         requests.add(startTime, endTime);
+      }
+   }
+
+   /**
+    * @return The request set reused for all transactions executed by this stressor.
+    */
+   private RequestSet requestSet() {
+      if (pooledRequests == null) {
+         pooledRequests = stats.requestSet();
+      } else {
+         pooledRequests.reset();
+      }
+      return pooledRequests;
+   }
+
    public <T> void succeeded(Request request, Operation operation) {
       if (request != null) {
          if (recording()) {
@@ -217,26 +467,33 @@ public class Stressor extends Thread {
    }
 
    private void endTransactionAndRegisterStats(Operation singleTxOperation) {
-      Request commitRequest = recording() ? stats.startRequest() : null;
+      Operation operation = stage.commitTransactions ? Transactional.COMMIT : Transactional.ROLLBACK;
+      boolean recording = recording();
+      boolean successful = true;
+      long startTime = TimeService.nanoTime();
       try {
          if (stage.commitTransactions) {
             ongoingTx.commit();
          } else {
             ongoingTx.rollback();
          }
-         succeeded(commitRequest, stage.commitTransactions ? Transactional.COMMIT : Transactional.ROLLBACK);
+         if (recording) {
+            recordRequest(operation, NO_INTENDED_START, startTime, TimeService.nanoTime(), true);
+         }
       } catch (Exception e) {
-         failed(commitRequest, stage.commitTransactions ? Transactional.COMMIT : Transactional.ROLLBACK);
+         successful = false;
+         if (recording) {
+            recordRequest(operation, NO_INTENDED_START, startTime, TimeService.nanoTime(), false);
+         }
          if (logTransactionExceptions) {
             log.error("Failed to end transaction", e);
          }
       } finally {
          if (requests != null) {
             if (recording()) {
-               requests.add(commitRequest);
-               requests.finished(commitRequest.isSuccessful(), Transactional.DURATION);
+               requests.finished(successful, Transactional.DURATION);
                if (singleTxOperation != null) {
-                  requests.finished(commitRequest.isSuccessful(), singleTxOperation);
+                  requests.finished(successful, singleTxOperation);
                }
             } else {
                requests.discard();
@@ -268,6 +525,43 @@ public class Stressor extends Thread {
       return stats;
    }
 
+   /**
+    * Sets identifier of the key used by the next {@link #makeRequest(Invocation) request}
+    * (or {@link #makeRequestAsync(AsyncInvocation) asynchronous request}); it is reported
+    * in Flight Recorder events for slow requests.
+    */
+   public void setKeyId(long keyId) {
+      this.keyId = keyId;
+   }
+
+   /**
+    * Starts measuring allocations from current moment; can be called from another thread,
+    * the stressor takes the baseline after it completes current operation.
+    */
+   public void markAllocationBaseline() {
+      baselineRequested = true;
+   }
+
+   private void takeAllocationBaseline() {
+      allocatedBaseline = ThreadMonitor.getAllocatedBytes(Thread.currentThread());
+      operationsBaseline = operations;
+   }
+
+   /**
+    * @return Bytes allocated by this stressor since the measurement started, or -1 if this is not known.
+    *         Valid only after the stressor has finished.
+    */
+   public long getAllocatedBytes() {
+      return allocatedAtEnd >= 0 && allocatedBaseline >= 0 ? allocatedAtEnd - allocatedBaseline : -1;
+   }
+
+   /**
+    * @return Number of operations executed since the measurement started. Valid only after the stressor has finished.
+    */
+   public long getOperations() {
+      return operations - operationsBaseline;
+   }
+
    public OperationLogic getLogic() {
       return logic;
    }
@@ -280,33 +574,82 @@ public class Stressor extends Thread {
       return useTransactions;
    }
 
-   private Request startTransaction() throws TransactionException {
-      Request request = recording() ? stats.startRequest() : null;
+   private void startTransaction() throws TransactionException {
+      boolean recording = recording();
+      long startTime = TimeService.nanoTime();
       try {
          ongoingTx.begin();
-         if (request != null) {
-            request.succeeded(Transactional.BEGIN);
+         if (recording) {
+            recordRequest(Transactional.BEGIN, NO_INTENDED_START, startTime, TimeService.nanoTime(), true);
          }
-         return request;
       } catch (Exception e) {
-         if (request != null) {
-            request.failed(Transactional.BEGIN);
+         if (recording) {
+            recordRequest(Transactional.BEGIN, NO_INTENDED_START, startTime, TimeService.nanoTime(), false);
          }
          log.error("Failed to start transaction", e);
-         throw new TransactionException(request, e);
+         throw new TransactionException(e);
       }
    }
 
-   private class TransactionException extends Exception {
-      private final Request request;
+   /**
+    * Holds the state of one asynchronous request until it is recorded by the stressor thread.
+    */
+   private class AsyncRequest {
+      private final Operation operation;
+      private final boolean recording;
+      private final long scheduledStartTime;
+      private final long keyId;
+      private final Object slowRequest;
+      private final long startTime;
+      private long requestCompleteTime = Long.MIN_VALUE;
+      private long responseCompleteTime;
+      private boolean successful;
+
+      AsyncRequest(Operation operation, boolean recording, long scheduledStartTime, long keyId, Object slowRequest, long startTime) {
+         this.operation = operation;
+         this.recording = recording;
+         this.scheduledStartTime = scheduledStartTime;
+         this.keyId = keyId;
+         this.slowRequest = slowRequest;
+         this.startTime = startTime;
+      }
 
-      public TransactionException(Request request, Exception cause) {
-         super(cause);
-         this.request = request;
+      void sent() {
+         requestCompleteTime = TimeService.nanoTime();
+      }
+
+      void sent(long time) {
+         if (time != Long.MIN_VALUE) {
+            requestCompleteTime = time;
+         }
       }
 
-      public Request getRequest() {
-         return request;
+      void completed(boolean successful) {
+         this.successful = successful;
+         this.responseCompleteTime = TimeService.nanoTime();
+         SlowRequests.end(slowRequest, operation, keyId, responseCompleteTime - startTime, successful);
+      }
+
+      void register() {
+         if (!recording || !recording()) {
+            return;
+         }
+         long requestStartTime = startTime;
+         if (scheduledStartTime != NO_INTENDED_START) {
+            stats.record(uncorrected(operation), startTime, responseCompleteTime, successful);
+            requestStartTime = scheduledStartTime;
+         }
+         stats.record(operation, requestStartTime, responseCompleteTime, successful);
+         if (requestCompleteTime != Long.MIN_VALUE) {
+            stats.record(send(operation), requestStartTime, requestCompleteTime, true);
+            stats.record(response(operation), requestCompleteTime, responseCompleteTime, successful);
+         }
+      }
+   }
+
+   private class TransactionException extends Exception {
+      public TransactionException(Exception cause) {
+         super(cause);
       }
    }
 }
@@ -0,0 +1,93 @@
+package org.radargun.stages.test;
+
+/**
+ * Thread that can be executed by a thread created according to given {@link ThreadModel}.
+ * When started in a different thread, interruption, stack trace, state and awaiting termination
+ * are delegated to the thread actually executing {@link #run()}, therefore the code running in
+ * the stressor and the code monitoring it can keep using the {@link Thread} API. As {@link #isAlive()}
+ * cannot be overridden, use {@link #isRunning()} instead.
+ */
+public abstract class StressorThread extends Thread {
+   private volatile Thread executingThread = this;
+
+   protected StressorThread(String name) {
+      super(name);
+   }
+
+   /**
+    * Start executing this stressor.
+    */
+   public void start(ThreadModel threadModel) {
+      if (threadModel == ThreadModel.PLATFORM) {
+         start();
+      } else {
+         Thread thread = threadModel.newThread(this, getName());
+         executingThread = thread;
+         thread.start();
+      }
+   }
+
+   @Override
+   public void interrupt() {
+      if (executingThread == this) {
+         super.interrupt();
+      } else {
+         executingThread.interrupt();
+      }
+   }
+
+   @Override
+   public boolean isInterrupted() {
+      if (executingThread == this) {
+         return super.isInterrupted();
+      } else {
+         return executingThread.isInterrupted();
+      }
+   }
+
+   @Override
+   public StackTraceElement[] getStackTrace() {
+      if (executingThread == this) {
+         return super.getStackTrace();
+      } else {
+         return executingThread.getStackTrace();
+      }
+   }
+
+   @Override
+   public State getState() {
+      if (executingThread == this) {
+         return super.getState();
+      } else {
+         return executingThread.getState();
+      }
+   }
+
+   /**
+    * Replacement for {@link #join()} that works regardless of the thread model.
+    */
+   public void awaitTermination() throws InterruptedException {
+      executingThread.join();
+   }
+
+   /**
+    * Replacement for {@link #join(long)} that works regardless of the thread model.
+    */
+   public void awaitTermination(long millis) throws InterruptedException {
+      executingThread.join(millis);
+   }
+
+   /**
+    * @return Thread actually executing this stressor.
+    */
+   public Thread getExecutingThread() {
+      return executingThread;
+   }
+
+   /**
+    * @return True if the thread executing this stressor is still running.
+    */
+   public boolean isRunning() {
+      return executingThread.isAlive();
+   }
+}
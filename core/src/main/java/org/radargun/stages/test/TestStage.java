@@ -2,14 +2,18 @@ package org.radargun.stages.test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
 import org.radargun.Operation;
 import org.radargun.StageResult;
 import org.radargun.Version;
@@ -18,7 +22,11 @@ import org.radargun.config.Property;
 import org.radargun.config.Stage;
 import org.radargun.reporting.Report;
 import org.radargun.state.SlaveState;
+import org.radargun.stats.IntervalSwapStatistics;
 import org.radargun.stats.Statistics;
+import org.radargun.stats.StatsUtils;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.sysmonitor.ThreadMonitor;
 import org.radargun.traits.InjectTrait;
 import org.radargun.traits.Transactional;
 import org.radargun.utils.TimeConverter;
@@ -67,6 +75,61 @@ public abstract class TestStage extends BaseTestStage {
    @Property(doc = "Whether an error from transaction commit/rollback should be logged as error. Default is true.")
    public boolean logTransactionExceptions = true;
 
+   @Property(doc = "Target number of operations per second executed across the whole cluster. When set, each stressor " +
+      "starts requests according to a fixed schedule (open-loop) and the response time is measured from the intended " +
+      "start of the request. Response times measured from the actual start are recorded as '<operation>.Uncorrected' " +
+      "and requests started more than one period after their schedule are recorded as 'Stressor.ScheduleMissed'. " +
+      "Default is 0 (requests are executed back-to-back).")
+   public long targetThroughput = 0;
+
+   @Property(doc = "Maximum number of asynchronous requests one stressor thread can have outstanding. " +
+      "Applies only to operations executed asynchronously. Default is 1.")
+   public int maxInFlightRequests = 1;
+
+   @Property(doc = "Maximum time each stressor waits for its outstanding asynchronous requests when the test ends. " +
+      "Requests that do not complete within this time are recorded as failed. Default is 1 minute.",
+      converter = TimeConverter.class)
+   public long asyncRequestsTimeout = 60000;
+
+   @Property(doc = "Kind of threads executing the stressors. PLATFORM runs each stressor in its own OS thread, " +
+      "VIRTUAL runs stressors in virtual threads (requires JVM 21+). Default is PLATFORM.")
+   public ThreadModel stressorThreadModel = ThreadModel.PLATFORM;
+
+   @Property(doc = "Number of carrier threads executing virtual threads. This can be set only before the first " +
+      "virtual thread is started in the slave JVM. Default is the number of cores.")
+   public int carrierThreads = 0;
+
+   @Property(doc = "Period in which each slave sends statistics recorded since the last update to master during the test. " +
+      "Master merges the updates as they arrive and uses the merged statistics for reporting. Default is 0 (statistics " +
+      "are sent only when the test finishes).", converter = TimeConverter.class)
+   public long statisticsUpdatePeriod = 0;
+
+   @Property(doc = "When this performance condition is satisfied by statistics merged from the updates (see " +
+      "statistics-update-period), master terminates the test on all slaves. Default is none.",
+      complexConverter = PerformanceCondition.Converter.class)
+   public PerformanceCondition stopCondition;
+
+   @Property(doc = "Service level agreement, e.g. limit on response time percentile and errors. When set, the test is " +
+      "executed repeatedly with different target-throughput (starting from the configured one), searching for the " +
+      "maximum throughput that satisfies this condition. Each step is recorded as an iteration of the test and " +
+      "the knee point is reported as 'Max sustainable throughput'. Default is none.",
+      complexConverter = PerformanceCondition.Converter.class)
+   public PerformanceCondition sla;
+
+   @Property(doc = "Strategy of the search for maximum sustainable throughput: STEP increases target throughput by " +
+      "search-step until the SLA breaks, BINARY doubles it until the SLA breaks and then bisects the interval. Default is BINARY.")
+   public ThroughputSearch.Mode searchMode = ThroughputSearch.Mode.BINARY;
+
+   @Property(doc = "Increment of target throughput in STEP search mode. Default is the initial target-throughput.")
+   public long searchStep = 0;
+
+   @Property(doc = "Maximum target throughput tried in the search. Default is unlimited.")
+   public long searchMaxThroughput = Long.MAX_VALUE;
+
+   @Property(doc = "Binary search stops when the interval between the highest satisfying and the lowest failing " +
+      "target throughput is narrower than this fraction of the throughput. Default is 0.05.")
+   public double searchPrecision = 0.05;
+
    @InjectTrait
    protected Transactional transactional;
 
@@ -79,6 +142,18 @@ public abstract class TestStage extends BaseTestStage {
 
    protected StressorsManager stressorsManager;
 
+   private ScheduledExecutorService statisticsUpdater;
+   private ScheduledExecutorService steadyStateMonitor;
+   // while warming up, statistics recorded by stressors are not sent in updates as these will be discarded
+   private volatile boolean warmingUp = false;
+   // on slave, milliseconds from the start of the test until the steady state was reached, or -1
+   private volatile long warmupDuration = -1;
+   // on master, statistics merged from updates, per slave
+   private final Map<Integer, List<Statistics>> liveStatistics = new HashMap<>();
+   // on master, all statistics received in updates merged together
+   private Statistics liveTotal;
+   private boolean stopRequested = false;
+
    public StressorsManager getStressorsManager() {
       return stressorsManager;
    }
@@ -90,6 +165,57 @@ public abstract class TestStage extends BaseTestStage {
       if (totalThreads > 0 && numThreadsPerNode > 0)
          throw new IllegalStateException("You have to set only one ot total-threads, num-threads-per-node");
       if (totalThreads < 0 || numThreadsPerNode < 0) throw new IllegalStateException("Number of threads can't be < 0");
+      if (targetThroughput < 0) throw new IllegalStateException("Target throughput can't be < 0");
+      if (targetThroughput > 0 && delayBetweenRequests > 0)
+         throw new IllegalStateException("You have to set only one of target-throughput, delay-between-requests");
+      if (maxInFlightRequests < 1) throw new IllegalStateException("Max in-flight requests must be >= 1");
+      if (asyncRequestsTimeout < 0) throw new IllegalStateException("Asynchronous requests timeout can't be < 0");
+      if (carrierThreads < 0) throw new IllegalStateException("Number of carrier threads can't be < 0");
+      if (statisticsUpdatePeriod < 0) throw new IllegalStateException("Statistics update period can't be < 0");
+      if (stopCondition != null && statisticsUpdatePeriod == 0)
+         throw new IllegalStateException("Stop condition requires statistics-update-period to be set");
+      if (confidenceInterval > 0 && statisticsUpdatePeriod > 0)
+         throw new IllegalStateException("Confidence interval cannot be combined with statistics-update-period");
+      // the updates reset the statistics the steady state detection samples
+      if (steadyStatePeriod > 0 && statisticsUpdatePeriod > 0)
+         throw new IllegalStateException("Steady state detection cannot be combined with statistics-update-period");
+      if (sla != null) {
+         if (targetThroughput <= 0)
+            throw new IllegalStateException("Search for maximum sustainable throughput requires initial target-throughput");
+         if (searchStep < 0 || searchPrecision < 0)
+            throw new IllegalStateException("Search step and precision can't be negative");
+         if (searchMaxThroughput <= 0)
+            throw new IllegalStateException("Maximum throughput for the search must be positive");
+         if (iterationProperty == null) {
+            iterationProperty = "target-throughput";
+         }
+      }
+   }
+
+   @Override
+   public void initOnSlave(SlaveState slaveState) {
+      super.initOnSlave(slaveState);
+      if (sla != null) {
+         Object rate = slaveState.get(getSearchKey());
+         if (rate != null) {
+            targetThroughput = (Long) rate;
+         }
+      }
+   }
+
+   @Override
+   public Map<String, Object> createMasterData() {
+      if (sla == null) {
+         return super.createMasterData();
+      }
+      ThroughputSearch search = getThroughputSearch();
+      // the value is used on master as the iteration value
+      targetThroughput = search.getRate();
+      log.info("Searching for maximum sustainable throughput, step " + (search.getSteps() + 1)
+         + ": target throughput is " + targetThroughput + " ops/s");
+      Map<String, Object> masterData = new HashMap<>(super.createMasterData());
+      masterData.put(getSearchKey(), targetThroughput);
+      return masterData;
    }
 
    public DistStageAck executeOnSlave() {
@@ -102,7 +228,14 @@ public abstract class TestStage extends BaseTestStage {
          long startNanos = TimeService.nanoTime();
          log.info("Starting test " + testName);
          stressorsManager = setUpAndStartStressors();
-         waitForStressorsToFinish(stressorsManager);
+         startSteadyStateDetection(stressorsManager);
+         startStatisticsUpdates(stressorsManager.getStressors());
+         try {
+            waitForStressorsToFinish(stressorsManager);
+         } finally {
+            stopStatisticsUpdates();
+            stopSteadyStateDetection();
+         }
          destroy();
          log.info("Finished test. Test duration is: " + Utils.getNanosDurationString(TimeService.nanoTime() - startNanos));
          return newStatisticsAck(stressorsManager.getStressors());
@@ -129,15 +262,28 @@ public abstract class TestStage extends BaseTestStage {
 
    protected StageResult processAckOnMaster(List<DistStageAck> acks, String testNameOverride) {
       StageResult result = super.processAckOnMaster(acks);
-      if (result.isError()) return result;
+      if (result.isError()) {
+         if (sla != null) {
+            masterState.remove(getSearchKey());
+         }
+         return result;
+      }
 
-      Report.Test test = getTest(amendTest, testNameOverride);
+      ThroughputSearch search = sla != null ? getThroughputSearch() : null;
+      // steps of the search are recorded as iterations of single test
+      Report.Test test = getTest(amendTest || (search != null && search.getSteps() > 0), testNameOverride);
       testIteration = test == null ? 0 : test.getIterations().size();
       // we cannot use aggregated = createStatistics() since with PeriodicStatistics the merge would fail
       List<StatisticsAck> statisticsAcks = instancesOf(acks, StatisticsAck.class);
-      Statistics aggregated = statisticsAcks.stream().flatMap(ack -> ack.statistics.stream()).reduce(null, Statistics.MERGE);
+      Map<Integer, List<Statistics>> slaveStatistics = new HashMap<>();
+      for (StatisticsAck ack : statisticsAcks) {
+         // with updates the ack contains only statistics recorded since the last update
+         slaveStatistics.put(ack.getSlaveIndex(), statisticsUpdatePeriod > 0 && ack.statistics != null
+            ? mergeUpdate(ack.getSlaveIndex(), ack.statistics) : ack.statistics);
+      }
       for (StatisticsAck ack : statisticsAcks) {
-         if (ack.statistics != null) {
+         List<Statistics> statistics = slaveStatistics.get(ack.getSlaveIndex());
+         if (statistics != null) {
             if (test != null) {
                int testIteration = getTestIteration();
                String iterationValue = resolveIterationValue();
@@ -147,16 +293,332 @@ public abstract class TestStage extends BaseTestStage {
                if (test.getGroupOperationsMap() == null) {
                   test.setGroupOperationsMap(ack.getGroupOperationsMap());
                }
-               test.addStatistics(testIteration, ack.getSlaveIndex(), ack.statistics);
+               test.addStatistics(testIteration, ack.getSlaveIndex(), statistics, masterState.isThreadStatisticsRequired());
             }
          } else {
             log.trace("No statistics received from slave: " + ack.getSlaveIndex());
          }
       }
-      if (checkRepeatCondition(aggregated)) {
+      if (test != null) {
+         addThroughputPerCarrierResult(test, statisticsAcks);
+         addWarmupResult(test, statisticsAcks);
+         addAllocationResult(test, statisticsAcks);
+      }
+      Statistics aggregated = null;
+      if (repeatCondition != null || search != null) {
+         if (test != null && getTestIteration() < test.getIterations().size()) {
+            // reuse statistics merged in background when these were added to the report
+            aggregated = test.getIterations().get(getTestIteration()).getTotalStatistics();
+         } else {
+            aggregated = StatsUtils.merge(slaveStatistics.values().stream().filter(list -> list != null)
+               .flatMap(List::stream).collect(Collectors.toList()));
+         }
+      }
+      if (!checkRepeatCondition(aggregated)) {
+         if (search != null) {
+            masterState.remove(getSearchKey());
+         }
+         return StageResult.BREAK;
+      } else if (search != null) {
+         return continueSearch(search, test, aggregated);
+      } else {
          return StageResult.SUCCESS;
+      }
+   }
+
+   /**
+    * Evaluates the SLA for current step of the search and decides whether this stage should be executed again.
+    */
+   private StageResult continueSearch(ThroughputSearch search, Report.Test test, Statistics aggregated) {
+      boolean satisfied;
+      try {
+         satisfied = aggregated != null && sla.evaluate(aggregated);
+      } catch (Exception e) {
+         log.info("SLA cannot be evaluated, considering it broken", e);
+         satisfied = false;
+      }
+      log.info("SLA " + sla + (satisfied ? " satisfied" : " broken") + " at target throughput " + search.getRate() + " ops/s");
+      if (search.update(satisfied)) {
+         return StageResult.REPEAT;
+      }
+      masterState.remove(getSearchKey());
+      long maxRate = search.getMaxSustainableRate();
+      if (maxRate < 0) {
+         log.warn("SLA was not satisfied at any target throughput, lowest tried was " + search.getFailedRate() + " ops/s");
       } else {
-         return StageResult.BREAK;
+         log.info("Maximum sustainable throughput is " + maxRate + " ops/s (found in " + search.getSteps() + " steps)");
+      }
+      if (test != null) {
+         test.addResult(getTestIteration(), new Report.TestResult("Max sustainable throughput", Collections.emptyMap(),
+            maxRate < 0 ? "not found" : maxRate + " ops/s", maxRate < 0));
+      }
+      return StageResult.SUCCESS;
+   }
+
+   private ThroughputSearch getThroughputSearch() {
+      ThroughputSearch search = (ThroughputSearch) masterState.get(getSearchKey());
+      if (search == null) {
+         search = new ThroughputSearch(searchMode, targetThroughput, searchStep > 0 ? searchStep : targetThroughput,
+            searchMaxThroughput, searchPrecision);
+         masterState.put(getSearchKey(), search);
+      }
+      return search;
+   }
+
+   private String getSearchKey() {
+      return ThroughputSearch.class.getName() + "." + testName;
+   }
+
+   @Override
+   public boolean processProgressOnMaster(DistStageProgress progress) {
+      if (!(progress instanceof StatisticsUpdate)) {
+         return super.processProgressOnMaster(progress);
+      }
+      mergeUpdate(progress.getSlaveIndex(), ((StatisticsUpdate) progress).statistics);
+      if (stopCondition != null && !stopRequested) {
+         try {
+            stopRequested = liveTotal != null && stopCondition.evaluate(liveTotal);
+         } catch (Exception e) {
+            log.debug("Stop condition cannot be evaluated yet", e);
+         }
+         if (stopRequested) {
+            log.info("Stop condition " + stopCondition + " satisfied, terminating the test.");
+         }
+      }
+      return !stopRequested;
+   }
+
+   /**
+    * Merges statistics received from the slave into the per-thread statistics received before
+    * and into the total of all slaves.
+    *
+    * @return Merged statistics from this slave.
+    */
+   private List<Statistics> mergeUpdate(int slaveIndex, List<Statistics> update) {
+      List<Statistics> merged = liveStatistics.computeIfAbsent(slaveIndex, index -> new ArrayList<>());
+      for (int i = 0; i < update.size(); ++i) {
+         if (liveTotal == null) {
+            liveTotal = update.get(i).copy();
+         } else {
+            liveTotal.merge(update.get(i));
+         }
+         if (i >= merged.size()) {
+            merged.add(update.get(i));
+         } else {
+            merged.get(i).merge(update.get(i));
+            update.get(i).release();
+         }
+      }
+      return merged;
+   }
+
+   protected void startStatisticsUpdates(List<Stressor> stressors) {
+      DistStageProgress.Sender sender = slaveState.getProgressSender();
+      if (statisticsUpdatePeriod <= 0 || sender == null) {
+         return;
+      }
+      statisticsUpdater = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "StatisticsUpdater");
+         thread.setDaemon(true);
+         return thread;
+      });
+      statisticsUpdater.scheduleAtFixedRate(() -> {
+         try {
+            if (warmingUp) {
+               return;
+            }
+            List<Statistics> update = gatherResults(stressors, new StatisticsResultRetriever());
+            if (!sender.send(new StatisticsUpdate(slaveState, update)) && !terminated) {
+               log.info("Master requested to terminate the test.");
+               setTerminated();
+            }
+         } catch (Exception e) {
+            log.error("Failed to send statistics update", e);
+         }
+      }, statisticsUpdatePeriod, statisticsUpdatePeriod, TimeUnit.MILLISECONDS);
+   }
+
+   protected void stopStatisticsUpdates() {
+      if (statisticsUpdater == null) {
+         return;
+      }
+      // an update in progress must be completed before the final ack is sent
+      statisticsUpdater.shutdown();
+      try {
+         if (!statisticsUpdater.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("Statistics update has not finished in time");
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      statisticsUpdater = null;
+   }
+
+   /**
+    * Samples throughput and mean response time of all stressors each {@link #steadyStatePeriod}. Statistics
+    * recorded before the steady state is detected are discarded; when the {@link #confidenceInterval} is
+    * reached, the test is terminated.
+    */
+   protected void startSteadyStateDetection(StressorsManager manager) {
+      if (steadyStatePeriod <= 0) {
+         return;
+      }
+      List<Stressor> stressors = manager.getStressors();
+      SteadyStateDetector detector = new SteadyStateDetector(steadyStateSamples, steadyStateMaxCv, confidenceInterval, confidenceLevel);
+      // requests and sum of response times recorded until the last sample
+      double[] previous = new double[2];
+      long[] lastSampleTime = new long[] {TimeService.currentTimeMillis()};
+      warmingUp = true;
+      steadyStateMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "SteadyStateMonitor");
+         thread.setDaemon(true);
+         return thread;
+      });
+      steadyStateMonitor.scheduleAtFixedRate(() -> {
+         try {
+            if (detector.getPhase() == SteadyStateDetector.Phase.CONVERGED
+               || (!warmingUp && confidenceInterval <= 0)) {
+               return;
+            }
+            long now = TimeService.currentTimeMillis();
+            double[] totals = sampleTotals(stressors);
+            double requests = totals[0] - previous[0];
+            double throughput = requests * 1000 / Math.max(1, now - lastSampleTime[0]);
+            double responseTimeMean = requests > 0 ? (totals[1] - previous[1]) / requests : 0;
+            previous[0] = totals[0];
+            previous[1] = totals[1];
+            lastSampleTime[0] = now;
+            SteadyStateDetector.Phase phase = detector.addSample(throughput, responseTimeMean);
+            if (warmingUp && phase != SteadyStateDetector.Phase.WARMUP) {
+               for (Stressor stressor : stressors) {
+                  Statistics stats = stressor.getStats();
+                  if (stats instanceof IntervalSwapStatistics) {
+                     ((IntervalSwapStatistics) stats).reset();
+                  }
+                  stressor.markAllocationBaseline();
+               }
+               previous[0] = 0;
+               previous[1] = 0;
+               warmupDuration = now - manager.getStartTime();
+               warmingUp = false;
+               log.info("Steady state reached after " + Utils.getMillisDurationString(warmupDuration)
+                  + ", discarding statistics recorded during warmup.");
+            } else if (phase == SteadyStateDetector.Phase.CONVERGED && !terminated) {
+               log.info("Confidence interval on the mean reached, terminating the test.");
+               setTerminated();
+            }
+         } catch (Exception e) {
+            log.error("Failed to sample statistics for steady state detection", e);
+         }
+      }, steadyStatePeriod, steadyStatePeriod, TimeUnit.MILLISECONDS);
+   }
+
+   protected void stopSteadyStateDetection() {
+      if (steadyStateMonitor == null) {
+         return;
+      }
+      steadyStateMonitor.shutdown();
+      try {
+         if (!steadyStateMonitor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("Steady state detection has not finished in time");
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      steadyStateMonitor = null;
+      if (warmingUp) {
+         log.warn("Steady state was not reached, reporting all results.");
+         warmingUp = false;
+      }
+   }
+
+   /**
+    * @return Number of requests and sum of response times of all operations recorded by the stressors since last reset.
+    */
+   private double[] sampleTotals(List<Stressor> stressors) {
+      double[] totals = new double[2];
+      for (Stressor stressor : stressors) {
+         Statistics stats = stressor.getStats();
+         if (!(stats instanceof IntervalSwapStatistics)) continue;
+         Statistics snapshot = ((IntervalSwapStatistics) stats).snapshot(false);
+         for (String operation : snapshot.getOperations()) {
+            DefaultOutcome outcome = snapshot.getRepresentation(operation, DefaultOutcome.class);
+            if (outcome != null) {
+               totals[0] += outcome.requests;
+               totals[1] += outcome.responseTimeMean * outcome.requests;
+            }
+         }
+      }
+      return totals;
+   }
+
+   private void addWarmupResult(Report.Test test, List<StatisticsAck> statisticsAcks) {
+      Map<Integer, Report.SlaveResult> slaveResults = new HashMap<>();
+      long maxWarmup = -1;
+      boolean notReached = false;
+      for (StatisticsAck ack : statisticsAcks) {
+         if (ack.warmupDuration == null) continue;
+         if (ack.warmupDuration < 0) {
+            slaveResults.put(ack.getSlaveIndex(), new Report.SlaveResult("not reached", true));
+            notReached = true;
+         } else {
+            slaveResults.put(ack.getSlaveIndex(), new Report.SlaveResult(Utils.getMillisDurationString(ack.warmupDuration), false));
+            maxWarmup = Math.max(maxWarmup, ack.warmupDuration);
+         }
+      }
+      if (!slaveResults.isEmpty()) {
+         test.addResult(getTestIteration(), new Report.TestResult("Warmup duration", slaveResults,
+            maxWarmup < 0 ? "not reached" : Utils.getMillisDurationString(maxWarmup), notReached));
+      }
+   }
+
+   private void addAllocationResult(Report.Test test, List<StatisticsAck> statisticsAcks) {
+      Map<Integer, Report.SlaveResult> slaveResults = new HashMap<>();
+      long allocatedBytes = 0;
+      long operations = 0;
+      for (StatisticsAck ack : statisticsAcks) {
+         if (ack.allocatedBytes < 0 || ack.operations <= 0) continue;
+         slaveResults.put(ack.getSlaveIndex(), new Report.SlaveResult(
+            String.format("%.0f B", (double) ack.allocatedBytes / ack.operations), false));
+         allocatedBytes += ack.allocatedBytes;
+         operations += ack.operations;
+      }
+      if (operations > 0) {
+         test.addResult(getTestIteration(), new Report.TestResult("Allocation per operation", slaveResults,
+            String.format("%.0f B", (double) allocatedBytes / operations), false));
+      }
+   }
+
+   private void addThroughputPerCarrierResult(Report.Test test, List<StatisticsAck> statisticsAcks) {
+      if (getTestIteration() >= test.getIterations().size()) {
+         return;
+      }
+      Report.TestIteration iteration = test.getIterations().get(getTestIteration());
+      Map<Integer, Report.SlaveResult> slaveResults = new HashMap<>();
+      double throughput = 0;
+      int carriers = 0;
+      for (StatisticsAck ack : statisticsAcks) {
+         if (ack.carrierThreads <= 0) continue;
+         Statistics nodeStats = iteration.getNodeStatistics(ack.getSlaveIndex());
+         if (nodeStats == null) continue;
+         long duration = nodeStats.getEnd() - nodeStats.getBegin();
+         if (duration <= 0) continue;
+         long requests = 0;
+         for (String operation : nodeStats.getOperations()) {
+            DefaultOutcome outcome = nodeStats.getRepresentation(operation, DefaultOutcome.class);
+            if (outcome != null) {
+               requests += outcome.requests;
+            }
+         }
+         double nodeThroughput = TimeUnit.SECONDS.toMillis(1) * (double) requests / duration;
+         slaveResults.put(ack.getSlaveIndex(), new Report.SlaveResult(
+            String.format("%.1f ops/s", nodeThroughput / ack.carrierThreads), false));
+         throughput += nodeThroughput;
+         carriers += ack.carrierThreads;
+      }
+      if (carriers > 0) {
+         test.addResult(getTestIteration(), new Report.TestResult("Throughput per carrier thread (" + stressorThreadModel + ")",
+            slaveResults, String.format("%.1f ops/s", throughput / carriers), false));
       }
    }
 
@@ -177,6 +639,10 @@ public abstract class TestStage extends BaseTestStage {
       operationSelector = wrapOperationSelector(createOperationSelector());
 
       List<Stressor> stressors = startStressors();
+      ThreadMonitor threadMonitor = (ThreadMonitor) slaveState.get(ThreadMonitor.THREAD_MONITOR);
+      if (threadMonitor != null) {
+         stressors.forEach(stressor -> threadMonitor.register(stressor.getExecutingThread()));
+      }
       started = true;
 
       if (rampUp > 0) {
@@ -190,6 +656,17 @@ public abstract class TestStage extends BaseTestStage {
    }
 
    protected void waitForStressorsToFinish(StressorsManager manager) {
+      try {
+         awaitStressors(manager);
+      } finally {
+         ThreadMonitor threadMonitor = (ThreadMonitor) slaveState.get(ThreadMonitor.THREAD_MONITOR);
+         if (threadMonitor != null) {
+            manager.getStressors().forEach(stressor -> threadMonitor.unregister(stressor.getExecutingThread()));
+         }
+      }
+   }
+
+   private void awaitStressors(StressorsManager manager) {
       try {
          if (timeout > 0) {
             long waitTime = getWaitTime(manager.getStartTime());
@@ -206,14 +683,14 @@ public abstract class TestStage extends BaseTestStage {
       } catch (InterruptedException e) {
          throw new IllegalStateException("Unexpected interruption", e);
       }
-      for (Thread stressorThread : manager.getStressors()) {
+      for (Stressor stressor : manager.getStressors()) {
          try {
             if (timeout > 0) {
                long waitTime = getWaitTime(manager.getStartTime());
                if (waitTime <= 0) throw new TestTimeoutException();
-               stressorThread.join(waitTime);
+               stressor.awaitTermination(waitTime);
             } else {
-               stressorThread.join();
+               stressor.awaitTermination();
             }
          } catch (InterruptedException e) {
             throw new TestTimeoutException(e);
@@ -249,25 +726,43 @@ public abstract class TestStage extends BaseTestStage {
       int myFirstThread = getFirstThreadOn(slaveState.getSlaveIndex());
       int myNumThreads = getNumThreadsOn(slaveState.getSlaveIndex());
       CountDownLatch threadCountDown = new CountDownLatch(myNumThreads);
+      stressorThreadModel.setCarrierThreads(carrierThreads);
 
       List<Stressor> stressors = new ArrayList<>();
       for (int threadIndex = stressors.size(); threadIndex < myNumThreads; threadIndex++) {
          Stressor stressor = new Stressor(this, getLogic(), myFirstThread + threadIndex, threadIndex, logTransactionExceptions, threadCountDown, delayBetweenRequests);
          stressors.add(stressor);
-         stressor.start();
+         stressor.start(stressorThreadModel);
       }
       try {
          threadCountDown.await();
       } catch (InterruptedException e) {
          //FIXME implement me
       }
-      log.info("Started " + stressors.size() + " stressor threads.");
+      log.info("Started " + stressors.size() + " stressor threads (" + stressorThreadModel + ").");
+      if (stressorThreadModel == ThreadModel.VIRTUAL && carrierThreads > 0) {
+         int running = ThreadModel.countCarrierThreads();
+         if (running > carrierThreads) {
+            log.warnf("Stressors run on %d carrier threads instead of configured %d", running, carrierThreads);
+         }
+      }
       return stressors;
    }
 
    protected DistStageAck newStatisticsAck(List<Stressor> stressors) {
       List<Statistics> results = gatherResults(stressors, new StatisticsResultRetriever());
-      return new StatisticsAck(slaveState, results, statisticsPrototype.getGroupOperationsMap());
+      long allocatedBytes = 0;
+      long operations = 0;
+      for (Stressor stressor : stressors) {
+         long allocated = stressor.getAllocatedBytes();
+         if (allocated >= 0) {
+            allocatedBytes += allocated;
+            operations += stressor.getOperations();
+         }
+      }
+      return new StatisticsAck(slaveState, results, statisticsPrototype.getGroupOperationsMap(),
+         stressorThreadModel.getCarrierThreads(), steadyStatePeriod > 0 ? warmupDuration : null,
+         operations > 0 ? allocatedBytes : -1, operations);
    }
 
    protected <T> List<T> gatherResults(List<Stressor> stressors, ResultRetriever<T> retriever) {
@@ -320,7 +815,22 @@ public abstract class TestStage extends BaseTestStage {
       }
    }
 
+   /**
+    * @return Period between scheduled starts of consecutive requests of one stressor thread, in nanoseconds,
+    *         or 0 if the requests should not be scheduled.
+    */
+   public long getRequestPeriod() {
+      if (targetThroughput <= 0) {
+         return 0;
+      }
+      return Math.max(1, TimeUnit.SECONDS.toNanos(getTotalThreads()) / targetThroughput);
+   }
+
    protected Statistics createStatistics() {
+      if (statisticsUpdatePeriod > 0 || steadyStatePeriod > 0) {
+         // statistics are retrieved and reset while the stressors record new requests
+         return new IntervalSwapStatistics(statisticsPrototype);
+      }
       return statisticsPrototype.copy();
    }
 
@@ -370,7 +880,9 @@ public abstract class TestStage extends BaseTestStage {
 
       @Override
       public Statistics getResult(Stressor stressor) {
-         return stressor.getStats();
+         Statistics stats = stressor.getStats();
+         // return only the data recorded since the last update
+         return stats instanceof IntervalSwapStatistics ? ((IntervalSwapStatistics) stats).snapshot(true) : stats;
       }
 
       @Override
@@ -379,6 +891,15 @@ public abstract class TestStage extends BaseTestStage {
       }
    }
 
+   protected static class StatisticsUpdate extends DistStageProgress {
+      public final List<Statistics> statistics;
+
+      public StatisticsUpdate(SlaveState slaveState, List<Statistics> statistics) {
+         super(slaveState);
+         this.statistics = statistics;
+      }
+   }
+
    protected class TestTimeoutException extends RuntimeException {
       public TestTimeoutException() {
       }
@@ -391,11 +912,26 @@ public abstract class TestStage extends BaseTestStage {
    protected static class StatisticsAck extends DistStageAck {
       public final List<Statistics> statistics;
       private final Map<String, Set<Operation>> groupOperationsMap;
+      private final int carrierThreads;
+      // null if the steady state was not detected, negative if it was not reached
+      private final Long warmupDuration;
+      // bytes allocated by stressors executing given number of operations; -1 if unknown
+      private final long allocatedBytes;
+      private final long operations;
 
       public StatisticsAck(SlaveState slaveState, List<Statistics> statistics, Map<String, Set<Operation>> groupOperationsMap) {
+         this(slaveState, statistics, groupOperationsMap, 0, null, -1, 0);
+      }
+
+      public StatisticsAck(SlaveState slaveState, List<Statistics> statistics, Map<String, Set<Operation>> groupOperationsMap,
+                           int carrierThreads, Long warmupDuration, long allocatedBytes, long operations) {
          super(slaveState);
          this.statistics = statistics;
          this.groupOperationsMap = groupOperationsMap;
+         this.carrierThreads = carrierThreads;
+         this.warmupDuration = warmupDuration;
+         this.allocatedBytes = allocatedBytes;
+         this.operations = operations;
       }
       public Map<String, Set<Operation>> getGroupOperationsMap() {
          return groupOperationsMap;
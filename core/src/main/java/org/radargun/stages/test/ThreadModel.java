@@ -0,0 +1,112 @@
+package org.radargun.stages.test;
+
+import java.lang.reflect.Method;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+
+/**
+ * Defines what kind of threads execute the stressors.
+ *
+ * Virtual threads are available only on JVM 21 and newer; as RadarGun is compiled against older
+ * JDK these are created through reflection.
+ */
+public enum ThreadModel {
+   /**
+    * Each stressor runs in its own OS thread.
+    */
+   PLATFORM,
+   /**
+    * Stressors run in virtual threads, multiplexed on a pool of carrier threads.
+    */
+   VIRTUAL;
+
+   private static final Log log = LogFactory.getLog(ThreadModel.class);
+   private static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+   private static final String MAX_POOL_SIZE = "jdk.virtualThreadScheduler.maxPoolSize";
+   private static final String CARRIER_THREAD_CLASS = "jdk.internal.misc.CarrierThread";
+
+   private static volatile Method ofVirtual;
+   private static volatile Method name;
+   private static volatile Method unstarted;
+
+   /**
+    * Creates new thread (not started) executing the runnable.
+    */
+   public Thread newThread(Runnable runnable, String threadName) {
+      switch (this) {
+         case PLATFORM:
+            return new Thread(runnable, threadName);
+         case VIRTUAL:
+            return newVirtualThread(runnable, threadName);
+         default:
+            throw new IllegalStateException("Unknown state: " + this);
+      }
+   }
+
+   /**
+    * Sets the number of carrier threads for virtual threads. This has effect only before
+    * the first virtual thread is created in this JVM.
+    *
+    * @param carrierThreads Number of carrier threads, 0 keeps the JVM default (number of cores).
+    */
+   public void setCarrierThreads(int carrierThreads) {
+      if (this != VIRTUAL || carrierThreads <= 0) {
+         return;
+      }
+      if (ofVirtual != null) {
+         log.warnf("Virtual threads were already used, carrier pool size %s is kept", getCarrierThreads());
+         return;
+      }
+      int running = countCarrierThreads();
+      if (running > 0) {
+         // the scheduler reads the properties only once, when any component starts the first virtual thread
+         log.warnf("Virtual thread scheduler was already started with %d carrier threads, setting %d carrier threads " +
+            "has no effect", running, carrierThreads);
+         return;
+      }
+      System.setProperty(PARALLELISM, String.valueOf(carrierThreads));
+      System.setProperty(MAX_POOL_SIZE, String.valueOf(carrierThreads));
+   }
+
+   /**
+    * @return Number of OS threads that can execute stressors in parallel.
+    */
+   public int getCarrierThreads() {
+      int cores = Runtime.getRuntime().availableProcessors();
+      if (this == VIRTUAL) {
+         return Integer.getInteger(PARALLELISM, cores);
+      }
+      return cores;
+   }
+
+   /**
+    * @return Number of live carrier threads of the virtual thread scheduler.
+    */
+   static int countCarrierThreads() {
+      int count = 0;
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+         if (CARRIER_THREAD_CLASS.equals(thread.getClass().getName())) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   private static Thread newVirtualThread(Runnable runnable, String threadName) {
+      try {
+         if (ofVirtual == null) {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            name = builderClass.getMethod("name", String.class);
+            unstarted = builderClass.getMethod("unstarted", Runnable.class);
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+         }
+         Object builder = name.invoke(ofVirtual.invoke(null), threadName);
+         return (Thread) unstarted.invoke(builder, runnable);
+      } catch (ClassNotFoundException | NoSuchMethodException e) {
+         throw new IllegalStateException("Virtual threads are not supported by this JVM (" + System.getProperty("java.version") + ")", e);
+      } catch (ReflectiveOperationException e) {
+         throw new IllegalStateException("Cannot create virtual thread", e);
+      }
+   }
+}
@@ -0,0 +1,108 @@
+package org.radargun.stages.test;
+
+/**
+ * Searches for the maximum target throughput at which the service level agreement is still satisfied.
+ * Each step runs the test at {@link #getRate() rate} and {@link #update(boolean) reports} whether the SLA was met.
+ *
+ * In {@link Mode#STEP} mode the rate is increased by constant step until the SLA breaks. In {@link Mode#BINARY} mode
+ * the rate is doubled until the SLA breaks and then the interval between the last satisfying and the first failing
+ * rate is bisected until it is narrower than the requested precision.
+ *
+ * Instances are kept in master state between executions of the stage.
+ */
+public class ThroughputSearch {
+   public enum Mode {
+      STEP,
+      BINARY
+   }
+
+   private final Mode mode;
+   private final long step;
+   private final long maxRate;
+   private final double precision;
+   private long rate;
+   private long passed = -1;
+   private long failed = -1;
+   private int steps;
+
+   /**
+    * @param mode Search strategy.
+    * @param initialRate Rate used in the first step.
+    * @param step Rate increment in {@link Mode#STEP} mode.
+    * @param maxRate Maximum tested rate.
+    * @param precision Relative width of the interval where the knee point lies, when the binary search stops.
+    */
+   public ThroughputSearch(Mode mode, long initialRate, long step, long maxRate, double precision) {
+      if (initialRate <= 0) throw new IllegalArgumentException("Initial rate must be positive");
+      if (mode == Mode.STEP && step <= 0) throw new IllegalArgumentException("Step must be positive");
+      this.mode = mode;
+      this.rate = Math.min(initialRate, maxRate);
+      this.step = step;
+      this.maxRate = maxRate;
+      this.precision = precision;
+   }
+
+   /**
+    * @return Target throughput for current step.
+    */
+   public long getRate() {
+      return rate;
+   }
+
+   /**
+    * @return Number of steps already finished.
+    */
+   public int getSteps() {
+      return steps;
+   }
+
+   /**
+    * @return Highest tested rate that satisfied the SLA, or -1 if none did.
+    */
+   public long getMaxSustainableRate() {
+      return passed;
+   }
+
+   /**
+    * @return Lowest tested rate that did not satisfy the SLA, or -1 if none failed.
+    */
+   public long getFailedRate() {
+      return failed;
+   }
+
+   /**
+    * Records result of the current step and moves to the next rate.
+    *
+    * @param satisfied True if the SLA was met at current rate.
+    * @return True if another step should be executed.
+    */
+   public boolean update(boolean satisfied) {
+      ++steps;
+      if (satisfied) {
+         passed = rate;
+      } else {
+         failed = rate;
+      }
+      if (failed < 0) {
+         if (rate >= maxRate) {
+            return false;
+         }
+         long next = mode == Mode.STEP ? rate + step : rate * 2;
+         rate = next < 0 ? maxRate : Math.min(next, maxRate);
+         return true;
+      } else if (mode == Mode.STEP) {
+         return false;
+      }
+      long low = Math.max(passed, 0);
+      if (failed - low <= Math.max(1, (long) (precision * failed))) {
+         return false;
+      }
+      rate = (low + failed) / 2;
+      return rate > 0;
+   }
+
+   @Override
+   public String toString() {
+      return "ThroughputSearch{mode=" + mode + ", rate=" + rate + ", passed=" + passed + ", failed=" + failed + ", steps=" + steps + '}';
+   }
+}
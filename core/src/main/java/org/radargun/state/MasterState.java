@@ -12,6 +12,7 @@ import org.radargun.reporting.Timeline;
 public class MasterState extends StateBase<MasterListener> {
    private MasterConfig config;
    private Report report;
+   private boolean threadStatisticsRequired = true;
 
    public MasterState(MasterConfig config) {
       this.config = config;
@@ -29,6 +30,17 @@ public class MasterState extends StateBase<MasterListener> {
       this.report = report;
    }
 
+   /**
+    * @return False if no reporter uses statistics from individual threads, so that these can be dropped.
+    */
+   public boolean isThreadStatisticsRequired() {
+      return threadStatisticsRequired;
+   }
+
+   public void setThreadStatisticsRequired(boolean threadStatisticsRequired) {
+      this.threadStatisticsRequired = threadStatisticsRequired;
+   }
+
    public Timeline getTimeline() {
       return report.getTimelines().get(0);
    }
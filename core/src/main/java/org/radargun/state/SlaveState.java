@@ -4,6 +4,7 @@ import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Map;
 
+import org.radargun.DistStageProgress;
 import org.radargun.RemoteSlaveConnection;
 import org.radargun.config.Cluster;
 import org.radargun.reporting.Timeline;
@@ -29,6 +30,7 @@ public class SlaveState extends StateBase<ServiceListener> {
 
    private Map<Class<?>, Object> traits;
    private Timeline timeline;
+   private DistStageProgress.Sender progressSender;
 
    public void setLocalAddress(InetAddress localAddress) {
       this.localAddress = localAddress;
@@ -107,6 +109,17 @@ public class SlaveState extends StateBase<ServiceListener> {
       this.timeline = timeline;
    }
 
+   /**
+    * @return Sender of intermediate results to master, or null if these are not supported.
+    */
+   public DistStageProgress.Sender getProgressSender() {
+      return progressSender;
+   }
+
+   public void setProgressSender(DistStageProgress.Sender progressSender) {
+      this.progressSender = progressSender;
+   }
+
    public void setSlaveAddresses(RemoteSlaveConnection.SlaveAddresses slaveAddresses) {
       this.slaveAddresses = slaveAddresses;
    }
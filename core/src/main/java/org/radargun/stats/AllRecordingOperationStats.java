@@ -1,8 +1,12 @@
 package org.radargun.stats;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import org.radargun.SerializationHelper;
 import org.radargun.config.DefinitionElement;
 import org.radargun.stats.representation.DefaultOutcome;
 import org.radargun.stats.representation.Histogram;
@@ -20,6 +24,7 @@ public class AllRecordingOperationStats implements OperationStats {
 
    private static final int INITIAL_CAPACITY = (1 << 10);
    protected static final int MAX_CAPACITY = (1 << 20); // max 8MB
+   private static final int SERIAL_VERSION = 1;
 
    /* We don't use ArrayList because it would box all the longs */
    protected long[] responseTimes = new long[INITIAL_CAPACITY];
@@ -66,6 +71,15 @@ public class AllRecordingOperationStats implements OperationStats {
       }
    }
 
+   @Override
+   public void record(long duration, boolean successful) {
+      ensureCapacity();
+      responseTimes[pos++] = duration;
+      if (!successful) {
+         errors++;
+      }
+   }
+
    public void ensureCapacity() {
       if (pos >= responseTimes.length) {
          int newCapacity = Math.min(responseTimes.length << 1, MAX_CAPACITY);
@@ -220,4 +234,35 @@ public class AllRecordingOperationStats implements OperationStats {
          return durationSum / requests;
       }
    }
+
+   private void writeObject(ObjectOutputStream s) throws IOException {
+      s.writeByte(SERIAL_VERSION);
+      int size = full ? responseTimes.length : pos;
+      s.writeBoolean(full);
+      SerializationHelper.writeVarLong(s, errors);
+      SerializationHelper.writeVarLong(s, size);
+      // consecutive response times tend to be similar, store only the difference
+      long previous = 0;
+      for (int i = 0; i < size; ++i) {
+         SerializationHelper.writeSignedVarLong(s, responseTimes[i] - previous);
+         previous = responseTimes[i];
+      }
+   }
+
+   private void readObject(ObjectInputStream s) throws IOException {
+      SerializationHelper.readVersion(s, SERIAL_VERSION, AllRecordingOperationStats.class);
+      full = s.readBoolean();
+      errors = SerializationHelper.readVarLong(s);
+      int size = (int) SerializationHelper.readVarLong(s);
+      responseTimes = new long[Math.max(size, INITIAL_CAPACITY)];
+      long previous = 0;
+      for (int i = 0; i < size; ++i) {
+         previous += SerializationHelper.readSignedVarLong(s);
+         responseTimes[i] = previous;
+      }
+      if (full) {
+         responseTimes = Arrays.copyOf(responseTimes, size);
+      }
+      pos = full ? 0 : size;
+   }
 }
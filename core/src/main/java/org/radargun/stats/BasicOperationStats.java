@@ -1,5 +1,10 @@
 package org.radargun.stats;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.radargun.SerializationHelper;
 import org.radargun.config.DefinitionElement;
 import org.radargun.stats.representation.BoxAndWhiskers;
 import org.radargun.stats.representation.DefaultOutcome;
@@ -15,6 +20,7 @@ import org.radargun.stats.representation.OperationThroughput;
 public class BasicOperationStats implements OperationStats {
    private static final double INVERSE_NORMAL_95 = 1.96;
    private static final double INVERSE_NORMAL_50 = 0.67448;
+   private static final int SERIAL_VERSION = 1;
    private long requests;
    private long responseTimeMax = Long.MIN_VALUE;
    private long responseTimeSum;
@@ -92,6 +98,14 @@ public class BasicOperationStats implements OperationStats {
       }
    }
 
+   @Override
+   public void record(long duration, boolean successful) {
+      record(duration);
+      if (!successful) {
+         errors++;
+      }
+   }
+
    public void record(long duration) {
       requests++;
       responseTimeMax = Math.max(responseTimeMax, duration);
@@ -137,4 +151,30 @@ public class BasicOperationStats implements OperationStats {
    public boolean isEmpty() {
       return requests == 0;
    }
+
+   private void writeObject(ObjectOutputStream s) throws IOException {
+      s.writeByte(SERIAL_VERSION);
+      SerializationHelper.writeVarLong(s, requests);
+      SerializationHelper.writeVarLong(s, errors);
+      if (requests > 0) {
+         SerializationHelper.writeSignedVarLong(s, responseTimeMax);
+         SerializationHelper.writeSignedVarLong(s, responseTimeSum);
+         s.writeDouble(responseTimeMean);
+         s.writeDouble(responseTimeM2);
+      }
+   }
+
+   private void readObject(ObjectInputStream s) throws IOException {
+      SerializationHelper.readVersion(s, SERIAL_VERSION, BasicOperationStats.class);
+      requests = SerializationHelper.readVarLong(s);
+      errors = SerializationHelper.readVarLong(s);
+      if (requests > 0) {
+         responseTimeMax = SerializationHelper.readSignedVarLong(s);
+         responseTimeSum = SerializationHelper.readSignedVarLong(s);
+         responseTimeMean = s.readDouble();
+         responseTimeM2 = s.readDouble();
+      } else {
+         responseTimeMax = Long.MIN_VALUE;
+      }
+   }
 }
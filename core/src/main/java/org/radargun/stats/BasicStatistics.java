@@ -1,5 +1,8 @@
 package org.radargun.stats;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -8,6 +11,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.radargun.Operation;
+import org.radargun.SerializationHelper;
 import org.radargun.config.DefinitionElement;
 import org.radargun.config.Property;
 
@@ -19,11 +23,12 @@ import org.radargun.config.Property;
 @DefinitionElement(name = "basic", doc = "Statistics with fixed memory footprint for each operation statistics.")
 public class BasicStatistics extends IntervalStatistics {
    private static final OperationStats[] EMPTY_ARRAY = new OperationStats[0];
+   private static final int SERIAL_VERSION = 1;
    private transient OperationStats[] operationStats = EMPTY_ARRAY;
-   private Map<String, OperationStats> operationStatsMap = new HashMap<>();
+   private transient Map<String, OperationStats> operationStatsMap = new HashMap<>();
 
-   private Map<String, Set<Operation>> groupOperationsMap = new HashMap<>();
-   private Map<Operation, String> operationGroupMap = new HashMap<>();
+   private transient Map<String, Set<Operation>> groupOperationsMap = new HashMap<>();
+   private transient Map<Operation, String> operationGroupMap = new HashMap<>();
 
    @Property(name = "operationStats", doc = "Operation statistics prototype.", complexConverter = OperationStats.Converter.class)
    protected OperationStats prototype = new BasicOperationStats();
@@ -70,6 +75,7 @@ public class BasicStatistics extends IntervalStatistics {
 
    @Override
    public void reset() {
+      release();
       operationStatsMap.clear();
       for (int i = 0; i < operationStats.length; ++i) {
          operationStats[i] = createOperationStats(i);
@@ -78,6 +84,13 @@ public class BasicStatistics extends IntervalStatistics {
       begin();
    }
 
+   @Override
+   public void release() {
+      for (OperationStats stats : operationStatsMap.values()) {
+         stats.release();
+      }
+   }
+
    @Override
    public void record(Request request, Operation operation) {
       ensure(operation.id);
@@ -85,6 +98,13 @@ public class BasicStatistics extends IntervalStatistics {
       stats.record(request);
    }
 
+   @Override
+   public void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      ensure(operation.id);
+      OperationStats stats = operationStats[operation.id];
+      stats.record(responseCompleteTime - requestStartTime, successful);
+   }
+
    @Override
    public void record(Message message, Operation operation) {
       ensure(operation.id);
@@ -242,4 +262,48 @@ public class BasicStatistics extends IntervalStatistics {
    public String toString() {
       return super.toString() + "{" + operationStatsMap + "}";
    }
+
+   private void writeObject(ObjectOutputStream s) throws IOException {
+      s.defaultWriteObject();
+      s.writeByte(SERIAL_VERSION);
+      // periodic statistics hold thousands of instances, avoid the overhead of serialized HashMaps
+      SerializationHelper.writeVarLong(s, operationStatsMap.size());
+      for (Map.Entry<String, OperationStats> entry : operationStatsMap.entrySet()) {
+         // operation names are shared by the instances, write them as objects to get back-references
+         s.writeObject(entry.getKey());
+         s.writeObject(entry.getValue());
+      }
+      SerializationHelper.writeVarLong(s, groupOperationsMap.size());
+      for (Map.Entry<String, Set<Operation>> entry : groupOperationsMap.entrySet()) {
+         s.writeObject(entry.getKey());
+         SerializationHelper.writeVarLong(s, entry.getValue().size());
+         for (Operation operation : entry.getValue()) {
+            s.writeObject(operation.name);
+         }
+      }
+   }
+
+   private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+      s.defaultReadObject();
+      SerializationHelper.readVersion(s, SERIAL_VERSION, BasicStatistics.class);
+      int size = (int) SerializationHelper.readVarLong(s);
+      operationStatsMap = new HashMap<>(size * 2);
+      for (int i = 0; i < size; ++i) {
+         operationStatsMap.put((String) s.readObject(), (OperationStats) s.readObject());
+      }
+      int groups = (int) SerializationHelper.readVarLong(s);
+      groupOperationsMap = new HashMap<>();
+      operationGroupMap = new HashMap<>();
+      for (int i = 0; i < groups; ++i) {
+         String group = (String) s.readObject();
+         int count = (int) SerializationHelper.readVarLong(s);
+         Set<Operation> operations = new HashSet<>(count * 2);
+         for (int j = 0; j < count; ++j) {
+            Operation operation = Operation.getByName((String) s.readObject());
+            operations.add(operation);
+            operationGroupMap.put(operation, group);
+         }
+         groupOperationsMap.put(group, operations);
+      }
+   }
 }
@@ -0,0 +1,250 @@
+package org.radargun.stats;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.radargun.Operation;
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Property;
+import org.radargun.utils.TimeService;
+
+/**
+ * Statistics that can be recorded from multiple threads and read (or reset) concurrently,
+ * without blocking the recording threads.
+ *
+ * Each recording thread writes into its private instance of the underlying statistics (single writer).
+ * Reader swaps this instance with a spare one and merges the swapped out instance into the retained
+ * statistics; the {@link WriterReaderPhaser} guarantees that the swapped out instance is not modified
+ * any more when it's being merged. Recording is wait-free, only the reader waits for the writers.
+ */
+@DefinitionElement(name = "interval-swap", doc = "Statistics recorded without locking by each thread into its own buffer. " +
+   "The statistics can be read and reset while the operations are being recorded.")
+public class IntervalSwapStatistics extends IntervalStatistics {
+   @Property(name = "implementation", doc = "Statistics where the operations are recorded. Default are basic statistics.",
+      complexConverter = Statistics.Converter.class)
+   private Statistics prototype = new BasicStatistics();
+
+   private transient List<Recorder> recorders;
+   private transient ThreadLocal<Recorder> recorder;
+   // guarded by this
+   private Statistics retained;
+
+   public IntervalSwapStatistics() {
+      initRecorders();
+   }
+
+   public IntervalSwapStatistics(Statistics prototype) {
+      this();
+      this.prototype = prototype;
+   }
+
+   private void initRecorders() {
+      recorders = new CopyOnWriteArrayList<>();
+      recorder = ThreadLocal.withInitial(() -> {
+         Statistics active = prototype.newInstance();
+         // time-based statistics (e.g. periodic) place the requests relatively to the begin
+         active.begin();
+         Recorder r = new Recorder(active, prototype.newInstance());
+         recorders.add(r);
+         return r;
+      });
+   }
+
+   @Override
+   public void record(Request request, Operation operation) {
+      Recorder r = recorder.get();
+      long epoch = r.phaser.writerCriticalSectionEnter();
+      try {
+         r.active.record(request, operation);
+      } finally {
+         r.phaser.writerCriticalSectionExit(epoch);
+      }
+   }
+
+   @Override
+   public void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      Recorder r = recorder.get();
+      long epoch = r.phaser.writerCriticalSectionEnter();
+      try {
+         r.active.record(operation, requestStartTime, responseCompleteTime, successful);
+      } finally {
+         r.phaser.writerCriticalSectionExit(epoch);
+      }
+   }
+
+   @Override
+   public void record(Message message, Operation operation) {
+      Recorder r = recorder.get();
+      long epoch = r.phaser.writerCriticalSectionEnter();
+      try {
+         r.active.record(message, operation);
+      } finally {
+         r.phaser.writerCriticalSectionExit(epoch);
+      }
+   }
+
+   @Override
+   public void record(RequestSet requestSet, Operation operation) {
+      Recorder r = recorder.get();
+      long epoch = r.phaser.writerCriticalSectionEnter();
+      try {
+         r.active.record(requestSet, operation);
+      } finally {
+         r.phaser.writerCriticalSectionExit(epoch);
+      }
+   }
+
+   /**
+    * Merges data recorded by all threads into retained statistics.
+    */
+   private synchronized Statistics collect() {
+      if (retained == null) {
+         retained = prototype.newInstance();
+      }
+      // some statistics (e.g. periodic) can't merge data unless the interval is set
+      setInterval(retained);
+      for (Recorder r : recorders) {
+         Statistics recorded = r.active;
+         r.spare.begin();
+         r.active = r.spare;
+         r.phaser.flipPhase();
+         if (recorded instanceof IntervalStatistics) {
+            // not calling end() as that could discard some data
+            ((IntervalStatistics) recorded).setEnd(TimeService.currentTimeMillis());
+         }
+         retained.merge(recorded);
+         recorded.reset();
+         r.spare = recorded;
+      }
+      setInterval(retained);
+      return retained;
+   }
+
+   private void setInterval(Statistics statistics) {
+      if (statistics instanceof IntervalStatistics) {
+         IntervalStatistics intervalStats = (IntervalStatistics) statistics;
+         intervalStats.setBegin(getBegin());
+         intervalStats.setEnd(getEnd() == Long.MIN_VALUE ? TimeService.currentTimeMillis() : getEnd());
+      }
+   }
+
+   /**
+    * Retrieve statistics recorded since last reset. Does not block threads recording the operations.
+    *
+    * @param reset If true, the recorded data are cleared and new measurement starts.
+    * @return Instance of the underlying statistics implementation, independent from this object.
+    */
+   public synchronized Statistics snapshot(boolean reset) {
+      Statistics snapshot = collect();
+      if (reset) {
+         retained = null;
+         begin();
+         return snapshot;
+      } else {
+         return snapshot.copy();
+      }
+   }
+
+   @Override
+   public synchronized void reset() {
+      collect().release();
+      retained = null;
+      begin();
+   }
+
+   @Override
+   public synchronized void registerOperationsGroup(String name, Set<Operation> operations) {
+      prototype.registerOperationsGroup(name, operations);
+      collect().registerOperationsGroup(name, operations);
+   }
+
+   @Override
+   public synchronized String getOperationsGroup(Operation operation) {
+      return collect().getOperationsGroup(operation);
+   }
+
+   @Override
+   public synchronized Map<String, Set<Operation>> getGroupOperationsMap() {
+      return collect().getGroupOperationsMap();
+   }
+
+   @Override
+   public synchronized List<Map<String, OperationStats>> getOperationStatsForGroups() {
+      return collect().getOperationStatsForGroups();
+   }
+
+   @Override
+   public synchronized List<Map<String, OperationStats>> getOperationsStats() {
+      return collect().getOperationsStats();
+   }
+
+   @Override
+   public synchronized Set<String> getOperations() {
+      return collect().getOperations();
+   }
+
+   @Override
+   public synchronized OperationStats getOperationStats(String operation) {
+      return collect().getOperationStats(operation);
+   }
+
+   @Override
+   public synchronized <T> T getRepresentation(String operation, Class<T> clazz, Object... args) {
+      return collect().getRepresentation(operation, clazz, args);
+   }
+
+   @Override
+   public Statistics newInstance() {
+      return new IntervalSwapStatistics(prototype);
+   }
+
+   @Override
+   public synchronized Statistics copy() {
+      IntervalSwapStatistics copy = new IntervalSwapStatistics(prototype);
+      copy.retained = collect().copy();
+      copy.setBegin(getBegin());
+      copy.setEnd(getEnd());
+      return copy;
+   }
+
+   @Override
+   public synchronized void merge(Statistics otherStats) {
+      if (!(otherStats instanceof IntervalSwapStatistics)) {
+         throw new IllegalArgumentException(String.valueOf(otherStats));
+      }
+      super.merge(otherStats);
+      collect().merge(((IntervalSwapStatistics) otherStats).collect());
+   }
+
+   private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+      collect();
+      out.defaultWriteObject();
+   }
+
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      initRecorders();
+   }
+
+   @Override
+   public synchronized String toString() {
+      return super.toString() + "{" + retained + "}";
+   }
+
+   private static final class Recorder {
+      private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+      private volatile Statistics active;
+      // accessed only by the reader
+      private Statistics spare;
+
+      private Recorder(Statistics active, Statistics spare) {
+         this.active = active;
+         this.spare = spare;
+      }
+   }
+}
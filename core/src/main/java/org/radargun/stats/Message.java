@@ -6,7 +6,8 @@ import org.radargun.Operation;
 
 /**
  * Tracks time for operations with different origin and destination nodes.
- * The time can be tracked only using wall-clock time.
+ * The time can be tracked only using wall-clock time; the nodes should use
+ * {@link org.radargun.utils.ClockSync#currentTimeMillis()} to compensate the offset between their clocks.
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
@@ -16,6 +17,7 @@ public final class Message {
    // private long sendCompleteTime; // hard to track when the message itself carries the timestamps
    // private long receiveStartTime;
    private long receiveCompleteTime = Long.MIN_VALUE;
+   private long errorBound;
 
    public Message(Statistics statistics) {
       this.statistics = statistics;
@@ -27,6 +29,18 @@ public final class Message {
       return this;
    }
 
+   /**
+    * @param errorBound Maximum error of the times caused by imprecise clock synchronization, in milliseconds.
+    */
+   public Message errorBound(long errorBound) {
+      this.errorBound = errorBound;
+      return this;
+   }
+
+   public long getErrorBound() {
+      return errorBound;
+   }
+
    public long getSendStartTime() {
       return sendStartTime;
    }
@@ -40,10 +54,12 @@ public final class Message {
    }
 
    public boolean isValid() {
-      return sendStartTime < receiveCompleteTime;
+      // with millisecond precision the message is often received within the same millisecond,
+      // and with imprecise clock synchronization it may appear to be received even before it was sent
+      return sendStartTime <= receiveCompleteTime + errorBound;
    }
 
    public long totalTime() {
-      return TimeUnit.MILLISECONDS.toNanos(receiveCompleteTime - sendStartTime);
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, receiveCompleteTime - sendStartTime));
    }
 }
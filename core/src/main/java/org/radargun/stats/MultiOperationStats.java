@@ -57,6 +57,13 @@ public class MultiOperationStats implements OperationStats {
       }
    }
 
+   @Override
+   public void record(long duration, boolean successful) {
+      for (OperationStats impl : impls) {
+         impl.record(duration, successful);
+      }
+   }
+
    @Override
    public <T> T getRepresentation(Class<T> clazz, Statistics ownerStatistics, Object... args) {
       for (OperationStats impl : impls) {
@@ -66,6 +73,13 @@ public class MultiOperationStats implements OperationStats {
       return null;
    }
 
+   @Override
+   public void release() {
+      for (OperationStats impl : impls) {
+         impl.release();
+      }
+   }
+
    @Override
    public boolean isEmpty() {
       for (OperationStats impl : impls) {
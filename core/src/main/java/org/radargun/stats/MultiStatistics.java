@@ -43,6 +43,13 @@ public abstract class MultiStatistics implements Statistics {
       }
    }
 
+   @Override
+   public void release() {
+      for (Statistics s : internal) {
+         s.release();
+      }
+   }
+
    @Override
    public void record(Request request, Operation operation) {
       for (Statistics s : internal) {
@@ -50,6 +57,13 @@ public abstract class MultiStatistics implements Statistics {
       }
    }
 
+   @Override
+   public void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      for (Statistics s : internal) {
+         s.record(operation, requestStartTime, responseCompleteTime, successful);
+      }
+   }
+
    @Override
    public void record(Message message, Operation operation) {
       for (Statistics s : internal) {
@@ -49,6 +49,17 @@ public interface OperationStats extends Serializable {
     */
    void record(RequestSet requestSet);
 
+   /**
+    * Records a request without allocating any tracking object. Implementations should override this method
+    * so that recording stays allocation-free; the default implementation falls back to {@link #record(Request)}.
+    *
+    * @param duration Duration of the request in nanoseconds.
+    * @param successful False if the request ended with an error.
+    */
+   default void record(long duration, boolean successful) {
+      record(Request.completed(0, duration, successful));
+   }
+
    /**
     * Convert the internal state into requested representation.
     * @param clazz
@@ -63,6 +74,11 @@ public interface OperationStats extends Serializable {
     */
    boolean isEmpty();
 
+   /**
+    * Releases resources (other than heap memory) held by this instance. The instance must not be used afterwards.
+    */
+   default void release() {}
+
    public static class Converter implements DefinitionElementConverter<OperationStats> {
       private ReflexiveConverters.ListConverter converter = new ReflexiveConverters.ListConverter(OperationStats.class);
 
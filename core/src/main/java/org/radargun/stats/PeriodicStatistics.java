@@ -82,6 +82,11 @@ public class PeriodicStatistics extends IntervalStatistics {
       getCurrentBucket(TimeUnit.NANOSECONDS.toMillis(request.getRequestStartTime() - beginNanos)).record(request, operation);
    }
 
+   @Override
+   public void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      getCurrentBucket(TimeUnit.NANOSECONDS.toMillis(requestStartTime - beginNanos)).record(operation, requestStartTime, responseCompleteTime, successful);
+   }
+
    @Override
    public void record(Message message, Operation operation) {
       getCurrentBucket(message.getSendStartTime() - getBegin()).record(message, operation);
@@ -99,9 +104,17 @@ public class PeriodicStatistics extends IntervalStatistics {
 
    @Override
    public void reset() {
+      release();
       buckets.clear();
    }
 
+   @Override
+   public void release() {
+      for (Statistics bucket : buckets) {
+         bucket.release();
+      }
+   }
+
    @Override
    public void begin() {
       super.begin();
@@ -119,7 +132,7 @@ public class PeriodicStatistics extends IntervalStatistics {
       if (lastStats instanceof IntervalStatistics) {
          IntervalStatistics intervalStats = (IntervalStatistics) lastStats;
          if (getEnd() - intervalStats.getBegin() < period / 20) {
-            buckets.remove(numBuckets - 1);
+            buckets.remove(numBuckets - 1).release();
          }
       }
    }
@@ -7,7 +7,8 @@ import org.radargun.Operation;
 import org.radargun.utils.TimeService;
 
 /**
- * Tracks time for RPC-like operations, possibly asynchronous (TODO).
+ * Tracks time for RPC-like operations. Asynchronous operations are tracked by recording the completion
+ * time from the thread that received the response ({@link #responseCompleted(long)}).
  * @see Message for tracking messages with different origin and destination.
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
@@ -15,15 +16,31 @@ import org.radargun.utils.TimeService;
 public final class Request {
    private final Statistics statistics;
    private final long requestStartTime;
-//   This is for async:
-//   private long requestCompleteTime;
-//   private long responseStartedTime;
    private long responseCompleteTime = Long.MIN_VALUE;
    private boolean successful = true;
 
    public Request(Statistics statistics) {
+      this(statistics, TimeService.nanoTime());
+   }
+
+   /**
+    * @param statistics Statistics where the request should be recorded.
+    * @param requestStartTime Time when the request started (or was intended to start), in nanoseconds
+    *                         as returned by {@link TimeService#nanoTime()}.
+    */
+   public Request(Statistics statistics, long requestStartTime) {
       this.statistics = statistics;
-      this.requestStartTime = TimeService.nanoTime();
+      this.requestStartTime = requestStartTime;
+   }
+
+   /**
+    * Creates already finished request that is not bound to any statistics.
+    */
+   static Request completed(long requestStartTime, long responseCompleteTime, boolean successful) {
+      Request request = new Request(null, requestStartTime);
+      request.responseCompleteTime = responseCompleteTime;
+      request.successful = successful;
+      return request;
    }
 
    public void exec(Operation operation, Runnable runnable) {
@@ -67,18 +84,30 @@ public final class Request {
       return value;
    }
 
-//   This is for async:
-//   public void requestCompleted() {}
-//   public void requestFailed() {}
-//   public void responseStarted() {}
+   /**
+    * Sets the time when the response was completed without recording the request. This is useful
+    * when the request completes in another thread than the one recording it; subsequent
+    * {@link #succeeded(Operation)} or {@link #failed(Operation)} keep this time.
+    *
+    * @param responseCompleteTime Timestamp in nanoseconds as returned by {@link TimeService#nanoTime()}
+    * @return this
+    */
+   public Request responseCompleted(long responseCompleteTime) {
+      this.responseCompleteTime = responseCompleteTime;
+      return this;
+   }
 
    public void succeeded(Operation operation) {
-      this.responseCompleteTime = TimeService.nanoTime();
+      if (!isFinished()) {
+         this.responseCompleteTime = TimeService.nanoTime();
+      }
       statistics.record(this, operation);
    }
 
    public void failed(Operation operation) {
-      this.responseCompleteTime = TimeService.nanoTime();
+      if (!isFinished()) {
+         this.responseCompleteTime = TimeService.nanoTime();
+      }
       this.successful = false;
       statistics.record(this, operation);
    }
@@ -3,6 +3,10 @@ package org.radargun.stats;
 import org.radargun.Operation;
 
 /**
+ * Aggregates several requests (e.g. those executed within one transaction) to be recorded as single operation.
+ * Once recorded (or discarded), the instance can be {@link #reset() reset} and reused for another set of requests,
+ * therefore statistics must not keep reference to it after the record call returns.
+ *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
 public final class RequestSet {
@@ -20,9 +24,26 @@ public final class RequestSet {
       if (!request.isFinished()) {
          throw new IllegalArgumentException();
       }
-      begin = Math.min(begin, request.getRequestStartTime());
-      end = Math.max(end, request.getResponseCompleteTime());
-      sumDurations += request.duration();
+      add(request.getRequestStartTime(), request.getResponseCompleteTime());
+   }
+
+   /**
+    * Adds finished request identified only by its timestamps.
+    */
+   public void add(long requestStartTime, long responseCompleteTime) {
+      begin = Math.min(begin, requestStartTime);
+      end = Math.max(end, responseCompleteTime);
+      sumDurations += responseCompleteTime - requestStartTime;
+   }
+
+   /**
+    * Clears all added requests so that this instance can be reused.
+    */
+   public void reset() {
+      begin = Long.MAX_VALUE;
+      end = Long.MIN_VALUE;
+      sumDurations = 0;
+      successful = true;
    }
 
    public void finished(boolean successful, Operation operation) {
@@ -0,0 +1,515 @@
+package org.radargun.stats;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.radargun.SerializationHelper;
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Histogram;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.OperationThroughput;
+import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.SizeConverter;
+
+/**
+ * Remembers all requests as {@link AllRecordingOperationStats} does, but the response times are appended
+ * to memory-mapped segment files instead of heap arrays. Mean, deviation and maximum are computed
+ * on the fly; percentiles and histograms are computed exactly by sorting each segment and merging
+ * the sorted segments, therefore the heap usage is bounded by the segment size regardless
+ * of the number of recorded requests.
+ *
+ * The segments are sorted lazily (when a representation is requested or the statistics are serialized),
+ * not on the recording thread. When deserialized, the data are written into new segments on the receiving side.
+ * The segments are unmapped when the statistics are {@link #release() released}, otherwise the mapping is kept
+ * until the buffers are garbage-collected.
+ */
+@DefinitionElement(name = "all-spilling", doc = "Operation statistics recording all requests' response times into memory-mapped files.")
+public class SpillingOperationStats implements OperationStats {
+   private static final Log log = LogFactory.getLog(SpillingOperationStats.class);
+   private static final int SERIAL_VERSION = 1;
+   private static final long MAX_SEGMENT_SIZE = 1L << 30;
+   /* Values with the same highest bits fall into the same bucket of a histogram without arguments */
+   private static final int HISTOGRAM_PRECISION_BITS = 7;
+
+   @Property(doc = "Directory where the segment files are created (these are deleted immediately after being mapped). " +
+      "Default is the system temporary directory.")
+   private String directory = System.getProperty("java.io.tmpdir");
+
+   @Property(doc = "Size of one segment. Sorting a segment requires the same amount of heap memory. Default is 8 MB.",
+      converter = SizeConverter.class)
+   private long segmentSize = 8 << 20;
+
+   private transient List<Segment> segments = new ArrayList<>();
+   private transient Segment current;
+   private transient boolean released;
+   private long requests;
+   private long errors;
+   private long max = Long.MIN_VALUE;
+   private double mean;
+   private double squaredDeviations;
+
+   @Init
+   public void init() {
+      if (segmentSize < Long.BYTES || segmentSize > MAX_SEGMENT_SIZE) {
+         throw new IllegalArgumentException("Segment size must be between 8 bytes and 1 GB, is " + segmentSize);
+      }
+      if (!new File(directory).isDirectory()) {
+         throw new IllegalArgumentException("Directory " + directory + " does not exist");
+      }
+   }
+
+   @Override
+   public SpillingOperationStats newInstance() {
+      SpillingOperationStats newInstance = new SpillingOperationStats();
+      newInstance.directory = directory;
+      newInstance.segmentSize = segmentSize;
+      return newInstance;
+   }
+
+   @Override
+   public OperationStats copy() {
+      SpillingOperationStats copy = newInstance();
+      copy.merge(this);
+      return copy;
+   }
+
+   @Override
+   public void merge(OperationStats o) {
+      if (!(o instanceof SpillingOperationStats)) throw new IllegalArgumentException();
+      SpillingOperationStats other = (SpillingOperationStats) o;
+      checkNotReleased();
+      other.checkNotReleased();
+      for (Segment segment : other.segments) {
+         if (segment.size > 0) {
+            // the other instance may be still used, copy the data (without getting them to heap)
+            Segment copy = Segment.create(directory(), segment.size);
+            copy.copyFrom(segment);
+            segments.add(copy);
+         }
+      }
+      if (other.requests > 0) {
+         // Chan et al. parallel variance algorithm
+         long total = requests + other.requests;
+         double delta = other.mean - mean;
+         squaredDeviations += other.squaredDeviations + delta * delta * requests * other.requests / total;
+         mean += delta * other.requests / total;
+         requests = total;
+      }
+      errors += other.errors;
+      max = Math.max(max, other.max);
+   }
+
+   @Override
+   public void record(Request request) {
+      record(request.duration(), request.isSuccessful());
+   }
+
+   @Override
+   public void record(Message message) {
+      if (message.isValid()) {
+         add(message.totalTime());
+      } else {
+         errors++;
+      }
+   }
+
+   @Override
+   public void record(RequestSet requestSet) {
+      record(requestSet.sumDurations(), requestSet.isSuccessful());
+   }
+
+   @Override
+   public void record(long duration, boolean successful) {
+      add(duration);
+      if (!successful) {
+         errors++;
+      }
+   }
+
+   private void add(long duration) {
+      checkNotReleased();
+      if (current == null || current.isFull()) {
+         current = Segment.create(directory(), (int) (segmentSize / Long.BYTES));
+         segments.add(current);
+      }
+      current.add(duration);
+      requests++;
+      double delta = duration - mean;
+      mean += delta / requests;
+      squaredDeviations += delta * (duration - mean);
+      max = Math.max(max, duration);
+   }
+
+   private File directory() {
+      File dir = new File(directory);
+      // the statistics could be deserialized on another machine
+      return dir.isDirectory() ? dir : new File(System.getProperty("java.io.tmpdir"));
+   }
+
+   @SuppressWarnings("unchecked")
+   @Override
+   public <T> T getRepresentation(Class<T> clazz, Statistics ownerStatistics, Object... args) {
+      if (clazz == DefaultOutcome.class) {
+         return (T) new DefaultOutcome(requests, errors, mean, requests == 0 ? 0 : max);
+      } else if (clazz == OperationThroughput.class) {
+         return (T) OperationThroughput.compute(requests, errors, ownerStatistics);
+      } else if (clazz == Percentile.class) {
+         double percentile = Percentile.getPercentile(args);
+         if (requests == 0) {
+            return null;
+         }
+         long rank = Math.min((long) Math.ceil(percentile / 100d * requests), requests - 1);
+         MergeIterator iterator = new MergeIterator();
+         iterator.skip(rank);
+         return (T) new Percentile(iterator.next());
+      } else if (clazz == Histogram.class) {
+         return requests == 0 ? null : (T) (args.length == 0 ? getHistogram() : getHistogram(args));
+      } else if (clazz == MeanAndDev.class) {
+         return (T) new MeanAndDev(mean, requests < 2 ? 0 : Math.sqrt(squaredDeviations / (requests - 1)));
+      } else {
+         return null;
+      }
+   }
+
+   private Histogram getHistogram() {
+      // exact values would require as many buckets as there are distinct values; group those with equal highest bits
+      LongList ranges = new LongList();
+      LongList counts = new LongList();
+      MergeIterator iterator = new MergeIterator();
+      long bucket = Long.MIN_VALUE, last = 0;
+      while (iterator.hasNext()) {
+         last = iterator.next();
+         long valueBucket = bucketOf(last);
+         if (valueBucket != bucket || counts.size == 0) {
+            ranges.add(last);
+            counts.add(0);
+            bucket = valueBucket;
+         }
+         counts.values[counts.size - 1]++;
+      }
+      ranges.add(last);
+      return new Histogram(ranges.toArray(), counts.toArray());
+   }
+
+   private static long bucketOf(long value) {
+      int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - HISTOGRAM_PRECISION_BITS);
+      return value >> shift;
+   }
+
+   private Histogram getHistogram(Object[] args) {
+      int buckets = Histogram.getBuckets(args);
+      double percentile = Histogram.getPercentile(args);
+      long end = Math.min((long) Math.ceil(requests * percentile / 100), requests - 1);
+
+      MergeIterator iterator = new MergeIterator();
+      long min = Math.max(1, iterator.next());
+      long max = min;
+      if (end > 0) {
+         iterator.skip(end - 1);
+         max = Math.max(1, iterator.next());
+      }
+
+      LongList ranges = new LongList();
+      LongList counts = new LongList();
+      double exponent = Math.pow((double) max / (double) min, 1d / buckets);
+      double current = min * exponent;
+      long accCount, lastCount = 0;
+      iterator = new MergeIterator();
+      for (accCount = 0; accCount < end; ) {
+         long responseTime = iterator.next();
+         accCount++;
+         if (responseTime >= current) {
+            ranges.add(responseTime);
+            counts.add(accCount - lastCount);
+            lastCount = accCount;
+            current = current * exponent;
+         }
+      }
+      if (accCount > 0) {
+         ranges.add(max);
+         counts.add(accCount - lastCount);
+      }
+      return new Histogram(ranges.toArray(), counts.toArray());
+   }
+
+   @Override
+   public boolean isEmpty() {
+      return requests == 0;
+   }
+
+   @Override
+   public void release() {
+      if (released) {
+         return;
+      }
+      released = true;
+      // accessing unmapped segment would crash the JVM, drop all references
+      for (Segment segment : segments) {
+         segment.unmap();
+      }
+      segments = new ArrayList<>();
+      current = null;
+   }
+
+   private void checkNotReleased() {
+      if (released) {
+         throw new IllegalStateException("Statistics have been released");
+      }
+   }
+
+   private void sortSegments() {
+      checkNotReleased();
+      for (Segment segment : segments) {
+         segment.sort();
+      }
+   }
+
+   private void writeObject(ObjectOutputStream s) throws IOException {
+      s.writeByte(SERIAL_VERSION);
+      s.writeUTF(directory);
+      SerializationHelper.writeVarLong(s, segmentSize);
+      SerializationHelper.writeVarLong(s, requests);
+      SerializationHelper.writeVarLong(s, errors);
+      SerializationHelper.writeSignedVarLong(s, max);
+      s.writeDouble(mean);
+      s.writeDouble(squaredDeviations);
+      // differences between neighbours in sorted segment are small
+      sortSegments();
+      SerializationHelper.writeVarLong(s, segments.size());
+      for (Segment segment : segments) {
+         SerializationHelper.writeVarLong(s, segment.size);
+         long previous = 0;
+         for (int i = 0; i < segment.size; ++i) {
+            long value = segment.buffer.get(i);
+            SerializationHelper.writeSignedVarLong(s, value - previous);
+            previous = value;
+         }
+      }
+   }
+
+   private void readObject(ObjectInputStream s) throws IOException {
+      SerializationHelper.readVersion(s, SERIAL_VERSION, SpillingOperationStats.class);
+      directory = s.readUTF();
+      segmentSize = SerializationHelper.readVarLong(s);
+      requests = SerializationHelper.readVarLong(s);
+      errors = SerializationHelper.readVarLong(s);
+      max = SerializationHelper.readSignedVarLong(s);
+      mean = s.readDouble();
+      squaredDeviations = s.readDouble();
+      int numSegments = (int) SerializationHelper.readVarLong(s);
+      segments = new ArrayList<>(numSegments);
+      for (int i = 0; i < numSegments; ++i) {
+         int size = (int) SerializationHelper.readVarLong(s);
+         if (size == 0) {
+            continue;
+         }
+         Segment segment = Segment.create(directory(), size);
+         long previous = 0;
+         for (int j = 0; j < size; ++j) {
+            previous += SerializationHelper.readSignedVarLong(s);
+            segment.add(previous);
+         }
+         segment.sorted = true;
+         segments.add(segment);
+      }
+   }
+
+   private static final class Segment {
+      private final MappedByteBuffer mapped;
+      private final LongBuffer buffer;
+      private int size;
+      private boolean sorted = true;
+
+      private Segment(MappedByteBuffer mapped) {
+         this.mapped = mapped;
+         this.buffer = mapped.order(ByteOrder.nativeOrder()).asLongBuffer();
+      }
+
+      static Segment create(File directory, int capacity) {
+         File file = null;
+         try {
+            file = File.createTempFile("radargun-stats", ".seg", directory);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+               // the mapping stays valid after the channel is closed and the file deleted
+               return new Segment(channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * Long.BYTES));
+            }
+         } catch (IOException e) {
+            throw new IllegalStateException("Cannot create statistics segment in " + directory, e);
+         } finally {
+            if (file != null && !file.delete()) {
+               file.deleteOnExit();
+            }
+         }
+      }
+
+      void unmap() {
+         Unmapper.unmap(mapped);
+      }
+
+      boolean isFull() {
+         return size == buffer.capacity();
+      }
+
+      void add(long value) {
+         buffer.put(size++, value);
+         sorted = false;
+      }
+
+      void copyFrom(Segment other) {
+         LongBuffer source = other.buffer.duplicate();
+         source.position(0).limit(other.size);
+         LongBuffer target = buffer.duplicate();
+         target.position(0);
+         target.put(source);
+         size = other.size;
+         sorted = other.sorted;
+      }
+
+      void sort() {
+         if (sorted) {
+            return;
+         }
+         long[] values = new long[size];
+         LongBuffer view = buffer.duplicate();
+         view.position(0);
+         view.get(values);
+         Arrays.sort(values);
+         view.position(0);
+         view.put(values);
+         sorted = true;
+      }
+   }
+
+   /**
+    * There's no public API for unmapping a buffer; the segment would be unmapped only when it's garbage-collected.
+    */
+   private static final class Unmapper {
+      private static final Object UNSAFE;
+      private static final Method INVOKE_CLEANER;
+
+      static {
+         Object unsafe = null;
+         Method invokeCleaner = null;
+         try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+         } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8 does not have Unsafe.invokeCleaner, using the buffer's cleaner directly
+            invokeCleaner = null;
+         }
+         UNSAFE = unsafe;
+         INVOKE_CLEANER = invokeCleaner;
+      }
+
+      static void unmap(MappedByteBuffer buffer) {
+         try {
+            if (INVOKE_CLEANER != null) {
+               INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else {
+               Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+               cleanerMethod.setAccessible(true);
+               Object cleaner = cleanerMethod.invoke(buffer);
+               if (cleaner != null) {
+                  cleaner.getClass().getMethod("clean").invoke(cleaner);
+               }
+            }
+         } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Cannot unmap statistics segment, it will be unmapped when garbage-collected", e);
+         }
+      }
+   }
+
+   /**
+    * K-way merge of sorted segments.
+    */
+   private class MergeIterator {
+      private final PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, segments.size()),
+         (c1, c2) -> Long.compare(c1.value, c2.value));
+
+      MergeIterator() {
+         sortSegments();
+         for (Segment segment : segments) {
+            if (segment.size > 0) {
+               queue.add(new Cursor(segment));
+            }
+         }
+      }
+
+      boolean hasNext() {
+         return !queue.isEmpty();
+      }
+
+      long next() {
+         Cursor cursor = queue.poll();
+         long value = cursor.value;
+         if (cursor.advance()) {
+            queue.add(cursor);
+         }
+         return value;
+      }
+
+      void skip(long count) {
+         for (long i = 0; i < count; ++i) {
+            next();
+         }
+      }
+   }
+
+   private static final class Cursor {
+      private final Segment segment;
+      private int position;
+      private long value;
+
+      Cursor(Segment segment) {
+         this.segment = segment;
+         this.value = segment.buffer.get(0);
+      }
+
+      boolean advance() {
+         if (++position >= segment.size) {
+            return false;
+         }
+         value = segment.buffer.get(position);
+         return true;
+      }
+   }
+
+   /* Histograms have few buckets, growing array of primitives is sufficient */
+   private static final class LongList {
+      private long[] values = new long[16];
+      private int size;
+
+      void add(long value) {
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = value;
+      }
+
+      long[] toArray() {
+         return Arrays.copyOf(values, size);
+      }
+   }
+}
@@ -74,6 +74,17 @@ public interface Statistics extends Serializable {
       return new Request(this);
    }
 
+   /**
+    * Same as {@link #startRequest()} but the request duration is measured from given timestamp
+    * rather than from now. Used when the request was scheduled to start earlier than it actually
+    * started (e.g. in fixed-rate tests), in order to avoid coordinated omission.
+    *
+    * @param requestStartTime Start time in nanoseconds as returned by {@link org.radargun.utils.TimeService#nanoTime()}
+    */
+   default Request startRequest(long requestStartTime) {
+      return new Request(this, requestStartTime);
+   }
+
    /**
     * Create an object for tracking non-rpc-like operations.
     */
@@ -93,6 +104,24 @@ public interface Statistics extends Serializable {
     */
    void record(Request request, Operation operation);
 
+   /**
+    * Records a finished request without allocating a {@link Request}. This is the preferred way to record
+    * requests on hot paths; implementations should override it to avoid the allocation, too.
+    *
+    * @param operation Operation the request belongs to.
+    * @param requestStartTime Start time in nanoseconds as returned by {@link org.radargun.utils.TimeService#nanoTime()}
+    * @param responseCompleteTime Completion time in nanoseconds.
+    * @param successful False if the request ended with an error.
+    */
+   default void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      Request request = startRequest(requestStartTime).responseCompleted(responseCompleteTime);
+      if (successful) {
+         request.succeeded(operation);
+      } else {
+         request.failed(operation);
+      }
+   }
+
    /**
     * Should be called only from {@link Message#record(Operation)}.
     * @param message
@@ -129,6 +158,12 @@ public interface Statistics extends Serializable {
     */
    void merge(Statistics otherStats);
 
+   /**
+    * Releases resources (other than heap memory) held by this instance, e.g. after it has been merged
+    * into another one. The instance must not be used afterwards.
+    */
+   default void release() {}
+
    /**
     * Creates new statistics instance with <code>this</code> and the <code>otherStats</code> merged,
     * without mutating this instance.
@@ -1,6 +1,13 @@
 package org.radargun.stats;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collector;
 
 /**
  * Utilities for statistics
@@ -9,9 +16,61 @@ import java.util.List;
  */
 public class StatsUtils {
 
+   /**
+    * Merges statistics in parallel; unlike reduction with {@link Statistics#MERGE}, each partial
+    * result is copied only once and the rest is merged into the copy.
+    */
+   public static final Collector<Statistics, ?, Statistics> MERGING = Collector.<Statistics, Statistics[], Statistics>of(
+      () -> new Statistics[1],
+      (acc, s) -> {
+         if (acc[0] == null) {
+            acc[0] = s.copy();
+         } else {
+            acc[0].merge(s);
+         }
+      },
+      (acc1, acc2) -> {
+         if (acc1[0] == null) {
+            return acc2;
+         } else if (acc2[0] != null) {
+            acc1[0].merge(acc2[0]);
+         }
+         return acc1;
+      },
+      acc -> acc[0]);
+
+   /* The common pool is shared with the services (some of these even shut it down), the merge uses its own threads */
+   private static final ForkJoinPool MERGE_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("StatisticsMerger-" + thread.getPoolIndex());
+      thread.setDaemon(true);
+      return thread;
+   }, null, false);
+
    private StatsUtils() {
    }
 
+   /**
+    * Merges the statistics in parallel. The statistics are not modified.
+    *
+    * @param statistics Statistics to merge, null elements are ignored.
+    * @return Merged statistics or null if there are no statistics.
+    */
+   public static Statistics merge(Collection<Statistics> statistics) {
+      if (ForkJoinTask.getPool() == MERGE_POOL) {
+         // parallel stream forks the tasks into the current pool
+         return statistics.parallelStream().filter(Objects::nonNull).collect(MERGING);
+      }
+      return MERGE_POOL.submit(() -> statistics.parallelStream().filter(Objects::nonNull).collect(MERGING)).join();
+   }
+
+   /**
+    * Merges the statistics in background, see {@link #merge(Collection)}.
+    */
+   public static CompletableFuture<Statistics> mergeAsync(Collection<Statistics> statistics) {
+      return CompletableFuture.supplyAsync(() -> merge(statistics), MERGE_POOL);
+   }
+
    /**
     * Calculates maximum relative difference (MRD)
     *
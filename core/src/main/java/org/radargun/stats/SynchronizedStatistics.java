@@ -55,6 +55,12 @@ public class SynchronizedStatistics extends BasicStatistics {
       super.record(request, operation);
    }
 
+   @Override
+   public synchronized void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      ensureNotSnapshot();
+      super.record(operation, requestStartTime, responseCompleteTime, successful);
+   }
+
    @Override
    public synchronized void record(Message message, Operation operation) {
       ensureNotSnapshot();
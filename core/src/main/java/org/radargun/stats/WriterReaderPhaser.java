@@ -0,0 +1,48 @@
+package org.radargun.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synchronization primitive allowing wait-free writers and a reader that waits for writers
+ * of the previous phase to leave their critical sections. Reader has to be externally synchronized.
+ * Based on the writer-reader phaser introduced in HdrHistogram.
+ */
+final class WriterReaderPhaser {
+   private final AtomicLong startEpoch = new AtomicLong(0);
+   private final AtomicLong evenEndEpoch = new AtomicLong(0);
+   private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+   /**
+    * @return Value that has to be passed to {@link #writerCriticalSectionExit(long)}.
+    */
+   long writerCriticalSectionEnter() {
+      return startEpoch.getAndIncrement();
+   }
+
+   void writerCriticalSectionExit(long criticalValueAtEnter) {
+      if (criticalValueAtEnter < 0) {
+         oddEndEpoch.getAndIncrement();
+      } else {
+         evenEndEpoch.getAndIncrement();
+      }
+   }
+
+   /**
+    * Starts new phase and waits until all writers that have entered their critical section
+    * in the previous phase leave it.
+    */
+   void flipPhase() {
+      boolean nextPhaseIsEven = startEpoch.get() < 0;
+      long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+      if (nextPhaseIsEven) {
+         evenEndEpoch.set(initialStartValue);
+      } else {
+         oddEndEpoch.set(initialStartValue);
+      }
+      long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+      AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+      while (previousEndEpoch.get() != startValueAtFlip) {
+         Thread.yield();
+      }
+   }
+}
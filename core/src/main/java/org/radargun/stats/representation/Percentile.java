@@ -39,4 +39,14 @@ public class Percentile {
          return percentile.responseTimeMax;
       }
    }
+
+   public static class Series extends AbstractSeries<Percentile> {
+      static {
+         AbstractSeries.register(Series.class, Percentile.class);
+      }
+
+      public Series(long startTime, long period, Percentile[] samples) {
+         super(startTime, period, samples);
+      }
+   }
 }
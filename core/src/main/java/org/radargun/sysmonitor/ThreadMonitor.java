@@ -0,0 +1,223 @@
+package org.radargun.sysmonitor;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.reporting.Timeline;
+import org.radargun.utils.TimeService;
+
+/**
+ * Samples CPU time and allocated bytes of registered threads (usually stressors of running test)
+ * and time the JVM spent in garbage collection (not necessarily pauses, concurrent collectors report their time too)
+ * and safepoints, and reports these into the {@link Timeline}.
+ *
+ * Per-thread data are reported as sum over all threads together with the least and most busy thread;
+ * values for each thread are reported only when requested. Threads not supported by the {@link ThreadMXBean}
+ * (e.g. virtual threads) are ignored. Safepoint statistics are read from HotSpot internal MBean and are
+ * not available when the JVM does not grant access to it.
+ */
+public class ThreadMonitor implements Monitor {
+   public static final String THREAD_MONITOR = ThreadMonitor.class.getName();
+
+   private static final Log log = LogFactory.getLog(ThreadMonitor.class);
+   private static final String CPU_USAGE = "Stressors CPU usage";
+   private static final String MIN_CPU_USAGE = "Stressor thread CPU usage (min)";
+   private static final String MAX_CPU_USAGE = "Stressor thread CPU usage (max)";
+   private static final String ALLOCATION_RATE = "Stressors allocation rate (MB/s)";
+   private static final String GC_TIME = "GC time";
+   private static final String SAFEPOINT = "Safepoint time";
+   private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+   private static final Object HOTSPOT_RUNTIME;
+   private static final Method TOTAL_SAFEPOINT_TIME;
+
+   static {
+      Object runtime = null;
+      Method safepointTime = null;
+      try {
+         Method getRuntime = Class.forName("sun.management.ManagementFactoryHelper").getMethod("getHotspotRuntimeMBean");
+         runtime = getRuntime.invoke(null);
+         safepointTime = runtime.getClass().getMethod("getTotalSafepointTime");
+         safepointTime.setAccessible(true);
+         safepointTime.invoke(runtime);
+      } catch (Throwable t) {
+         log.debug("Safepoint statistics are not available", t);
+         runtime = null;
+         safepointTime = null;
+      }
+      HOTSPOT_RUNTIME = runtime;
+      TOTAL_SAFEPOINT_TIME = safepointTime;
+   }
+
+   private final Timeline timeline;
+   private final boolean perThread;
+   private final int processors = Runtime.getRuntime().availableProcessors();
+   private final Map<Thread, ThreadSample> threads = new ConcurrentHashMap<>();
+   private long prevTimestamp;
+   private long prevGcTime;
+   private long prevSafepointTime;
+
+   /**
+    * @param perThread Report values for each thread.
+    */
+   public ThreadMonitor(Timeline timeline, boolean perThread) {
+      this.timeline = timeline;
+      this.perThread = perThread;
+   }
+
+   /**
+    * @return Bytes allocated by given thread since its start, or -1 if not supported for this thread.
+    */
+   public static long getAllocatedBytes(Thread thread) {
+      if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) || thread == null) {
+         return -1;
+      }
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()
+         ? bean.getThreadAllocatedBytes(thread.getId()) : -1;
+   }
+
+   /**
+    * @return CPU time consumed by given thread, in nanoseconds, or -1 if not supported for this thread.
+    */
+   public static long getCpuTime(Thread thread) {
+      if (thread == null || !THREAD_MX_BEAN.isThreadCpuTimeSupported() || !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+         return -1;
+      }
+      return THREAD_MX_BEAN.getThreadCpuTime(thread.getId());
+   }
+
+   /**
+    * Starts sampling given thread; if the thread is not running yet, the first sample only sets the baseline.
+    */
+   public void register(Thread thread) {
+      threads.put(thread, thread.isAlive() ? new ThreadSample(getCpuTime(thread), getAllocatedBytes(thread)) : ThreadSample.NOT_STARTED);
+   }
+
+   public void unregister(Thread thread) {
+      threads.remove(thread);
+   }
+
+   @Override
+   public synchronized void start() {
+      prevTimestamp = TimeService.nanoTime();
+      prevGcTime = getGcTime();
+      prevSafepointTime = getSafepointTime();
+   }
+
+   @Override
+   public synchronized void stop() {
+   }
+
+   @Override
+   public synchronized void run() {
+      try {
+         long now = TimeService.currentTimeMillis();
+         long nanos = TimeService.nanoTime();
+         long elapsed = Math.max(1, nanos - prevTimestamp);
+         prevTimestamp = nanos;
+
+         long totalCpu = 0, totalAllocated = 0;
+         double minUsage = Double.MAX_VALUE, maxUsage = 0;
+         int sampled = 0;
+         for (Map.Entry<Thread, ThreadSample> entry : threads.entrySet()) {
+            Thread thread = entry.getKey();
+            ThreadSample prev = entry.getValue();
+            long cpuTime = getCpuTime(thread);
+            long allocated = getAllocatedBytes(thread);
+            // the thread has terminated or is not supported
+            if (cpuTime < 0) continue;
+            if (prev.cpuTime < 0) {
+               // the thread was not running when registered
+               entry.setValue(new ThreadSample(cpuTime, allocated));
+               continue;
+            }
+            // the readings are not monotonic, consider these unavailable and keep the baseline
+            if (cpuTime < prev.cpuTime || (prev.allocated >= 0 && allocated >= 0 && allocated < prev.allocated)) continue;
+            double usage = Math.min(1d, (double) (cpuTime - prev.cpuTime) / elapsed);
+            long allocatedDelta = allocated >= 0 && prev.allocated >= 0 ? allocated - prev.allocated : 0;
+            entry.setValue(new ThreadSample(cpuTime, allocated));
+            totalCpu += cpuTime - prev.cpuTime;
+            totalAllocated += allocatedDelta;
+            minUsage = Math.min(minUsage, usage);
+            maxUsage = Math.max(maxUsage, usage);
+            ++sampled;
+            if (perThread) {
+               timeline.addValue(Timeline.Category.sysCategory(thread.getName() + " CPU usage"), now, usage);
+               timeline.addValue(Timeline.Category.sysCategory(thread.getName() + " allocation rate (MB/s)"), now,
+                  toMegabytesPerSecond(allocatedDelta, elapsed));
+            }
+         }
+         if (sampled > 0) {
+            timeline.addValue(Timeline.Category.sysCategory(CPU_USAGE), now, Math.min(1d, (double) totalCpu / elapsed / processors));
+            timeline.addValue(Timeline.Category.sysCategory(MIN_CPU_USAGE), now, minUsage);
+            timeline.addValue(Timeline.Category.sysCategory(MAX_CPU_USAGE), now, maxUsage);
+            timeline.addValue(Timeline.Category.sysCategory(ALLOCATION_RATE), now, toMegabytesPerSecond(totalAllocated, elapsed));
+         }
+
+         long gcTime = getGcTime();
+         timeline.addValue(Timeline.Category.sysCategory(GC_TIME), now,
+            Math.min(1d, (double) TimeUnit.MILLISECONDS.toNanos(gcTime - prevGcTime) / elapsed));
+         prevGcTime = gcTime;
+         if (TOTAL_SAFEPOINT_TIME != null) {
+            long safepointTime = getSafepointTime();
+            timeline.addValue(Timeline.Category.sysCategory(SAFEPOINT), now,
+               Math.min(1d, (double) TimeUnit.MILLISECONDS.toNanos(safepointTime - prevSafepointTime) / elapsed));
+            prevSafepointTime = safepointTime;
+         }
+      } catch (Exception e) {
+         log.error("Failed to sample thread statistics", e);
+      }
+   }
+
+   private static double toMegabytesPerSecond(long bytes, long nanos) {
+      return (double) bytes / (1024 * 1024) * TimeUnit.SECONDS.toNanos(1) / nanos;
+   }
+
+   private static long getGcTime() {
+      long gcTime = 0;
+      for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+         gcTime += Math.max(0, bean.getCollectionTime());
+      }
+      return gcTime;
+   }
+
+   private static long getSafepointTime() {
+      if (TOTAL_SAFEPOINT_TIME == null) {
+         return 0;
+      }
+      try {
+         return (Long) TOTAL_SAFEPOINT_TIME.invoke(HOTSPOT_RUNTIME);
+      } catch (Exception e) {
+         return 0;
+      }
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      return o != null && o.getClass() == this.getClass();
+   }
+
+   @Override
+   public int hashCode() {
+      return getClass().hashCode();
+   }
+
+   private static class ThreadSample {
+      static final ThreadSample NOT_STARTED = new ThreadSample(-1, -1);
+
+      final long cpuTime;
+      final long allocated;
+
+      ThreadSample(long cpuTime, long allocated) {
+         this.cpuTime = cpuTime;
+         this.allocated = allocated;
+      }
+   }
+}
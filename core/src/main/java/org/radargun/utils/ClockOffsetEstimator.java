@@ -0,0 +1,127 @@
+package org.radargun.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates offset and drift of the local wall clock against master's clock from NTP-style exchanges.
+ * For each exchange the slave records its send time t1 and receive time t4, and master reports
+ * its receive time t2 and send time t3. The offset is <code>((t2 - t1) + (t3 - t4)) / 2</code>
+ * and its error is at most half of the network delay <code>(t4 - t1) - (t3 - t2)</code>.
+ *
+ * From each burst of exchanges only the one with minimal delay is used; the drift is computed
+ * by linear regression over the last bursts.
+ */
+public class ClockOffsetEstimator {
+   private final int maxBursts;
+   private final List<Sample> bursts = new ArrayList<>();
+
+   /**
+    * @param maxBursts Number of last bursts used for the drift estimation.
+    */
+   public ClockOffsetEstimator(int maxBursts) {
+      this.maxBursts = maxBursts;
+   }
+
+   /**
+    * Adds results of single burst of exchanges.
+    *
+    * @return New estimate, or null if there are no samples.
+    */
+   public synchronized Estimate addBurst(List<Sample> samples) {
+      Sample best = null;
+      for (Sample sample : samples) {
+         if (best == null || sample.delay < best.delay) {
+            best = sample;
+         }
+      }
+      if (best == null) {
+         return null;
+      }
+      bursts.add(best);
+      while (bursts.size() > maxBursts) {
+         bursts.remove(0);
+      }
+      double drift = 0;
+      double offset = best.offset;
+      if (bursts.size() >= 3) {
+         double meanTime = 0, meanOffset = 0;
+         for (Sample sample : bursts) {
+            meanTime += sample.localTime - best.localTime;
+            meanOffset += sample.offset;
+         }
+         meanTime /= bursts.size();
+         meanOffset /= bursts.size();
+         double covariance = 0, variance = 0;
+         for (Sample sample : bursts) {
+            double time = sample.localTime - best.localTime - meanTime;
+            covariance += time * (sample.offset - meanOffset);
+            variance += time * time;
+         }
+         if (variance > 0) {
+            drift = covariance / variance;
+            offset = meanOffset - drift * meanTime;
+         }
+      }
+      // timestamps have millisecond resolution
+      long errorBound = (long) Math.ceil(best.delay / 2) + 1;
+      return new Estimate(best.localTime, offset, drift, errorBound);
+   }
+
+   /**
+    * Result of single exchange; all times are in milliseconds.
+    */
+   public static class Sample {
+      public final long localTime;
+      public final double offset;
+      public final double delay;
+
+      public Sample(long localTime, double offset, double delay) {
+         this.localTime = localTime;
+         this.offset = offset;
+         this.delay = delay;
+      }
+
+      /**
+       * @param t1 Local time when the request was sent.
+       * @param t2 Master time when the request was received.
+       * @param t3 Master time when the reply was sent.
+       * @param t4 Local time when the reply was received.
+       * @param roundTripNanos Precise duration of the exchange measured locally.
+       * @param processingNanos Precise time spent on master between receiving the request and sending the reply.
+       */
+      public static Sample of(long t1, long t2, long t3, long t4, long roundTripNanos, long processingNanos) {
+         double offset = ((t2 - t1) + (t3 - t4)) / 2d;
+         double delay = Math.max(0, roundTripNanos - processingNanos) / 1e6;
+         return new Sample(t4, offset, delay);
+      }
+   }
+
+   /**
+    * Offset of local clock against master: <code>masterTime = localTime + offset + drift * (localTime - reference)</code>.
+    */
+   public static class Estimate {
+      public static final Estimate NONE = new Estimate(0, 0, 0, 0);
+
+      public final long reference;
+      public final double offset;
+      public final double drift;
+      public final long errorBound;
+
+      public Estimate(long reference, double offset, double drift, long errorBound) {
+         this.reference = reference;
+         this.offset = offset;
+         this.drift = drift;
+         this.errorBound = errorBound;
+      }
+
+      public long toMasterTime(long localTime) {
+         return localTime + Math.round(offset + drift * (localTime - reference));
+      }
+
+      @Override
+      public String toString() {
+         return String.format("Estimate{offset=%.1f ms, drift=%.2f ppm, errorBound=%d ms}", offset, drift * 1e6, errorBound);
+      }
+   }
+}
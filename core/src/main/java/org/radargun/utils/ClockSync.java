@@ -0,0 +1,61 @@
+package org.radargun.utils;
+
+import java.io.Serializable;
+
+/**
+ * Provides wall-clock time of this node corrected to master's clock, so that timestamps recorded
+ * on different slaves (e.g. when measuring one-way latency with {@link org.radargun.stats.Message})
+ * can be compared. Before the first synchronization (and on master) the time is not corrected.
+ */
+public final class ClockSync {
+   private static volatile ClockOffsetEstimator.Estimate estimate = ClockOffsetEstimator.Estimate.NONE;
+
+   private ClockSync() {}
+
+   /**
+    * @return Current time in milliseconds, in master's timebase.
+    */
+   public static long currentTimeMillis() {
+      return estimate.toMasterTime(TimeService.currentTimeMillis());
+   }
+
+   /**
+    * @return Maximum error of {@link #currentTimeMillis()} against master's clock, in milliseconds.
+    */
+   public static long getErrorBound() {
+      return estimate.errorBound;
+   }
+
+   public static ClockOffsetEstimator.Estimate getEstimate() {
+      return estimate;
+   }
+
+   public static void setEstimate(ClockOffsetEstimator.Estimate estimate) {
+      ClockSync.estimate = estimate;
+   }
+
+   /**
+    * Sent by slave to master during stage execution; master replies immediately with {@link Response}.
+    */
+   public static class Request implements Serializable {
+      public final long slaveTime;
+
+      public Request(long slaveTime) {
+         this.slaveTime = slaveTime;
+      }
+   }
+
+   public static class Response implements Serializable {
+      public final long slaveTime;
+      public final long masterReceiveTime;
+      public final long masterSendTime;
+      public final long processingNanos;
+
+      public Response(long slaveTime, long masterReceiveTime, long masterSendTime, long processingNanos) {
+         this.slaveTime = slaveTime;
+         this.masterReceiveTime = masterReceiveTime;
+         this.masterSendTime = masterSendTime;
+         this.processingNanos = processingNanos;
+      }
+   }
+}
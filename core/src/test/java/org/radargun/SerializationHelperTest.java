@@ -0,0 +1,208 @@
+package org.radargun;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.radargun.reporting.Timeline;
+import org.radargun.stats.AllRecordingOperationStats;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Percentile;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test
+public class SerializationHelperTest {
+
+   @AfterTest
+   public void cleanup() {
+      Operation.clear();
+   }
+
+   public void testVarLong() throws IOException {
+      long[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (long value : values) {
+         SerializationHelper.writeVarLong(out, value);
+         SerializationHelper.writeSignedVarLong(out, value);
+      }
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      for (long value : values) {
+         assertEquals(SerializationHelper.readVarLong(in), value);
+         assertEquals(SerializationHelper.readSignedVarLong(in), value);
+      }
+      assertEquals(in.available(), 0);
+   }
+
+   public void testChunkedMessage() throws IOException {
+      String payload = String.join("", Collections.nCopies(10000, "radargun"));
+      UUID uuid = UUID.randomUUID();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ByteBuffer buffer = ByteBuffer.allocate(1024);
+      SerializationHelper.serializeObjectInChunks(payload, buffer, Channels.newChannel(bytes));
+      buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+      bytes.write(buffer.array(), 0, buffer.position());
+      SerializationHelper.serializeObjectInChunks(42, buffer, Channels.newChannel(bytes));
+      buffer.putLong(0).putLong(0);
+      bytes.write(buffer.array(), 0, buffer.position());
+
+      // feed the receiver in small pieces to cover all the boundaries
+      ByteBuffer received = ByteBuffer.wrap(bytes.toByteArray());
+      ChunkedMessage first = new ChunkedMessage();
+      assertTrue(consume(first, received, 7));
+      assertEquals(first.deserialize(), payload);
+      assertEquals(first.nextUuid(), uuid);
+      ChunkedMessage second = new ChunkedMessage();
+      assertTrue(consume(second, received, 7));
+      assertEquals(second.deserialize(), 42);
+      assertNull(second.nextUuid());
+      assertFalse(received.hasRemaining());
+   }
+
+   public void testChunkedMessageAtOnce() throws IOException {
+      String payload = String.join("", Collections.nCopies(10000, "radargun"));
+      ByteBuffer received = ByteBuffer.wrap(chunked(payload, 1024));
+      ChunkedMessage message = new ChunkedMessage();
+      // all chunks are available, the message is decoded by the caller
+      assertTrue(message.consume(received));
+      assertEquals(message.deserialize(), payload);
+      assertFalse(received.hasRemaining());
+   }
+
+   public void testIncompleteChunkedMessage() throws IOException {
+      String payload = String.join("", Collections.nCopies(10000, "radargun"));
+      byte[] bytes = chunked(payload, 1024);
+      ChunkedMessage message = new ChunkedMessage();
+      // the decoding starts in background when the first chunks arrive
+      assertFalse(message.consume(ByteBuffer.wrap(bytes, 0, bytes.length / 2)));
+      message.discard();
+      try {
+         message.deserialize();
+         fail("Incomplete message should not be decoded");
+      } catch (IOException e) {
+         // expected
+      }
+   }
+
+   public void testStatisticsRoundTrip() throws IOException {
+      Operation get = Operation.register("testGet");
+      Operation put = Operation.register("testPut");
+      BasicStatistics basic = new BasicStatistics(new BasicOperationStats());
+      BasicStatistics all = new BasicStatistics(new AllRecordingOperationStats());
+      basic.registerOperationsGroup("testGroup", Collections.singleton(put));
+      basic.begin();
+      all.begin();
+      for (int i = 0; i < 1000; ++i) {
+         basic.record(get, 0, 1000 + i, i % 10 != 0);
+         basic.record(put, 0, 5000 - i, true);
+         all.record(get, 0, (i * 7919) % 1000, true);
+      }
+      basic.end();
+      all.end();
+
+      Statistics basicCopy = roundTrip(basic);
+      for (String operation : Arrays.asList(get.name, put.name)) {
+         DefaultOutcome expected = basic.getRepresentation(operation, DefaultOutcome.class);
+         DefaultOutcome actual = basicCopy.getRepresentation(operation, DefaultOutcome.class);
+         assertEquals(actual.requests, expected.requests);
+         assertEquals(actual.errors, expected.errors);
+         assertEquals(actual.responseTimeMax, expected.responseTimeMax);
+         assertEquals(actual.responseTimeMean, expected.responseTimeMean);
+      }
+      assertEquals(basicCopy.getBegin(), basic.getBegin());
+      assertEquals(basicCopy.getOperationsGroup(put), "testGroup");
+      assertNull(basicCopy.getOperationsGroup(get));
+
+      Statistics allCopy = roundTrip(all);
+      for (double percentile : new double[] {10, 50, 99}) {
+         assertEquals(allCopy.getRepresentation(get.name, Percentile.class, percentile).responseTimeMax,
+            all.getRepresentation(get.name, Percentile.class, percentile).responseTimeMax);
+      }
+      // the copy must accept further merges
+      allCopy.merge(all);
+      assertEquals(allCopy.getRepresentation(get.name, DefaultOutcome.class).requests, 2000);
+   }
+
+   public void testTimelineRoundTrip() throws IOException {
+      Timeline timeline = new Timeline(3);
+      Timeline.Category cpu = Timeline.Category.sysCategory("CPU");
+      Timeline.Category custom = Timeline.Category.customCategory("Custom");
+      timeline.addValue(cpu, new Timeline.Value(1000, 12.5));
+      timeline.addValue(cpu, new Timeline.Value(900, 0.5f));
+      timeline.addValue(custom, new Timeline.Value(1100, Long.MAX_VALUE));
+      timeline.addValue(custom, new Timeline.Value(1200, (short) -3));
+      timeline.addValue(custom, new Timeline.Value(1300, new java.math.BigDecimal("1.5")));
+      timeline.addEvent("Events", new Timeline.TextEvent(950, "slave crashed"));
+
+      Timeline copy = roundTrip(timeline);
+      assertEquals(copy.slaveIndex, 3);
+      assertEquals(copy.getFirstTimestamp(), 900);
+      assertEquals(copy.getLastTimestamp(), 1300);
+      assertEquals(copy.getEventCategories(), timeline.getEventCategories());
+      assertEquals(copy.getValueCategories(), timeline.getValueCategories());
+      for (Timeline.Category category : Arrays.asList(cpu, custom)) {
+         List<Timeline.Value> expected = timeline.getValues(category);
+         List<Timeline.Value> actual = copy.getValues(category);
+         assertEquals(actual.size(), expected.size());
+         for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(actual.get(i).timestamp, expected.get(i).timestamp);
+            assertEquals(actual.get(i).value, expected.get(i).value);
+         }
+      }
+   }
+
+   /**
+    * Sends the object through the same encoding as slave's messages to master, receiving it in small pieces.
+    */
+   public static Object transfer(Serializable object) throws IOException {
+      ChunkedMessage message = new ChunkedMessage();
+      assertTrue(consume(message, ByteBuffer.wrap(chunked(object, 1024)), 100));
+      return message.deserialize();
+   }
+
+   private static byte[] chunked(Serializable object, int bufferSize) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+      SerializationHelper.serializeObjectInChunks(object, buffer, Channels.newChannel(bytes));
+      buffer.putLong(0).putLong(0);
+      bytes.write(buffer.array(), 0, buffer.position());
+      return bytes.toByteArray();
+   }
+
+   private static boolean consume(ChunkedMessage message, ByteBuffer buffer, int step) {
+      while (buffer.hasRemaining()) {
+         ByteBuffer slice = buffer.slice();
+         slice.limit(Math.min(step, slice.remaining()));
+         boolean complete = message.consume(slice);
+         buffer.position(buffer.position() + slice.position());
+         if (complete) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private static <T extends Serializable> T roundTrip(T object) throws IOException {
+      ByteBuffer buffer = SerializationHelper.serializeObject(object, ByteBuffer.allocate(1024));
+      return (T) SerializationHelper.deserialize(buffer.array(), 0, buffer.position());
+   }
+}
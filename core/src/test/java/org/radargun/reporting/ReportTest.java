@@ -0,0 +1,71 @@
+package org.radargun.reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.radargun.Operation;
+import org.radargun.config.Cluster;
+import org.radargun.config.Configuration;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ReportTest {
+
+   @AfterTest
+   public void cleanup() {
+      Operation.clear();
+   }
+
+   public void testMergedStatistics() {
+      Operation operation = Operation.register("testOp");
+      Cluster cluster = new Cluster();
+      cluster.setSize(2);
+      Report report = new Report(new Configuration("conf"), cluster);
+      Report.Test test = report.createTest("test", null, false);
+      test.addStatistics(0, 0, threadStatistics(operation, 8, 100));
+      test.addStatistics(0, 1, threadStatistics(operation, 4, 50), false);
+
+      Report.TestIteration iteration = test.getIterations().get(0);
+      assertEquals(requests(iteration.getNodeStatistics(0), operation), 800);
+      assertEquals(requests(iteration.getNodeStatistics(1), operation), 200);
+      assertNull(iteration.getNodeStatistics(2));
+      assertEquals(requests(iteration.getTotalStatistics(), operation), 1000);
+      assertEquals(iteration.getThreadCount(), 12);
+      assertEquals(iteration.getThreadCount(0), 8);
+      assertEquals(iteration.getThreadCount(1), 4);
+
+      // statistics from threads on slave 1 were replaced by the merged ones
+      assertFalse(iteration.hasThreadStatistics());
+      assertEquals(iteration.getStatistics(0).size(), 8);
+      assertEquals(iteration.getStatistics(1).size(), 1);
+      assertTrue(iteration.getStatistics(1).get(0) == iteration.getNodeStatistics(1));
+   }
+
+   private static List<Statistics> threadStatistics(Operation operation, int threads, int requests) {
+      List<Statistics> list = new ArrayList<>();
+      for (int i = 0; i < threads; ++i) {
+         BasicStatistics statistics = new BasicStatistics(new BasicOperationStats());
+         statistics.begin();
+         for (int j = 0; j < requests; ++j) {
+            statistics.record(operation, 0, j, true);
+         }
+         statistics.end();
+         list.add(statistics);
+      }
+      return list;
+   }
+
+   private static long requests(Statistics statistics, Operation operation) {
+      return statistics.getRepresentation(operation.name, DefaultOutcome.class).requests;
+   }
+}
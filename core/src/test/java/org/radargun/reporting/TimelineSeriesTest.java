@@ -0,0 +1,81 @@
+package org.radargun.reporting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class TimelineSeriesTest {
+
+   public void testConcurrentAppend() throws InterruptedException {
+      TimelineSeries series = new TimelineSeries();
+      int threads = 4, perThread = 5000;
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> writers = new ArrayList<>();
+      for (int t = 0; t < threads; ++t) {
+         final int thread = t;
+         Thread writer = new Thread(() -> {
+            try {
+               start.await();
+            } catch (InterruptedException e) {
+               throw new RuntimeException(e);
+            }
+            for (int i = 0; i < perThread; ++i) {
+               series.add(thread * perThread + i, (long) thread);
+            }
+         });
+         writer.start();
+         writers.add(writer);
+      }
+      start.countDown();
+      for (Thread writer : writers) {
+         writer.join();
+      }
+      assertEquals(series.size(), threads * perThread);
+      long[] counts = new long[threads];
+      boolean[] seen = new boolean[threads * perThread];
+      for (int i = 0; i < series.size(); ++i) {
+         int timestamp = (int) series.timestamp(i);
+         assertEquals(timestamp / perThread, series.value(i).intValue());
+         seen[timestamp] = true;
+         counts[series.value(i).intValue()]++;
+      }
+      for (int t = 0; t < threads; ++t) {
+         assertEquals(counts[t], perThread);
+      }
+      for (boolean s : seen) {
+         assertTrue(s);
+      }
+   }
+
+   public void testWireFormat() throws IOException {
+      TimelineSeries series = new TimelineSeries();
+      int size = 3600;
+      for (int i = 0; i < size; ++i) {
+         series.add(1_000_000 + i * 1000, (long) (i % 10));
+         series.add(1_000_000 + i * 1000 + 1, 0.25);
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      series.writeTo(new DataOutputStream(bytes));
+      // values alternate the type, therefore the type column does not shrink
+      assertTrue(bytes.size() < 6 * 2 * size, "Serialized size " + bytes.size());
+
+      TimelineSeries copy = TimelineSeries.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+      assertEquals(copy.size(), series.size());
+      for (int i = 0; i < series.size(); ++i) {
+         assertEquals(copy.timestamp(i), series.timestamp(i));
+         assertEquals(copy.value(i), series.value(i));
+         assertEquals(copy.doubleValue(i), series.doubleValue(i));
+      }
+   }
+}
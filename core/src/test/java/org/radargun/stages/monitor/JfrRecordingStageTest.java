@@ -0,0 +1,55 @@
+package org.radargun.stages.monitor;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
+import org.radargun.SerializationHelperTest;
+import org.radargun.StageResult;
+import org.radargun.util.CoreStageRunner;
+import org.radargun.utils.Utils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(timeOut = 30000)
+public class JfrRecordingStageTest {
+
+   public void testTransferInChunks() throws Exception {
+      Path directory = Files.createTempDirectory("jfr-recording");
+      try {
+         CoreStageRunner runner = new CoreStageRunner(1);
+         JfrRecordingStage start = new JfrRecordingStage();
+         start.action = JfrRecordingStage.Action.START;
+         assertFalse(runner.executeOnSlave(start).isError());
+         Utils.sleep(500);
+
+         JfrRecordingStage stop = new JfrRecordingStage();
+         stop.action = JfrRecordingStage.Action.STOP;
+         stop.outputDirectory = directory.toString();
+         AtomicInteger chunks = new AtomicInteger();
+         runner.getSlaveState().setProgressSender(progress -> {
+            chunks.incrementAndGet();
+            return stop.processProgressOnMaster((DistStageProgress) SerializationHelperTest.transfer(progress));
+         });
+         DistStageAck ack = runner.executeOnSlave(stop);
+         assertFalse(ack.isError(), String.valueOf(ack));
+         assertTrue(chunks.get() > 0);
+         assertEquals(runner.processAckOnMaster(stop, Collections.singletonList(ack)), StageResult.SUCCESS);
+
+         File[] files = directory.toFile().listFiles();
+         assertEquals(files.length, 1);
+         // the reassembled file is a valid recording
+         assertFalse(RecordingFile.readAllEvents(files[0].toPath()).isEmpty());
+      } finally {
+         Utils.deleteDirectory(directory.toFile());
+      }
+   }
+}
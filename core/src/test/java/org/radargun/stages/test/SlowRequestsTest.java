@@ -0,0 +1,118 @@
+package org.radargun.stages.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.radargun.Operation;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class SlowRequestsTest {
+   private static final String RECORDING = "SlowRequestsTest";
+
+   @AfterMethod
+   public void cleanup() {
+      SlowRequests.setThreshold(RECORDING, 0);
+      SlowRequests.setThreshold(RECORDING + ".other", 0);
+   }
+
+   public void testThreshold() throws Exception {
+      Operation operation = Operation.register("SlowRequestsTest.Get");
+      try (Recording recording = new Recording()) {
+         recording.enable(SlowRequests.Event.class);
+         recording.start();
+         SlowRequests.setThreshold(RECORDING, TimeUnit.MILLISECONDS.toNanos(1));
+         SlowRequests.end(SlowRequests.begin(), operation, 42, TimeUnit.MILLISECONDS.toNanos(5), true);
+         SlowRequests.end(SlowRequests.begin(), operation, 43, TimeUnit.MICROSECONDS.toNanos(5), true);
+         Object request = SlowRequests.begin();
+         SlowRequests.setThreshold(RECORDING, 0);
+         SlowRequests.end(request, operation, 44, TimeUnit.MILLISECONDS.toNanos(5), false);
+         assertNull(SlowRequests.begin());
+         recording.stop();
+
+         List<RecordedEvent> events = events(recording);
+         assertEquals(events.size(), 1);
+         RecordedEvent event = events.get(0);
+         assertEquals(event.getString("operation"), operation.name);
+         assertEquals(event.getLong("keyId"), 42);
+         assertEquals(event.getLong("requestDuration"), TimeUnit.MILLISECONDS.toNanos(5));
+      }
+   }
+
+   public void testConcurrentRecordings() {
+      SlowRequests.setThreshold(RECORDING, TimeUnit.MILLISECONDS.toNanos(5));
+      SlowRequests.setThreshold(RECORDING + ".other", TimeUnit.MILLISECONDS.toNanos(1));
+      assertEquals(SlowRequests.getThreshold(), TimeUnit.MILLISECONDS.toNanos(1));
+      // stopping one recording keeps the events for the other one
+      SlowRequests.setThreshold(RECORDING + ".other", 0);
+      assertEquals(SlowRequests.getThreshold(), TimeUnit.MILLISECONDS.toNanos(5));
+      SlowRequests.setThreshold(RECORDING, 0);
+      assertEquals(SlowRequests.getThreshold(), 0);
+   }
+
+   public void testStressorRequests() throws Exception {
+      long duration = TimeUnit.MILLISECONDS.toNanos(20);
+      try (Recording recording = new Recording()) {
+         recording.enable(SlowRequests.Event.class);
+         recording.start();
+         SlowRequests.setThreshold(RECORDING, duration / 2);
+
+         StressorTest.LogicTestStage stage = new StressorTest.LogicTestStage();
+         stage.logic = () -> new StressorTest.InvokingLogic(() -> {
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(duration));
+            return null;
+         });
+         stage.totalThreads = 1;
+         stage.numOperations = 3;
+         StressorTest.execute(stage);
+
+         StressorTest.LogicTestStage asyncStage = new StressorTest.LogicTestStage();
+         asyncStage.logic = () -> new StressorTest.AsyncLogic(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+               Thread.sleep(TimeUnit.NANOSECONDS.toMillis(duration));
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+            return null;
+         }));
+         asyncStage.totalThreads = 1;
+         asyncStage.numOperations = 3;
+         StressorTest.execute(asyncStage);
+         recording.stop();
+
+         List<RecordedEvent> events = events(recording);
+         // requests executed before the test starts are included, too
+         assertTrue(events.size() >= 6, "Events: " + events.size());
+         for (RecordedEvent event : events) {
+            assertEquals(event.getString("operation"), StressorTest.OPERATION.name);
+            assertTrue(event.getLong("requestDuration") >= duration);
+            // the event spans the request
+            assertTrue(event.getDuration().toNanos() >= duration, "Event duration " + event.getDuration());
+         }
+      }
+   }
+
+   private static List<RecordedEvent> events(Recording recording) throws IOException {
+      Path file = Files.createTempFile("slow-requests", ".jfr");
+      try {
+         recording.dump(file);
+         List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+         events.removeIf(event -> !event.getEventType().getName().equals("org.radargun.SlowRequest"));
+         return events;
+      } finally {
+         Files.deleteIfExists(file);
+      }
+   }
+}
@@ -0,0 +1,122 @@
+package org.radargun.stages.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
+import org.radargun.SerializationHelperTest;
+import org.radargun.StageResult;
+import org.radargun.state.SlaveState;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Request;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.StatsUtils;
+import org.radargun.traits.Lifecycle;
+import org.radargun.util.CoreStageRunner;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(timeOut = 30000)
+public class StatisticsUpdateTest {
+
+   public void testUpdatesPrecedeFinalAck() throws Exception {
+      CoreStageRunner runner = new CoreStageRunner(1);
+      runner.getTraitImpl(Lifecycle.class).start();
+      StressorTest.LogicTestStage stage = new StressorTest.LogicTestStage();
+      stage.logic = () -> new StressorTest.InvokingLogic(() -> {
+         Thread.sleep(1);
+         return null;
+      });
+      stage.totalThreads = 2;
+      stage.numOperations = 400;
+      stage.statisticsUpdatePeriod = 50;
+
+      // master merges the updates in place, so record the requests on arrival
+      List<Long> updates = Collections.synchronizedList(new ArrayList<>());
+      AtomicInteger updatesAfterAck = new AtomicInteger();
+      boolean[] ackSent = new boolean[1];
+      runner.getSlaveState().setProgressSender(progress -> {
+         synchronized (ackSent) {
+            if (ackSent[0]) {
+               updatesAfterAck.incrementAndGet();
+            }
+         }
+         // master receives the update through the same encoding as the final ack
+         DistStageProgress received = (DistStageProgress) SerializationHelperTest.transfer(progress);
+         assertEquals(received.getSlaveIndex(), 0);
+         List<Statistics> statistics = ((TestStage.StatisticsUpdate) received).statistics;
+         assertEquals(statistics.size(), 2);
+         updates.add(StressorTest.outcome(StatsUtils.merge(statistics), StressorTest.OPERATION).requests);
+         return stage.processProgressOnMaster(received);
+      });
+
+      DistStageAck ack = runner.executeOnSlave(stage);
+      synchronized (ackSent) {
+         ackSent[0] = true;
+      }
+      TestStage.StatisticsAck received = (TestStage.StatisticsAck) SerializationHelperTest.transfer(ack);
+      // no update may be sent once the slave has sent the final ack
+      Thread.sleep(3 * stage.statisticsUpdatePeriod);
+      assertEquals(updatesAfterAck.get(), 0);
+      assertTrue(updates.size() >= 2, "Updates: " + updates.size());
+
+      // each update and the ack carry only requests recorded since the previous one
+      long updateRequests = 0;
+      for (long requests : updates) {
+         updateRequests += requests;
+      }
+      long ackRequests = StressorTest.outcome(StatsUtils.merge(received.statistics), StressorTest.OPERATION).requests;
+      assertTrue(updateRequests > 0 && ackRequests < stage.numOperations,
+         "Requests in updates: " + updateRequests + ", in ack: " + ackRequests);
+      assertEquals(updateRequests + ackRequests, stage.numOperations);
+
+      assertEquals(runner.processAckOnMaster(stage, Collections.singletonList(received)), StageResult.SUCCESS);
+      Statistics total = stage.getReportedTest().getIterations().get(0).getTotalStatistics();
+      assertEquals(StressorTest.outcome(total, StressorTest.OPERATION).requests, stage.numOperations);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testSteadyStateRejected() {
+      StressorTest.LogicTestStage stage = new StressorTest.LogicTestStage();
+      stage.totalThreads = 1;
+      stage.steadyStatePeriod = 1000;
+      stage.statisticsUpdatePeriod = 1000;
+      stage.init();
+   }
+
+   public void testStopConditionOnLiveTotal() {
+      StressorTest.LogicTestStage stage = new StressorTest.LogicTestStage();
+      PerformanceCondition.Requests condition = new PerformanceCondition.Requests();
+      condition.on = StressorTest.OPERATION.name;
+      condition.over = 150L;
+      stage.stopCondition = condition;
+
+      assertTrue(stage.processProgressOnMaster(update(0, 50, 50)));
+      assertTrue(stage.processProgressOnMaster(update(1, 40)));
+      // the per-thread statistics of both slaves add up to 160 requests
+      assertFalse(stage.processProgressOnMaster(update(1, 20)));
+   }
+
+   private static TestStage.StatisticsUpdate update(int slaveIndex, int... threadRequests) {
+      SlaveState slaveState = new SlaveState();
+      slaveState.setSlaveIndex(slaveIndex);
+      List<Statistics> statistics = new ArrayList<>();
+      for (int requests : threadRequests) {
+         BasicStatistics threadStatistics = new BasicStatistics(new BasicOperationStats());
+         threadStatistics.begin();
+         for (int i = 0; i < requests; ++i) {
+            threadStatistics.record(new Request(threadStatistics), StressorTest.OPERATION);
+         }
+         threadStatistics.end();
+         statistics.add(threadStatistics);
+      }
+      return new TestStage.StatisticsUpdate(slaveState, statistics);
+   }
+}
@@ -0,0 +1,56 @@
+package org.radargun.stages.test;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class SteadyStateDetectorTest {
+
+   public void testWarmupAndConvergence() {
+      SteadyStateDetector detector = new SteadyStateDetector(5, 0.05, 0.01, 0.95);
+      // throughput grows and response time drops as the JIT compiles the code
+      for (int i = 0; i < 10; ++i) {
+         assertEquals(detector.addSample(1000 * (i + 1), 1000000 / (i + 1)), SteadyStateDetector.Phase.WARMUP);
+      }
+      Random random = new Random(42);
+      int samples = 0;
+      SteadyStateDetector.Phase phase;
+      do {
+         phase = detector.addSample(20000 + random.nextGaussian() * 200, 50000 + random.nextGaussian() * 500);
+         ++samples;
+      } while (phase == SteadyStateDetector.Phase.WARMUP);
+      assertEquals(samples, 5);
+      assertEquals(phase, SteadyStateDetector.Phase.STEADY);
+
+      samples = 0;
+      do {
+         phase = detector.addSample(20000 + random.nextGaussian() * 200, 50000 + random.nextGaussian() * 500);
+         ++samples;
+      } while (phase == SteadyStateDetector.Phase.STEADY && samples < 1000);
+      assertEquals(phase, SteadyStateDetector.Phase.CONVERGED);
+      // at least the minimal number of samples is required
+      assertTrue(samples >= 5, "Converged after " + samples + " samples");
+   }
+
+   public void testNoConvergenceWithoutInterval() {
+      SteadyStateDetector detector = new SteadyStateDetector(3, 0.1, 0, 0.95);
+      for (int i = 0; i < 3; ++i) {
+         detector.addSample(100, 10);
+      }
+      assertEquals(detector.getPhase(), SteadyStateDetector.Phase.STEADY);
+      for (int i = 0; i < 100; ++i) {
+         assertEquals(detector.addSample(100, 10), SteadyStateDetector.Phase.STEADY);
+      }
+   }
+
+   public void testNormalQuantile() {
+      assertEquals(SteadyStateDetector.normalQuantile(0.975), 1.96, 1e-3);
+      assertEquals(SteadyStateDetector.normalQuantile(0.995), 2.576, 1e-3);
+      assertEquals(SteadyStateDetector.normalQuantile(0.5), 0, 1e-3);
+      assertEquals(SteadyStateDetector.normalQuantile(0.025), -1.96, 1e-3);
+   }
+}
@@ -0,0 +1,330 @@
+package org.radargun.stages.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.radargun.DistStageAck;
+import org.radargun.Operation;
+import org.radargun.reporting.Report;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.StatsUtils;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.sysmonitor.ThreadMonitor;
+import org.radargun.traits.Lifecycle;
+import org.radargun.util.CoreStageRunner;
+import org.radargun.utils.TimeService;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(timeOut = 30000)
+public class StressorTest {
+   static final Operation OPERATION = Operation.register("StressorTest.Request");
+
+   public void testFixedRateSchedule() throws Exception {
+      List<Long> startTimes = Collections.synchronizedList(new ArrayList<>());
+      LogicTestStage stage = new LogicTestStage();
+      stage.logic = () -> new InvokingLogic(() -> {
+         startTimes.add(TimeService.nanoTime());
+         return null;
+      });
+      stage.totalThreads = 1;
+      stage.targetThroughput = 100;
+      stage.duration = 1000;
+
+      Statistics statistics = execute(stage);
+      long requests = outcome(statistics, OPERATION).requests;
+      // 10 ms period during 1 second
+      assertTrue(requests >= 80 && requests <= 101, "Requests: " + requests);
+      assertTrue(startTimes.size() >= requests);
+      // the requests are not executed back-to-back, but each one is started on its schedule;
+      // requests executed before the measurement started are not scheduled
+      List<Long> recorded = new ArrayList<>(startTimes.subList(startTimes.size() - (int) requests, startTimes.size()));
+      long period = TimeUnit.MILLISECONDS.toNanos(10);
+      long totalGap = 0;
+      int shortGaps = 0;
+      for (int i = 1; i < recorded.size(); ++i) {
+         long gap = recorded.get(i) - recorded.get(i - 1);
+         // a request started late is followed by a shorter gap as the next one starts on its schedule
+         if (gap < period / 2) {
+            shortGaps++;
+         }
+         totalGap += gap;
+      }
+      assertTrue(shortGaps <= recorded.size() / 10, "Short gaps between requests: " + shortGaps);
+      double meanGap = (double) totalGap / (recorded.size() - 1);
+      assertTrue(meanGap >= period * 0.9 && meanGap <= period * 1.5, "Mean gap " + meanGap + " ns");
+      DefaultOutcome missed = outcome(statistics, Stressor.SCHEDULE_MISSED);
+      assertTrue(missed == null || missed.requests <= 2, "Missed schedules: " + (missed == null ? 0 : missed.requests));
+   }
+
+   public void testLatencyMeasuredFromIntendedStart() throws Exception {
+      // each request takes 30 ms but should be started every 10 ms
+      LogicTestStage stage = new LogicTestStage();
+      stage.logic = () -> new InvokingLogic(() -> {
+         Thread.sleep(30);
+         return null;
+      });
+      stage.totalThreads = 1;
+      stage.targetThroughput = 100;
+      stage.duration = 1000;
+
+      Statistics statistics = execute(stage);
+      DefaultOutcome corrected = outcome(statistics, OPERATION);
+      DefaultOutcome uncorrected = outcome(statistics, OPERATION.derive("Uncorrected"));
+      DefaultOutcome missed = outcome(statistics, Stressor.SCHEDULE_MISSED);
+      assertNotNull(corrected);
+      assertNotNull(uncorrected);
+      assertNotNull(missed);
+      assertEquals(uncorrected.requests, corrected.requests);
+      assertTrue(corrected.requests <= 40, "Requests: " + corrected.requests);
+      double serviceTime = TimeUnit.MILLISECONDS.toNanos(30);
+      assertTrue(uncorrected.responseTimeMean >= serviceTime && uncorrected.responseTimeMean < 3 * serviceTime,
+         "Uncorrected mean " + uncorrected.responseTimeMean);
+      // the delay grows by 20 ms with each request, so over the test it's much higher than the service time
+      assertTrue(corrected.responseTimeMean > 5 * serviceTime, "Corrected mean " + corrected.responseTimeMean);
+      assertTrue(corrected.responseTimeMax > TimeUnit.MILLISECONDS.toNanos(500), "Corrected max " + corrected.responseTimeMax);
+      assertTrue(missed.requests > 0);
+   }
+
+   public void testAsyncRequests() throws Exception {
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+      AtomicInteger inFlight = new AtomicInteger();
+      AtomicInteger maxInFlight = new AtomicInteger();
+      try {
+         LogicTestStage stage = new LogicTestStage();
+         stage.logic = () -> new AsyncLogic(() -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            executor.schedule(() -> {
+               inFlight.decrementAndGet();
+               future.complete("value");
+            }, 5, TimeUnit.MILLISECONDS);
+            return future;
+         });
+         stage.totalThreads = 1;
+         stage.maxInFlightRequests = 4;
+         stage.duration = 500;
+
+         Statistics statistics = execute(stage);
+         DefaultOutcome request = outcome(statistics, OPERATION);
+         DefaultOutcome send = outcome(statistics, OPERATION.derive("Send"));
+         DefaultOutcome response = outcome(statistics, OPERATION.derive("Response"));
+         // requests are not executed one by one but the stressor does not exceed the limit
+         assertTrue(maxInFlight.get() > 1 && maxInFlight.get() <= 4, "Max in-flight requests: " + maxInFlight.get());
+         // one request at a time would take at least 5 ms
+         assertTrue(request.requests > 100, "Requests: " + request.requests);
+         assertEquals(request.errors, 0);
+         assertEquals(send.requests, request.requests);
+         assertEquals(response.requests, request.requests);
+         assertTrue(request.responseTimeMean >= TimeUnit.MILLISECONDS.toNanos(5), "Mean " + request.responseTimeMean);
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testLostAsyncResponses() throws Exception {
+      // the futures are never completed once the test has started
+      LogicTestStage stage = new LogicTestStage();
+      // complete the requests executed before the test starts as these would block the stressor
+      stage.logic = () -> new AsyncLogic(() -> stage.isStarted() ? new CompletableFuture<>() : CompletableFuture.completedFuture(null));
+      stage.totalThreads = 1;
+      stage.maxInFlightRequests = 4;
+      stage.numOperations = 2;
+      stage.asyncRequestsTimeout = 200;
+
+      long start = TimeService.nanoTime();
+      Statistics statistics = execute(stage);
+      long duration = TimeService.nanoTime() - start;
+      assertTrue(duration >= TimeUnit.MILLISECONDS.toNanos(200), "Duration " + duration);
+      assertTrue(duration < TimeUnit.SECONDS.toNanos(10), "Duration " + duration);
+      DefaultOutcome request = outcome(statistics, OPERATION);
+      assertEquals(request.requests, 2);
+      assertEquals(request.errors, 2);
+   }
+
+   public void testThroughputPerCarrierThread() throws Exception {
+      CoreStageRunner runner = new CoreStageRunner(1);
+      runner.getTraitImpl(Lifecycle.class).start();
+      LogicTestStage stage = new LogicTestStage();
+      stage.logic = () -> new InvokingLogic(() -> {
+         Thread.sleep(1);
+         return null;
+      });
+      stage.totalThreads = 2;
+      stage.duration = 500;
+
+      DistStageAck ack = runner.executeOnSlave(stage);
+      runner.processAckOnMaster(stage, Collections.singletonList(ack));
+      Report.TestIteration iteration = stage.getReportedTest().getIterations().get(0);
+      Report.TestResult result = iteration.getResults().get("Throughput per carrier thread (PLATFORM)");
+      assertNotNull(result, String.valueOf(iteration.getResults().keySet()));
+      // measured throughput of all stressors is divided among the cores running them
+      Statistics total = iteration.getTotalStatistics();
+      long requests = outcome(total, OPERATION).requests;
+      assertTrue(requests > 0);
+      double throughput = TimeUnit.SECONDS.toMillis(1) * (double) requests / (total.getEnd() - total.getBegin());
+      assertEquals(result.aggregatedValue,
+         String.format("%.1f ops/s", throughput / Runtime.getRuntime().availableProcessors()));
+      assertEquals(result.slaveResults.get(0).value, result.aggregatedValue);
+   }
+
+   public void testMakeRequestAllocation() throws Exception {
+      int rounds = 5;
+      int requestsPerRound = 100_000;
+      long[] allocated = new long[rounds];
+      LogicTestStage stage = new LogicTestStage();
+      stage.logic = () -> new OperationLogic() {
+         // reused by all requests, as the logics do for the steady state
+         private final Invocation<Object> invocation = new Invocation<Object>() {
+            @Override
+            public Object invoke() {
+               return null;
+            }
+
+            @Override
+            public Operation operation() {
+               return OPERATION;
+            }
+
+            @Override
+            public Operation txOperation() {
+               return OPERATION;
+            }
+         };
+         private int round;
+         private boolean seenStarted;
+
+         @Override
+         public void run(Operation operation) throws RequestException {
+            // the stage may start while the stressor is still in the unrecorded loop; the rounds begin only
+            // after a previous call has seen the start, so that all of them are recorded
+            if (!seenStarted || round >= rounds) {
+               seenStarted = stage.isStarted();
+               stressor.makeRequest(invocation);
+               return;
+            }
+            long before = ThreadMonitor.getAllocatedBytes(Thread.currentThread());
+            for (int i = 0; i < requestsPerRound; ++i) {
+               stressor.makeRequest(invocation);
+            }
+            allocated[round++] = before < 0 ? -1 : ThreadMonitor.getAllocatedBytes(Thread.currentThread()) - before;
+         }
+      };
+      stage.totalThreads = 1;
+      // one single request is recorded besides the rounds
+      stage.numOperations = rounds + 1;
+
+      Statistics statistics = execute(stage);
+      assertEquals(outcome(statistics, OPERATION).requests, (long) rounds * requestsPerRound + 1);
+      if (allocated[0] < 0) {
+         throw new SkipException("Thread allocation measurement is not supported");
+      }
+      // the first round registers the operation in the statistics
+      for (int i = 1; i < rounds; ++i) {
+         assertTrue(allocated[i] < 1024, "Round " + i + " allocated " + allocated[i] + " bytes");
+      }
+   }
+
+   static Statistics execute(TestStage stage) throws Exception {
+      CoreStageRunner runner = new CoreStageRunner(1);
+      runner.getTraitImpl(Lifecycle.class).start();
+      DistStageAck ack = runner.executeOnSlave(stage);
+      assertTrue(ack instanceof TestStage.StatisticsAck, String.valueOf(ack));
+      return StatsUtils.merge(((TestStage.StatisticsAck) ack).statistics);
+   }
+
+   static DefaultOutcome outcome(Statistics statistics, Operation operation) {
+      return statistics.getRepresentation(operation.name, DefaultOutcome.class);
+   }
+
+   interface Request {
+      Object invoke() throws Exception;
+   }
+
+   interface AsyncRequest {
+      CompletableFuture<Object> invoke();
+   }
+
+   /**
+    * Executes the test with fresh logic in each stressor.
+    */
+   static class LogicTestStage extends TestStage {
+      Supplier<OperationLogic> logic;
+
+      @Override
+      public OperationLogic getLogic() {
+         return logic.get();
+      }
+
+      Report.Test getReportedTest() {
+         return getTest(true);
+      }
+   }
+
+   static class InvokingLogic extends OperationLogic {
+      private final Request request;
+
+      InvokingLogic(Request request) {
+         this.request = request;
+      }
+
+      @Override
+      public void run(Operation operation) throws RequestException {
+         stressor.makeRequest(new Invocation<Object>() {
+            @Override
+            public Object invoke() {
+               try {
+                  return request.invoke();
+               } catch (Exception e) {
+                  throw new RuntimeException(e);
+               }
+            }
+
+            @Override
+            public Operation operation() {
+               return OPERATION;
+            }
+
+            @Override
+            public Operation txOperation() {
+               return OPERATION;
+            }
+         });
+      }
+   }
+
+   static class AsyncLogic extends OperationLogic {
+      private final AsyncRequest request;
+
+      AsyncLogic(AsyncRequest request) {
+         this.request = request;
+      }
+
+      @Override
+      public void run(Operation operation) throws RequestException {
+         stressor.makeRequestAsync(new AsyncInvocation<Object>() {
+            @Override
+            public CompletableFuture<Object> invoke() {
+               return request.invoke();
+            }
+
+            @Override
+            public Operation operation() {
+               return OPERATION;
+            }
+         });
+      }
+   }
+}
@@ -0,0 +1,55 @@
+package org.radargun.stages.test;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ThroughputSearchTest {
+
+   public void testStep() {
+      ThroughputSearch search = new ThroughputSearch(ThroughputSearch.Mode.STEP, 1000, 500, Long.MAX_VALUE, 0);
+      assertEquals(run(search, 2700), 5);
+      assertEquals(search.getMaxSustainableRate(), 2500);
+      assertEquals(search.getFailedRate(), 3000);
+   }
+
+   public void testStepLimitedByMax() {
+      ThroughputSearch search = new ThroughputSearch(ThroughputSearch.Mode.STEP, 1000, 1000, 2500, 0);
+      assertEquals(run(search, 10000), 3);
+      assertEquals(search.getMaxSustainableRate(), 2500);
+      assertEquals(search.getFailedRate(), -1);
+   }
+
+   public void testBinary() {
+      ThroughputSearch search = new ThroughputSearch(ThroughputSearch.Mode.BINARY, 1000, 0, Long.MAX_VALUE, 0.01);
+      run(search, 12345);
+      long knee = search.getMaxSustainableRate();
+      assertTrue(knee <= 12345 && knee >= 12345 * 0.99, "Knee " + knee);
+      assertTrue(search.getFailedRate() - knee <= 0.01 * search.getFailedRate());
+   }
+
+   public void testNeverSatisfied() {
+      ThroughputSearch search = new ThroughputSearch(ThroughputSearch.Mode.BINARY, 1000, 0, Long.MAX_VALUE, 0.1);
+      assertTrue(search.update(false));
+      assertEquals(search.getRate(), 500);
+      run(search, 0);
+      assertEquals(search.getMaxSustainableRate(), -1);
+      assertFalse(search.update(false));
+   }
+
+   /**
+    * Runs the search against service that sustains up to given rate.
+    */
+   private static int run(ThroughputSearch search, long capacity) {
+      int steps = 0;
+      boolean more;
+      do {
+         more = search.update(search.getRate() <= capacity);
+         ++steps;
+      } while (more && steps < 1000);
+      return steps;
+   }
+}
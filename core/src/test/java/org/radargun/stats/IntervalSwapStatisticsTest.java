@@ -0,0 +1,89 @@
+package org.radargun.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.utils.TimeService;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(sequential = true)
+public class IntervalSwapStatisticsTest {
+
+   @AfterTest
+   public void cleanup() {
+      Operation.clear();
+   }
+
+   public void testSnapshotWithReset() {
+      Operation operation = Operation.register("testOp");
+      IntervalSwapStatistics statistics = new IntervalSwapStatistics();
+      statistics.begin();
+      statistics.startRequest().succeeded(operation);
+      statistics.startRequest().failed(operation);
+
+      DefaultOutcome outcome = statistics.snapshot(true).getRepresentation(operation.name, DefaultOutcome.class);
+      assertEquals(outcome.requests, 2);
+      assertEquals(outcome.errors, 1);
+      assertNull(statistics.snapshot(false).getOperationStats(operation.name));
+
+      statistics.startRequest().succeeded(operation);
+      assertEquals(statistics.snapshot(false).getRepresentation(operation.name, DefaultOutcome.class).requests, 1);
+      assertEquals(statistics.copy().getRepresentation(operation.name, DefaultOutcome.class).requests, 1);
+   }
+
+   public void testConcurrentRecording() throws InterruptedException {
+      Operation operation = Operation.register("testOp");
+      IntervalSwapStatistics statistics = new IntervalSwapStatistics();
+      statistics.begin();
+      int numThreads = 4;
+      int requestsPerThread = 100000;
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < numThreads; ++i) {
+         Thread thread = new Thread(() -> {
+            for (int j = 0; j < requestsPerThread; ++j) {
+               statistics.startRequest().succeeded(operation);
+            }
+         });
+         threads.add(thread);
+         thread.start();
+      }
+      long requests = 0;
+      while (threads.stream().anyMatch(Thread::isAlive)) {
+         requests += requests(statistics.snapshot(true), operation);
+      }
+      requests += requests(statistics.snapshot(true), operation);
+      assertEquals(requests, numThreads * requestsPerThread);
+   }
+
+   public void testPeriodicSnapshots() {
+      Operation operation = Operation.register("testOp");
+      PeriodicStatistics prototype = new PeriodicStatistics();
+      prototype.setPeriod(1000);
+      IntervalSwapStatistics statistics = new IntervalSwapStatistics(prototype);
+      statistics.begin();
+      long now = TimeService.nanoTime();
+      statistics.record(operation, now, now + 1000, true);
+      Statistics first = statistics.snapshot(true);
+      now = TimeService.nanoTime();
+      statistics.record(operation, now, now + 1000, true);
+      statistics.record(operation, now, now + 1000, true);
+      statistics.end();
+      Statistics merged = first.copy();
+      merged.merge(statistics.snapshot(true));
+
+      DefaultOutcome.Series series = merged.getRepresentation(operation.name, DefaultOutcome.Series.class);
+      assertEquals(series.samples.length, 1);
+      assertEquals(series.samples[0].requests, 3);
+   }
+
+   private static long requests(Statistics statistics, Operation operation) {
+      DefaultOutcome outcome = statistics.getRepresentation(operation.name, DefaultOutcome.class);
+      return outcome == null ? 0 : outcome.requests;
+   }
+}
@@ -0,0 +1,103 @@
+package org.radargun.stats;
+
+import java.lang.management.ManagementFactory;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.testng.SkipException;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that recording requests through the primitive API does not allocate.
+ */
+@Test(sequential = true)
+public class RecordingAllocationTest {
+   private static final int OPERATIONS = 1_000_000;
+   // tolerates allocations done by the measurement itself
+   private static final long ALLOCATION_TOLERANCE = 1024;
+
+   @AfterTest
+   public void cleanup() {
+      Operation.clear();
+   }
+
+   public void testBasicStatistics() {
+      Operation operation = Operation.register("testOp");
+      BasicStatistics statistics = new BasicStatistics(new BasicOperationStats());
+      statistics.begin();
+      long allocated = measure(statistics, operation);
+      statistics.end();
+
+      assertTrue(allocated < ALLOCATION_TOLERANCE, "Allocated " + allocated + " bytes");
+      DefaultOutcome outcome = statistics.getRepresentation(operation.name, DefaultOutcome.class);
+      assertEquals(outcome.requests, 4L * OPERATIONS);
+      assertEquals(outcome.errors, 2L * OPERATIONS);
+   }
+
+   public void testIntervalSwapStatistics() {
+      Operation operation = Operation.register("testOp");
+      IntervalSwapStatistics statistics = new IntervalSwapStatistics(new BasicStatistics(new BasicOperationStats()));
+      statistics.begin();
+      long allocated = measure(statistics, operation);
+
+      assertTrue(allocated < ALLOCATION_TOLERANCE, "Allocated " + allocated + " bytes");
+      assertEquals(statistics.snapshot(false).getRepresentation(operation.name, DefaultOutcome.class).requests, 4L * OPERATIONS);
+   }
+
+   public void testRequestSetReuse() {
+      Operation operation = Operation.register("testOp");
+      BasicStatistics statistics = new BasicStatistics(new BasicOperationStats());
+      statistics.begin();
+      RequestSet requestSet = statistics.requestSet();
+      requestSet.add(10, 20);
+      requestSet.add(15, 40);
+      requestSet.failed(operation);
+      requestSet.reset();
+      requestSet.add(100, 105);
+      requestSet.succeeded(operation);
+
+      assertEquals(requestSet.sumDurations(), 5);
+      assertEquals(requestSet.durationSpan(), 5);
+      assertTrue(requestSet.isSuccessful());
+      DefaultOutcome outcome = statistics.getRepresentation(operation.name, DefaultOutcome.class);
+      assertEquals(outcome.requests, 2);
+      assertEquals(outcome.errors, 1);
+      assertEquals(outcome.responseTimeMax, 35);
+   }
+
+   private long measure(Statistics statistics, Operation operation) {
+      com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+      long threadId = Thread.currentThread().getId();
+      RequestSet requestSet = statistics.requestSet();
+      // warm-up, registers the operation
+      record(statistics, requestSet, operation, OPERATIONS);
+      long before = threadMXBean.getThreadAllocatedBytes(threadId);
+      record(statistics, requestSet, operation, OPERATIONS);
+      return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+   }
+
+   private void record(Statistics statistics, RequestSet requestSet, Operation operation, int operations) {
+      for (int i = 0; i < operations; ++i) {
+         long start = System.nanoTime();
+         statistics.record(operation, start, start + i, (i & 1) == 0);
+         requestSet.reset();
+         requestSet.add(start, start + i);
+         requestSet.finished((i & 1) == 0, operation);
+      }
+   }
+
+   private static com.sun.management.ThreadMXBean threadMXBean() {
+      java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+      if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+         || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+         throw new SkipException("Thread allocation measurement is not supported");
+      }
+      com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+      return sunThreadMXBean;
+   }
+}
@@ -0,0 +1,156 @@
+package org.radargun.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Histogram;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.Utils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Compares results of {@link SpillingOperationStats} with {@link AllRecordingOperationStats}.
+ */
+@Test
+public class SpillingOperationStatsTest {
+   private static final int REQUESTS = 100_000;
+
+   public void testPercentiles() throws Exception {
+      SpillingOperationStats spilling = createStats();
+      AllRecordingOperationStats all = new AllRecordingOperationStats();
+      record(new Random(42), REQUESTS, spilling, all);
+
+      DefaultOutcome outcome = spilling.getRepresentation(DefaultOutcome.class, null);
+      DefaultOutcome expected = all.getRepresentation(DefaultOutcome.class, null);
+      assertEquals(outcome.requests, expected.requests);
+      assertEquals(outcome.errors, expected.errors);
+      assertEquals(outcome.responseTimeMax, expected.responseTimeMax);
+      for (double percentile : new double[] {0, 50, 90, 99, 99.9, 100}) {
+         assertEquals(spilling.getRepresentation(Percentile.class, null, percentile).responseTimeMax,
+            all.getRepresentation(Percentile.class, null, percentile).responseTimeMax, "percentile " + percentile);
+      }
+      MeanAndDev meanAndDev = spilling.getRepresentation(MeanAndDev.class, null);
+      MeanAndDev expectedMeanAndDev = all.getRepresentation(MeanAndDev.class, null);
+      // AllRecordingOperationStats rounds the mean down
+      assertEquals(meanAndDev.mean, expectedMeanAndDev.mean, 1);
+      assertEquals(meanAndDev.dev, expectedMeanAndDev.dev, 1);
+
+      Histogram histogram = spilling.getRepresentation(Histogram.class, null, 20, 99d);
+      Histogram expectedHistogram = all.getRepresentation(Histogram.class, null, 20, 99d);
+      assertEquals(histogram.ranges, expectedHistogram.ranges);
+      assertEquals(histogram.counts, expectedHistogram.counts);
+
+      Histogram full = spilling.getRepresentation(Histogram.class, null);
+      assertEquals(full.ranges.length, full.counts.length + 1);
+      assertEquals(sum(full.counts), REQUESTS);
+   }
+
+   public void testMergeAndSerialization() throws Exception {
+      SpillingOperationStats first = createStats();
+      SpillingOperationStats second = createStats();
+      AllRecordingOperationStats all = new AllRecordingOperationStats();
+      Random random = new Random(7);
+      record(random, REQUESTS / 2, first, all);
+      record(random, REQUESTS / 3, second, all);
+      first.merge(second);
+
+      SpillingOperationStats copy = roundTrip(first);
+      assertEquals(copy.getRepresentation(DefaultOutcome.class, null).requests, (long) (REQUESTS / 2 + REQUESTS / 3));
+      for (double percentile : new double[] {10, 50, 95}) {
+         assertEquals(copy.getRepresentation(Percentile.class, null, percentile).responseTimeMax,
+            all.getRepresentation(Percentile.class, null, percentile).responseTimeMax, "percentile " + percentile);
+      }
+      // the copy continues recording into new segments
+      copy.record(1, true);
+      assertEquals(copy.getRepresentation(Percentile.class, null, 0d).responseTimeMax, 1d);
+      assertTrue(second.getRepresentation(DefaultOutcome.class, null).requests > 0);
+   }
+
+   public void testRelease() throws Exception {
+      SpillingOperationStats first = createStats();
+      SpillingOperationStats second = createStats();
+      record(new Random(3), REQUESTS / 10, first, second);
+      first.merge(second);
+      second.release();
+      second.release();
+      // merged data are independent of the released instance
+      assertEquals(first.getRepresentation(DefaultOutcome.class, null).requests, (long) (2 * (REQUESTS / 10)));
+      assertTrue(first.getRepresentation(Percentile.class, null, 99d).responseTimeMax > 0);
+      assertReleased(second);
+
+      // statistics are released after being merged into the retained ones
+      Operation operation = Operation.register(SpillingOperationStatsTest.class.getSimpleName());
+      BasicStatistics statistics = new BasicStatistics(createStats());
+      statistics.begin();
+      statistics.record(operation, 0, 1000, true);
+      OperationStats recorded = statistics.getOperationStats(operation.name);
+      Statistics snapshot = statistics.copy();
+      statistics.reset();
+      assertReleased((SpillingOperationStats) recorded);
+      assertEquals(snapshot.getRepresentation(operation.name, DefaultOutcome.class).requests, 1);
+      statistics.record(operation, 0, 1000, true);
+      assertEquals(statistics.getRepresentation(operation.name, DefaultOutcome.class).requests, 1);
+   }
+
+   private static void assertReleased(SpillingOperationStats stats) {
+      try {
+         stats.record(1, true);
+         fail("Recording into released statistics");
+      } catch (IllegalStateException e) {
+         // expected
+      }
+      try {
+         stats.getRepresentation(Percentile.class, null, 50d);
+         fail("Reading released statistics");
+      } catch (IllegalStateException e) {
+         // expected
+      }
+   }
+
+   private static SpillingOperationStats createStats() {
+      SpillingOperationStats stats = new SpillingOperationStats();
+      // force many segments
+      Utils.setField(SpillingOperationStats.class, "segmentSize", stats, 8 * 1024L);
+      stats.init();
+      return stats;
+   }
+
+   private static void record(Random random, int requests, OperationStats... stats) {
+      for (int i = 0; i < requests; ++i) {
+         long duration = 1000 + (long) (Math.abs(random.nextGaussian()) * 100_000);
+         boolean successful = random.nextInt(100) != 0;
+         for (OperationStats s : stats) {
+            s.record(duration, successful);
+         }
+      }
+   }
+
+   private static long sum(long[] values) {
+      long sum = 0;
+      for (long value : values) {
+         sum += value;
+      }
+      return sum;
+   }
+
+   private static SpillingOperationStats roundTrip(SpillingOperationStats stats) throws IOException, ClassNotFoundException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(stats);
+      }
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         return (SpillingOperationStats) in.readObject();
+      }
+   }
+}
@@ -0,0 +1,58 @@
+package org.radargun.sysmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.radargun.reporting.Timeline;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ThreadMonitorTest {
+
+   public void testSampling() throws Exception {
+      if (ThreadMonitor.getCpuTime(Thread.currentThread()) < 0 || ThreadMonitor.getAllocatedBytes(Thread.currentThread()) < 0) {
+         // not supported by this JVM
+         return;
+      }
+      Timeline timeline = new Timeline(0);
+      ThreadMonitor monitor = new ThreadMonitor(timeline, true);
+      CountDownLatch finish = new CountDownLatch(1);
+      List<Object> sink = new ArrayList<>();
+      Thread thread = new Thread(() -> {
+         while (finish.getCount() > 0) {
+            sink.add(new byte[1024]);
+            if (sink.size() > 1000) {
+               sink.clear();
+            }
+         }
+      }, "Allocating");
+      try {
+         monitor.start();
+         // the baseline is taken in the first sample after the thread starts
+         monitor.register(thread);
+         thread.start();
+         monitor.run();
+         Thread.sleep(200);
+         monitor.run();
+         Thread.sleep(200);
+         monitor.run();
+      } finally {
+         finish.countDown();
+         thread.join();
+      }
+      monitor.unregister(thread);
+      monitor.stop();
+      List<Timeline.Value> usage = timeline.getValues(Timeline.Category.sysCategory("Stressors CPU usage"));
+      assertNotNull(usage);
+      List<Timeline.Value> allocation = timeline.getValues(Timeline.Category.sysCategory("Allocating allocation rate (MB/s)"));
+      assertNotNull(allocation);
+      assertTrue(allocation.get(0).value.doubleValue() > 0, "Allocation rate " + allocation.get(0).value);
+      for (Timeline.Value value : timeline.getValues(Timeline.Category.sysCategory("Stressors allocation rate (MB/s)"))) {
+         assertTrue(value.value.doubleValue() >= 0, "Allocation rate " + value.value);
+      }
+   }
+}
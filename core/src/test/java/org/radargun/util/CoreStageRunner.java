@@ -145,6 +145,15 @@ public class CoreStageRunner {
       return perSlaveConfigurations.get(slaveIndex).slaveState;
    }
 
+   public MasterState getMasterState() {
+      return getMasterState(0);
+   }
+
+   public MasterState getMasterState(int slaveIndex) {
+      checkSlaveIndex(slaveIndex);
+      return perSlaveConfigurations.get(slaveIndex).masterState;
+   }
+
    private static class PerSlaveConfiguration {
       private final Map<Class<?>, Object> traitMap;
       private final SlaveState slaveState;
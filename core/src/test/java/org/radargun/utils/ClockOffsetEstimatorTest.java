@@ -0,0 +1,56 @@
+package org.radargun.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ClockOffsetEstimatorTest {
+   private static final double OFFSET = 250;
+   private static final double DRIFT = 100e-6;
+
+   public void testOffsetAndDrift() {
+      ClockOffsetEstimator estimator = new ClockOffsetEstimator(16);
+      Random random = new Random(42);
+      long localTime = 1_000_000;
+      ClockOffsetEstimator.Estimate estimate = null;
+      for (int burst = 0; burst < 10; ++burst) {
+         List<ClockOffsetEstimator.Sample> samples = new ArrayList<>();
+         for (int i = 0; i < 8; ++i) {
+            // asymmetric delays up to 20 ms, 1 ms on the fastest path
+            long requestDelay = i == 0 ? 0 : random.nextInt(20);
+            long responseDelay = i == 0 ? 1 : random.nextInt(20);
+            long t1 = localTime;
+            long t2 = masterTime(t1 + requestDelay);
+            long t3 = t2;
+            long t4 = t1 + requestDelay + responseDelay;
+            samples.add(ClockOffsetEstimator.Sample.of(t1, t2, t3, t4, (t4 - t1) * 1_000_000, 0));
+            localTime = t4 + 10;
+         }
+         Collections.shuffle(samples, random);
+         estimate = estimator.addBurst(samples);
+         localTime += 30_000;
+      }
+      assertEquals(estimate.drift, DRIFT, 5e-6);
+      assertTrue(estimate.errorBound <= 2, String.valueOf(estimate));
+      for (long time = localTime; time < localTime + 60_000; time += 10_000) {
+         assertEquals((double) estimate.toMasterTime(time), (double) masterTime(time), estimate.errorBound);
+      }
+   }
+
+   public void testNoSamples() {
+      assertNull(new ClockOffsetEstimator(4).addBurst(Collections.emptyList()));
+      assertEquals(ClockOffsetEstimator.Estimate.NONE.toMasterTime(12345), 12345);
+   }
+
+   private static long masterTime(long localTime) {
+      return Math.round(localTime + OFFSET + DRIFT * localTime);
+   }
+}
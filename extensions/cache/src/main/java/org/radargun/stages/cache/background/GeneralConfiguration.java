@@ -1,6 +1,7 @@
 package org.radargun.stages.cache.background;
 
 import org.radargun.config.Property;
+import org.radargun.stages.test.ThreadModel;
 import org.radargun.utils.TimeConverter;
 
 /**
@@ -44,6 +45,14 @@ public class GeneralConfiguration {
    @Property(doc = "Cache used for the background operations. Default is null (default).")
    protected String cacheName;
 
+   @Property(doc = "Kind of threads executing the stressors and log checkers. PLATFORM runs each one in its own OS thread, " +
+      "VIRTUAL runs them in virtual threads (requires JVM 21+). Default is PLATFORM.")
+   protected ThreadModel stressorThreadModel = ThreadModel.PLATFORM;
+
+   @Property(doc = "Number of carrier threads executing virtual threads. This can be set only before the first " +
+      "virtual thread is started in the slave JVM. Default is the number of cores.")
+   protected int carrierThreads = 0;
+
    public int getPuts() {
       return puts;
    }
@@ -76,6 +85,14 @@ public class GeneralConfiguration {
       return deadSlaveTimeout;
    }
 
+   public ThreadModel getStressorThreadModel() {
+      return stressorThreadModel;
+   }
+
+   public int getCarrierThreads() {
+      return carrierThreads;
+   }
+
    public boolean isSharedKeys() {
       return sharedKeys;
    }
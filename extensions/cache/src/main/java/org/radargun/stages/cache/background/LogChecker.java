@@ -8,6 +8,7 @@ import java.util.Date;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.stages.cache.generators.KeyGenerator;
+import org.radargun.stages.test.StressorThread;
 import org.radargun.traits.BasicOperations;
 import org.radargun.traits.Debugable;
 import org.radargun.utils.TimeService;
@@ -31,7 +32,7 @@ import org.radargun.utils.Utils;
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
-public abstract class LogChecker extends Thread {
+public abstract class LogChecker extends StressorThread {
    protected static final Log log = LogFactory.getLog(LogChecker.class);
    protected static final boolean trace = log.isTraceEnabled();
    protected static final long UNSUCCESSFUL_CHECK_MIN_DELAY_MS = 10;
@@ -2,8 +2,11 @@ package org.radargun.stages.cache.background;
 
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
+import org.radargun.stages.test.StressorThread;
 import org.radargun.stats.BasicOperationStats;
-import org.radargun.stats.SynchronizedStatistics;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.IntervalSwapStatistics;
+import org.radargun.stats.Statistics;
 
 /**
  * Stressor thread running in parallel to many stages. Its behavior is specified by plugging in specific
@@ -15,14 +18,14 @@ import org.radargun.stats.SynchronizedStatistics;
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
-class Stressor extends Thread {
+class Stressor extends StressorThread {
 
    private static final Log log = LogFactory.getLog(Stressor.class);
 
    protected final int id;
    private final Logic logic;
    private final long delayBetweenRequests;
-   protected final SynchronizedStatistics stats = new SynchronizedStatistics(new BasicOperationStats());
+   protected final IntervalSwapStatistics stats = new IntervalSwapStatistics(new BasicStatistics(new BasicOperationStats()));
 
    private volatile boolean terminate = false;
 
@@ -61,7 +64,7 @@ class Stressor extends Thread {
       return terminate;
    }
 
-   public SynchronizedStatistics getStatsSnapshot(boolean reset) {
+   public Statistics getStatsSnapshot(boolean reset) {
       return stats.snapshot(reset);
    }
 
@@ -11,6 +11,7 @@ import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
+import org.radargun.stages.test.ThreadModel;
 import org.radargun.utils.TimeService;
 
 /**
@@ -97,9 +98,11 @@ public class ThreadManager {
          log.warn("Stressor thread number set to 0!");
          return;
       }
+      ThreadModel threadModel = generalConfiguration.getStressorThreadModel();
+      threadModel.setCarrierThreads(generalConfiguration.getCarrierThreads());
       for (int i = 0; i < stressorThreads.length; i++) {
          stressorThreads[i] = new Stressor(manager, manager.createLogic(i), i);
-         stressorThreads[i].start();
+         stressorThreads[i].start(threadModel);
       }
    }
 
@@ -120,7 +123,7 @@ public class ThreadManager {
             } else {
                checkerThreads[i] = new PrivateLogChecker(i, manager);
             }
-            checkerThreads[i].start();
+            checkerThreads[i].start(generalConfiguration.getStressorThreadModel());
          }
       }
    }
@@ -173,12 +176,12 @@ public class ThreadManager {
       try {
          if (stressors && stressorThreads != null) {
             for (int i = 0; i < stressorThreads.length; i++) {
-               stressorThreads[i].join();
+               stressorThreads[i].awaitTermination();
             }
          }
          if (checkers && checkerThreads != null) {
             for (int i = 0; i < checkerThreads.length; ++i) {
-               checkerThreads[i].join();
+               checkerThreads[i].awaitTermination();
             }
          }
          log.debug("All threads have joined");
@@ -0,0 +1,138 @@
+package org.radargun.stages.cache.generators;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.utils.SizeConverter;
+
+/**
+ * Generates byte arrays from a pool of random data allocated once, instead of filling each array
+ * with random bytes. Content of the value is determined by the key (and size), therefore
+ * {@link #checkValue(Object, Object, int)} can verify the content as well, on any node using the same seed.
+ */
+@DefinitionElement(name = "pooled-byte-array", doc = "Generates byte arrays copied from pool of random data. " +
+   "Cheaper than byte-array for large values; the content is determined by the key and can be validated.")
+public class PooledByteArrayValueGenerator implements ValueGenerator {
+   @Property(doc = "Size of the pool with random data. Default is 16 MB.", converter = SizeConverter.class)
+   private long poolSize = 16 * 1024 * 1024;
+
+   @Property(doc = "Seed for the data in pool; nodes checking the values must use the same seed. Default is 0.")
+   private long seed = 0;
+
+   @Property(doc = "When set to positive number, generator does not create new arrays but returns one of this many " +
+      "preallocated arrays for each size. The arrays are shared by all entries and must not be modified. " +
+      "Default is 0 (new array for each value).")
+   private int sharedValues = 0;
+
+   private volatile byte[] pool;
+   private final ConcurrentMap<Integer, byte[][]> shared = new ConcurrentHashMap<>();
+
+   @Init
+   public void init() {
+      if (poolSize <= 0 || poolSize > Integer.MAX_VALUE - 8) {
+         throw new IllegalArgumentException("Pool size must be positive and lower than 2 GB: " + poolSize);
+      }
+      if (sharedValues < 0) {
+         throw new IllegalArgumentException("Shared values must be non-negative: " + sharedValues);
+      }
+   }
+
+   @Override
+   public Object generateValue(Object key, int size, Random random) {
+      byte[] pool = getPool();
+      if (sharedValues > 0) {
+         return getSharedValues(pool, size)[index(key, random)];
+      }
+      return copy(pool, offset(pool, key, random), size);
+   }
+
+   @Override
+   public int sizeOf(Object value) {
+      return ((byte[]) value).length;
+   }
+
+   @Override
+   public boolean checkValue(Object value, Object key, int expectedSize) {
+      if (!(value instanceof byte[])) return false;
+      byte[] array = (byte[]) value;
+      if (expectedSize > 0 && array.length != expectedSize) return false;
+      if (key == null) return true;
+      byte[] pool = getPool();
+      int offset = sharedValues > 0 ? sharedOffset(pool, index(key, null)) : offset(pool, key, null);
+      for (int i = 0; i < array.length; ++i) {
+         if (array[i] != pool[offset]) return false;
+         if (++offset == pool.length) offset = 0;
+      }
+      return true;
+   }
+
+   private byte[] getPool() {
+      byte[] pool = this.pool;
+      if (pool == null) {
+         synchronized (this) {
+            pool = this.pool;
+            if (pool == null) {
+               pool = new byte[(int) poolSize];
+               new Random(seed).nextBytes(pool);
+               this.pool = pool;
+            }
+         }
+      }
+      return pool;
+   }
+
+   private byte[][] getSharedValues(byte[] pool, int size) {
+      byte[][] values = shared.get(size);
+      if (values == null) {
+         values = new byte[sharedValues][];
+         for (int i = 0; i < sharedValues; ++i) {
+            values[i] = copy(pool, sharedOffset(pool, i), size);
+         }
+         byte[][] prev = shared.putIfAbsent(size, values);
+         if (prev != null) values = prev;
+      }
+      return values;
+   }
+
+   private int offset(byte[] pool, Object key, Random random) {
+      return (int) ((hash(key, random) & Long.MAX_VALUE) % pool.length);
+   }
+
+   private int index(Object key, Random random) {
+      return (int) ((hash(key, random) & Long.MAX_VALUE) % sharedValues);
+   }
+
+   private int sharedOffset(byte[] pool, int index) {
+      return (int) ((long) index * pool.length / sharedValues);
+   }
+
+   private static long hash(Object key, Random random) {
+      if (key == null) {
+         return random.nextLong();
+      }
+      // byte[] keys do not have stable hashCode
+      int hashCode = key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+      // spread the bits, as in SplittableRandom
+      long z = hashCode * 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+
+   private static byte[] copy(byte[] pool, int offset, int size) {
+      byte[] array = new byte[size];
+      int copied = 0;
+      while (copied < size) {
+         int length = Math.min(size - copied, pool.length - offset);
+         System.arraycopy(pool, offset, array, copied, length);
+         copied += length;
+         offset = 0;
+      }
+      return array;
+   }
+}
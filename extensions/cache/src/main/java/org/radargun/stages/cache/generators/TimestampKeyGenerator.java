@@ -3,7 +3,7 @@ package org.radargun.stages.cache.generators;
 import java.io.Serializable;
 
 import org.radargun.config.DefinitionElement;
-import org.radargun.utils.TimeService;
+import org.radargun.utils.ClockSync;
 import org.radargun.utils.Timestamped;
 
 @DefinitionElement(name = "timestamp", doc = "Creates key with provided long as an actual key and additional timestamp when key was created")
@@ -11,7 +11,7 @@ public class TimestampKeyGenerator implements KeyGenerator {
 
    @Override
    public Object generateKey(long keyIndex) {
-      return new TimestampKey(keyIndex, TimeService.currentTimeMillis());
+      return new TimestampKey(keyIndex, ClockSync.currentTimeMillis());
    }
 
    public static class TimestampKey implements Timestamped, Serializable {
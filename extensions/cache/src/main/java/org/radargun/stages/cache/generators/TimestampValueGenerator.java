@@ -0,0 +1,89 @@
+package org.radargun.stages.cache.generators;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Property;
+import org.radargun.utils.ClockSync;
+import org.radargun.utils.Timestamped;
+
+/**
+ * Wraps values created by another generator together with the time when the value was generated,
+ * so that listeners on any node can compute how long it took until they were notified about the write.
+ */
+@DefinitionElement(name = "timestamp-value", doc = "Wraps value from another generator together with timestamp " +
+   "of its creation. Used for measuring the notification latency of listeners.")
+public class TimestampValueGenerator implements ValueGenerator {
+   private static final LongAdder generatedValues = new LongAdder();
+
+   @Property(doc = "Generator of the wrapped value. Default is byte-array.", complexConverter = ValueGenerator.ComplexConverter.class)
+   private ValueGenerator payload = new ByteArrayValueGenerator();
+
+   /**
+    * @return Number of values created by all generators of this type in this JVM.
+    */
+   public static long getGeneratedValues() {
+      return generatedValues.sum();
+   }
+
+   @Override
+   public Object generateValue(Object key, int size, Random random) {
+      Object value = payload.generateValue(key, size, random);
+      generatedValues.increment();
+      return new TimestampValue(ClockSync.currentTimeMillis(), value);
+   }
+
+   @Override
+   public int sizeOf(Object value) {
+      return payload.sizeOf(((TimestampValue) value).payload);
+   }
+
+   @Override
+   public boolean checkValue(Object value, Object key, int expectedSize) {
+      return value instanceof TimestampValue && payload.checkValue(((TimestampValue) value).payload, key, expectedSize);
+   }
+
+   public static class TimestampValue implements Timestamped, Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final long timestamp;
+      private final Object payload;
+
+      public TimestampValue(long timestamp, Object payload) {
+         this.timestamp = timestamp;
+         this.payload = payload;
+      }
+
+      @Override
+      public long getTimestamp() {
+         return timestamp;
+      }
+
+      public Object getPayload() {
+         return payload;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (o == null || getClass() != o.getClass()) return false;
+         TimestampValue that = (TimestampValue) o;
+         return timestamp == that.timestamp && Objects.deepEquals(payload, that.payload);
+      }
+
+      @Override
+      public int hashCode() {
+         // payload is usually byte[]
+         return 31 * Long.hashCode(timestamp) + Arrays.deepHashCode(new Object[] { payload });
+      }
+
+      @Override
+      public String toString() {
+         return "TimestampValue{timestamp=" + timestamp + ", payload=" + payload + '}';
+      }
+   }
+}
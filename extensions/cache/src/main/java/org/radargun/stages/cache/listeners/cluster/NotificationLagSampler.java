@@ -0,0 +1,101 @@
+package org.radargun.stages.cache.listeners.cluster;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.radargun.reporting.Timeline;
+import org.radargun.stages.cache.generators.TimestampValueGenerator;
+import org.radargun.utils.TimeService;
+
+/**
+ * Periodically records rate of listener notifications and their lag (time between generating the written
+ * value or key and the notification) into the {@link Timeline}, together with the rate of writes of
+ * timestamped values on this node. When the listeners cannot keep up with the writes, the lag keeps growing.
+ * Notifications with invalid timestamp or negative lag (due to clock skew between the nodes) are only counted.
+ */
+class NotificationLagSampler implements Runnable {
+   private static final Timeline.Category NOTIFICATIONS = Timeline.Category.customCategory("Listener notifications/s");
+   private static final Timeline.Category WRITES = Timeline.Category.customCategory("Timestamped writes/s");
+   private static final Timeline.Category MEAN_LAG = Timeline.Category.customCategory("Listener lag mean (ms)");
+   private static final Timeline.Category MAX_LAG = Timeline.Category.customCategory("Listener lag max (ms)");
+   private static final Timeline.Category SKIPPED = Timeline.Category.customCategory("Listener lag samples skipped");
+
+   private final Timeline timeline;
+   private final LongAdder notifications = new LongAdder();
+   private final LongAdder lagSum = new LongAdder();
+   private final LongAccumulator maxLag = new LongAccumulator(Math::max, 0);
+   private final LongAdder skipped = new LongAdder();
+   private long prevTimestamp = TimeService.currentTimeMillis();
+   private long prevWrites = TimestampValueGenerator.getGeneratedValues();
+   private ScheduledExecutorService executor;
+
+   NotificationLagSampler(Timeline timeline) {
+      this.timeline = timeline;
+   }
+
+   /**
+    * Starts recording into the timeline in a background thread.
+    *
+    * @param period Sampling period, in milliseconds.
+    */
+   synchronized void start(long period) {
+      if (executor != null) {
+         throw new IllegalStateException("Sampler is already started");
+      }
+      executor = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "NotificationLagSampler");
+         thread.setDaemon(true);
+         return thread;
+      });
+      executor.scheduleAtFixedRate(this, period, period, TimeUnit.MILLISECONDS);
+   }
+
+   synchronized void stop() {
+      if (executor != null) {
+         executor.shutdownNow();
+         executor = null;
+      }
+   }
+
+   /**
+    * @param lag Time between the write and notification, in milliseconds.
+    */
+   void record(long lag) {
+      notifications.increment();
+      lagSum.add(lag);
+      maxLag.accumulate(lag);
+   }
+
+   /**
+    * Counts notification whose lag cannot be determined.
+    */
+   void recordSkipped() {
+      skipped.increment();
+   }
+
+   @Override
+   public synchronized void run() {
+      long now = TimeService.currentTimeMillis();
+      double elapsedSeconds = Math.max(1, now - prevTimestamp) / 1000d;
+      prevTimestamp = now;
+      long count = notifications.sumThenReset();
+      long sum = lagSum.sumThenReset();
+      long max = maxLag.getThenReset();
+      long skippedSamples = skipped.sumThenReset();
+      long writes = TimestampValueGenerator.getGeneratedValues();
+
+      timeline.addValue(NOTIFICATIONS, now, count / elapsedSeconds);
+      timeline.addValue(WRITES, now, (writes - prevWrites) / elapsedSeconds);
+      if (count > 0) {
+         timeline.addValue(MEAN_LAG, now, (double) sum / count);
+         timeline.addValue(MAX_LAG, now, max);
+      }
+      if (skippedSamples > 0) {
+         timeline.addValue(SKIPPED, now, skippedSamples);
+      }
+      prevWrites = writes;
+   }
+}
@@ -4,20 +4,22 @@ import java.util.Collections;
 import java.util.List;
 
 import org.radargun.DistStageAck;
+import org.radargun.Operation;
 import org.radargun.StageResult;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
 import org.radargun.reporting.Report;
 import org.radargun.stages.AbstractDistStage;
-import org.radargun.stages.cache.generators.TimestampKeyGenerator.TimestampKey;
 import org.radargun.state.SlaveState;
 import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.OperationStats;
 import org.radargun.stats.Statistics;
 import org.radargun.stats.SynchronizedStatistics;
 import org.radargun.traits.CacheListeners;
 import org.radargun.traits.InjectTrait;
+import org.radargun.utils.ClockSync;
 import org.radargun.utils.TimeConverter;
-import org.radargun.utils.TimeService;
+import org.radargun.utils.Timestamped;
 import org.radargun.utils.Utils;
 
 import static org.radargun.traits.CacheListeners.*;
@@ -49,10 +51,20 @@ public class RegisterListenersStage extends AbstractDistStage {
    @Property(doc = "Allows to reset statistics at the begining of the stage. Default is false.")
    private boolean resetStats = false;
 
+   @Property(doc = "Statistics recording the notification lag, e.g. 'histogram'. Default are basic statistics.",
+      complexConverter = OperationStats.Converter.class)
+   private OperationStats operationStats = new BasicOperationStats();
+
+   @Property(doc = "Period in which the rate of notifications and their lag is recorded into the timeline, " +
+      "together with rate of writes of timestamped values on this node. Default is 0 (not recorded).",
+      converter = TimeConverter.class)
+   private long lagSamplePeriod = 0;
+
    @InjectTrait // with infinispan70 plugin
    private CacheListeners listenersTrait;
 
    private SynchronizedStatistics statistics;
+   private NotificationLagSampler sampler;
 
    @Override
    public DistStageAck executeOnSlave() {
@@ -60,7 +72,7 @@ public class RegisterListenersStage extends AbstractDistStage {
 
       statistics = (SynchronizedStatistics) slaveState.get(statsKey);
       if (statistics == null) {
-         statistics = new SynchronizedStatistics(new BasicOperationStats());
+         statistics = new SynchronizedStatistics(operationStats);
          slaveState.put(statsKey, statistics);
       } else if (resetStats) {
          statistics.reset();
@@ -69,10 +81,12 @@ public class RegisterListenersStage extends AbstractDistStage {
       if (registerListeners) {
          initListenersOnSlave(slaveState);
          registerListeners();
+         startSampling();
       }
 
       if (unregisterListeners) {
          unregisterListeners();
+         stopSampling();
       }
 
       return new ListenersAck(slaveState, statistics.snapshot(true));
@@ -105,14 +119,64 @@ public class RegisterListenersStage extends AbstractDistStage {
       }
    }
 
+   /**
+    * Records the time since the value (or key) was created, if it carries the timestamp.
+    */
+   private void recordNotification(Operation operation, Object key, Object value) {
+      long timestamp;
+      if (value instanceof Timestamped) {
+         timestamp = ((Timestamped) value).getTimestamp();
+      } else if (key instanceof Timestamped) {
+         timestamp = ((Timestamped) key).getTimestamp();
+      } else {
+         return;
+      }
+      if (timestamp <= 0) {
+         // not set by the writer, the lag would span the whole epoch
+         if (sampler != null) {
+            sampler.recordSkipped();
+         }
+         return;
+      }
+      long now = ClockSync.currentTimeMillis();
+      // assuming that the sender's clock is synchronized with similar precision;
+      // the statistics count messages received before these were sent (beyond the error bound) as errors
+      statistics.message().times(timestamp, now).errorBound(2 * ClockSync.getErrorBound()).record(operation);
+      if (sampler != null) {
+         if (now < timestamp) {
+            // clock skew between the nodes, negative lag would lower the mean
+            sampler.recordSkipped();
+         } else {
+            sampler.record(now - timestamp);
+         }
+      }
+   }
+
+   private void startSampling() {
+      // listeners registered by another stage record into the same sampler
+      sampler = (NotificationLagSampler) slaveState.get(NotificationLagSampler.class.getName());
+      if (sampler != null || lagSamplePeriod <= 0) {
+         return;
+      }
+      sampler = new NotificationLagSampler(slaveState.getTimeline());
+      sampler.start(lagSamplePeriod);
+      slaveState.put(NotificationLagSampler.class.getName(), sampler);
+   }
+
+   private void stopSampling() {
+      NotificationLagSampler sampler = (NotificationLagSampler) slaveState.remove(NotificationLagSampler.class.getName());
+      if (sampler != null) {
+         sampler.stop();
+      }
+      this.sampler = null;
+   }
+
    private void initListenersOnSlave(SlaveState slaveState) {
       CreatedListener createdListener = new CreatedListener() {
          @Override
          public void created(Object key, Object value) {
             if (sleepTime > 0) Utils.sleep(sleepTime);
-            if (key instanceof TimestampKey) {
-               statistics.message().times(((TimestampKey) key).getTimestamp(), TimeService.currentTimeMillis()).record(CREATED);
-            }
+            recordNotification(CREATED, key, value);
             log.trace("Created " + key + " -> " + value);
          }
       };
@@ -122,9 +186,7 @@ public class RegisterListenersStage extends AbstractDistStage {
          @Override
          public void evicted(Object key, Object value) {
             if (sleepTime > 0) Utils.sleep(sleepTime);
-            if (key instanceof TimestampKey) {
-               statistics.message().times(((TimestampKey) key).getTimestamp(), TimeService.currentTimeMillis()).record(EVICTED);
-            }
+            recordNotification(EVICTED, key, value);
             log.trace("Evicted " + key + " -> " + value);
          }
       };
@@ -134,9 +196,7 @@ public class RegisterListenersStage extends AbstractDistStage {
          @Override
          public void removed(Object key, Object value) {
             if (sleepTime > 0) Utils.sleep(sleepTime);
-            if (key instanceof TimestampKey) {
-               statistics.message().times(((TimestampKey) key).getTimestamp(), TimeService.currentTimeMillis()).record(REMOVED);
-            }
+            recordNotification(REMOVED, key, value);
             log.trace("Removed " + key + " -> " + value);
          }
       };
@@ -146,9 +206,7 @@ public class RegisterListenersStage extends AbstractDistStage {
          @Override
          public void updated(Object key, Object value) {
             if (sleepTime > 0) Utils.sleep(sleepTime);
-            if (key instanceof TimestampKey) {
-               statistics.message().times(((TimestampKey) key).getTimestamp(), TimeService.currentTimeMillis()).record(UPDATED);
-            }
+            recordNotification(UPDATED, key, value);
             log.trace("Updated " + key + " -> " + value);
          }
       };
@@ -158,9 +216,7 @@ public class RegisterListenersStage extends AbstractDistStage {
          @Override
          public void expired(Object key, Object value) {
             if (sleepTime > 0) Utils.sleep(sleepTime);
-            if (key instanceof TimestampKey) {
-               statistics.message().times(((TimestampKey) key).getTimestamp(), TimeService.currentTimeMillis()).record(EXPIRED);
-            }
+            recordNotification(EXPIRED, key, value);
             log.trace("Expired " + key + " -> " + value);
          }
       };
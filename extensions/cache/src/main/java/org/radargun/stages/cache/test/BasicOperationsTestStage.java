@@ -124,7 +124,9 @@ public class BasicOperationsTestStage extends CacheOperationsTestStage {
 
       @Override
       public void run(Operation operation) throws RequestException {
-         Object key = keyGenerator.generateKey(keySelector.next());
+         long keyId = keySelector.next();
+         Object key = keyGenerator.generateKey(keyId);
+         stressor.setKeyId(keyId);
          Random random = stressor.getRandom();
 
          Invocation invocation;
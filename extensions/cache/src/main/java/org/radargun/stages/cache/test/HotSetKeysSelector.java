@@ -0,0 +1,72 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+
+/**
+ * Selects keys uniformly either from the hot set (keys with lowest indices) or from the rest of the keys,
+ * the hot set receiving configured portion of the requests.
+ */
+public class HotSetKeysSelector implements KeySelector {
+   private final Random random;
+   private final long numEntries;
+   private final long hotEntries;
+   private final double hotRequests;
+
+   public HotSetKeysSelector(Random random, long numEntries, long hotEntries, double hotRequests) {
+      this.random = random;
+      this.numEntries = numEntries;
+      this.hotEntries = hotEntries;
+      this.hotRequests = hotRequests;
+   }
+
+   @Override
+   public long next() {
+      if (hotEntries == numEntries || random.nextDouble() < hotRequests) {
+         return (random.nextLong() & Long.MAX_VALUE) % hotEntries;
+      } else {
+         return hotEntries + (random.nextLong() & Long.MAX_VALUE) % (numEntries - hotEntries);
+      }
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "hot-set-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "Given fraction of the keys (hot set) receives given fraction of requests.")
+   public static class Factory implements KeySelectorFactory {
+      @Property(doc = "Total number of key-value entries.", optional = false)
+      private long numEntries = 0;
+
+      @Property(doc = "Fraction of keys in the hot set. Default is 0.2.")
+      private double hotKeys = 0.2;
+
+      @Property(doc = "Fraction of requests targeting the hot set. Default is 0.8.")
+      private double hotRequests = 0.8;
+
+      @Init
+      public void init() {
+         if (numEntries <= 0) {
+            throw new IllegalStateException("Number of entries must be positive.");
+         }
+         if (hotKeys <= 0 || hotKeys > 1 || hotRequests < 0 || hotRequests > 1) {
+            throw new IllegalStateException("Fractions of hot keys and requests must be within (0, 1].");
+         }
+      }
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         long hotEntries = Math.max(1, Math.min(numEntries, Math.round(numEntries * hotKeys)));
+         return new HotSetKeysSelector(random, numEntries, hotEntries, hotRequests);
+      }
+
+      @Override
+      public String toString() {
+         return HotSetKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+}
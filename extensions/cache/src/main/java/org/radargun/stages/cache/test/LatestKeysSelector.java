@@ -0,0 +1,68 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+import org.radargun.utils.TimeService;
+
+/**
+ * Selects keys with Zipf distribution biased towards the most recent keys: the key with highest index
+ * is the hottest one, followed by its predecessors. The hot spot can move forward through the key set
+ * (wrapping around) to simulate workload where newly inserted entries are accessed most often.
+ */
+public class LatestKeysSelector implements KeySelector {
+   private final Random random;
+   private final ZipfianSampler sampler;
+   private final long numEntries;
+   private final long startTime;
+   private final double keysPerNanosecond;
+
+   public LatestKeysSelector(Random random, long numEntries, double exponent, long startTime, double keysPerSecond) {
+      this.random = random;
+      this.sampler = new ZipfianSampler(numEntries, exponent);
+      this.numEntries = numEntries;
+      this.startTime = startTime;
+      this.keysPerNanosecond = keysPerSecond / 1_000_000_000d;
+   }
+
+   @Override
+   public long next() {
+      long latest = numEntries - 1;
+      if (keysPerNanosecond > 0) {
+         latest += (long) ((TimeService.nanoTime() - startTime) * keysPerNanosecond);
+      }
+      return Math.floorMod(latest - sampler.next(random), numEntries);
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "latest-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "The keys are selected using Zipf distribution where the most recent keys (with highest indices) are the most frequent.")
+   public static class Factory extends ZipfianKeysSelector.Factory {
+      @Property(doc = "Rate at which the hot spot moves to following keys, in keys per second. Default is 0 (hot spot does not move).")
+      private double keysPerSecond = 0;
+
+      private volatile long startTime;
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         // all threads on this node move the hot spot synchronously
+         if (startTime == 0) {
+            synchronized (this) {
+               if (startTime == 0) {
+                  startTime = TimeService.nanoTime();
+               }
+            }
+         }
+         return new LatestKeysSelector(random, numEntries, exponent, startTime, keysPerSecond);
+      }
+
+      @Override
+      public String toString() {
+         return LatestKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+}
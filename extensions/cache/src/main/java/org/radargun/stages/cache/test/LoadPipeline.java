@@ -0,0 +1,228 @@
+package org.radargun.stages.cache.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.reporting.Timeline;
+import org.radargun.traits.BulkOperations;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
+
+/**
+ * Submits batches produced by loader threads to the cache from a pool of submitter threads, so that
+ * generation of entries overlaps with the bulk operations. The number of batches in flight is bounded;
+ * when the limit is reached the loader threads block (backpressure).
+ *
+ * When target latency is set, the batch size is adapted after each successfully executed batch: it grows
+ * additively while the latency stays below the target and shrinks proportionally when the target is exceeded.
+ * A failed batch is split in halves that are retried separately, so that only the failing sub-batch
+ * is repeated; each entry is attempted at most maxAttempts times.
+ */
+class LoadPipeline {
+   static final String ENTRIES_PER_SECOND = "Loaded entries/s";
+   static final String MEGABYTES_PER_SECOND = "Loaded MB/s";
+   private static final Log log = LogFactory.getLog(LoadPipeline.class);
+   private static final double MEGABYTE = 1024 * 1024;
+
+   private final int maxInFlight;
+   private final int maxBatchSize;
+   private final long targetLatency;
+   private final int maxAttempts;
+   private final long waitOnError;
+   private final boolean remove;
+   private final Listener listener;
+   private final Timeline timeline;
+   private final Semaphore inFlight;
+   private final ExecutorService submitters;
+   private final ScheduledExecutorService progressReporter;
+   private final AtomicInteger batchSize;
+   private final AtomicReference<Throwable> failure = new AtomicReference<>();
+   private final AtomicLong entries = new AtomicLong();
+   private final AtomicLong bytes = new AtomicLong();
+   private long lastEntries;
+   private long lastBytes;
+   private long lastReport;
+
+   /**
+    * @param targetLatency Target duration of one batch in nanoseconds, or 0 to keep the batch size fixed.
+    */
+   LoadPipeline(int maxInFlight, int batchSize, int maxBatchSize, long targetLatency, int maxAttempts, long waitOnError,
+                boolean remove, Listener listener, Timeline timeline, long progressPeriod) {
+      this.maxInFlight = maxInFlight;
+      this.maxBatchSize = maxBatchSize;
+      this.targetLatency = targetLatency;
+      this.maxAttempts = maxAttempts;
+      this.waitOnError = waitOnError;
+      this.remove = remove;
+      this.listener = listener;
+      this.timeline = timeline;
+      this.batchSize = new AtomicInteger(batchSize);
+      this.inFlight = new Semaphore(maxInFlight);
+      AtomicInteger threadCounter = new AtomicInteger();
+      this.submitters = Executors.newFixedThreadPool(maxInFlight, r -> new Thread(r, "LoadSubmitter-" + threadCounter.getAndIncrement()));
+      this.progressReporter = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "LoadProgress");
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.lastReport = TimeService.currentTimeMillis();
+      addProgress(lastReport, 0, 0);
+      progressReporter.scheduleAtFixedRate(this::reportProgress, progressPeriod, progressPeriod, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * @return Number of entries the next batch should contain.
+    */
+   int batchSize() {
+      return batchSize.get();
+   }
+
+   /**
+    * Hands the batch over to a submitter, blocking while the maximum of batches is in flight.
+    */
+   void submit(BulkOperations.Cache<Object, Object> cache, Map<Object, Object> batch, long batchBytes) throws InterruptedException {
+      inFlight.acquire();
+      Throwable t = failure.get();
+      if (t != null) {
+         inFlight.release();
+         throw new IllegalStateException("Loading failed", t);
+      }
+      submitters.execute(() -> {
+         try {
+            execute(cache, batch, 0);
+            entries.addAndGet(batch.size());
+            bytes.addAndGet(batchBytes);
+            listener.loaded(batch.size(), batchBytes);
+         } catch (Throwable e) {
+            log.error("Failed to " + (remove ? "remove" : "insert") + " batch of " + batch.size() + " entries", e);
+            failure.compareAndSet(null, e);
+         } finally {
+            inFlight.release();
+         }
+      });
+   }
+
+   /**
+    * Waits until all submitted batches are completed.
+    */
+   void finish() throws Exception {
+      try {
+         inFlight.acquire(maxInFlight);
+         inFlight.release(maxInFlight);
+      } finally {
+         shutdown();
+      }
+      Throwable t = failure.get();
+      if (t != null) {
+         throw new IllegalStateException("Loading failed", t);
+      }
+   }
+
+   void shutdown() {
+      submitters.shutdownNow();
+      progressReporter.shutdownNow();
+      reportProgress();
+      addProgress(TimeService.currentTimeMillis(), 0, 0);
+   }
+
+   private void execute(BulkOperations.Cache<Object, Object> cache, Map<Object, Object> batch, int attempt) {
+      long start = TimeService.nanoTime();
+      try {
+         if (remove) {
+            cache.removeAll(batch.keySet());
+         } else {
+            cache.putAll(batch);
+         }
+      } catch (RuntimeException e) {
+         if (attempt + 1 >= maxAttempts) {
+            throw new RuntimeException(String.format("Failed to %s batch of %d entries %d times.",
+               remove ? "remove" : "insert", batch.size(), maxAttempts), e);
+         }
+         log.warnf(e, "Attempt %d/%d to %s batch of %d entries failed, waiting %d ms before next attempt",
+            attempt + 1, maxAttempts, remove ? "remove" : "insert", batch.size(), waitOnError);
+         Utils.sleep(waitOnError);
+         if (batch.size() == 1) {
+            execute(cache, batch, attempt + 1);
+         } else {
+            for (Map<Object, Object> half : split(batch)) {
+               execute(cache, half, attempt + 1);
+            }
+         }
+         return;
+      }
+      // failed attempts and waiting after these do not tell how long the batch takes
+      adapt(batch.size(), TimeService.nanoTime() - start);
+   }
+
+   private static List<Map<Object, Object>> split(Map<Object, Object> batch) {
+      int half = batch.size() / 2;
+      Map<Object, Object> first = new HashMap<>(half * 2);
+      Map<Object, Object> second = new HashMap<>((batch.size() - half) * 2);
+      Iterator<Map.Entry<Object, Object>> iterator = batch.entrySet().iterator();
+      for (int i = 0; iterator.hasNext(); ++i) {
+         Map.Entry<Object, Object> entry = iterator.next();
+         (i < half ? first : second).put(entry.getKey(), entry.getValue());
+      }
+      List<Map<Object, Object>> halves = new ArrayList<>(2);
+      halves.add(first);
+      halves.add(second);
+      return halves;
+   }
+
+   private void adapt(int size, long latency) {
+      if (targetLatency <= 0) {
+         return;
+      }
+      int current = batchSize.get();
+      if (size < current / 2) {
+         // the last batch of a loader is not representative
+         return;
+      }
+      int next;
+      if (latency <= targetLatency) {
+         next = Math.min(maxBatchSize, current + Math.max(1, current / 8));
+      } else {
+         next = Math.max(1, (int) (current * (double) targetLatency / latency));
+      }
+      // concurrent updates may overwrite each other, it does not matter
+      batchSize.compareAndSet(current, next);
+   }
+
+   private synchronized void reportProgress() {
+      long now = TimeService.currentTimeMillis();
+      if (now <= lastReport) {
+         return;
+      }
+      long currentEntries = entries.get();
+      long currentBytes = bytes.get();
+      double seconds = (now - lastReport) / 1000d;
+      addProgress(now, (currentEntries - lastEntries) / seconds, (currentBytes - lastBytes) / MEGABYTE / seconds);
+      lastEntries = currentEntries;
+      lastBytes = currentBytes;
+      lastReport = now;
+   }
+
+   private void addProgress(long timestamp, double entriesPerSecond, double megabytesPerSecond) {
+      if (timeline != null) {
+         timeline.addValue(Timeline.Category.customCategory(ENTRIES_PER_SECOND), new Timeline.Value(timestamp, entriesPerSecond));
+         timeline.addValue(Timeline.Category.customCategory(MEGABYTES_PER_SECOND), new Timeline.Value(timestamp, megabytesPerSecond));
+      }
+   }
+
+   interface Listener {
+      void loaded(long entries, long bytes);
+   }
+}
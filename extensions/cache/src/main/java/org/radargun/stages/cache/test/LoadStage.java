@@ -1,6 +1,7 @@
 package org.radargun.stages.cache.test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -72,6 +73,22 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
    @Property(doc = "Controls whether batch insertion is performed in asychronous way. Default is false (prefer synchronous operations).")
    protected boolean useAsyncBatchLoading = false;
 
+   @Property(doc = "Maximum number of batches in flight on this node. When set, loader threads only generate the batches " +
+      "and hand them over to this number of submitter threads, blocking when all submitters are busy. " +
+      "Requires batchSize > 0, does not support transactions. Default is 0 (each loader executes its batches).")
+   protected int maxInFlightBatches = 0;
+
+   @Property(doc = "Target duration of one batch in pipelined loading. When set, the batch size is adapted " +
+      "according to measured latency, starting at batchSize. Default is 0 (fixed batch size).", converter = TimeConverter.class)
+   protected long targetBatchLatency = 0;
+
+   @Property(doc = "Upper bound for adaptive batch size. Default is 10 * batchSize.")
+   protected int maxBatchSize = 0;
+
+   @Property(doc = "Period of recording loaded entries/s and MB/s into the timeline during pipelined loading. Default is 1 second.",
+      converter = TimeConverter.class)
+   protected long progressPeriod = 1000;
+
    @InjectTrait(dependency = InjectTrait.Dependency.MANDATORY)
    protected BasicOperations basicOperations;
 
@@ -81,6 +98,8 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
    @InjectTrait
    protected Transactional transactional;
 
+   protected LoadPipeline pipeline;
+
    @Override
    protected void prepare() {
       if (useTransactions == TransactionMode.ALWAYS) {
@@ -94,6 +113,34 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
       slaveState.put(KeyGenerator.KEY_GENERATOR, keyGenerator);
       slaveState.put(ValueGenerator.VALUE_GENERATOR, valueGenerator);
       slaveState.put(CacheSelector.CACHE_SELECTOR, cacheSelector);
+
+      if (maxInFlightBatches > 0) {
+         if (batchSize <= 0 || bulkOperations == null) {
+            throw new IllegalStateException("Pipelined loading requires batchSize > 0 and service supporting bulk operations");
+         }
+         pipeline = new LoadPipeline(maxInFlightBatches, batchSize, maxBatchSize > 0 ? maxBatchSize : 10 * batchSize,
+            TimeUnit.MILLISECONDS.toNanos(targetBatchLatency), maxLoadAttempts, waitOnError, remove,
+            (entries, size) -> logLoaded(entries, size, remove), slaveState.getTimeline(), progressPeriod);
+      }
+   }
+
+   @Override
+   protected void stopLoaders(List<Loader> loaders) throws Exception {
+      if (pipeline == null) {
+         super.stopLoaders(loaders);
+         return;
+      }
+      // the stage instance may be reused
+      LoadPipeline pipeline = this.pipeline;
+      try {
+         super.stopLoaders(loaders);
+      } catch (Exception e) {
+         pipeline.shutdown();
+         throw e;
+      } finally {
+         this.pipeline = null;
+      }
+      pipeline.finish();
    }
 
    protected Loader createLoader(int threadBase, int threadIndex) {
@@ -102,7 +149,12 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
       int totalThreads = (loadAllKeys ? 1 : getExecutingSlaves().size()) * numThreads;
       int globalThreadIndex = loadAllKeys ? threadIndex : threadBase + threadIndex;
       LoaderIds loaderIds = new RangeIds(keyIdOffset + numEntries * globalThreadIndex / totalThreads, keyIdOffset + numEntries * (globalThreadIndex + 1) / totalThreads);
-      if (batchSize > 0) {
+      if (pipeline != null) {
+         if (useTransactions) {
+            throw new IllegalStateException("Pipelined loading does not support transactions");
+         }
+         return new PipelinedLoader(threadIndex, loaderIds);
+      } else if (batchSize > 0) {
          if (batchSize > 0 && bulkOperations == null) {
             throw new IllegalArgumentException("Bulk operations have been enabled, but they are not supported by current service");
          }
@@ -357,6 +409,51 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
       }
    }
 
+   /**
+    * Generates batches of entries and hands them over to the pipeline.
+    */
+   private class PipelinedLoader extends CacheLoader {
+      private final BulkOperations.Cache<Object, Object> cache;
+
+      public PipelinedLoader(int index, LoaderIds loaderIds) {
+         super(index, loaderIds);
+         String cacheName = cacheSelector.getCacheName(threadIndex);
+         cache = bulkOperations.getCache(cacheName, useAsyncBatchLoading);
+      }
+
+      @Override
+      protected boolean loadDataUnit() {
+         int batchSize = pipeline.batchSize();
+         Map<Object, Object> entryMap = new HashMap<>(batchSize * 2);
+         long totalSize = 0;
+         boolean finished = false;
+         while (entryMap.size() < batchSize) {
+            delayRequest(start, TimeService.nanoTime(), loaderIds.currentKeyIndex());
+            long keyId = loaderIds.next();
+            if (keyId < 0) {
+               finished = true;
+               break;
+            }
+            int size = entrySize.next(random);
+            Object key = keyGenerator.generateKey(keyId);
+            entryMap.put(key, valueGenerator.generateValue(key, size, random));
+            totalSize += size;
+         }
+         if (!entryMap.isEmpty()) {
+            try {
+               pipeline.submit(cache, entryMap, totalSize);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new IllegalStateException("Interrupted when submitting batch", e);
+            }
+         }
+         if (finished) {
+            log.info(String.format("Finished %s entries", remove ? "removing" : "loading"));
+         }
+         return !finished;
+      }
+   }
+
    private class TxLoader extends CacheTxLoader {
       private final BasicOperations.Cache<Object, Object> nonTxCache;
       private BasicOperations.Cache cache;
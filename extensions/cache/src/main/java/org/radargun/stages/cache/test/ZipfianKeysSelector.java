@@ -0,0 +1,133 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+
+/**
+ * Selects keys from a fixed set shared by all threads with Zipf distribution: key with rank k
+ * is selected with probability proportional to 1 / (k + 1)^exponent. Without scrambling the rank is
+ * used as key index directly, therefore the hottest keys are those with lowest indices.
+ */
+public class ZipfianKeysSelector implements KeySelector {
+   private final Random random;
+   private final ZipfianSampler sampler;
+   private final Permutation permutation;
+
+   public ZipfianKeysSelector(Random random, long numEntries, double exponent, boolean scrambled) {
+      this.random = random;
+      this.sampler = new ZipfianSampler(numEntries, exponent);
+      this.permutation = scrambled ? new Permutation(numEntries) : null;
+   }
+
+   @Override
+   public long next() {
+      long rank = sampler.next(random);
+      return permutation == null ? rank : permutation.apply(rank);
+   }
+
+   /**
+    * Pseudo-random bijection on [0, size): Feistel network on the smallest domain of 2^(2n) elements
+    * that contains the range, with cycle-walking for values outside the range. Depends only on the size,
+    * therefore all threads and slaves use the same permutation.
+    */
+   static class Permutation {
+      private static final int ROUNDS = 4;
+      private final long size;
+      private final int halfBits;
+      private final long halfMask;
+      private final long[] roundKeys = new long[ROUNDS];
+
+      Permutation(long size) {
+         this.size = size;
+         int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(size - 1));
+         this.halfBits = (bits + 1) / 2;
+         this.halfMask = (1L << halfBits) - 1;
+         for (int i = 0; i < ROUNDS; ++i) {
+            roundKeys[i] = mix(size * ROUNDS + i);
+         }
+      }
+
+      long apply(long value) {
+         // the range covers at least quarter of the domain, so the expected number of iterations is below 4
+         do {
+            value = permute(value);
+         } while (value >= size);
+         return value;
+      }
+
+      private long permute(long value) {
+         long left = value >>> halfBits;
+         long right = value & halfMask;
+         for (int i = 0; i < ROUNDS; ++i) {
+            long next = left ^ (mix(right ^ roundKeys[i]) & halfMask);
+            left = right;
+            right = next;
+         }
+         return (left << halfBits) | right;
+      }
+
+      /**
+       * Murmur3 64-bit finalizer
+       */
+      private static long mix(long h) {
+         h ^= h >>> 33;
+         h *= 0xff51afd7ed558ccdL;
+         h ^= h >>> 33;
+         h *= 0xc4ceb9fe1a85ec53L;
+         h ^= h >>> 33;
+         return h;
+      }
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "zipfian-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "The keys are selected using Zipf distribution, keys with lowest indices being the most frequent.")
+   public static class Factory implements KeySelectorFactory {
+      @Property(doc = "Total number of key-value entries.", optional = false)
+      protected long numEntries = 0;
+
+      @Property(doc = "Exponent of the distribution; higher values mean higher skew. Default is 0.99.")
+      protected double exponent = 0.99;
+
+      @Init
+      public void init() {
+         if (numEntries <= 0) {
+            throw new IllegalStateException("Number of entries must be positive.");
+         }
+         if (exponent <= 0) {
+            throw new IllegalStateException("Exponent must be positive.");
+         }
+      }
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         return new ZipfianKeysSelector(random, numEntries, exponent, false);
+      }
+
+      @Override
+      public String toString() {
+         return ZipfianKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "scrambled-zipfian-keys", doc = "Same as zipfian-keys, but the popular keys are spread over the whole key set " +
+      "using pseudo-random permutation of key indices.")
+   public static class ScrambledFactory extends Factory {
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         return new ZipfianKeysSelector(random, numEntries, exponent, true);
+      }
+
+      @Override
+      public String toString() {
+         return ZipfianKeysSelector.class.getSimpleName() + "(scrambled)" + PropertyHelper.toString(this);
+      }
+   }
+}
@@ -0,0 +1,91 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+/**
+ * Samples ranks from Zipf distribution over [0, numElements) with constant expected time and no
+ * precomputed tables, using rejection-inversion method from W. Hoermann, G. Derflinger:
+ * Rejection-inversion to generate variates from monotone discrete distributions (1996).
+ *
+ * Probability of rank k is proportional to 1 / (k + 1)^exponent. The sampler is immutable
+ * and can be shared among threads.
+ */
+final class ZipfianSampler {
+   private final long numElements;
+   private final double exponent;
+   private final double hIntegralX1;
+   private final double hIntegralNumElements;
+   private final double s;
+
+   ZipfianSampler(long numElements, double exponent) {
+      if (numElements <= 0) {
+         throw new IllegalArgumentException("Number of elements must be positive: " + numElements);
+      }
+      if (exponent <= 0) {
+         throw new IllegalArgumentException("Exponent must be positive: " + exponent);
+      }
+      this.numElements = numElements;
+      this.exponent = exponent;
+      this.hIntegralX1 = hIntegral(1.5) - 1;
+      this.hIntegralNumElements = hIntegral(numElements + 0.5);
+      this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+   }
+
+   /**
+    * @return Rank in [0, numElements), rank 0 being the most frequent.
+    */
+   long next(Random random) {
+      for (;;) {
+         double u = hIntegralNumElements + random.nextDouble() * (hIntegralX1 - hIntegralNumElements);
+         double x = hIntegralInverse(u);
+         long k = (long) (x + 0.5);
+         if (k < 1) {
+            k = 1;
+         } else if (k > numElements) {
+            k = numElements;
+         }
+         // the first condition accepts most samples without computing hIntegral
+         if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+            return k - 1;
+         }
+      }
+   }
+
+   private double h(double x) {
+      return Math.exp(-exponent * Math.log(x));
+   }
+
+   private double hIntegral(double x) {
+      double logX = Math.log(x);
+      return helper2((1 - exponent) * logX) * logX;
+   }
+
+   private double hIntegralInverse(double x) {
+      double t = x * (1 - exponent);
+      if (t < -1) {
+         // limit the value to the domain of log1p in case of rounding errors
+         t = -1;
+      }
+      return Math.exp(helper1(t) * x);
+   }
+
+   /**
+    * @return log(1 + x) / x, with Taylor series close to zero
+    */
+   private static double helper1(double x) {
+      if (Math.abs(x) > 1e-8) {
+         return Math.log1p(x) / x;
+      }
+      return 1 - x * (0.5 - x * (1d / 3 - 0.25 * x));
+   }
+
+   /**
+    * @return (exp(x) - 1) / x, with Taylor series close to zero
+    */
+   private static double helper2(double x) {
+      if (Math.abs(x) > 1e-8) {
+         return Math.expm1(x) / x;
+      }
+      return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+   }
+}
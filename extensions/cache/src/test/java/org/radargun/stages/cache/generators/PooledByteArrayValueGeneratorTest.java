@@ -0,0 +1,40 @@
+package org.radargun.stages.cache.generators;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class PooledByteArrayValueGeneratorTest {
+
+   public void testCheckValue() {
+      PooledByteArrayValueGenerator generator = new PooledByteArrayValueGenerator();
+      Random random = new Random(42);
+      for (int i = 0; i < 100; ++i) {
+         String key = "key" + i;
+         byte[] value = (byte[]) generator.generateValue(key, 1000, random);
+         assertEquals(generator.sizeOf(value), 1000);
+         assertTrue(generator.checkValue(value, key, 1000));
+         assertFalse(generator.checkValue(value, key, 999));
+         assertFalse(generator.checkValue(value, "other" + i, 1000));
+         value[i] ^= 1;
+         assertFalse(generator.checkValue(value, key, 1000));
+      }
+   }
+
+   public void testSameContentOnAnotherNode() {
+      byte[] key = new byte[] { 1, 2, 3 };
+      byte[] value = (byte[]) new PooledByteArrayValueGenerator().generateValue(key, 100, new Random());
+      assertTrue(new PooledByteArrayValueGenerator().checkValue(value, new byte[] { 1, 2, 3 }, 100));
+   }
+
+   public void testValueLargerThanPool() {
+      PooledByteArrayValueGenerator generator = new PooledByteArrayValueGenerator();
+      byte[] value = (byte[]) generator.generateValue("key", 40 * 1024 * 1024, new Random());
+      assertTrue(generator.checkValue(value, "key", value.length));
+   }
+}
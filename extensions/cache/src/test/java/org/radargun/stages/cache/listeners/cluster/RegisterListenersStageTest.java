@@ -5,10 +5,17 @@ import java.util.List;
 
 import org.radargun.DistStageAck;
 import org.radargun.StageResult;
+import org.radargun.reporting.Timeline;
+import org.radargun.stages.cache.generators.TimestampValueGenerator;
 import org.radargun.state.SlaveState;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.traits.CacheListeners;
 import org.radargun.traits.Lifecycle;
 import org.radargun.util.CacheStageRunner;
 import org.radargun.util.CacheTraitRepository;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -59,4 +66,99 @@ public class RegisterListenersStageTest {
       Assert.assertEquals(stageRunner.processAckOnMaster(registerListenersStage, acks), StageResult.SUCCESS);
 
    }
+
+   public void notificationLagTest() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+      RegisterListenersStage registerListenersStage = new RegisterListenersStage();
+      registerListenersStage.registerListeners = true;
+      Utils.setField(RegisterListenersStage.class, "lagSamplePeriod", registerListenersStage, 100L);
+      stageRunner.executeOnSlave(registerListenersStage, 0);
+
+      SlaveState slaveState = stageRunner.getSlaveState();
+      CacheListeners.CreatedListener listener = (CacheListeners.CreatedListener) slaveState.get(CacheTraitRepository.CacheListeners.CREATED.name);
+      listener.created("key", new TimestampValueGenerator.TimestampValue(TimeService.currentTimeMillis() - 10, new byte[10]));
+      // not timestamped
+      listener.created("key", new byte[10]);
+
+      Statistics statistics = (Statistics) slaveState.get(RegisterListenersStage.class.getName() + ".Stats");
+      DefaultOutcome outcome = statistics.getRepresentation(CacheTraitRepository.CacheListeners.CREATED.name, DefaultOutcome.class);
+      Assert.assertEquals(outcome.requests, 1);
+      Assert.assertEquals(outcome.errors, 0);
+      Assert.assertTrue(outcome.responseTimeMax >= 10_000_000, String.valueOf(outcome.responseTimeMax));
+
+      registerListenersStage.registerListeners = false;
+      registerListenersStage.unregisterListeners = true;
+      stageRunner.executeOnSlave(registerListenersStage, 0);
+      Assert.assertNull(slaveState.get(NotificationLagSampler.class.getName()));
+   }
+
+   public void sharedSamplerTest() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+      RegisterListenersStage first = new RegisterListenersStage();
+      first.registerListeners = true;
+      Utils.setField(RegisterListenersStage.class, "lagSamplePeriod", first, 60_000L);
+      stageRunner.executeOnSlave(first, 0);
+
+      SlaveState slaveState = stageRunner.getSlaveState();
+      NotificationLagSampler sampler = (NotificationLagSampler) slaveState.get(NotificationLagSampler.class.getName());
+      Assert.assertNotNull(sampler);
+
+      // another stage registering listeners records the lag into the running sampler
+      RegisterListenersStage second = new RegisterListenersStage();
+      second.registerListeners = true;
+      Utils.setField(RegisterListenersStage.class, "lagSamplePeriod", second, 60_000L);
+      stageRunner.executeOnSlave(second, 0);
+      Assert.assertSame(slaveState.get(NotificationLagSampler.class.getName()), sampler);
+
+      CacheListeners.CreatedListener listener = (CacheListeners.CreatedListener) slaveState.get(CacheTraitRepository.CacheListeners.CREATED.name);
+      listener.created("key", new TimestampValueGenerator.TimestampValue(TimeService.currentTimeMillis() - 10, new byte[10]));
+      sampler.run();
+      List<Timeline.Value> maxLag = slaveState.getTimeline().getValues(Timeline.Category.customCategory("Listener lag max (ms)"));
+      Assert.assertNotNull(maxLag);
+      Assert.assertEquals(maxLag.size(), 1);
+      Assert.assertTrue(maxLag.get(0).value.longValue() >= 10, String.valueOf(maxLag.get(0)));
+
+      second.registerListeners = false;
+      second.unregisterListeners = true;
+      stageRunner.executeOnSlave(second, 0);
+      Assert.assertNull(slaveState.get(NotificationLagSampler.class.getName()));
+   }
+
+   public void skippedLagSamplesTest() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+      RegisterListenersStage stage = new RegisterListenersStage();
+      stage.registerListeners = true;
+      Utils.setField(RegisterListenersStage.class, "lagSamplePeriod", stage, 60_000L);
+      stageRunner.executeOnSlave(stage, 0);
+
+      SlaveState slaveState = stageRunner.getSlaveState();
+      NotificationLagSampler sampler = (NotificationLagSampler) slaveState.get(NotificationLagSampler.class.getName());
+      CacheListeners.CreatedListener listener = (CacheListeners.CreatedListener) slaveState.get(CacheTraitRepository.CacheListeners.CREATED.name);
+      listener.created("key", new TimestampValueGenerator.TimestampValue(TimeService.currentTimeMillis() - 10, new byte[10]));
+      // written on a node with clock ahead of this one
+      listener.created("key", new TimestampValueGenerator.TimestampValue(TimeService.currentTimeMillis() + 60_000, new byte[10]));
+      listener.created("key", new TimestampValueGenerator.TimestampValue(0, new byte[10]));
+      sampler.run();
+
+      Timeline timeline = slaveState.getTimeline();
+      List<Timeline.Value> skipped = timeline.getValues(Timeline.Category.customCategory("Listener lag samples skipped"));
+      Assert.assertNotNull(skipped);
+      Assert.assertEquals(skipped.get(0).value.longValue(), 2);
+      List<Timeline.Value> meanLag = timeline.getValues(Timeline.Category.customCategory("Listener lag mean (ms)"));
+      Assert.assertTrue(meanLag.get(0).value.doubleValue() >= 10, String.valueOf(meanLag.get(0)));
+      Assert.assertTrue(meanLag.get(0).value.doubleValue() < 60_000, String.valueOf(meanLag.get(0)));
+      // invalid timestamp is not recorded as lag, received before sent is an error
+      Statistics statistics = (Statistics) slaveState.get(RegisterListenersStage.class.getName() + ".Stats");
+      DefaultOutcome outcome = statistics.getRepresentation(CacheTraitRepository.CacheListeners.CREATED.name, DefaultOutcome.class);
+      Assert.assertEquals(outcome.requests, 1);
+      Assert.assertEquals(outcome.errors, 1);
+      Assert.assertTrue(outcome.responseTimeMax < 60_000_000_000L, String.valueOf(outcome.responseTimeMax));
+
+      stage.registerListeners = false;
+      stage.unregisterListeners = true;
+      stageRunner.executeOnSlave(stage, 0);
+   }
 }
@@ -5,10 +5,12 @@ import java.util.List;
 
 import org.radargun.DistStageAck;
 import org.radargun.StageResult;
+import org.radargun.reporting.Timeline;
 import org.radargun.traits.BasicOperations;
 import org.radargun.traits.Lifecycle;
 import org.radargun.util.CacheStageRunner;
 import org.radargun.util.CacheTraitRepository;
+import org.radargun.utils.Utils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -33,4 +35,25 @@ public class CacheLoadStageTest {
       Assert.assertEquals(cache.size(), 100);
       Assert.assertEquals(stageRunner.processAckOnMaster(cacheLoadStage, acks), StageResult.SUCCESS);
    }
+
+   public void pipelinedTest() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      Lifecycle lifecycle = stageRunner.getTraitImpl(Lifecycle.class);
+      lifecycle.start();
+
+      LoadStage cacheLoadStage = new LoadStage();
+      Utils.setField(LoadStage.class, "numEntries", cacheLoadStage, 10000);
+      Utils.setField(LoadStage.class, "batchSize", cacheLoadStage, 50);
+      Utils.setField(LoadStage.class, "maxInFlightBatches", cacheLoadStage, 4);
+      Utils.setField(LoadStage.class, "targetBatchLatency", cacheLoadStage, 1);
+      List<DistStageAck> acks = new ArrayList<>(1);
+      acks.add(stageRunner.executeOnSlave(cacheLoadStage, 0));
+      BasicOperations basicOperations = stageRunner.getTraitImpl(BasicOperations.class);
+      CacheTraitRepository.BasicOperationsCache cache = (CacheTraitRepository.BasicOperationsCache) basicOperations.getCache(null);
+
+      Assert.assertEquals(cache.size(), 10000);
+      Assert.assertEquals(stageRunner.processAckOnMaster(cacheLoadStage, acks), StageResult.SUCCESS);
+      Timeline timeline = stageRunner.getSlaveState().getTimeline();
+      Assert.assertFalse(timeline.getValues(Timeline.Category.customCategory(LoadPipeline.ENTRIES_PER_SECOND)).isEmpty());
+   }
 }
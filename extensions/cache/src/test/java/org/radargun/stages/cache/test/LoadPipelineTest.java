@@ -0,0 +1,100 @@
+package org.radargun.stages.cache.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.radargun.traits.BulkOperations;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(timeOut = 30000)
+public class LoadPipelineTest {
+
+   public void testRetrySubBatches() throws Exception {
+      FailingCache cache = new FailingCache("poison", 2);
+      AtomicLong loaded = new AtomicLong();
+      LoadPipeline pipeline = new LoadPipeline(2, 16, 16, 0, 5, 1, false, (entries, bytes) -> loaded.addAndGet(entries), null, 1000);
+      Map<Object, Object> batch = new HashMap<>();
+      for (int i = 0; i < 15; ++i) {
+         batch.put("key" + i, i);
+      }
+      batch.put("poison", -1);
+      pipeline.submit(cache, batch, 16);
+      pipeline.finish();
+      assertEquals(cache.data.size(), 16);
+      assertEquals(loaded.get(), 16);
+      // whole batch, half containing the poisoned key, then its quarter
+      assertEquals(cache.invocations.get(), 1 + 2 + 2);
+   }
+
+   public void testRetryNotCountedInLatency() throws Exception {
+      FailingCache cache = new FailingCache("poison", 1);
+      // target latency of 100 ms, waiting 500 ms after the failure
+      LoadPipeline pipeline = new LoadPipeline(1, 16, 32, TimeUnit.MILLISECONDS.toNanos(100), 3, 500, false,
+         (entries, bytes) -> {}, null, 1000);
+      Map<Object, Object> batch = new HashMap<>();
+      for (int i = 0; i < 15; ++i) {
+         batch.put("key" + i, i);
+      }
+      batch.put("poison", -1);
+      pipeline.submit(cache, batch, 16);
+      pipeline.finish();
+      assertEquals(cache.data.size(), 16);
+      // the halves were inserted quickly, the batch must not shrink due to the wait
+      assertTrue(pipeline.batchSize() >= 16, "Batch size: " + pipeline.batchSize());
+   }
+
+   public void testFailure() throws Exception {
+      FailingCache cache = new FailingCache("poison", Integer.MAX_VALUE);
+      LoadPipeline pipeline = new LoadPipeline(1, 4, 4, 0, 3, 1, false, (entries, bytes) -> {}, null, 1000);
+      Map<Object, Object> batch = new HashMap<>();
+      batch.put("poison", -1);
+      pipeline.submit(cache, batch, 1);
+      try {
+         pipeline.finish();
+         fail("Expected failure");
+      } catch (IllegalStateException e) {
+         assertTrue(e.getCause().getMessage().contains("3 times"), e.getCause().getMessage());
+      }
+      assertEquals(cache.invocations.get(), 3);
+   }
+
+   private static class FailingCache implements BulkOperations.Cache<Object, Object> {
+      private final Object poison;
+      private final AtomicInteger failures;
+      private final AtomicInteger invocations = new AtomicInteger();
+      private final Map<Object, Object> data = new ConcurrentHashMap<>();
+
+      private FailingCache(Object poison, int failures) {
+         this.poison = poison;
+         this.failures = new AtomicInteger(failures);
+      }
+
+      @Override
+      public Map<Object, Object> getAll(Set<Object> keys) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void putAll(Map<Object, Object> entries) {
+         invocations.incrementAndGet();
+         if (entries.containsKey(poison) && failures.getAndDecrement() > 0) {
+            throw new IllegalStateException("Poisoned");
+         }
+         data.putAll(entries);
+      }
+
+      @Override
+      public void removeAll(Set<Object> keys) {
+         throw new UnsupportedOperationException();
+      }
+   }
+}
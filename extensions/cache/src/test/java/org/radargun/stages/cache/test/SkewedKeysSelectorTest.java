@@ -0,0 +1,73 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class SkewedKeysSelectorTest {
+   private static final int SAMPLES = 1_000_000;
+
+   public void testZipfianFrequencies() {
+      int numEntries = 1000;
+      double exponent = 0.99;
+      int[] counts = sample(new ZipfianKeysSelector(new Random(42), numEntries, exponent, false), numEntries);
+      double normalization = 0;
+      for (int k = 1; k <= numEntries; ++k) {
+         normalization += 1 / Math.pow(k, exponent);
+      }
+      for (int rank : new int[] {0, 1, 9, 99}) {
+         double expected = SAMPLES / Math.pow(rank + 1, exponent) / normalization;
+         assertEquals(counts[rank], expected, expected * 0.05 + 50, "rank " + rank);
+      }
+   }
+
+   public void testScrambledIsPermutation() {
+      for (long size : new long[] {1, 2, 3, 1000, 12345}) {
+         ZipfianKeysSelector.Permutation permutation = new ZipfianKeysSelector.Permutation(size);
+         boolean[] seen = new boolean[(int) size];
+         for (long i = 0; i < size; ++i) {
+            long value = permutation.apply(i);
+            assertTrue(value >= 0 && value < size);
+            assertFalse(seen[(int) value], "Duplicate value " + value);
+            seen[(int) value] = true;
+         }
+      }
+      int[] counts = sample(new ZipfianKeysSelector(new Random(42), 1000, 0.99, true), 1000);
+      // the hottest key is the image of rank 0
+      int hottest = 0;
+      for (int i = 0; i < counts.length; ++i) {
+         if (counts[i] > counts[hottest]) hottest = i;
+      }
+      assertEquals(hottest, new ZipfianKeysSelector.Permutation(1000).apply(0));
+   }
+
+   public void testLatest() {
+      int numEntries = 1000;
+      int[] counts = sample(new LatestKeysSelector(new Random(42), numEntries, 0.99, 0, 0), numEntries);
+      assertTrue(counts[numEntries - 1] > counts[numEntries - 2]);
+      assertTrue(counts[numEntries - 2] > counts[0]);
+   }
+
+   public void testHotSet() {
+      int numEntries = 1000;
+      int[] counts = sample(new HotSetKeysSelector(new Random(42), numEntries, 100, 0.9), numEntries);
+      long hot = 0;
+      for (int i = 0; i < 100; ++i) {
+         hot += counts[i];
+      }
+      assertEquals(hot, SAMPLES * 0.9, SAMPLES * 0.01);
+   }
+
+   private static int[] sample(KeySelector selector, int numEntries) {
+      int[] counts = new int[numEntries];
+      for (int i = 0; i < SAMPLES; ++i) {
+         counts[(int) selector.next()]++;
+      }
+      return counts;
+   }
+}
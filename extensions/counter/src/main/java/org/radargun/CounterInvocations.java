@@ -11,6 +11,34 @@ import org.radargun.traits.CounterOperations;
  * @author Martin Gencur
  */
 public class CounterInvocations {
+   public static final class GetValue implements Invocation<Long> {
+      private final CounterOperations.Counter counter;
+
+      public GetValue(CounterOperations.Counter counter) {
+         this.counter = counter;
+      }
+
+      @Override
+      public Long invoke() {
+         try {
+            return counter.getValue();
+         } catch (Exception e) {
+            throw new RuntimeException("Operation " +
+               CounterOperations.GET_VALUE.toString() + "failed", e);
+         }
+      }
+
+      @Override
+      public Operation operation() {
+         return CounterOperations.GET_VALUE;
+      }
+
+      @Override
+      public Operation txOperation() {
+         return CounterOperations.GET_VALUE;
+      }
+   }
+
    public static final class IncrementAndGet implements Invocation<Long> {
       private final CounterOperations.Counter counter;
 
@@ -97,21 +125,37 @@ public class CounterInvocations {
       }
    }
 
+   /**
+    * Successful attempts are recorded as {@link CounterOperations#COMPARE_AND_SET}, attempts that did not
+    * match the expected value as {@link #RETRIED} when the caller is going to retry or as {@link #FAILED}
+    * when it is giving up.
+    */
    public static final class CompareAndSet implements Invocation<Boolean> {
+      public static final Operation RETRIED = CounterOperations.COMPARE_AND_SET.derive("Retried");
+      public static final Operation FAILED = CounterOperations.COMPARE_AND_SET.derive("Failed");
+
       private final CounterOperations.Counter counter;
       private final long expect;
       private final long update;
+      private final boolean retryOnMismatch;
+      private boolean success = true;
 
       public CompareAndSet(CounterOperations.Counter counter, long expect, long update) {
+         this(counter, expect, update, false);
+      }
+
+      public CompareAndSet(CounterOperations.Counter counter, long expect, long update, boolean retryOnMismatch) {
          this.counter = counter;
          this.expect = expect;
          this.update = update;
+         this.retryOnMismatch = retryOnMismatch;
       }
 
       @Override
       public Boolean invoke() {
          try {
-            return counter.compareAndSet(expect, update);
+            success = counter.compareAndSet(expect, update);
+            return success;
          } catch (Exception e) {
             throw new RuntimeException("Operation " +
                CounterOperations.COMPARE_AND_SET.toString() + "failed", e);
@@ -120,7 +164,10 @@ public class CounterInvocations {
 
       @Override
       public Operation operation() {
-         return CounterOperations.COMPARE_AND_SET;
+         if (success) {
+            return CounterOperations.COMPARE_AND_SET;
+         }
+         return retryOnMismatch ? RETRIED : FAILED;
       }
 
       @Override
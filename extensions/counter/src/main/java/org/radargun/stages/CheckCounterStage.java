@@ -6,6 +6,7 @@ import org.radargun.StageResult;
 import org.radargun.config.Namespace;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
+import org.radargun.state.SlaveState;
 import org.radargun.traits.CounterOperations;
 import org.radargun.traits.InjectTrait;
 
@@ -13,18 +14,29 @@ import org.radargun.traits.InjectTrait;
  * Checks the resulting value of the counter on each node. This stage is supposed to
  * be called after {@link CounterTestStage} is finished.
  *
+ * When the expected value is not set, the sum of the counters is compared against the initial value
+ * plus all deltas applied by {@link CounterTestStage}s on all slaves. Therefore, the stage must
+ * be executed on all slaves that executed the test.
+ *
  * @author Martin Gencur
  */
 @Stage(doc = "Stage for checking resulting value of given counter.")
 @Namespace(name = CounterTestStage.NAMESPACE)
 public class CheckCounterStage extends AbstractDistStage {
 
-   @Property(doc = "Expected value of the counter.", optional = false)
-   public long expectedValue;
+   @Property(doc = "Expected value of the counter (sum of the counters if num-counters > 1). By default the value " +
+      "is computed from the operations executed by counter-test stages.")
+   public Long expectedValue;
 
    @Property(doc = "Counter name.", optional = false)
    public String counterName;
 
+   @Property(doc = "Number of counters, should be the same as in the counter-test stage. Default is 1.")
+   public int numCounters = 1;
+
+   @Property(doc = "Initial value of each counter, used when the expected value is not set. Default is 0.")
+   public long initialValue = 0;
+
    @InjectTrait
    protected CounterOperations counterOperations;
 
@@ -34,20 +46,63 @@ public class CheckCounterStage extends AbstractDistStage {
          log.info("Not running test on this slave as service is not running.");
          return successfulResponse();
       }
-      CounterOperations.Counter counter = counterOperations.getCounter(counterName);
+      long value = 0;
       try {
-         long value = counter.getValue();
-         if (value != expectedValue) {
-            return errorResponse("Unexpected value of the counter: " + value + ", expected: " + expectedValue);
+         for (int i = 0; i < numCounters; ++i) {
+            String name = CounterTestStage.counterName(counterName, numCounters, i);
+            value += counterOperations.getCounter(name).getValue();
          }
       } catch (Exception e) {
          return errorResponse("Couldn't get the counter value", e);
       }
-      return successfulResponse();
+      if (expectedValue != null && value != expectedValue) {
+         return errorResponse("Unexpected value of the counter: " + value + ", expected: " + expectedValue);
+      }
+      CounterTestStage.AppliedDeltas applied = (CounterTestStage.AppliedDeltas)
+         slaveState.get(CounterTestStage.AppliedDeltas.key(counterName));
+      return applied == null ? new CounterAck(slaveState, value, 0, 0) : new CounterAck(slaveState, value, applied.min, applied.max);
    }
 
    @Override
    public StageResult processAckOnMaster(List<DistStageAck> acks) {
-      return super.processAckOnMaster(acks);
+      StageResult result = super.processAckOnMaster(acks);
+      if (result.isError() || expectedValue != null) {
+         return result;
+      }
+      long min = numCounters * initialValue;
+      long max = min;
+      for (DistStageAck ack : acks) {
+         if (ack instanceof CounterAck) {
+            min += ((CounterAck) ack).minApplied;
+            max += ((CounterAck) ack).maxApplied;
+         }
+      }
+      for (DistStageAck ack : acks) {
+         if (!(ack instanceof CounterAck)) {
+            continue;
+         }
+         long value = ((CounterAck) ack).value;
+         if (value < min || value > max) {
+            log.errorf("Unexpected value of the counter on slave %d: %d, expected %s", ack.getSlaveIndex(), value,
+               min == max ? String.valueOf(min) : "[" + min + ", " + max + "]");
+            result = errorResult();
+         } else {
+            log.infof("Value of the counter on slave %d is %d", ack.getSlaveIndex(), value);
+         }
+      }
+      return result;
+   }
+
+   private static class CounterAck extends DistStageAck {
+      private final long value;
+      private final long minApplied;
+      private final long maxApplied;
+
+      CounterAck(SlaveState slaveState, long value, long minApplied, long maxApplied) {
+         super(slaveState);
+         this.value = value;
+         this.minApplied = minApplied;
+         this.maxApplied = maxApplied;
+      }
    }
 }
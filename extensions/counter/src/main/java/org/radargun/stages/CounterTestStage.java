@@ -1,9 +1,16 @@
 package org.radargun.stages;
 
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.radargun.CounterInvocations;
+import org.radargun.DistStageAck;
 import org.radargun.Operation;
 import org.radargun.Version;
+import org.radargun.config.Init;
 import org.radargun.config.Namespace;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
@@ -18,6 +25,10 @@ import org.radargun.traits.InjectTrait;
 
 
 /**
+ * Executes operations on one counter or spreads them over several counters. When the operations are spread,
+ * each slave records how much it has added to the counters so that {@link CheckCounterStage} can verify
+ * the sum of all counters.
+ *
  * @author Martin Gencur
  */
 @Namespace(name = CounterTestStage.NAMESPACE)
@@ -36,18 +47,131 @@ public class CounterTestStage extends TestStage {
    @Property(doc = "Operation to test. Default is INCREMENT_AND_GET.")
    protected OperationName operationName = OperationName.INCREMENT_AND_GET;
 
-   @Property(doc = "Delta to add for addAndGet operation. Default is 1.")
+   @Property(doc = "Delta to add for addAndGet and compareAndSet operation. Default is 1.")
    protected long delta = 1;
 
+   @Property(doc = "Number of counters the operations are spread over. When greater than 1, the counters are named " +
+      "<counter-name>-0 ... <counter-name>-(N-1). Default is 1.")
+   protected int numCounters = 1;
+
+   @Property(doc = "Distribution used for picking the counter for each operation. Default is UNIFORM.")
+   protected Distribution distribution = Distribution.UNIFORM;
+
+   @Property(doc = "Exponent of the ZIPFIAN distribution; counter-0 is the hottest one. Default is 0.99.")
+   protected double zipfExponent = 0.99;
+
+   @Property(doc = "Ratio of INCREMENT_AND_GET operations. When all ratios are 0, operation-name is used. Default is 0.")
+   protected int incrementAndGetRatio = 0;
+
+   @Property(doc = "Ratio of DECREMENT_AND_GET operations. Default is 0.")
+   protected int decrementAndGetRatio = 0;
+
+   @Property(doc = "Ratio of ADD_AND_GET operations. Default is 0.")
+   protected int addAndGetRatio = 0;
+
+   @Property(doc = "Ratio of COMPARE_AND_SET operations. Default is 0.")
+   protected int compareAndSetRatio = 0;
+
+   @Property(doc = "Maximum number of retries when compareAndSet does not match the expected value. After each " +
+      "mismatch the current value is read and expected by the retry or the next operation. Retries are recorded " +
+      "as CompareAndSet.Retried, unsuccessful attempts without further retry as CompareAndSet.Failed. " +
+      "Default is 0 (no retries).")
+   protected int casMaxRetries = 0;
+
    enum OperationName {
       INCREMENT_AND_GET, DECREMENT_AND_GET, ADD_AND_GET, COMPARE_AND_SET
    }
 
+   enum Distribution {
+      UNIFORM, ZIPFIAN
+   }
+
    @InjectTrait
    protected CounterOperations counterOperations;
 
+   // cumulative probabilities of selecting counters, null for uniform distribution
+   private double[] counterCdf;
+   // each operation returns a value different from the previous one only when all operations move the counter
+   // in the same direction; otherwise concurrent operations may legitimately return the same value
+   private boolean monotonic;
+   // bounds of the sum of deltas applied by this stage: failed requests may or may not have been applied
+   private final LongAdder minApplied = new LongAdder();
+   private final LongAdder maxApplied = new LongAdder();
+
+   @Init
+   public void initCounters() {
+      if (numCounters < 1) throw new IllegalStateException("Number of counters must be >= 1");
+      if (casMaxRetries < 0) throw new IllegalStateException("Number of CAS retries can't be < 0");
+      if (distribution == Distribution.ZIPFIAN && numCounters > 1) {
+         if (zipfExponent <= 0) throw new IllegalStateException("Zipf exponent must be positive");
+         counterCdf = new double[numCounters];
+         double sum = 0;
+         for (int i = 0; i < numCounters; ++i) {
+            sum += Math.pow(i + 1, -zipfExponent);
+            counterCdf[i] = sum;
+         }
+         for (int i = 0; i < numCounters; ++i) {
+            counterCdf[i] /= sum;
+         }
+      }
+      OperationName single = getSingleOperation();
+      monotonic = numCounters == 1 && (single == OperationName.INCREMENT_AND_GET
+         || single == OperationName.DECREMENT_AND_GET || (single == OperationName.ADD_AND_GET && delta != 0));
+   }
+
+   /**
+    * @return The only operation executed by this stage, or null if the stage executes a mix of operations.
+    */
+   private OperationName getSingleOperation() {
+      // in the order of OperationName
+      int[] ratios = {incrementAndGetRatio, decrementAndGetRatio, addAndGetRatio, compareAndSetRatio};
+      OperationName single = null;
+      for (int i = 0; i < ratios.length; ++i) {
+         if (ratios[i] > 0) {
+            if (single != null) {
+               return null;
+            }
+            single = OperationName.values()[i];
+         }
+      }
+      return single == null ? operationName : single;
+   }
+
+   /**
+    * @return Name of the counter with given index.
+    */
+   static String counterName(String counterName, int numCounters, int index) {
+      return numCounters == 1 ? counterName : counterName + "-" + index;
+   }
+
+   @Override
+   public DistStageAck executeOnSlave() {
+      DistStageAck ack = super.executeOnSlave();
+      long min = minApplied.sumThenReset();
+      long max = maxApplied.sumThenReset();
+      if (min != 0 || max != 0) {
+         String key = AppliedDeltas.key(counterName);
+         AppliedDeltas applied = (AppliedDeltas) slaveState.get(key);
+         if (applied == null) {
+            applied = new AppliedDeltas(numCounters);
+         } else if (applied.numCounters != numCounters) {
+            log.warnf("Number of counters changed from %d to %d, check of the sum may fail", applied.numCounters, numCounters);
+         }
+         slaveState.put(key, applied.add(min, max));
+      }
+      return ack;
+   }
+
    @Override
    protected OperationSelector createOperationSelector() {
+      if (incrementAndGetRatio > 0 || decrementAndGetRatio > 0 || addAndGetRatio > 0 || compareAndSetRatio > 0) {
+         return new RatioOperationSelector.Builder()
+            .add(CounterOperations.INCREMENT_AND_GET, incrementAndGetRatio)
+            .add(CounterOperations.DECREMENT_AND_GET, decrementAndGetRatio)
+            .add(CounterOperations.ADD_AND_GET, addAndGetRatio)
+            .add(CounterOperations.COMPARE_AND_SET, compareAndSetRatio)
+            .build();
+      }
       switch (operationName) {
          case INCREMENT_AND_GET:
             return new RatioOperationSelector.Builder().add(CounterOperations.INCREMENT_AND_GET, 1).build();
@@ -66,57 +190,134 @@ public class CounterTestStage extends TestStage {
       return new CounterLogic();
    }
 
+   /**
+    * Sum of deltas applied to the counters by operations executed on this slave, stored in slave state.
+    */
+   static class AppliedDeltas implements Serializable {
+      final int numCounters;
+      final long min;
+      final long max;
+
+      AppliedDeltas(int numCounters) {
+         this(numCounters, 0, 0);
+      }
+
+      private AppliedDeltas(int numCounters, long min, long max) {
+         this.numCounters = numCounters;
+         this.min = min;
+         this.max = max;
+      }
+
+      static String key(String counterName) {
+         return AppliedDeltas.class.getName() + "." + counterName;
+      }
+
+      AppliedDeltas add(long min, long max) {
+         return new AppliedDeltas(numCounters, this.min + min, this.max + max);
+      }
+   }
+
    protected class CounterLogic extends OperationLogic {
-      private CounterOperations.Counter counter;
-      private long previousValue;
+      private CounterOperations.Counter[] counters;
+      private long[] previousValues;
+      private Random random;
 
       public CounterLogic() {
-         this.previousValue = initialValue;
+         this.previousValues = new long[numCounters];
+         Arrays.fill(previousValues, initialValue);
       }
 
       @Override
       public void init(Stressor stressor) {
          super.init(stressor);
-         this.counter = counterOperations.getCounter(counterName);
+         this.counters = new CounterOperations.Counter[numCounters];
+         for (int i = 0; i < numCounters; ++i) {
+            counters[i] = counterOperations.getCounter(counterName(counterName, numCounters, i));
+         }
+         this.random = stressor.getRandom();
          log.warn("Transactions ignored for Counter operations!");
          stressor.setUseTransactions(false);//transactions for counter do not make sense
       }
 
       @Override
       public void run(Operation operation) throws RequestException {
+         int index = selectCounter();
+         CounterOperations.Counter counter = counters[index];
          if (operation == CounterOperations.INCREMENT_AND_GET) {
             Invocation<Long> invocation = new CounterInvocations.IncrementAndGet(counter);
-            long currentValue = stressor.makeRequest(invocation);
-            if (currentValue == previousValue) {
-               throw new IllegalStateException("Inconsistent counter! Expected greater than " + previousValue);
+            long currentValue = makeRequest(invocation, 1);
+            if (monotonic && currentValue == previousValues[index]) {
+               throw new IllegalStateException("Inconsistent counter! Expected greater than " + previousValues[index]);
             } else {
-               previousValue = currentValue;
+               previousValues[index] = currentValue;
             }
          } else if (operation == CounterOperations.DECREMENT_AND_GET) {
             Invocation<Long> invocation = new CounterInvocations.DecrementAndGet(counter);
-            long currentValue = stressor.makeRequest(invocation);
-            if (currentValue == previousValue) {
-               throw new IllegalStateException("Inconsistent counter! Expected lesser than " + previousValue);
+            long currentValue = makeRequest(invocation, -1);
+            if (monotonic && currentValue == previousValues[index]) {
+               throw new IllegalStateException("Inconsistent counter! Expected lesser than " + previousValues[index]);
             } else {
-               previousValue = currentValue;
+               previousValues[index] = currentValue;
             }
          } else if (operation == CounterOperations.ADD_AND_GET) {
             Invocation<Long> invocation = new CounterInvocations.AddAndGet(counter, delta);
-            long currentValue = stressor.makeRequest(invocation);
-            if (currentValue == previousValue) {
+            long currentValue = makeRequest(invocation, delta);
+            if (monotonic && currentValue == previousValues[index]) {
                throw new IllegalStateException("Inconsistent counter! Expected value different from previous.");
             } else {
-               previousValue = currentValue;
+               previousValues[index] = currentValue;
             }
          } else if (operation == CounterOperations.COMPARE_AND_SET) {
-            long expectedValue = previousValue;
-            long update = previousValue + 1;
-            Invocation<Boolean> invocation = new CounterInvocations.CompareAndSet(counter, expectedValue, update);
-            stressor.makeRequest(invocation);
-            previousValue = update;
+            long expectedValue = previousValues[index];
+            for (int attempt = 0; ; ++attempt) {
+               boolean retry = attempt < casMaxRetries;
+               long update = expectedValue + delta;
+               Invocation<Boolean> invocation = new CounterInvocations.CompareAndSet(counter, expectedValue, update, retry);
+               if (makeRequest(invocation, delta)) {
+                  previousValues[index] = update;
+                  return;
+               }
+               // the counter has been modified elsewhere, without reading it all further attempts would fail, too
+               expectedValue = stressor.makeRequest(new CounterInvocations.GetValue(counter));
+               previousValues[index] = expectedValue;
+               if (!retry) {
+                  return;
+               }
+            }
          } else {
             throw new IllegalArgumentException(operation.name);
          }
       }
+
+      private int selectCounter() {
+         if (numCounters == 1) {
+            return 0;
+         } else if (counterCdf == null) {
+            return random.nextInt(numCounters);
+         }
+         int index = Arrays.binarySearch(counterCdf, random.nextDouble());
+         // the value is not found (practically) ever; insertion point is the selected counter
+         return Math.min(index < 0 ? -index - 1 : index, numCounters - 1);
+      }
+
+      private <T> T makeRequest(Invocation<T> invocation, long delta) throws RequestException {
+         T result;
+         try {
+            result = stressor.makeRequest(invocation);
+         } catch (RequestException e) {
+            // we don't know if the operation has been applied
+            if (delta > 0) {
+               maxApplied.add(delta);
+            } else {
+               minApplied.add(delta);
+            }
+            throw e;
+         }
+         if (!Boolean.FALSE.equals(result)) {
+            minApplied.add(delta);
+            maxApplied.add(delta);
+         }
+         return result;
+      }
    }
 }
@@ -0,0 +1,114 @@
+package org.radargun.stages;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.radargun.CounterInvocations;
+import org.radargun.DistStageAck;
+import org.radargun.Operation;
+import org.radargun.StageResult;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.traits.CounterOperations;
+import org.radargun.traits.Lifecycle;
+import org.radargun.util.CounterStageRunner;
+import org.radargun.util.CounterTraitRepository;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(timeOut = 30000)
+public class CounterTestStageTest {
+   private static final String COUNTER = "counter";
+
+   public void testCasRetry() throws Exception {
+      CounterStageRunner runner = new CounterStageRunner(1);
+      CounterTraitRepository.Counter counter = getCounter(runner);
+      // every other attempt finds the counter modified by another node
+      AtomicInteger attempts = new AtomicInteger();
+      AtomicInteger modifications = new AtomicInteger();
+      counter.setBeforeCompareAndSet(() -> {
+         if (attempts.getAndIncrement() % 2 == 0) {
+            modifications.incrementAndGet();
+            counter.incrementAndGet();
+         }
+      });
+      CounterTestStage stage = createStage();
+      stage.casMaxRetries = 1;
+
+      Statistics statistics = execute(runner, stage);
+      long successful = requests(statistics, CounterOperations.COMPARE_AND_SET);
+      long retried = requests(statistics, CounterInvocations.CompareAndSet.RETRIED);
+      assertEquals(successful, stage.numOperations);
+      // the first attempt of a request may have been executed before the measurement started
+      assertTrue(Math.abs(retried - successful) <= 1, "Retried: " + retried + ", successful: " + successful);
+      assertEquals(requests(statistics, CounterInvocations.CompareAndSet.FAILED), 0);
+      assertCounterValue(runner, counter, modifications.get());
+   }
+
+   public void testStaleValueRefreshed() throws Exception {
+      CounterStageRunner runner = new CounterStageRunner(1);
+      CounterTraitRepository.Counter counter = getCounter(runner);
+      // the counter does not start from the initial value expected by the stage
+      counter.addAndGet(100);
+      CounterTestStage stage = createStage();
+
+      Statistics statistics = execute(runner, stage);
+      // only the first attempt fails, the following ones expect the value read after the failure
+      long failed = requests(statistics, CounterInvocations.CompareAndSet.FAILED);
+      assertTrue(failed <= 1, "Failed: " + failed);
+      assertEquals(requests(statistics, CounterOperations.COMPARE_AND_SET), stage.numOperations - failed);
+      assertEquals(requests(statistics, CounterOperations.GET_VALUE), failed);
+      assertCounterValue(runner, counter, 100);
+   }
+
+   public void testMixedOperationsOnSingleCounter() throws Exception {
+      CounterStageRunner runner = new CounterStageRunner(1);
+      CounterTraitRepository.Counter counter = getCounter(runner);
+      // with decrements executed concurrently, the increment may return the same value as the previous operation
+      counter.setBeforeIncrement(counter::decrementAndGet);
+      CounterTestStage stage = createStage();
+      stage.incrementAndGetRatio = 1;
+      stage.decrementAndGetRatio = 1;
+
+      Statistics statistics = execute(runner, stage);
+      assertEquals(requests(statistics, CounterOperations.INCREMENT_AND_GET)
+         + requests(statistics, CounterOperations.DECREMENT_AND_GET), stage.numOperations);
+   }
+
+   private static CounterTraitRepository.Counter getCounter(CounterStageRunner runner) {
+      return (CounterTraitRepository.Counter) runner.getTraitImpl(CounterOperations.class).getCounter(COUNTER);
+   }
+
+   private static CounterTestStage createStage() {
+      CounterTestStage stage = new CounterTestStage();
+      stage.counterName = COUNTER;
+      stage.operationName = CounterTestStage.OperationName.COMPARE_AND_SET;
+      stage.totalThreads = 1;
+      stage.numOperations = 100;
+      return stage;
+   }
+
+   private static Statistics execute(CounterStageRunner runner, CounterTestStage stage) throws Exception {
+      runner.getTraitImpl(Lifecycle.class).start();
+      DistStageAck ack = runner.executeOnSlave(stage);
+      assertEquals(runner.processAckOnMaster(stage, Collections.singletonList(ack)), StageResult.SUCCESS);
+      return runner.getMasterState().getReport().getTest(stage.testName).getIterations().get(0).getTotalStatistics();
+   }
+
+   /**
+    * The counter contains the modifications from other nodes and all deltas applied by the stage.
+    */
+   private static void assertCounterValue(CounterStageRunner runner, CounterTraitRepository.Counter counter, long otherModifications) {
+      CounterTestStage.AppliedDeltas applied = (CounterTestStage.AppliedDeltas)
+         runner.getSlaveState().get(CounterTestStage.AppliedDeltas.key(COUNTER));
+      assertEquals(applied.min, applied.max);
+      assertEquals(counter.getValue(), otherModifications + applied.min);
+   }
+
+   private static long requests(Statistics statistics, Operation operation) {
+      DefaultOutcome outcome = statistics.getRepresentation(operation.name, DefaultOutcome.class);
+      return outcome == null ? 0 : outcome.requests;
+   }
+}
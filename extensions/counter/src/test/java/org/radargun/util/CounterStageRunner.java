@@ -0,0 +1,15 @@
+package org.radargun.util;
+
+import java.util.Map;
+
+public class CounterStageRunner extends CoreStageRunner {
+
+   public CounterStageRunner(int clusterSize) {
+      super(clusterSize);
+   }
+
+   @Override
+   protected Map<Class<?>, Object> getDefaultTraitMap() {
+      return CounterTraitRepository.getAllTraits();
+   }
+}
@@ -0,0 +1,77 @@
+package org.radargun.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CounterTraitRepository extends CoreTraitRepository {
+
+   public static Map<Class<?>, Object> getAllTraits() {
+      Map<Class<?>, Object> traitMap = new HashMap<>(CoreTraitRepository.getAllTraits());
+      traitMap.put(org.radargun.traits.CounterOperations.class, new CounterOperations());
+      return traitMap;
+   }
+
+   public static class CounterOperations implements org.radargun.traits.CounterOperations {
+      private final ConcurrentHashMap<String, CounterTraitRepository.Counter> counters = new ConcurrentHashMap<>();
+
+      @Override
+      public Counter getCounter(String name) {
+         return counters.computeIfAbsent(name, n -> new CounterTraitRepository.Counter());
+      }
+   }
+
+   public static class Counter implements org.radargun.traits.CounterOperations.Counter {
+      private final AtomicLong value = new AtomicLong();
+      private volatile Runnable beforeCompareAndSet;
+      private volatile Runnable beforeIncrement;
+
+      /**
+       * Action executed before each compareAndSet, e.g. a modification of the counter from other node.
+       */
+      public void setBeforeCompareAndSet(Runnable beforeCompareAndSet) {
+         this.beforeCompareAndSet = beforeCompareAndSet;
+      }
+
+      /**
+       * Action executed before each incrementAndGet.
+       */
+      public void setBeforeIncrement(Runnable beforeIncrement) {
+         this.beforeIncrement = beforeIncrement;
+      }
+
+      @Override
+      public long getValue() {
+         return value.get();
+      }
+
+      @Override
+      public long incrementAndGet() {
+         Runnable beforeIncrement = this.beforeIncrement;
+         if (beforeIncrement != null) {
+            beforeIncrement.run();
+         }
+         return value.incrementAndGet();
+      }
+
+      @Override
+      public long decrementAndGet() {
+         return value.decrementAndGet();
+      }
+
+      @Override
+      public long addAndGet(long delta) {
+         return value.addAndGet(delta);
+      }
+
+      @Override
+      public boolean compareAndSet(long expect, long update) {
+         Runnable beforeCompareAndSet = this.beforeCompareAndSet;
+         if (beforeCompareAndSet != null) {
+            beforeCompareAndSet.run();
+         }
+         return value.compareAndSet(expect, update);
+      }
+   }
+}
@@ -0,0 +1,50 @@
+package org.radargun.stats;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.utils.NanoTimeConverter;
+import org.radargun.utils.TimeConverter;
+
+@DefinitionElement(name = "histogram-log", doc = "Basic statistics with response times written into HdrHistogram interval log on local disk. " +
+   "Provides percentiles over time while keeping memory footprint constant regardless of test duration.")
+public class HistogramLogStatistics extends MultiStatistics {
+   @Property(doc = "Duration of one interval in the log. Defaults to 1 second.", converter = TimeConverter.class)
+   private long period = 1000;
+
+   @Property(doc = "Maximum value that could be recorded in histogram. Default is one hour.", converter = NanoTimeConverter.class)
+   private long maxValue = TimeUnit.HOURS.toNanos(1);
+
+   @Property(doc = "Number of significant digits in histogram. Default is 2.")
+   private int digits = 2;
+
+   @Property(doc = "Directory where the interval logs are written. Default is the temporary directory.")
+   private String directory = System.getProperty("java.io.tmpdir");
+
+   public HistogramLogStatistics() {
+      // the log statistics are created when the properties are set
+      super(new Statistics[] {new BasicStatistics(), null});
+   }
+
+   private HistogramLogStatistics(Statistics[] internal) {
+      super(internal);
+   }
+
+   @Init
+   public void init() {
+      internal[1] = new IntervalLogStatistics(new File(directory), period, maxValue, digits);
+   }
+
+   @Override
+   protected MultiStatistics newInstance(Statistics[] internal) {
+      return new HistogramLogStatistics(internal);
+   }
+
+   @Override
+   protected MultiStatistics copy(Statistics[] internalCopy) {
+      return new HistogramLogStatistics(internalCopy);
+   }
+}
@@ -9,6 +9,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.HdrHistogram.AbstractHistogram;
 import org.HdrHistogram.HistogramIterationValue;
+import org.radargun.SerializationHelper;
 import org.radargun.config.DefinitionElement;
 import org.radargun.config.Init;
 import org.radargun.config.Property;
@@ -27,6 +28,8 @@ import org.radargun.utils.NanoTimeConverter;
  */
 @DefinitionElement(name = "histogram", doc = "Stores data required for producing histogram or percentiles.")
 public final class HistogramOperationStats implements OperationStats {
+   private static final int SERIAL_VERSION = 1;
+
    @Property(doc = "Maximum value that could be recorded. Default is one hour.", converter = NanoTimeConverter.class)
    private long maxValue = TimeUnit.HOURS.toNanos(1);
 
@@ -110,6 +113,14 @@ public final class HistogramOperationStats implements OperationStats {
       }
    }
 
+   @Override
+   public void record(long duration, boolean successful) {
+      histogram.recordValue(duration);
+      if (!successful) {
+         errors++;
+      }
+   }
+
    @Override
    public <T> T getRepresentation(Class<T> clazz, Statistics ownerStatistics, Object... args) {
       AbstractHistogram histogram = getHistogram();
@@ -226,27 +237,34 @@ public final class HistogramOperationStats implements OperationStats {
    }
 
    private void writeObject(ObjectOutputStream s) throws IOException {
-      s.writeLong(maxValue);
-      s.writeInt(digits);
-      s.writeLong(errors);
+      s.writeByte(SERIAL_VERSION);
+      SerializationHelper.writeVarLong(s, maxValue);
+      s.writeByte(digits);
+      SerializationHelper.writeVarLong(s, errors);
       compact();
-      s.writeInt(compacted.ranges.length);
+      SerializationHelper.writeVarLong(s, compacted.ranges.length);
+      // ranges are ascending, the differences are small
+      long previous = 0;
       for (int i = 0; i < compacted.ranges.length; ++i) {
-         s.writeLong(compacted.ranges[i]);
-         s.writeLong(compacted.counts[i]);
+         SerializationHelper.writeVarLong(s, compacted.ranges[i] - previous);
+         SerializationHelper.writeVarLong(s, compacted.counts[i]);
+         previous = compacted.ranges[i];
       }
    }
 
    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
-      maxValue = s.readLong();
-      digits = s.readInt();
-      errors = s.readLong();
-      int length = s.readInt();
+      SerializationHelper.readVersion(s, SERIAL_VERSION, HistogramOperationStats.class);
+      maxValue = SerializationHelper.readVarLong(s);
+      digits = s.readUnsignedByte();
+      errors = SerializationHelper.readVarLong(s);
+      int length = (int) SerializationHelper.readVarLong(s);
       long[] ranges = new long[length];
       long[] counts = new long[length];
+      long previous = 0;
       for (int i = 0; i < length; ++i) {
-         ranges[i] = s.readLong();
-         counts[i] = s.readLong();
+         previous += SerializationHelper.readVarLong(s);
+         ranges[i] = previous;
+         counts[i] = SerializationHelper.readVarLong(s);
       }
       compacted = new Histogram(ranges, counts);
    }
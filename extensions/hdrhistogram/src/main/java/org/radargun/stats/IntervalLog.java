@@ -0,0 +1,160 @@
+package org.radargun.stats;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.utils.TimeService;
+
+/**
+ * Writes HdrHistogram interval log for each operation into a file in local directory.
+ * Requests are recorded into a {@link Recorder} and a background thread writes one interval
+ * histogram per operation each period, therefore the memory footprint does not depend on test duration.
+ *
+ * Each instance of {@link IntervalLogStatistics} that records requests owns its log; the logs of all
+ * instances are written by single thread.
+ */
+class IntervalLog {
+   private static final Log log = LogFactory.getLog(IntervalLog.class);
+   private static final double MAX_VALUE_UNIT_RATIO = TimeUnit.MILLISECONDS.toNanos(1);
+   private static final AtomicInteger LOG_COUNTER = new AtomicInteger();
+   private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "IntervalLogFlusher");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   private final File directory;
+   private final long period;
+   private final long maxValue;
+   private final int digits;
+   // distinguishes files of logs started at the same time
+   private final int id = LOG_COUNTER.getAndIncrement();
+   private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+   private final Map<String, Output> outputs = new ConcurrentHashMap<>();
+   private ScheduledFuture<?> flushTask;
+   private long startTime;
+
+   IntervalLog(File directory, long period, long maxValue, int digits) {
+      this.directory = directory;
+      this.period = period;
+      this.maxValue = maxValue;
+      this.digits = digits;
+   }
+
+   synchronized void begin() {
+      if (flushTask != null) {
+         return;
+      }
+      if (!directory.exists() && !directory.mkdirs()) {
+         throw new IllegalStateException("Cannot create directory " + directory);
+      }
+      startTime = TimeService.currentTimeMillis();
+      // align the intervals of all logs, so that these can be merged
+      flushTask = FLUSHER.scheduleAtFixedRate(this::flush, period - startTime % period, period, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Writes the last interval and closes the files.
+    *
+    * @return Logs written since {@link #begin()} or last {@link #reset()}.
+    */
+   synchronized List<IntervalLogStatistics.LogFile> end() {
+      if (flushTask == null) {
+         return new ArrayList<>();
+      }
+      flushTask.cancel(false);
+      flushTask = null;
+      flush();
+      List<IntervalLogStatistics.LogFile> completed = new ArrayList<>(outputs.size());
+      for (Map.Entry<String, Output> entry : outputs.entrySet()) {
+         entry.getValue().stream.close();
+         completed.add(new IntervalLogStatistics.LogFile(entry.getKey(), entry.getValue().file));
+      }
+      outputs.clear();
+      recorders.clear();
+      return completed;
+   }
+
+   /**
+    * Discards the values recorded so far, including the intervals already written.
+    */
+   synchronized void reset() {
+      for (Recorder recorder : recorders.values()) {
+         recorder.reset();
+      }
+      for (Output output : outputs.values()) {
+         output.stream.close();
+         if (!output.file.delete()) {
+            log.warn("Cannot delete interval log " + output.file);
+         }
+      }
+      outputs.clear();
+      startTime = TimeService.currentTimeMillis();
+   }
+
+   void record(String operation, long duration) {
+      Recorder recorder = recorders.get(operation);
+      if (recorder == null) {
+         recorder = new Recorder(maxValue, digits);
+         Recorder other = recorders.putIfAbsent(operation, recorder);
+         if (other != null) {
+            recorder = other;
+         }
+      }
+      recorder.recordValue(Math.min(Math.max(duration, 0), maxValue));
+   }
+
+   private synchronized void flush() {
+      for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+         Output output = outputs.get(entry.getKey());
+         if (output == null) {
+            try {
+               output = new Output(new File(directory, fileName(entry.getKey())), startTime);
+            } catch (FileNotFoundException e) {
+               log.error("Cannot open interval log for " + entry.getKey(), e);
+               continue;
+            }
+            outputs.put(entry.getKey(), output);
+         }
+         output.recycled = entry.getValue().getIntervalHistogram(output.recycled);
+         output.writer.outputIntervalHistogram((output.recycled.getStartTimeStamp() - startTime) / 1000d,
+            (output.recycled.getEndTimeStamp() - startTime) / 1000d, output.recycled, MAX_VALUE_UNIT_RATIO);
+      }
+   }
+
+   private String fileName(String operation) {
+      return operation.replaceAll("[^a-zA-Z0-9.\\-]", "_") + "-" + startTime + "-" + id + ".hlog";
+   }
+
+   private static class Output {
+      private final File file;
+      private final PrintStream stream;
+      private final HistogramLogWriter writer;
+      private Histogram recycled;
+
+      private Output(File file, long startTime) throws FileNotFoundException {
+         this.file = file;
+         this.stream = new PrintStream(new FileOutputStream(file));
+         this.writer = new HistogramLogWriter(stream);
+         writer.outputLogFormatVersion();
+         writer.outputStartTime(startTime);
+         writer.outputLegend();
+      }
+   }
+}
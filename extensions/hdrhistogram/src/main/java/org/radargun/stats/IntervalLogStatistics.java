@@ -0,0 +1,376 @@
+package org.radargun.stats;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.radargun.Operation;
+import org.radargun.stats.representation.Percentile;
+
+/**
+ * Records response times into HdrHistogram interval logs on local disk (see {@link IntervalLog})
+ * instead of keeping them in memory; each instance writes its own logs. When the statistics are sent
+ * to master the logs closed by {@link #end()} are copied into the serialized form; master stores them
+ * into temporary files and computes the representations by reading the logs interval by interval,
+ * merging the logs from all threads and slaves. The logs are read once; merged intervals are kept
+ * compressed for further representations.
+ *
+ * Provides {@link Percentile} for the whole duration and {@link Percentile.Series} with one sample per period.
+ */
+public class IntervalLogStatistics extends IntervalStatistics {
+   private static final int COPY_BUFFER_SIZE = 8192;
+
+   private final long period;
+   private final long maxValue;
+   private final int digits;
+   private final File directory;
+   // null in statistics received from another node
+   private transient IntervalLog log;
+   // logs stored on this node
+   private transient List<LogFile> logFiles;
+   // logs decoded on first access, per operation; dropped whenever the logs change
+   private transient Map<String, Intervals> decoded;
+
+   public IntervalLogStatistics(File directory, long period, long maxValue, int digits) {
+      this.period = period;
+      this.maxValue = maxValue;
+      this.digits = digits;
+      this.directory = directory;
+      this.log = new IntervalLog(directory, period, maxValue, digits);
+      this.logFiles = Collections.emptyList();
+   }
+
+   private IntervalLogStatistics(IntervalLogStatistics other, boolean copyData) {
+      super(other);
+      this.period = other.period;
+      this.maxValue = other.maxValue;
+      this.digits = other.digits;
+      this.directory = other.directory;
+      this.log = other.log == null ? null : new IntervalLog(directory, period, maxValue, digits);
+      this.logFiles = copyData ? other.logFiles : Collections.emptyList();
+   }
+
+   @Override
+   public void begin() {
+      super.begin();
+      if (log != null) {
+         log.begin();
+      }
+   }
+
+   @Override
+   public void end() {
+      super.end();
+      if (log != null) {
+         List<LogFile> completed = log.end();
+         if (!completed.isEmpty()) {
+            completed.addAll(0, logFiles);
+            logFiles = completed;
+            decoded = null;
+         }
+      }
+   }
+
+   @Override
+   public void reset() {
+      if (log != null) {
+         log.reset();
+      }
+      logFiles = Collections.emptyList();
+      decoded = null;
+      super.begin();
+   }
+
+   @Override
+   public void record(Request request, Operation operation) {
+      record(operation, request.duration());
+   }
+
+   @Override
+   public void record(Operation operation, long requestStartTime, long responseCompleteTime, boolean successful) {
+      record(operation, responseCompleteTime - requestStartTime);
+   }
+
+   @Override
+   public void record(Message message, Operation operation) {
+      if (message.isValid()) {
+         record(operation, message.totalTime());
+      }
+   }
+
+   @Override
+   public void record(RequestSet requestSet, Operation operation) {
+      record(operation, requestSet.sumDurations());
+   }
+
+   private void record(Operation operation, long duration) {
+      if (log == null) {
+         throw new IllegalStateException("Statistics received from another node cannot record requests.");
+      }
+      log.record(operation.name, duration);
+   }
+
+   @Override
+   public Statistics newInstance() {
+      return new IntervalLogStatistics(this, false);
+   }
+
+   @Override
+   public Statistics copy() {
+      return new IntervalLogStatistics(this, true);
+   }
+
+   @Override
+   public void merge(Statistics otherStats) {
+      if (!(otherStats instanceof IntervalLogStatistics)) {
+         throw new IllegalArgumentException(String.valueOf(otherStats));
+      }
+      IntervalLogStatistics other = (IntervalLogStatistics) otherStats;
+      if (other.period != period) {
+         throw new IllegalArgumentException("Different periods: " + period + " vs. " + other.period);
+      }
+      if (!other.logFiles.isEmpty()) {
+         List<LogFile> merged = new ArrayList<>(logFiles);
+         for (LogFile logFile : other.logFiles) {
+            if (!merged.contains(logFile)) {
+               merged.add(logFile);
+            }
+         }
+         logFiles = merged;
+         decoded = null;
+      }
+      super.merge(otherStats);
+   }
+
+   @Override
+   public void registerOperationsGroup(String name, Set<Operation> operations) {
+   }
+
+   @Override
+   public String getOperationsGroup(Operation operation) {
+      return null;
+   }
+
+   @Override
+   public Map<String, Set<Operation>> getGroupOperationsMap() {
+      return Collections.emptyMap();
+   }
+
+   @Override
+   public List<Map<String, OperationStats>> getOperationStatsForGroups() {
+      return Collections.emptyList();
+   }
+
+   @Override
+   public List<Map<String, OperationStats>> getOperationsStats() {
+      return Collections.emptyList();
+   }
+
+   @Override
+   public Set<String> getOperations() {
+      return logFiles.stream().map(logFile -> logFile.operation).collect(Collectors.toSet());
+   }
+
+   @Override
+   public OperationStats getOperationStats(String operation) {
+      return null;
+   }
+
+   @Override
+   public <T> T getRepresentation(String operation, Class<T> clazz, Object... args) {
+      if (clazz != Percentile.class && clazz != Percentile.Series.class) {
+         return null;
+      }
+      Intervals intervals = decode(operation);
+      if (intervals == null) {
+         return null;
+      }
+      double percentile = Percentile.getPercentile(args);
+      if (clazz == Percentile.class) {
+         return (T) new Percentile(intervals.total.getValueAtPercentile(percentile));
+      } else {
+         List<Percentile> samples = new ArrayList<>(intervals.periods.size());
+         intervals.forEachPeriod(histogram -> samples.add(new Percentile(histogram.getValueAtPercentile(percentile))));
+         return (T) new Percentile.Series(getBegin(), period, samples.toArray(new Percentile[samples.size()]));
+      }
+   }
+
+   /**
+    * Reads the logs for given operation when this is called for the first time; reporters retrieve
+    * several representations from the same statistics.
+    *
+    * @return Decoded logs or null if there are no logs for the operation.
+    */
+   private synchronized Intervals decode(String operation) {
+      if (decoded == null) {
+         decoded = new HashMap<>();
+      }
+      Intervals intervals = decoded.get(operation);
+      if (intervals == null) {
+         List<File> files = logFiles.stream().filter(logFile -> logFile.operation.equals(operation))
+            .map(logFile -> logFile.file).collect(Collectors.toList());
+         if (files.isEmpty()) {
+            return null;
+         }
+         intervals = new Intervals(new Histogram(maxValue, digits));
+         forEachPeriod(files, intervals::add);
+         decoded.put(operation, intervals);
+      }
+      return intervals;
+   }
+
+   /**
+    * Reads the logs in parallel, merging intervals that belong to the same period, so that only
+    * one interval from each log is held in memory.
+    */
+   private void forEachPeriod(List<File> files, Consumer<Histogram> consumer) {
+      List<HistogramLogReader> readers = new ArrayList<>(files.size());
+      Histogram[] pending = new Histogram[files.size()];
+      try {
+         for (int i = 0; i < files.size(); ++i) {
+            readers.add(new HistogramLogReader(files.get(i)));
+            pending[i] = (Histogram) readers.get(i).nextIntervalHistogram();
+         }
+         Histogram current = new Histogram(maxValue, digits);
+         for (long bucket = 0; ; ++bucket) {
+            boolean hasMore = false;
+            for (int i = 0; i < pending.length; ++i) {
+               while (pending[i] != null && bucketOf(pending[i]) <= bucket) {
+                  current.add(pending[i]);
+                  pending[i] = (Histogram) readers.get(i).nextIntervalHistogram();
+               }
+               hasMore |= pending[i] != null;
+            }
+            consumer.accept(current);
+            if (!hasMore) {
+               break;
+            }
+            current.reset();
+         }
+      } catch (FileNotFoundException e) {
+         throw new IllegalStateException("Interval log was removed", e);
+      } finally {
+         readers.forEach(HistogramLogReader::close);
+      }
+   }
+
+   private long bucketOf(Histogram histogram) {
+      // slaves' intervals are not aligned, use the middle of the interval
+      long middle = (histogram.getStartTimeStamp() + histogram.getEndTimeStamp()) / 2;
+      return Math.max(0, (middle - getBegin()) / period);
+   }
+
+   private void writeObject(ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+      out.writeInt(logFiles.size());
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      for (LogFile logFile : logFiles) {
+         out.writeUTF(logFile.operation);
+         out.writeLong(logFile.file.length());
+         try (InputStream in = new FileInputStream(logFile.file)) {
+            copy(in, out, logFile.file.length(), buffer);
+         }
+      }
+   }
+
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      int size = in.readInt();
+      logFiles = new ArrayList<>(size);
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      for (int i = 0; i < size; ++i) {
+         String operation = in.readUTF();
+         long length = in.readLong();
+         File file = File.createTempFile("radargun-", ".hlog");
+         file.deleteOnExit();
+         try (OutputStream out = new FileOutputStream(file)) {
+            copy(in, out, length, buffer);
+         }
+         logFiles.add(new LogFile(operation, file));
+      }
+   }
+
+   private static void copy(InputStream in, OutputStream out, long length, byte[] buffer) throws IOException {
+      long remaining = length;
+      while (remaining > 0) {
+         int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+         if (read < 0) {
+            throw new IOException("Interval log truncated, " + remaining + " bytes missing");
+         }
+         out.write(buffer, 0, read);
+         remaining -= read;
+      }
+   }
+
+   /**
+    * Intervals merged from all logs for one operation. The intervals are kept compressed, as these
+    * take only a fraction of the memory needed by a histogram.
+    */
+   private static final class Intervals {
+      private final Histogram total;
+      private final List<byte[]> periods = new ArrayList<>();
+
+      private Intervals(Histogram total) {
+         this.total = total;
+      }
+
+      private void add(Histogram histogram) {
+         total.add(histogram);
+         ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+         int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+         periods.add(Arrays.copyOf(buffer.array(), length));
+      }
+
+      private void forEachPeriod(Consumer<Histogram> consumer) {
+         for (byte[] period : periods) {
+            try {
+               consumer.accept(Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(period), 0));
+            } catch (DataFormatException e) {
+               throw new IllegalStateException("Cannot decode interval", e);
+            }
+         }
+      }
+   }
+
+   static final class LogFile {
+      private final String operation;
+      private final File file;
+
+      LogFile(String operation, File file) {
+         this.operation = operation;
+         this.file = file;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (o == null || getClass() != o.getClass()) return false;
+         LogFile logFile = (LogFile) o;
+         return operation.equals(logFile.operation) && file.equals(logFile.file);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * operation.hashCode() + file.hashCode();
+      }
+   }
+}
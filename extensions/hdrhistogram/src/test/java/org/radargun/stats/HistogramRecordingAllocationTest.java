@@ -0,0 +1,60 @@
+package org.radargun.stats;
+
+import java.lang.management.ManagementFactory;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.testng.SkipException;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that recording requests into histogram statistics does not allocate.
+ */
+@Test
+public class HistogramRecordingAllocationTest {
+   private static final int OPERATIONS = 1_000_000;
+   // tolerates allocations done by the measurement itself
+   private static final long ALLOCATION_TOLERANCE = 1024;
+
+   @AfterTest
+   public void cleanup() {
+      Operation.clear();
+   }
+
+   public void testHistogramStatistics() {
+      java.lang.management.ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+      if (!(mxBean instanceof com.sun.management.ThreadMXBean)
+         || !((com.sun.management.ThreadMXBean) mxBean).isThreadAllocatedMemorySupported()) {
+         throw new SkipException("Thread allocation measurement is not supported");
+      }
+      com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) mxBean;
+      threadMXBean.setThreadAllocatedMemoryEnabled(true);
+      long threadId = Thread.currentThread().getId();
+
+      Operation operation = Operation.register("testOp");
+      HistogramOperationStats prototype = new HistogramOperationStats();
+      prototype.init();
+      BasicStatistics statistics = new BasicStatistics(prototype);
+      statistics.begin();
+      // warm-up, registers the operation
+      record(statistics, operation);
+      long before = threadMXBean.getThreadAllocatedBytes(threadId);
+      record(statistics, operation);
+      long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+      statistics.end();
+
+      assertTrue(allocated < ALLOCATION_TOLERANCE, "Allocated " + allocated + " bytes");
+      assertEquals(statistics.getRepresentation(operation.name, DefaultOutcome.class).requests, 2L * OPERATIONS);
+   }
+
+   private void record(Statistics statistics, Operation operation) {
+      for (int i = 0; i < OPERATIONS; ++i) {
+         long start = System.nanoTime();
+         statistics.record(operation, start, start + i, true);
+      }
+   }
+}
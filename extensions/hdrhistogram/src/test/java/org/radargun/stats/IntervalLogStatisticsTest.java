@@ -0,0 +1,151 @@
+package org.radargun.stats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.Operation;
+import org.radargun.SerializationHelper;
+import org.radargun.stats.representation.Percentile;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class IntervalLogStatisticsTest {
+   private static final long PERIOD = 100;
+   private static final long MAX_VALUE = TimeUnit.SECONDS.toNanos(10);
+
+   @AfterTest
+   public void cleanup() {
+      Operation.clear();
+   }
+
+   public void testMergeFromSlaves() throws Exception {
+      Operation operation = Operation.register("testOp");
+      File directory = Files.createTempDirectory("interval-log").toFile();
+      // each prototype stands for one slave
+      IntervalLogStatistics slave1 = new IntervalLogStatistics(directory, PERIOD, MAX_VALUE, 2);
+      IntervalLogStatistics slave2 = new IntervalLogStatistics(directory, PERIOD, MAX_VALUE, 2);
+      Statistics thread1 = slave1.copy();
+      Statistics thread2 = slave1.copy();
+      Statistics thread3 = slave2.copy();
+      thread1.begin();
+      thread2.begin();
+      thread3.begin();
+      long start = System.currentTimeMillis();
+      while (System.currentTimeMillis() - start < 3 * PERIOD + PERIOD / 2) {
+         thread1.record(operation, 0, 1000, true);
+         thread2.record(operation, 0, 2000, true);
+         thread3.record(operation, 0, 1_000_000, false);
+         Thread.sleep(1);
+      }
+      thread1.end();
+      thread2.end();
+      thread3.end();
+      // each thread writes its own log
+      assertEquals(directory.listFiles().length, 3);
+
+      Statistics received1 = roundTrip(thread1);
+      Statistics received2 = roundTrip(thread2);
+      Statistics received3 = roundTrip(thread3);
+      assertEquals(received1.getOperations().size(), 1);
+      assertEquals(received2.getOperations().size(), 1);
+      assertEquals(received1.getRepresentation(operation.name, Percentile.class, 50d).responseTimeMax, 1000, 10);
+      assertEquals(received2.getRepresentation(operation.name, Percentile.class, 50d).responseTimeMax, 2000, 20);
+
+      Statistics total = received1.copy();
+      total.merge(received2);
+      total.merge(received3);
+
+      Percentile.Series series = total.getRepresentation(operation.name, Percentile.Series.class, 99d);
+      assertNotNull(series);
+      assertEquals(series.period, PERIOD);
+      assertTrue(series.samples.length >= 3 && series.samples.length <= 5, "Samples: " + series.samples.length);
+      for (int i = 0; i < 3; ++i) {
+         assertEquals(series.samples[i].responseTimeMax, 1_000_000, 10_000);
+      }
+      Percentile median = total.getRepresentation(operation.name, Percentile.class, 50d);
+      assertEquals(median.responseTimeMax, 2000, 20);
+      assertNull(total.getRepresentation("otherOp", Percentile.class, 50d));
+   }
+
+   public void testResetOwnLogOnly() throws Exception {
+      Operation operation = Operation.register("testOp");
+      File directory = Files.createTempDirectory("interval-log").toFile();
+      IntervalLogStatistics prototype = new IntervalLogStatistics(directory, PERIOD, MAX_VALUE, 2);
+      Statistics thread1 = prototype.copy();
+      Statistics thread2 = prototype.copy();
+      thread1.begin();
+      thread2.begin();
+      long start = System.currentTimeMillis();
+      while (System.currentTimeMillis() - start < 2 * PERIOD) {
+         thread1.record(operation, 0, 1_000_000, true);
+         thread2.record(operation, 0, 2000, true);
+         Thread.sleep(1);
+      }
+      // the intervals recorded before reset are discarded, including those already written
+      thread1.reset();
+      long resetTime = System.currentTimeMillis();
+      while (System.currentTimeMillis() - resetTime < PERIOD + PERIOD / 2) {
+         thread1.record(operation, 0, 1000, true);
+         thread2.record(operation, 0, 2000, true);
+         Thread.sleep(1);
+      }
+      thread1.end();
+      thread2.end();
+      assertTrue(thread1.getBegin() >= resetTime - 1);
+
+      Statistics received1 = roundTrip(thread1);
+      Statistics received2 = roundTrip(thread2);
+      assertEquals(received1.getRepresentation(operation.name, Percentile.class, 100d).responseTimeMax, 1000, 10);
+      Percentile.Series series2 = received2.getRepresentation(operation.name, Percentile.Series.class, 50d);
+      assertTrue(series2.samples.length >= 3, "Samples: " + series2.samples.length);
+      assertSamples(series2, 2000, 20);
+   }
+
+   public void testLogsReadOnce() throws Exception {
+      Operation operation = Operation.register("testOp");
+      File directory = Files.createTempDirectory("interval-log").toFile();
+      Statistics statistics = new IntervalLogStatistics(directory, PERIOD, MAX_VALUE, 2).copy();
+      statistics.begin();
+      long start = System.currentTimeMillis();
+      while (System.currentTimeMillis() - start < 2 * PERIOD + PERIOD / 2) {
+         statistics.record(operation, 0, 1000, true);
+         statistics.record(operation, 0, 100_000, true);
+         Thread.sleep(1);
+      }
+      statistics.end();
+
+      assertEquals(statistics.getRepresentation(operation.name, Percentile.class, 25d).responseTimeMax, 1000, 10);
+      // further representations are computed from the decoded intervals
+      for (File file : directory.listFiles()) {
+         assertTrue(file.delete());
+      }
+      assertEquals(statistics.getRepresentation(operation.name, Percentile.class, 99d).responseTimeMax, 100_000, 1000);
+      Percentile.Series series = statistics.getRepresentation(operation.name, Percentile.Series.class, 25d);
+      assertTrue(series.samples.length >= 2, "Samples: " + series.samples.length);
+      assertSamples(series, 1000, 10);
+   }
+
+   private static void assertSamples(Percentile.Series series, double expected, double delta) {
+      for (int i = 0; i < series.samples.length; ++i) {
+         // the last interval is written by end() and contains no requests if it has started just before
+         if (i == series.samples.length - 1 && series.samples[i].responseTimeMax == 0) {
+            continue;
+         }
+         assertEquals(series.samples[i].responseTimeMax, expected, delta);
+      }
+   }
+
+   private static Statistics roundTrip(Statistics statistics) throws IOException {
+      ByteBuffer buffer = SerializationHelper.serializeObject(statistics, ByteBuffer.allocate(1024));
+      return (Statistics) SerializationHelper.deserialize(buffer.array(), 0, buffer.position());
+   }
+}
@@ -21,7 +21,7 @@ import org.radargun.traits.ContinuousQuery;
 import org.radargun.traits.InjectTrait;
 import org.radargun.traits.Query;
 import org.radargun.traits.Queryable;
-import org.radargun.utils.TimeService;
+import org.radargun.utils.ClockSync;
 import org.radargun.utils.Timestamped;
 
 /**
@@ -141,7 +141,8 @@ public class ContinuousQueryStage extends AbstractDistStage {
             if (key instanceof Timestamped) {
                SynchronizedStatistics stats = statistics.get(statsKey);
                stats.message()
-                     .times(((Timestamped) key).getTimestamp(), TimeService.currentTimeMillis())
+                     .times(((Timestamped) key).getTimestamp(), ClockSync.currentTimeMillis())
+                     .errorBound(2 * ClockSync.getErrorBound())
                      .record(operation);
             }
          }
@@ -3,6 +3,7 @@ package org.radargun.stages.query;
 import org.radargun.Operation;
 import org.radargun.stages.test.Invocation;
 import org.radargun.traits.Queryable;
+import org.radargun.utils.TimeService;
 
 /**
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
@@ -33,4 +34,51 @@ public class Invocations {
          return TX;
       }
    }
+
+   /**
+    * Looks up the result in {@link QueryResultCache} and executes the query only if it is not cached
+    * or expired. The operation is recorded as cache hit, miss or expiration, respectively.
+    */
+   public static final class CachedQuery implements Invocation<org.radargun.traits.Query.Result> {
+      public static final Operation HIT = Queryable.QUERY.derive("CacheHit");
+      public static final Operation MISS = Queryable.QUERY.derive("CacheMiss");
+      public static final Operation EXPIRED = Queryable.QUERY.derive("CacheExpired");
+      private final QueryResultCache cache;
+      private final int queryNumber;
+      private final org.radargun.traits.Query query;
+      private final org.radargun.traits.Query.Context context;
+      private Operation operation = MISS;
+
+      public CachedQuery(QueryResultCache cache, int queryNumber, org.radargun.traits.Query query, org.radargun.traits.Query.Context context) {
+         this.cache = cache;
+         this.queryNumber = queryNumber;
+         this.query = query;
+         this.context = context;
+      }
+
+      @Override
+      public org.radargun.traits.Query.Result invoke() {
+         QueryResultCache.Entry entry = cache.get(queryNumber);
+         if (entry != null) {
+            if (!entry.isExpired(TimeService.nanoTime())) {
+               operation = HIT;
+               return entry.result;
+            }
+            operation = EXPIRED;
+         }
+         org.radargun.traits.Query.Result result = query.execute(context);
+         cache.put(queryNumber, result, TimeService.nanoTime());
+         return result;
+      }
+
+      @Override
+      public Operation operation() {
+         return operation;
+      }
+
+      @Override
+      public Operation txOperation() {
+         return Query.TX;
+      }
+   }
 }
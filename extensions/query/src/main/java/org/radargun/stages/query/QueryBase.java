@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.radargun.config.Property;
@@ -15,6 +16,7 @@ import org.radargun.traits.InternalsExposition;
 import org.radargun.traits.Query;
 import org.radargun.traits.Queryable;
 import org.radargun.utils.MinMax;
+import org.radargun.utils.TimeConverter;
 
 /**
  * Logic for creating the query builders and retrieving query results.
@@ -33,7 +35,20 @@ public class QueryBase {
    @Property(doc = "Full names of the attribute queried from InternalsExposition. Expecting values parse-able as long values. Default are none.")
    private List<String> exposedAttributes = Collections.EMPTY_LIST;
 
+   @Property(doc = "Build the query objects once in each stressor thread and execute them repeatedly, " +
+      "instead of building the query before each invocation. Default is false.")
+   private boolean reuseQueries = false;
+
+   @Property(doc = "Maximum number of query results cached on the client side. When the result of generated query " +
+      "is cached, the query is not executed. Default is 0 (cache disabled).")
+   private int resultCacheSize = 0;
+
+   @Property(doc = "Time after which the cached query result expires. Default is 0 (results do not expire).",
+      converter = TimeConverter.class)
+   private long resultCacheTtl = 0;
+
    protected Query.Builder[] builders;
+   protected QueryResultCache resultCache;
 
    private AtomicInteger minResultSize = new AtomicInteger(-1);
    private AtomicInteger maxResultSize = new AtomicInteger(-1);
@@ -46,6 +61,7 @@ public class QueryBase {
       for (int i = 0; i < numQueries; ++i) {
          builders[i] = constructBuilder(queryable, query);
       }
+      resultCache = resultCacheSize > 0 ? new QueryResultCache(resultCacheSize, TimeUnit.MILLISECONDS.toNanos(resultCacheTtl)) : null;
    }
 
    public static Query.Builder constructBuilder(Queryable queryable, QueryConfiguration query) {
@@ -194,6 +210,17 @@ public class QueryBase {
       return numQueries;
    }
 
+   public boolean isReuseQueries() {
+      return reuseQueries;
+   }
+
+   /**
+    * @return Cache of query results, or null if the results should not be cached.
+    */
+   public QueryResultCache getResultCache() {
+      return resultCache;
+   }
+
    public Query buildQuery(int queryNumber) {
       return builders[queryNumber].build();
    }
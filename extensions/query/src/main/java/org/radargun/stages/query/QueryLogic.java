@@ -21,6 +21,7 @@ public class QueryLogic extends OperationLogic {
    protected final boolean useTransactions;
    protected Query.Result previousQueryResult = null;
    protected Query.Context context;
+   protected Query[] queries;
 
    AtomicIntegerArray queryInvocations;
 
@@ -29,6 +30,9 @@ public class QueryLogic extends OperationLogic {
       this.queryable = queryable;
       this.useTransactions = useTransactions;
       queryInvocations = new AtomicIntegerArray(queryBase.getNumQueries());
+      if (queryBase.isReuseQueries()) {
+         queries = new Query[queryBase.getNumQueries()];
+      }
    }
 
    @Override
@@ -55,12 +59,25 @@ public class QueryLogic extends OperationLogic {
    @Override
    public void run(Operation ignored) throws RequestException {
       int randomQueryNumber = stressor.getRandom().nextInt(queryBase.getNumQueries());
-      Query query = queryBase.buildQuery(randomQueryNumber);
+      Query query;
+      if (queries != null) {
+         query = queries[randomQueryNumber];
+         if (query == null) {
+            query = queries[randomQueryNumber] = queryBase.buildQuery(randomQueryNumber);
+         }
+      } else {
+         query = queryBase.buildQuery(randomQueryNumber);
+      }
 
       Query.Result queryResult;
       context = queryable.createContext(null);
+      QueryResultCache resultCache = queryBase.getResultCache();
       long start = TimeService.nanoTime();
-      queryResult = stressor.makeRequest(new Invocations.Query(query, context));
+      if (resultCache != null) {
+         queryResult = stressor.makeRequest(new Invocations.CachedQuery(resultCache, randomQueryNumber, query, context));
+      } else {
+         queryResult = stressor.makeRequest(new Invocations.Query(query, context));
+      }
       long end = TimeService.nanoTime();
       log.tracef("Invoked query %d (%dth) in %d us", randomQueryNumber, queryInvocations.incrementAndGet(randomQueryNumber), (end - start) / 1000);
 
@@ -0,0 +1,148 @@
+package org.radargun.stages.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.radargun.traits.Query;
+
+/**
+ * Client-side cache of query results, as an application would keep in front of the data grid.
+ * Results are keyed by the number of the generated query (each has different random condition values),
+ * expire after configured time and least recently used results are evicted when the cache is full.
+ * The cache is shared by all stressors on the node.
+ *
+ * Lookups do not lock: the results are spread over segments, each segment evicts its least recently used
+ * results independently, so the eviction order is only approximate across the whole cache.
+ */
+public class QueryResultCache {
+   private static final int MAX_SEGMENTS = 16;
+   // smaller caches use fewer segments to keep the eviction close to LRU
+   private static final int MIN_SEGMENT_SIZE = 64;
+
+   private final long ttl;
+   private final Segment[] segments;
+
+   /**
+    * @param maxSize Maximum number of cached results.
+    * @param ttl Time in nanoseconds after which the result expires, 0 means no expiration.
+    */
+   public QueryResultCache(int maxSize, long ttl) {
+      this.ttl = ttl;
+      int numSegments = 1;
+      while (numSegments < MAX_SEGMENTS && numSegments * 2 * MIN_SEGMENT_SIZE <= maxSize) {
+         numSegments *= 2;
+      }
+      this.segments = new Segment[numSegments];
+      for (int i = 0; i < numSegments; ++i) {
+         segments[i] = new Segment(maxSize / numSegments + (i < maxSize % numSegments ? 1 : 0));
+      }
+   }
+
+   /**
+    * @return Cached entry (possibly expired) or null if the result is not cached.
+    */
+   public Entry get(int queryNumber) {
+      return segment(queryNumber).get(queryNumber);
+   }
+
+   public void put(int queryNumber, Query.Result result, long now) {
+      segment(queryNumber).put(queryNumber, new Entry(result, now, ttl));
+   }
+
+   public int size() {
+      int size = 0;
+      for (Segment segment : segments) {
+         size += segment.entries.size();
+      }
+      return size;
+   }
+
+   private Segment segment(int queryNumber) {
+      return segments[(queryNumber ^ (queryNumber >>> 16)) & (segments.length - 1)];
+   }
+
+   public static class Entry {
+      public final Query.Result result;
+      private final long created;
+      private final long ttl;
+      private volatile long accessed;
+
+      private Entry(Query.Result result, long created, long ttl) {
+         this.result = result;
+         this.created = created;
+         this.ttl = ttl;
+      }
+
+      public boolean isExpired(long now) {
+         return ttl > 0 && now - created >= ttl;
+      }
+   }
+
+   private static class Segment {
+      private final int capacity;
+      // evicting several entries at once amortizes the scan of the segment
+      private final int evictionBatch;
+      private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+      private final AtomicLong clock = new AtomicLong();
+      private final ReentrantLock evictionLock = new ReentrantLock();
+
+      private Segment(int capacity) {
+         this.capacity = capacity;
+         this.evictionBatch = capacity / 16;
+      }
+
+      private Entry get(int queryNumber) {
+         Entry entry = entries.get(queryNumber);
+         if (entry != null) {
+            entry.accessed = clock.incrementAndGet();
+         }
+         return entry;
+      }
+
+      private void put(int queryNumber, Entry entry) {
+         entry.accessed = clock.incrementAndGet();
+         entries.put(queryNumber, entry);
+         evict();
+      }
+
+      private void evict() {
+         // concurrent puts may exceed the capacity until the thread holding the lock evicts the entries;
+         // that thread checks the size again after unlocking so that no put is left without eviction
+         while (entries.size() > capacity && evictionLock.tryLock()) {
+            try {
+               int toEvict = entries.size() - capacity + evictionBatch;
+               // the access times are copied as these change during sorting
+               List<Candidate> candidates = new ArrayList<>(entries.size());
+               for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+                  candidates.add(new Candidate(entry.getKey(), entry.getValue()));
+               }
+               candidates.sort(Comparator.comparingLong(candidate -> candidate.accessed));
+               for (int i = 0; i < toEvict && i < candidates.size(); ++i) {
+                  Candidate candidate = candidates.get(i);
+                  // the entry might have been replaced in the meantime
+                  entries.remove(candidate.queryNumber, candidate.entry);
+               }
+            } finally {
+               evictionLock.unlock();
+            }
+         }
+      }
+   }
+
+   private static class Candidate {
+      private final int queryNumber;
+      private final Entry entry;
+      private final long accessed;
+
+      private Candidate(int queryNumber, Entry entry) {
+         this.queryNumber = queryNumber;
+         this.entry = entry;
+         this.accessed = entry.accessed;
+      }
+   }
+}
@@ -0,0 +1,111 @@
+package org.radargun.stages.query;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.radargun.traits.Query;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class QueryResultCacheTest {
+
+   public void testEviction() {
+      QueryResultCache cache = new QueryResultCache(2, 0);
+      Query.Result result = new EmptyResult();
+      cache.put(0, result, 0);
+      cache.put(1, result, 0);
+      // access 0 so that 1 is the least recently used
+      assertSame(cache.get(0).result, result);
+      cache.put(2, result, 0);
+      assertNotNull(cache.get(0));
+      assertNull(cache.get(1));
+      assertNotNull(cache.get(2));
+      assertFalse(cache.get(2).isExpired(Long.MAX_VALUE));
+   }
+
+   public void testRecentlyUsedKeptInLargeCache() {
+      QueryResultCache cache = new QueryResultCache(1024, 0);
+      Query.Result result = new EmptyResult();
+      for (int i = 0; i < 1024; ++i) {
+         cache.put(i, result, 0);
+      }
+      for (int i = 1024; i < 2048; ++i) {
+         assertNotNull(cache.get(0));
+         cache.put(i, result, 0);
+         assertTrue(cache.size() <= 1024, "Size: " + cache.size());
+      }
+      assertNotNull(cache.get(0));
+      assertNull(cache.get(1));
+   }
+
+   public void testConcurrentPuts() throws Exception {
+      QueryResultCache cache = new QueryResultCache(256, 0);
+      Query.Result result = new EmptyResult();
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; ++t) {
+         int offset = t * 10000;
+         threads[t] = new Thread(() -> {
+            for (int i = 0; i < 10000; ++i) {
+               cache.put(offset + i, result, 0);
+               cache.get(offset + i / 2);
+            }
+         });
+         threads[t].start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+      // the last put into each segment evicts the entries over its capacity
+      assertTrue(cache.size() <= 256, "Size: " + cache.size());
+      // puts from other threads may have evicted any of the entries, but the cache must stay usable
+      cache.put(-1, result, 0);
+      assertNotNull(cache.get(-1));
+   }
+
+   public void testExpiration() {
+      QueryResultCache cache = new QueryResultCache(10, 100);
+      cache.put(0, new EmptyResult(), -50);
+      assertFalse(cache.get(0).isExpired(49));
+      assertTrue(cache.get(0).isExpired(50));
+   }
+
+   public void testDifferentQueriesDoNotCollide() {
+      // results are cached by the number of generated query, which has its own condition values
+      QueryResultCache cache = new QueryResultCache(10, 0);
+      Query.Result[] results = {new EmptyResult(), new EmptyResult()};
+      int[] executions = new int[2];
+      for (int round = 0; round < 2; ++round) {
+         for (int queryNumber = 0; queryNumber < 2; ++queryNumber) {
+            int number = queryNumber;
+            Invocations.CachedQuery invocation = new Invocations.CachedQuery(cache, queryNumber, context -> {
+               executions[number]++;
+               return results[number];
+            }, null);
+            assertSame(invocation.invoke(), results[queryNumber]);
+            assertSame(invocation.operation(), round == 0 ? Invocations.CachedQuery.MISS : Invocations.CachedQuery.HIT);
+         }
+      }
+      assertEquals(executions[0], 1);
+      assertEquals(executions[1], 1);
+      assertEquals(cache.size(), 2);
+   }
+
+   private static class EmptyResult implements Query.Result {
+      @Override
+      public int size() {
+         return 0;
+      }
+
+      @Override
+      public Collection values() {
+         return Collections.emptyList();
+      }
+   }
+}
@@ -7,8 +7,12 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
 import org.radargun.DistStageAck;
+import org.radargun.Operation;
 import org.radargun.StageResult;
+import org.radargun.reporting.Report;
 import org.radargun.stages.test.TransactionMode;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
 import org.radargun.traits.Lifecycle;
 import org.radargun.traits.Queryable;
 import org.radargun.util.QueryStageRunner;
@@ -17,6 +21,9 @@ import org.radargun.utils.Utils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
 /**
  * @author Matej Cimbora
  */
@@ -24,6 +31,47 @@ import org.testng.annotations.Test;
 public class QueryStageTest {
 
    public void smokeTest() throws Exception {
+      runQueryStage(new QueryBase());
+   }
+
+   public void cachedResultsTest() throws Exception {
+      QueryBase base = new QueryBase();
+      Utils.setField(QueryBase.class, "numQueries", base, 3);
+      Utils.setField(QueryBase.class, "reuseQueries", base, true);
+      Utils.setField(QueryBase.class, "resultCacheSize", base, 3);
+      Utils.setField(QueryBase.class, "resultCacheTtl", base, 0L);
+      Statistics statistics = runQueryStage(base);
+
+      long hits = requests(statistics, Invocations.CachedQuery.HIT);
+      long misses = requests(statistics, Invocations.CachedQuery.MISS);
+      assertEquals(requests(statistics, Invocations.CachedQuery.EXPIRED), 0);
+      // each query is executed once by each thread at most (possibly before the measurement started),
+      // all repeated queries are served from the cache
+      assertTrue(misses <= 3 * 5, "Misses: " + misses);
+      assertTrue(hits > 100 * Math.max(1, misses), "Hits: " + hits + ", misses: " + misses);
+      assertEquals(requests(statistics, Queryable.QUERY), 0);
+   }
+
+   public void expiredResultsTest() throws Exception {
+      QueryBase base = new QueryBase();
+      Utils.setField(QueryBase.class, "numQueries", base, 3);
+      Utils.setField(QueryBase.class, "resultCacheSize", base, 3);
+      Utils.setField(QueryBase.class, "resultCacheTtl", base, 50L);
+      Statistics statistics = runQueryStage(base);
+
+      // the results are executed again after these expire, about each 50 ms
+      long expired = requests(statistics, Invocations.CachedQuery.EXPIRED);
+      assertTrue(expired >= 3 * 10, "Expired: " + expired);
+      assertTrue(requests(statistics, Invocations.CachedQuery.HIT) > 100 * expired);
+      assertTrue(requests(statistics, Invocations.CachedQuery.MISS) <= 3 * 5);
+   }
+
+   private static long requests(Statistics statistics, Operation operation) {
+      DefaultOutcome outcome = statistics.getRepresentation(operation.name, DefaultOutcome.class);
+      return outcome == null ? 0 : outcome.requests;
+   }
+
+   private Statistics runQueryStage(QueryBase base) throws Exception {
       QueryStageRunner stageRunner = new QueryStageRunner(1);
 
       Lifecycle lifecycle = stageRunner.getTraitImpl(Lifecycle.class);
@@ -32,6 +80,7 @@ public class QueryStageTest {
       queryStage.totalThreads = 5;
       queryStage.duration = 3000;
       queryStage.useTransactions = TransactionMode.NEVER;
+      queryStage.base = base;
 
       QueryConfiguration queryConfiguration = new QueryConfiguration();
       Utils.setField(QueryConfiguration.class, "clazz", queryConfiguration, "java.lang.Integer");
@@ -71,5 +120,7 @@ public class QueryStageTest {
       acks.add(stageRunner.executeOnSlave(queryStage, 0));
 
       Assert.assertEquals(stageRunner.processAckOnMaster(queryStage, acks), StageResult.SUCCESS);
+      Report.Test test = stageRunner.getMasterState().getReport().getTest(queryStage.testName);
+      return test.getIterations().get(0).getTotalStatistics();
    }
 }
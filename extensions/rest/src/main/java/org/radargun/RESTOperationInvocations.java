@@ -4,6 +4,7 @@ import java.util.List;
 import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import org.radargun.stages.test.AsyncInvocation;
 import org.radargun.stages.test.Invocation;
 import org.radargun.traits.RESTOperations;
 
@@ -41,4 +42,33 @@ public class RESTOperationInvocations {
          return RESTOperations.GET;
       }
    }
+
+   public static final class AsyncGet implements AsyncInvocation<Response> {
+      private final RESTOperations.AsyncRESTOperationInvoker httpInvoker;
+      private List<Cookie> cookies;
+      private MultivaluedMap<String, Object> headers;
+      private RESTOperations.AsyncResponse response;
+
+      public AsyncGet(RESTOperations.AsyncRESTOperationInvoker httpInvoker, List<Cookie> cookies, MultivaluedMap<String, Object> headers) {
+         this.httpInvoker = httpInvoker;
+         this.cookies = cookies;
+         this.headers = headers;
+      }
+
+      @Override
+      public RESTOperations.AsyncResponse invoke() {
+         response = httpInvoker.getAsync(cookies, headers);
+         return response;
+      }
+
+      @Override
+      public Operation operation() {
+         return RESTOperations.GET;
+      }
+
+      @Override
+      public long requestSentTime() {
+         return response.getSentTime();
+      }
+   }
 }
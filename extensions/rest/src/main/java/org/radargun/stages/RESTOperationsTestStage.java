@@ -24,6 +24,9 @@ import org.radargun.traits.RESTOperations;
  * A test stage for REST operations on a Web application running in a remote
  * web container. Performing only Get operations.
  *
+ * When <code>max-in-flight-requests</code> is greater than 1 and the service provides
+ * {@link RESTOperations.AsyncRESTOperationInvoker}, the requests are sent without blocking.
+ *
  * @author Martin Gencur
  */
 @Namespace(name = RESTOperationsTestStage.NAMESPACE)
@@ -61,20 +64,27 @@ public class RESTOperationsTestStage extends TestStage {
     * The logic sends GET requests to a predefined URL and keeps track of
     * a session cookie (JSESSIONID). If the logic receives a new session
     * from the remote Web server, it logs an error unless it is a first request.
-    * The new session is expected on the first request.
+    * The new session is expected on the first request, therefore it is always
+    * sent synchronously.
     */
    protected class StickySessionLogic extends OperationLogic {
 
       private static final String JSESSIONID = "JSESSIONID";
 
       protected RESTOperations.RESTOperationInvoker restInvoker;
+      protected RESTOperations.AsyncRESTOperationInvoker asyncInvoker;
       private boolean isFirstRequest = true;
       private Cookie jsessionid;
+      // set by asynchronous responses
+      private volatile boolean sessionLost;
 
       @Override
       public void init(Stressor stressor) {
          super.init(stressor);
          this.restInvoker = restOperations.getRESTInvoker(contextPath);
+         if (maxInFlightRequests > 1 && restInvoker instanceof RESTOperations.AsyncRESTOperationInvoker) {
+            asyncInvoker = (RESTOperations.AsyncRESTOperationInvoker) restInvoker;
+         }
          stressor.setUseTransactions(false);//transactions for HTTP ops do not make sense
       }
 
@@ -84,6 +94,14 @@ public class RESTOperationsTestStage extends TestStage {
          Invocation invocation;
          if (operation == RESTOperations.GET) {
             List<Cookie> cookies = jsessionid == null ? Collections.EMPTY_LIST : Collections.singletonList(jsessionid);
+            if (asyncInvoker != null && !isFirstRequest) {
+               if (sessionLost) {
+                  throw new IllegalStateException("Session lost!");
+               }
+               stressor.makeRequestAsync(new RESTOperationInvocations.AsyncGet(asyncInvoker, cookies, null))
+                  .thenAccept(this::checkSession);
+               return;
+            }
             invocation = new RESTOperationInvocations.Get(restInvoker, cookies, null);
          } else {
             throw new IllegalArgumentException(operation.name);
@@ -93,6 +111,12 @@ public class RESTOperationsTestStage extends TestStage {
          isFirstRequest = false;
       }
 
+      private void checkSession(Response response) {
+         if (response.getCookies().get(JSESSIONID) != null) {
+            sessionLost = true;
+         }
+      }
+
       private void validateSession(Response response) throws RequestException {
          NewCookie newSessionId = response.getCookies().get(JSESSIONID);
          if (newSessionId != null) {
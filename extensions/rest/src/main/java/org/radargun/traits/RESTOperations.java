@@ -1,10 +1,12 @@
 package org.radargun.traits;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import org.radargun.Operation;
+import org.radargun.utils.TimeService;
 
 /**
  * @author Martin Gencur
@@ -20,4 +22,30 @@ public interface RESTOperations {
    interface RESTOperationInvoker {
       Response get(List<Cookie> cookies, MultivaluedMap<String, Object> headers);
    }
+
+   /**
+    * Invoker that sends the requests without blocking the calling thread.
+    */
+   interface AsyncRESTOperationInvoker extends RESTOperationInvoker {
+      AsyncResponse getAsync(List<Cookie> cookies, MultivaluedMap<String, Object> headers);
+   }
+
+   /**
+    * Future response that keeps the time when the request was actually sent, e.g. after waiting
+    * for a pooled connection.
+    */
+   class AsyncResponse extends CompletableFuture<Response> {
+      private volatile long sentTime = Long.MIN_VALUE;
+
+      public void sent() {
+         sentTime = TimeService.nanoTime();
+      }
+
+      /**
+       * @return {@link TimeService#nanoTime()} when the request was sent, or {@link Long#MIN_VALUE} if it was not sent yet.
+       */
+      public long getSentTime() {
+         return sentTime;
+      }
+   }
 }
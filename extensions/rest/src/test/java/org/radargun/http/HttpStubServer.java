@@ -0,0 +1,168 @@
+package org.radargun.http;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal embedded HTTP/1.1 server answering all requests with fixed-size body, used for testing
+ * HTTP clients without real backend. Requests on each connection are processed in order, so pipelined
+ * requests are supported. Requests without JSESSIONID cookie get a new session.
+ */
+public class HttpStubServer implements Closeable {
+   private final ServerSocket serverSocket;
+   private final byte[] body;
+   private final long responseDelay;
+   private final boolean chunked;
+   private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+   private final AtomicLong requests = new AtomicLong();
+   private final AtomicLong pipelinedRequests = new AtomicLong();
+   private final AtomicInteger connections = new AtomicInteger();
+   private final AtomicInteger sessions = new AtomicInteger();
+   private volatile boolean running = true;
+
+   /**
+    * @param responseSize Size of the response body.
+    * @param responseDelay Time the server waits before sending each response, in milliseconds.
+    * @param chunked Use chunked transfer encoding instead of Content-Length.
+    */
+   public HttpStubServer(int responseSize, long responseDelay, boolean chunked) throws IOException {
+      this.body = new byte[responseSize];
+      Arrays.fill(body, (byte) 'x');
+      this.responseDelay = responseDelay;
+      this.chunked = chunked;
+      this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      Thread acceptor = new Thread(this::accept, "HttpStubServer-acceptor");
+      acceptor.setDaemon(true);
+      acceptor.start();
+   }
+
+   public InetSocketAddress getAddress() {
+      return new InetSocketAddress(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+   }
+
+   public long getRequests() {
+      return requests.get();
+   }
+
+   /**
+    * @return Number of requests that were received before the response to the previous request on the same connection was sent.
+    */
+   public long getPipelinedRequests() {
+      return pipelinedRequests.get();
+   }
+
+   public int getConnections() {
+      return connections.get();
+   }
+
+   public int getSessions() {
+      return sessions.get();
+   }
+
+   @Override
+   public void close() throws IOException {
+      running = false;
+      serverSocket.close();
+      for (Socket socket : sockets) {
+         socket.close();
+      }
+   }
+
+   private void accept() {
+      while (running) {
+         try {
+            Socket socket = serverSocket.accept();
+            socket.setTcpNoDelay(true);
+            sockets.add(socket);
+            connections.incrementAndGet();
+            Thread handler = new Thread(() -> handle(socket), "HttpStubServer-" + socket.getPort());
+            handler.setDaemon(true);
+            handler.start();
+         } catch (IOException e) {
+            // server closed
+         }
+      }
+   }
+
+   private void handle(Socket socket) {
+      try (Socket s = socket) {
+         InputStream in = new BufferedInputStream(s.getInputStream());
+         OutputStream out = s.getOutputStream();
+         for (;;) {
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+               return;
+            }
+            boolean hasSession = false;
+            boolean close = false;
+            String header;
+            while ((header = readLine(in)) != null && !header.isEmpty()) {
+               String lowerCase = header.toLowerCase();
+               if (lowerCase.startsWith("cookie:") && header.contains("JSESSIONID=")) {
+                  hasSession = true;
+               } else if (lowerCase.startsWith("connection:") && lowerCase.contains("close")) {
+                  close = true;
+               }
+            }
+            requests.incrementAndGet();
+            if (responseDelay > 0) {
+               Thread.sleep(responseDelay);
+            }
+            if (in.available() > 0) {
+               pipelinedRequests.incrementAndGet();
+            }
+            StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\n");
+            if (!hasSession) {
+               response.append("Set-Cookie: JSESSIONID=session").append(sessions.incrementAndGet()).append("; Path=/\r\n");
+            }
+            if (chunked) {
+               response.append("Transfer-Encoding: chunked\r\n\r\n");
+               response.append(Integer.toHexString(body.length)).append("\r\n");
+               out.write(response.toString().getBytes(StandardCharsets.ISO_8859_1));
+               out.write(body);
+               out.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            } else {
+               response.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+               out.write(response.toString().getBytes(StandardCharsets.ISO_8859_1));
+               out.write(body);
+            }
+            out.flush();
+            if (close) {
+               return;
+            }
+         }
+      } catch (IOException | InterruptedException e) {
+         // connection closed
+      } finally {
+         sockets.remove(socket);
+      }
+   }
+
+   private static String readLine(InputStream in) throws IOException {
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) >= 0) {
+         if (b == '\n') {
+            int length = line.size();
+            byte[] bytes = line.toByteArray();
+            return new String(bytes, 0, length > 0 && bytes[length - 1] == '\r' ? length - 1 : length, StandardCharsets.ISO_8859_1);
+         }
+         line.write(b);
+      }
+      return null;
+   }
+}
@@ -0,0 +1,268 @@
+package org.radargun.service;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.radargun.service.OffHeapCodec.Buffer;
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
+import org.radargun.traits.CacheInformation;
+import org.radargun.traits.ConditionalOperations;
+
+/**
+ * Hash table split into segments that store serialized entries off-heap. The segment is selected
+ * by upper bits of the key hash, the slot within segment by the lower bits.
+ */
+public class OffHeapCache implements BasicOperations.Cache, ConditionalOperations.Cache, BulkOperations.Cache, CacheInformation.Cache {
+   private final String name;
+   private final OffHeapSegment[] segments;
+   private final int segmentShift;
+
+   public OffHeapCache(String name, int numSegments, int chunkSize, File directory, int initialCapacity) {
+      this.name = name;
+      int segmentBits = 32 - Integer.numberOfLeadingZeros(Math.max(numSegments - 1, 0));
+      this.segments = new OffHeapSegment[1 << segmentBits];
+      this.segmentShift = 32 - segmentBits;
+      for (int i = 0; i < segments.length; ++i) {
+         segments[i] = new OffHeapSegment(new OffHeapMemory(chunkSize, directory), initialCapacity);
+      }
+   }
+
+   private int segmentIndex(int hash) {
+      // shift by 32 would be no-op
+      return segments.length == 1 ? 0 : hash >>> segmentShift;
+   }
+
+   OffHeapSegment segment(int index) {
+      return segments[index];
+   }
+
+   int numSegments() {
+      return segments.length;
+   }
+
+   @Override
+   public Object get(Object key) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].get(encodedKey, hash, scratch.read);
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      Buffer encodedKey = OffHeapCodec.encode(key, OffHeapCodec.scratch().key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].containsKey(encodedKey, hash);
+   }
+
+   @Override
+   public void put(Object key, Object value) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      segments[segmentIndex(hash)].put(encodedKey, hash, OffHeapCodec.encode(value, scratch.value));
+   }
+
+   @Override
+   public Object getAndPut(Object key, Object value) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].getAndPut(encodedKey, hash, OffHeapCodec.encode(value, scratch.value), scratch.read);
+   }
+
+   @Override
+   public boolean putIfAbsent(Object key, Object value) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].putIfAbsent(encodedKey, hash, OffHeapCodec.encode(value, scratch.value));
+   }
+
+   @Override
+   public boolean remove(Object key) {
+      Buffer encodedKey = OffHeapCodec.encode(key, OffHeapCodec.scratch().key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].remove(encodedKey, hash, null);
+   }
+
+   @Override
+   public boolean remove(Object key, Object oldValue) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].remove(encodedKey, hash, OffHeapCodec.encode(oldValue, scratch.expected));
+   }
+
+   @Override
+   public Object getAndRemove(Object key) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].getAndRemove(encodedKey, hash, scratch.read);
+   }
+
+   @Override
+   public boolean replace(Object key, Object value) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].replace(encodedKey, hash, null, OffHeapCodec.encode(value, scratch.value));
+   }
+
+   @Override
+   public boolean replace(Object key, Object oldValue, Object newValue) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].replace(encodedKey, hash,
+         OffHeapCodec.encode(oldValue, scratch.expected), OffHeapCodec.encode(newValue, scratch.value));
+   }
+
+   @Override
+   public Object getAndReplace(Object key, Object value) {
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      Buffer encodedKey = OffHeapCodec.encode(key, scratch.key);
+      int hash = encodedKey.hash();
+      return segments[segmentIndex(hash)].getAndReplace(encodedKey, hash, OffHeapCodec.encode(value, scratch.value), scratch.read);
+   }
+
+   @Override
+   public Map getAll(Set keys) {
+      Object[] keyArray = keys.toArray();
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      int[] hashes = hashes(keyArray, scratch);
+      int[] bounds = new int[segments.length + 1];
+      int[] order = orderBySegment(hashes, bounds);
+      Map result = new HashMap(keyArray.length);
+      for (int i = 0; i < segments.length; ++i) {
+         if (bounds[i] < bounds[i + 1]) {
+            segments[i].getAll(keyArray, hashes, order, bounds[i], bounds[i + 1], scratch, result);
+         }
+      }
+      return result;
+   }
+
+   @Override
+   public void putAll(Map entries) {
+      Object[] keyArray = new Object[entries.size()];
+      Object[] valueArray = new Object[entries.size()];
+      int index = 0;
+      for (Map.Entry entry : (Set<Map.Entry>) entries.entrySet()) {
+         keyArray[index] = entry.getKey();
+         valueArray[index] = entry.getValue();
+         ++index;
+      }
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      int[] hashes = hashes(keyArray, scratch);
+      int[] bounds = new int[segments.length + 1];
+      int[] order = orderBySegment(hashes, bounds);
+      for (int i = 0; i < segments.length; ++i) {
+         if (bounds[i] < bounds[i + 1]) {
+            segments[i].putAll(keyArray, valueArray, hashes, order, bounds[i], bounds[i + 1], scratch);
+         }
+      }
+   }
+
+   @Override
+   public void removeAll(Set keys) {
+      Object[] keyArray = keys.toArray();
+      OffHeapCodec.Scratch scratch = OffHeapCodec.scratch();
+      int[] hashes = hashes(keyArray, scratch);
+      int[] bounds = new int[segments.length + 1];
+      int[] order = orderBySegment(hashes, bounds);
+      for (int i = 0; i < segments.length; ++i) {
+         if (bounds[i] < bounds[i + 1]) {
+            segments[i].removeAll(keyArray, hashes, order, bounds[i], bounds[i + 1], scratch);
+         }
+      }
+   }
+
+   private static int[] hashes(Object[] keys, OffHeapCodec.Scratch scratch) {
+      int[] hashes = new int[keys.length];
+      for (int i = 0; i < keys.length; ++i) {
+         hashes[i] = OffHeapCodec.encode(keys[i], scratch.key).hash();
+      }
+      return hashes;
+   }
+
+   /**
+    * Counting sort of key indices by segment; keys for segment i are order[bounds[i]] to order[bounds[i + 1] - 1].
+    */
+   private int[] orderBySegment(int[] hashes, int[] bounds) {
+      for (int hash : hashes) {
+         bounds[segmentIndex(hash) + 1]++;
+      }
+      for (int i = 1; i < bounds.length; ++i) {
+         bounds[i] += bounds[i - 1];
+      }
+      int[] next = new int[segments.length];
+      System.arraycopy(bounds, 0, next, 0, segments.length);
+      int[] order = new int[hashes.length];
+      for (int i = 0; i < hashes.length; ++i) {
+         order[next[segmentIndex(hashes[i])]++] = i;
+      }
+      return order;
+   }
+
+   @Override
+   public void clear() {
+      for (OffHeapSegment segment : segments) {
+         segment.clear();
+      }
+   }
+
+   void release() {
+      for (OffHeapSegment segment : segments) {
+         segment.release();
+      }
+   }
+
+   private long size() {
+      long size = 0;
+      for (OffHeapSegment segment : segments) {
+         size += segment.size();
+      }
+      return size;
+   }
+
+   @Override
+   public long getOwnedSize() {
+      return size();
+   }
+
+   @Override
+   public long getLocallyStoredSize() {
+      return size();
+   }
+
+   @Override
+   public long getMemoryStoredSize() {
+      return size();
+   }
+
+   @Override
+   public long getTotalSize() {
+      return size();
+   }
+
+   @Override
+   public Map<?, Long> getStructuredSize() {
+      return Collections.singletonMap(name, size());
+   }
+
+   @Override
+   public int getNumReplicas() {
+      return 1;
+   }
+
+   @Override
+   public int getEntryOverhead() {
+      // excludes rounding of the entry to size class
+      return OffHeapSegment.HEADER_SIZE + OffHeapSegment.INDEX_ENTRY_SIZE;
+   }
+}
@@ -0,0 +1,230 @@
+package org.radargun.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes keys and values into thread-local buffers before they are copied off-heap.
+ * Strings, byte arrays, longs and integers have compact encoding, other objects use Java serialization.
+ * Keys (and expected values in conditional operations) are compared by their serialized form.
+ */
+final class OffHeapCodec {
+   private static final byte STRING = 1;
+   private static final byte BYTES = 2;
+   private static final byte LONG = 3;
+   private static final byte INTEGER = 4;
+   private static final byte SERIALIZED = 5;
+
+   private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+   private OffHeapCodec() {
+   }
+
+   static Scratch scratch() {
+      return SCRATCH.get();
+   }
+
+   static Buffer encode(Object object, Buffer buffer) {
+      if (object == null) {
+         throw new NullPointerException("Off-heap store does not support null keys or values");
+      }
+      buffer.length = 0;
+      if (object instanceof String) {
+         buffer.write(STRING);
+         encodeString((String) object, buffer);
+      } else if (object instanceof byte[]) {
+         buffer.write(BYTES);
+         buffer.write((byte[]) object);
+      } else if (object instanceof Long) {
+         buffer.write(LONG);
+         buffer.writeLong((Long) object);
+      } else if (object instanceof Integer) {
+         buffer.write(INTEGER);
+         buffer.writeInt((Integer) object);
+      } else {
+         buffer.write(SERIALIZED);
+         try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(object);
+         } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize " + object, e);
+         }
+      }
+      return buffer;
+   }
+
+   static Object decode(Buffer buffer) {
+      byte[] bytes = buffer.bytes;
+      switch (bytes[0]) {
+         case STRING:
+            return new String(bytes, 1, buffer.length - 1, StandardCharsets.UTF_8);
+         case BYTES:
+            byte[] copy = new byte[buffer.length - 1];
+            System.arraycopy(bytes, 1, copy, 0, copy.length);
+            return copy;
+         case LONG:
+            return buffer.view.getLong(1);
+         case INTEGER:
+            return buffer.view.getInt(1);
+         case SERIALIZED:
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, 1, buffer.length - 1))) {
+               return in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+               throw new IllegalStateException("Cannot deserialize stored object", e);
+            }
+         default:
+            throw new IllegalStateException("Unknown type tag " + bytes[0]);
+      }
+   }
+
+   private static void encodeString(String string, Buffer buffer) {
+      int length = string.length();
+      buffer.reserve(length);
+      for (int i = 0; i < length; ++i) {
+         char c = string.charAt(i);
+         if (c >= 0x80) {
+            // rare case, let the JDK encode the rest
+            buffer.write(string.substring(i).getBytes(StandardCharsets.UTF_8));
+            return;
+         }
+         buffer.bytes[buffer.length++] = (byte) c;
+      }
+   }
+
+   /**
+    * Growable byte array that can be copied to and compared with off-heap memory
+    * using absolute accesses only.
+    */
+   static final class Buffer extends OutputStream {
+      private static final int INITIAL_CAPACITY = 256;
+
+      private byte[] bytes;
+      private ByteBuffer view;
+      private int length;
+
+      Buffer() {
+         allocate(INITIAL_CAPACITY);
+      }
+
+      int length() {
+         return length;
+      }
+
+      /**
+       * Murmur3 finalizer applied on polynomial hash of the contents.
+       */
+      int hash() {
+         int h = 0;
+         for (int i = 0; i < length; ++i) {
+            h = 31 * h + bytes[i];
+         }
+         h ^= h >>> 16;
+         h *= 0x85ebca6b;
+         h ^= h >>> 13;
+         h *= 0xc2b2ae35;
+         h ^= h >>> 16;
+         return h;
+      }
+
+      @Override
+      public void write(int b) {
+         reserve(1);
+         bytes[length++] = (byte) b;
+      }
+
+      @Override
+      public void write(byte[] b) {
+         write(b, 0, b.length);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+         reserve(len);
+         System.arraycopy(b, off, bytes, length, len);
+         length += len;
+      }
+
+      void writeLong(long value) {
+         reserve(8);
+         view.putLong(length, value);
+         length += 8;
+      }
+
+      void writeInt(int value) {
+         reserve(4);
+         view.putInt(length, value);
+         length += 4;
+      }
+
+      void reserve(int additional) {
+         int required = length + additional;
+         if (required > bytes.length) {
+            byte[] old = bytes;
+            allocate(Math.max(required, 2 * old.length));
+            System.arraycopy(old, 0, bytes, 0, length);
+         }
+      }
+
+      private void allocate(int capacity) {
+         bytes = new byte[capacity];
+         view = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder());
+      }
+
+      void readFrom(ByteBuffer memory, int offset, int length) {
+         this.length = 0;
+         reserve(length);
+         int i = 0;
+         for (; i <= length - 8; i += 8) {
+            view.putLong(i, memory.getLong(offset + i));
+         }
+         for (; i < length; ++i) {
+            bytes[i] = memory.get(offset + i);
+         }
+         this.length = length;
+      }
+
+      void writeTo(ByteBuffer memory, int offset) {
+         int i = 0;
+         for (; i <= length - 8; i += 8) {
+            memory.putLong(offset + i, view.getLong(i));
+         }
+         for (; i < length; ++i) {
+            memory.put(offset + i, bytes[i]);
+         }
+      }
+
+      boolean contentEquals(ByteBuffer memory, int offset, int length) {
+         if (length != this.length) {
+            return false;
+         }
+         int i = 0;
+         for (; i <= length - 8; i += 8) {
+            if (memory.getLong(offset + i) != view.getLong(i)) {
+               return false;
+            }
+         }
+         for (; i < length; ++i) {
+            if (memory.get(offset + i) != bytes[i]) {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Buffers used by one thread; an operation needs at most the key, the new value,
+    * the expected value and a buffer where the stored data are copied before decoding.
+    */
+   static final class Scratch {
+      final Buffer key = new Buffer();
+      final Buffer value = new Buffer();
+      final Buffer expected = new Buffer();
+      final Buffer read = new Buffer();
+   }
+}
@@ -0,0 +1,101 @@
+package org.radargun.service;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.radargun.traits.Iterable;
+
+/**
+ * Iterates through the segments slot by slot, taking the segment lock only while single entry is copied out.
+ * The iteration is weakly consistent: entries modified concurrently may be missed or returned twice.
+ */
+public class OffHeapIterable implements Iterable {
+   protected final OffHeapService service;
+
+   public OffHeapIterable(OffHeapService service) {
+      this.service = service;
+   }
+
+   @Override
+   public <K, V> CloseableIterator<Map.Entry<K, V>> getIterator(String containerName, Filter<K, V> filter) {
+      return new OffHeapIterator<>(service.getCache(containerName), filter, AbstractMap.SimpleImmutableEntry::new);
+   }
+
+   @Override
+   public <K, V, T> CloseableIterator<T> getIterator(String containerName, Filter<K, V> filter, Converter<K, V, T> converter) {
+      return new OffHeapIterator<>(service.getCache(containerName), filter, converter);
+   }
+
+   private static class OffHeapIterator<K, V, T> implements CloseableIterator<T> {
+      private final OffHeapCache cache;
+      private final Filter<K, V> filter;
+      private final Converter<K, V, T> converter;
+      private final OffHeapCodec.Buffer keyBuffer = new OffHeapCodec.Buffer();
+      private final OffHeapCodec.Buffer valueBuffer = new OffHeapCodec.Buffer();
+      private int segment;
+      private int cursor;
+      private K nextKey;
+      private T next;
+      private K lastKey;
+      private int lastSegment = -1;
+      private int lastSlot;
+
+      private OffHeapIterator(OffHeapCache cache, Filter<K, V> filter, Converter<K, V, T> converter) {
+         this.cache = cache;
+         this.filter = filter;
+         this.converter = converter;
+      }
+
+      @Override
+      public boolean hasNext() {
+         while (nextKey == null && segment < cache.numSegments()) {
+            int slot = cache.segment(segment).readEntry(cursor, keyBuffer, valueBuffer);
+            if (slot < 0) {
+               segment++;
+               cursor = 0;
+               continue;
+            }
+            cursor = slot + 1;
+            K key = (K) OffHeapCodec.decode(keyBuffer);
+            V value = (V) OffHeapCodec.decode(valueBuffer);
+            if (filter == null || filter.accept(key, value)) {
+               nextKey = key;
+               next = converter.convert(key, value);
+               lastSegment = segment;
+               lastSlot = slot;
+            }
+         }
+         return nextKey != null;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         T current = next;
+         lastKey = nextKey;
+         nextKey = null;
+         next = null;
+         return current;
+      }
+
+      @Override
+      public void remove() {
+         if (lastKey == null) {
+            throw new IllegalStateException();
+         }
+         cache.remove(lastKey);
+         lastKey = null;
+         // backward-shift deletion could move the following entry into the removed slot
+         if (nextKey == null && segment == lastSegment) {
+            cursor = lastSlot;
+         }
+      }
+
+      @Override
+      public void close() {
+      }
+   }
+}
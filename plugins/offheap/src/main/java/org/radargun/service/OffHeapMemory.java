@@ -0,0 +1,178 @@
+package org.radargun.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocator of off-heap blocks for one segment; not thread-safe, access is guarded by the segment lock.
+ *
+ * Memory is reserved in chunks (direct buffers or memory-mapped files) and carved into blocks by bumping
+ * a pointer. Block sizes are rounded up to size classes (four classes per power of two) and freed blocks
+ * are kept in per-class free lists, with the pointer to the next free block stored in the block itself.
+ * Blocks that do not fit into a chunk get a dedicated buffer.
+ *
+ * Address of a block is chunk index in the upper and offset within the chunk in the lower 32 bits.
+ */
+class OffHeapMemory {
+   static final long NO_ADDRESS = -1;
+   private static final int MIN_BLOCK_SHIFT = 4;
+   private static final int MIN_BLOCK_SIZE = 1 << MIN_BLOCK_SHIFT;
+   private static final int CLASSES_PER_POWER = 4;
+
+   private final int chunkSize;
+   private final File directory;
+   private final List<ByteBuffer> chunks = new ArrayList<>();
+   // chunks retained after clear()
+   private final ArrayDeque<ByteBuffer> spareChunks = new ArrayDeque<>();
+   // indices of released dedicated chunks
+   private final ArrayDeque<Integer> freeChunkIndices = new ArrayDeque<>();
+   private final long[] freeLists;
+   private int bumpChunk = -1;
+   private int bumpOffset;
+
+   /**
+    * @param chunkSize Power of two, therefore any block up to this size fits into a chunk.
+    * @param directory Directory for memory-mapped files or null for direct buffers.
+    */
+   OffHeapMemory(int chunkSize, File directory) {
+      if (Integer.bitCount(chunkSize) != 1 || chunkSize < MIN_BLOCK_SIZE) {
+         throw new IllegalArgumentException("Chunk size must be power of two: " + chunkSize);
+      }
+      this.chunkSize = chunkSize;
+      this.directory = directory;
+      this.freeLists = new long[sizeClass(chunkSize) + 1];
+      Arrays.fill(freeLists, NO_ADDRESS);
+   }
+
+   static int sizeClass(int size) {
+      if (size <= MIN_BLOCK_SIZE) {
+         return 0;
+      }
+      int shift = 31 - Integer.numberOfLeadingZeros(size - 1);
+      int subClass = (size - 1 - (1 << shift)) >> (shift - 2);
+      return (shift - MIN_BLOCK_SHIFT) * CLASSES_PER_POWER + subClass + 1;
+   }
+
+   static int classSize(int sizeClass) {
+      if (sizeClass == 0) {
+         return MIN_BLOCK_SIZE;
+      }
+      int shift = (sizeClass - 1) / CLASSES_PER_POWER + MIN_BLOCK_SHIFT;
+      int subClass = (sizeClass - 1) % CLASSES_PER_POWER;
+      return (1 << shift) + ((subClass + 1) << (shift - 2));
+   }
+
+   /**
+    * @return Number of bytes actually occupied by block requested with given size.
+    */
+   int blockSize(int size) {
+      return size > chunkSize ? size : classSize(sizeClass(size));
+   }
+
+   long allocate(int size) {
+      if (size > chunkSize) {
+         return address(addChunk(allocateChunk(size)), 0);
+      }
+      int blockSize = blockSize(size);
+      int sizeClass = sizeClass(size);
+      long address = freeLists[sizeClass];
+      if (address != NO_ADDRESS) {
+         freeLists[sizeClass] = chunk(address).getLong(offset(address));
+         return address;
+      }
+      if (bumpChunk < 0 || bumpOffset + blockSize > chunkSize) {
+         ByteBuffer chunk = spareChunks.isEmpty() ? allocateChunk(chunkSize) : spareChunks.poll();
+         bumpChunk = addChunk(chunk);
+         bumpOffset = 0;
+      }
+      address = address(bumpChunk, bumpOffset);
+      bumpOffset += blockSize;
+      return address;
+   }
+
+   void free(long address, int size) {
+      if (size > chunkSize) {
+         int index = (int) (address >>> 32);
+         chunks.set(index, null);
+         freeChunkIndices.push(index);
+         return;
+      }
+      int sizeClass = sizeClass(size);
+      chunk(address).putLong(offset(address), freeLists[sizeClass]);
+      freeLists[sizeClass] = address;
+   }
+
+   /**
+    * Release all blocks; regular chunks are kept for reuse.
+    */
+   void clear() {
+      for (ByteBuffer chunk : chunks) {
+         if (chunk != null && chunk.capacity() == chunkSize) {
+            spareChunks.add(chunk);
+         }
+      }
+      chunks.clear();
+      freeChunkIndices.clear();
+      Arrays.fill(freeLists, NO_ADDRESS);
+      bumpChunk = -1;
+      bumpOffset = 0;
+   }
+
+   /**
+    * Drop references to all chunks; the memory is released when the buffers are garbage-collected.
+    */
+   void release() {
+      clear();
+      spareChunks.clear();
+   }
+
+   ByteBuffer chunk(long address) {
+      return chunks.get((int) (address >>> 32));
+   }
+
+   static int offset(long address) {
+      return (int) address;
+   }
+
+   private static long address(int chunk, int offset) {
+      return ((long) chunk << 32) | offset;
+   }
+
+   private int addChunk(ByteBuffer chunk) {
+      Integer index = freeChunkIndices.poll();
+      if (index == null) {
+         chunks.add(chunk);
+         return chunks.size() - 1;
+      }
+      chunks.set(index, chunk);
+      return index;
+   }
+
+   private ByteBuffer allocateChunk(int size) {
+      if (directory == null) {
+         return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+      }
+      File file = null;
+      try {
+         file = File.createTempFile("radargun-offheap-", ".chunk", directory);
+         try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // the mapping stays valid after the channel is closed and the file deleted
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.nativeOrder());
+         }
+      } catch (IOException e) {
+         throw new IllegalStateException("Cannot map chunk in " + directory, e);
+      } finally {
+         if (file != null && !file.delete()) {
+            file.deleteOnExit();
+         }
+      }
+   }
+}
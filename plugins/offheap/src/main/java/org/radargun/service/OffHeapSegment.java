@@ -0,0 +1,381 @@
+package org.radargun.service;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.radargun.service.OffHeapCodec.Buffer;
+
+/**
+ * Part of the off-heap hash table guarded by single read-write lock.
+ *
+ * The index is an open-addressing table with linear probing and backward-shift deletion, kept
+ * in primitive arrays (entry addresses and hashes), so the garbage collector does not need to trace it.
+ * Each entry is stored off-heap as [key length][value length][key][value].
+ */
+class OffHeapSegment {
+   static final int HEADER_SIZE = 8;
+   static final int INDEX_ENTRY_SIZE = 12;
+   private static final int VALUE_LENGTH_OFFSET = 4;
+   private static final float LOAD_FACTOR = 0.75f;
+   // slots store address + 1, so that zero means empty slot
+   private static final long EMPTY = 0;
+
+   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+   private final OffHeapMemory memory;
+   private final int initialCapacity;
+   private long[] slots;
+   private int[] hashes;
+   private int mask;
+   private int size;
+   private int threshold;
+
+   OffHeapSegment(OffHeapMemory memory, int initialCapacity) {
+      this.memory = memory;
+      this.initialCapacity = Integer.highestOneBit(Math.max(initialCapacity - 1, 1)) << 1;
+      allocateIndex(this.initialCapacity);
+   }
+
+   Object get(Buffer key, int hash, Buffer read) {
+      lock.readLock().lock();
+      try {
+         int slot = find(key, hash);
+         return slot < 0 ? null : readValue(slot, read);
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   boolean containsKey(Buffer key, int hash) {
+      lock.readLock().lock();
+      try {
+         return find(key, hash) >= 0;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   void put(Buffer key, int hash, Buffer value) {
+      lock.writeLock().lock();
+      try {
+         store(find(key, hash), key, hash, value);
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   Object getAndPut(Buffer key, int hash, Buffer value, Buffer read) {
+      lock.writeLock().lock();
+      try {
+         int slot = find(key, hash);
+         Object previous = slot < 0 ? null : readValue(slot, read);
+         store(slot, key, hash, value);
+         return previous;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   boolean putIfAbsent(Buffer key, int hash, Buffer value) {
+      lock.writeLock().lock();
+      try {
+         int slot = find(key, hash);
+         if (slot >= 0) {
+            return false;
+         }
+         store(slot, key, hash, value);
+         return true;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * @param expected Serialized expected value or null if any value should be replaced.
+    */
+   boolean replace(Buffer key, int hash, Buffer expected, Buffer value) {
+      lock.writeLock().lock();
+      try {
+         int slot = find(key, hash);
+         if (slot < 0 || (expected != null && !valueEquals(slot, expected))) {
+            return false;
+         }
+         store(slot, key, hash, value);
+         return true;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   Object getAndReplace(Buffer key, int hash, Buffer value, Buffer read) {
+      lock.writeLock().lock();
+      try {
+         int slot = find(key, hash);
+         if (slot < 0) {
+            return null;
+         }
+         Object previous = readValue(slot, read);
+         store(slot, key, hash, value);
+         return previous;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * @param expected Serialized expected value or null if any value should be removed.
+    */
+   boolean remove(Buffer key, int hash, Buffer expected) {
+      lock.writeLock().lock();
+      try {
+         int slot = find(key, hash);
+         if (slot < 0 || (expected != null && !valueEquals(slot, expected))) {
+            return false;
+         }
+         removeSlot(slot);
+         return true;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   Object getAndRemove(Buffer key, int hash, Buffer read) {
+      lock.writeLock().lock();
+      try {
+         int slot = find(key, hash);
+         if (slot < 0) {
+            return null;
+         }
+         Object previous = readValue(slot, read);
+         removeSlot(slot);
+         return previous;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Bulk operations process keys with indices order[from] to order[to - 1] under single lock acquisition.
+    */
+   <K, V> void getAll(K[] keys, int[] keyHashes, int[] order, int from, int to, OffHeapCodec.Scratch scratch, Map<K, V> result) {
+      lock.readLock().lock();
+      try {
+         for (int i = from; i < to; ++i) {
+            int index = order[i];
+            int slot = find(OffHeapCodec.encode(keys[index], scratch.key), keyHashes[index]);
+            if (slot >= 0) {
+               result.put(keys[index], (V) readValue(slot, scratch.read));
+            }
+         }
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   void putAll(Object[] keys, Object[] values, int[] keyHashes, int[] order, int from, int to, OffHeapCodec.Scratch scratch) {
+      lock.writeLock().lock();
+      try {
+         for (int i = from; i < to; ++i) {
+            int index = order[i];
+            Buffer key = OffHeapCodec.encode(keys[index], scratch.key);
+            store(find(key, keyHashes[index]), key, keyHashes[index], OffHeapCodec.encode(values[index], scratch.value));
+         }
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   void removeAll(Object[] keys, int[] keyHashes, int[] order, int from, int to, OffHeapCodec.Scratch scratch) {
+      lock.writeLock().lock();
+      try {
+         for (int i = from; i < to; ++i) {
+            int index = order[i];
+            int slot = find(OffHeapCodec.encode(keys[index], scratch.key), keyHashes[index]);
+            if (slot >= 0) {
+               removeSlot(slot);
+            }
+         }
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Reads the first entry stored in slot with index greater or equal to the cursor. Concurrent
+    * modifications may move entries between slots, therefore the iteration is only weakly consistent.
+    *
+    * @return Index of the slot that has been read, or -1 if there are no more entries.
+    */
+   int readEntry(int cursor, Buffer key, Buffer value) {
+      lock.readLock().lock();
+      try {
+         for (int slot = cursor; slot < slots.length; ++slot) {
+            if (slots[slot] != EMPTY) {
+               long address = slots[slot] - 1;
+               ByteBuffer chunk = memory.chunk(address);
+               int offset = OffHeapMemory.offset(address);
+               int keyLength = chunk.getInt(offset);
+               key.readFrom(chunk, offset + HEADER_SIZE, keyLength);
+               value.readFrom(chunk, offset + HEADER_SIZE + keyLength, chunk.getInt(offset + VALUE_LENGTH_OFFSET));
+               return slot;
+            }
+         }
+         return -1;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   int size() {
+      lock.readLock().lock();
+      try {
+         return size;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   void clear() {
+      lock.writeLock().lock();
+      try {
+         memory.clear();
+         allocateIndex(initialCapacity);
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   void release() {
+      lock.writeLock().lock();
+      try {
+         memory.release();
+         allocateIndex(initialCapacity);
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * @return Index of the slot holding the key, or bitwise complement of the first empty slot in the probe sequence.
+    */
+   private int find(Buffer key, int hash) {
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+         long entry = slots[slot];
+         if (entry == EMPTY) {
+            return ~slot;
+         }
+         if (hashes[slot] == hash) {
+            long address = entry - 1;
+            ByteBuffer chunk = memory.chunk(address);
+            int offset = OffHeapMemory.offset(address);
+            if (key.contentEquals(chunk, offset + HEADER_SIZE, chunk.getInt(offset))) {
+               return slot;
+            }
+         }
+      }
+   }
+
+   private Object readValue(int slot, Buffer read) {
+      long address = slots[slot] - 1;
+      ByteBuffer chunk = memory.chunk(address);
+      int offset = OffHeapMemory.offset(address);
+      int keyLength = chunk.getInt(offset);
+      read.readFrom(chunk, offset + HEADER_SIZE + keyLength, chunk.getInt(offset + VALUE_LENGTH_OFFSET));
+      return OffHeapCodec.decode(read);
+   }
+
+   private boolean valueEquals(int slot, Buffer expected) {
+      long address = slots[slot] - 1;
+      ByteBuffer chunk = memory.chunk(address);
+      int offset = OffHeapMemory.offset(address);
+      int keyLength = chunk.getInt(offset);
+      return expected.contentEquals(chunk, offset + HEADER_SIZE + keyLength, chunk.getInt(offset + VALUE_LENGTH_OFFSET));
+   }
+
+   /**
+    * @param slot Result of {@link #find(Buffer, int)}.
+    */
+   private void store(int slot, Buffer key, int hash, Buffer value) {
+      int entrySize = HEADER_SIZE + key.length() + value.length();
+      if (slot >= 0) {
+         long address = slots[slot] - 1;
+         ByteBuffer chunk = memory.chunk(address);
+         int offset = OffHeapMemory.offset(address);
+         int oldSize = HEADER_SIZE + chunk.getInt(offset) + chunk.getInt(offset + VALUE_LENGTH_OFFSET);
+         if (memory.blockSize(oldSize) == memory.blockSize(entrySize)) {
+            // overwrite the value in place
+            chunk.putInt(offset + VALUE_LENGTH_OFFSET, value.length());
+            value.writeTo(chunk, offset + HEADER_SIZE + key.length());
+            return;
+         }
+         slots[slot] = write(key, value, entrySize) + 1;
+         memory.free(address, oldSize);
+         return;
+      }
+      if (size >= threshold) {
+         resize();
+         slot = find(key, hash);
+      }
+      slot = ~slot;
+      slots[slot] = write(key, value, entrySize) + 1;
+      hashes[slot] = hash;
+      size++;
+   }
+
+   private long write(Buffer key, Buffer value, int entrySize) {
+      long address = memory.allocate(entrySize);
+      ByteBuffer chunk = memory.chunk(address);
+      int offset = OffHeapMemory.offset(address);
+      chunk.putInt(offset, key.length());
+      chunk.putInt(offset + VALUE_LENGTH_OFFSET, value.length());
+      key.writeTo(chunk, offset + HEADER_SIZE);
+      value.writeTo(chunk, offset + HEADER_SIZE + key.length());
+      return address;
+   }
+
+   private void removeSlot(int slot) {
+      long address = slots[slot] - 1;
+      ByteBuffer chunk = memory.chunk(address);
+      int offset = OffHeapMemory.offset(address);
+      memory.free(address, HEADER_SIZE + chunk.getInt(offset) + chunk.getInt(offset + VALUE_LENGTH_OFFSET));
+      // shift back following entries that would not be reachable from their ideal slot
+      int hole = slot;
+      for (int i = (slot + 1) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+         int ideal = hashes[i] & mask;
+         if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+            slots[hole] = slots[i];
+            hashes[hole] = hashes[i];
+            hole = i;
+         }
+      }
+      slots[hole] = EMPTY;
+      hashes[hole] = 0;
+      size--;
+   }
+
+   private void resize() {
+      long[] oldSlots = slots;
+      int[] oldHashes = hashes;
+      int oldSize = size;
+      allocateIndex(oldSlots.length << 1);
+      for (int i = 0; i < oldSlots.length; ++i) {
+         if (oldSlots[i] != EMPTY) {
+            int slot = oldHashes[i] & mask;
+            while (slots[slot] != EMPTY) {
+               slot = (slot + 1) & mask;
+            }
+            slots[slot] = oldSlots[i];
+            hashes[slot] = oldHashes[i];
+         }
+      }
+      size = oldSize;
+   }
+
+   private void allocateIndex(int capacity) {
+      slots = new long[capacity];
+      hashes = new int[capacity];
+      mask = capacity - 1;
+      threshold = (int) (capacity * LOAD_FACTOR);
+      size = 0;
+   }
+}
@@ -0,0 +1,155 @@
+package org.radargun.service;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.radargun.Service;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
+import org.radargun.traits.CacheInformation;
+import org.radargun.traits.ConditionalOperations;
+import org.radargun.traits.Iterable;
+import org.radargun.traits.Lifecycle;
+import org.radargun.traits.ProvidesTrait;
+import org.radargun.utils.SizeConverter;
+
+/**
+ * Local store keeping keys and values serialized outside of Java heap, so that the stored data
+ * do not add to garbage collection work. Serves as a baseline showing the cost of the benchmark
+ * harness itself when compared with {@link ChmService} or a real data grid.
+ *
+ * Direct buffers count to -XX:MaxDirectMemorySize limit, memory-mapped files are limited only by disk space.
+ */
+@Service(doc = "Segmented hash table storing serialized entries in direct buffers or memory-mapped files - not a distributed cache.")
+public class OffHeapService implements Lifecycle {
+   private static final Log log = LogFactory.getLog(OffHeapService.class);
+   private static final String DEFAULT_CACHE = "default";
+   private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+   @Property(doc = "Number of segments in each cache; each segment has its own lock and memory chunks. " +
+      "Rounded up to power of two. Default is 16.")
+   protected int segments = 16;
+
+   @Property(doc = "Size of memory chunk allocated by segment, rounded up to power of two. " +
+      "Larger entries are stored in dedicated buffers. Default is 4 MB.", converter = SizeConverter.class)
+   protected long chunkSize = 4 * 1024 * 1024;
+
+   @Property(doc = "Initial number of slots in the index of each segment. Default is 1024.")
+   protected int initialCapacity = 1024;
+
+   @Property(doc = "Directory for memory-mapped files backing the chunks. By default the chunks are direct buffers.")
+   protected String directory;
+
+   protected final ConcurrentHashMap<String, OffHeapCache> caches = new ConcurrentHashMap<>();
+   protected volatile boolean running;
+
+   @ProvidesTrait
+   public OffHeapService getSelf() {
+      return this;
+   }
+
+   @Override
+   public void start() {
+      if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+         throw new IllegalArgumentException("Chunk size must be positive and at most 1 GB: " + chunkSize);
+      }
+      if (directory != null) {
+         File dir = new File(directory);
+         if (!dir.exists() && !dir.mkdirs()) {
+            throw new IllegalStateException("Cannot create directory " + directory);
+         }
+      }
+      running = true;
+   }
+
+   @Override
+   public void stop() {
+      for (OffHeapCache cache : caches.values()) {
+         cache.release();
+      }
+      caches.clear();
+      running = false;
+   }
+
+   @Override
+   public boolean isRunning() {
+      return running;
+   }
+
+   public OffHeapCache getCache(String cacheName) {
+      if (cacheName == null) {
+         cacheName = DEFAULT_CACHE;
+      }
+      OffHeapCache cache = caches.get(cacheName);
+      if (cache == null) {
+         int roundedChunkSize = Integer.highestOneBit((int) Math.max(chunkSize - 1, 1)) << 1;
+         log.debug("Creating off-heap cache " + cacheName + " with " + segments + " segments and chunks of " + roundedChunkSize + " bytes");
+         cache = new OffHeapCache(cacheName, segments, roundedChunkSize,
+            directory == null ? null : new File(directory), initialCapacity);
+         OffHeapCache prev = caches.putIfAbsent(cacheName, cache);
+         if (prev != null) cache = prev;
+      }
+      return cache;
+   }
+
+   @ProvidesTrait
+   public BasicOperations createBasicOperations() {
+      return new BasicOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public ConditionalOperations createConditionalOperations() {
+      return new ConditionalOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public BulkOperations createBulkOperations() {
+      return new BulkOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName, boolean preferAsync) {
+            // there is no asynchronous variant, the native implementation is always used
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public Iterable createIterable() {
+      return new OffHeapIterable(this);
+   }
+
+   @ProvidesTrait
+   public CacheInformation createCacheInformation() {
+      return new CacheInformation() {
+         @Override
+         public String getDefaultCacheName() {
+            return DEFAULT_CACHE;
+         }
+
+         @Override
+         public Collection<String> getCacheNames() {
+            return Collections.unmodifiableSet(caches.keySet());
+         }
+
+         @Override
+         public Cache getCache(String cacheName) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+}
@@ -0,0 +1,126 @@
+package org.radargun.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.radargun.traits.Iterable;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class OffHeapCacheTest {
+   private static final int CHUNK_SIZE = 4096;
+
+   public void testSizeClasses() {
+      for (int size = 1; size < 1 << 20; ++size) {
+         int sizeClass = OffHeapMemory.sizeClass(size);
+         assertTrue(OffHeapMemory.classSize(sizeClass) >= size);
+         if (sizeClass > 0) {
+            assertTrue(OffHeapMemory.classSize(sizeClass - 1) < size);
+         }
+      }
+   }
+
+   public void testBasicOperations() {
+      OffHeapCache cache = new OffHeapCache("test", 4, CHUNK_SIZE, null, 4);
+      checkOperations(cache);
+   }
+
+   public void testMappedFiles() throws IOException {
+      OffHeapCache cache = new OffHeapCache("test", 1, CHUNK_SIZE, Files.createTempDirectory("offheap").toFile(), 4);
+      checkOperations(cache);
+   }
+
+   public void testBulkOperations() {
+      OffHeapCache cache = new OffHeapCache("test", 8, CHUNK_SIZE, null, 16);
+      Map<Object, Object> entries = new HashMap<>();
+      for (int i = 0; i < 1000; ++i) {
+         entries.put("key" + i, "value" + i);
+      }
+      cache.putAll(entries);
+      assertEquals(cache.getTotalSize(), 1000);
+      Set<Object> keys = new HashSet<>(Arrays.asList("key1", "key500", "missing"));
+      Map<Object, Object> values = cache.getAll(keys);
+      assertEquals(values.size(), 2);
+      assertEquals(values.get("key500"), "value500");
+      cache.removeAll(keys);
+      assertEquals(cache.getTotalSize(), 998);
+      assertNull(cache.get("key1"));
+   }
+
+   public void testIterationWithRemove() {
+      OffHeapService service = new OffHeapService();
+      OffHeapCache cache = service.getCache(null);
+      for (long i = 0; i < 500; ++i) {
+         cache.put(i, i * 2);
+      }
+      Iterable.CloseableIterator<Map.Entry<Long, Long>> iterator = service.createIterable().getIterator(null, (Long k, Long v) -> k % 2 == 0);
+      int count = 0;
+      while (iterator.hasNext()) {
+         Map.Entry<Long, Long> entry = iterator.next();
+         assertEquals(entry.getValue().longValue(), entry.getKey() * 2);
+         iterator.remove();
+         count++;
+      }
+      assertEquals(count, 250);
+      assertEquals(cache.getTotalSize(), 250);
+      assertFalse(cache.containsKey(42L));
+      assertTrue(cache.containsKey(43L));
+      service.stop();
+   }
+
+   private void checkOperations(OffHeapCache cache) {
+      int count = 2000;
+      for (int i = 0; i < count; ++i) {
+         cache.put("key" + i, new byte[i % 100]);
+      }
+      assertEquals(cache.getTotalSize(), count);
+      assertEquals(((byte[]) cache.get("key150")).length, 50);
+      // grow in place and relocate to larger block
+      cache.put("key150", new byte[51]);
+      cache.put("key151", new byte[500]);
+      // entry larger than chunk
+      cache.put("key152", new byte[3 * CHUNK_SIZE]);
+      assertEquals(((byte[]) cache.get("key150")).length, 51);
+      assertEquals(((byte[]) cache.get("key151")).length, 500);
+      assertEquals(((byte[]) cache.get("key152")).length, 3 * CHUNK_SIZE);
+      assertEquals(cache.getTotalSize(), count);
+
+      for (int i = 0; i < count; i += 2) {
+         assertTrue(cache.remove("key" + i));
+      }
+      assertEquals(cache.getTotalSize(), count / 2);
+      for (int i = 0; i < count; ++i) {
+         assertEquals(cache.containsKey("key" + i), i % 2 == 1, "key" + i);
+      }
+
+      assertFalse(cache.putIfAbsent("key1", "other"));
+      assertTrue(cache.putIfAbsent("key0", "value"));
+      assertFalse(cache.replace("key0", "other", "value2"));
+      assertTrue(cache.replace("key0", "value", "value2"));
+      assertEquals(cache.getAndReplace("key0", 42), "value2");
+      assertEquals(cache.getAndPut("key0", 43L), 42);
+      assertFalse(cache.remove("key0", 42L));
+      assertTrue(cache.remove("key0", 43L));
+      assertNull(cache.getAndRemove("key0"));
+      assertFalse(cache.replace("key0", "value"));
+      cache.put(Arrays.asList("serialized", "key"), "žluťoučký");
+      assertEquals(cache.get(Arrays.asList("serialized", "key")), "žluťoučký");
+
+      cache.clear();
+      assertEquals(cache.getTotalSize(), 0);
+      assertNull(cache.get("key1"));
+      cache.put("key1", "value1");
+      assertEquals(cache.get("key1"), "value1");
+      cache.release();
+   }
+}
@@ -0,0 +1,23 @@
+package org.radargun.http.service;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.radargun.traits.RESTOperations;
+
+/**
+ * Non-blocking HTTP client used by {@link AsyncHttpService}.
+ */
+interface AsyncHttpClient {
+   /**
+    * Sends GET request to given server; the response is completed from one of the client's threads.
+    */
+   RESTOperations.AsyncResponse get(InetSocketAddress server, String path, List<Cookie> cookies, MultivaluedMap<String, Object> headers);
+
+   /**
+    * Fails all outstanding requests and releases the threads.
+    */
+   void close();
+}
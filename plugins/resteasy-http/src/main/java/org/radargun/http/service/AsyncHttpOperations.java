@@ -0,0 +1,68 @@
+package org.radargun.http.service;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.traits.RESTOperations;
+
+public class AsyncHttpOperations implements RESTOperations {
+   private static final Log log = LogFactory.getLog(AsyncHttpOperations.class);
+   private final AsyncHttpService service;
+
+   public AsyncHttpOperations(AsyncHttpService service) {
+      this.service = service;
+   }
+
+   @Override
+   public RESTOperationInvoker getRESTInvoker(String contextPath) {
+      if (service.isRunning()) {
+         return new AsyncRESTOperationInvokerImpl(contextPath);
+      }
+      return null;
+   }
+
+   protected class AsyncRESTOperationInvokerImpl implements AsyncRESTOperationInvoker {
+      private final InetSocketAddress server;
+      private final String path;
+
+      public AsyncRESTOperationInvokerImpl(String contextPath) {
+         // one server is picked for each invoker (thread), subsequent requests go to the same server
+         this.server = service.getServers().get(service.getServersLoadBalance().next(new Random()));
+         this.path = contextPath.startsWith("/") ? contextPath : "/" + contextPath;
+         log.info("Application URL = http://" + server.getHostString() + ":" + server.getPort() + path);
+      }
+
+      @Override
+      public Response get(List<Cookie> cookies, MultivaluedMap<String, Object> headers) {
+         Response response;
+         try {
+            response = getAsync(cookies, headers).join();
+         } catch (CompletionException e) {
+            throw new RuntimeException("AsyncHttpOperations::get request threw exception: " + path, e.getCause());
+         }
+         if (response.getStatus() == Status.NOT_FOUND.getStatusCode()) {
+            log.warn("The requested URI does not exist");
+         }
+         return response;
+      }
+
+      @Override
+      public AsyncResponse getAsync(List<Cookie> cookies, MultivaluedMap<String, Object> headers) {
+         AsyncHttpClient client = service.getHttpClient();
+         if (client == null) {
+            AsyncResponse response = new AsyncResponse();
+            response.completeExceptionally(new IllegalStateException("Service is not running"));
+            return response;
+         }
+         return client.get(server, path, cookies, headers);
+      }
+   }
+}
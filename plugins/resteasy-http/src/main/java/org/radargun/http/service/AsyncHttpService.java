@@ -0,0 +1,186 @@
+package org.radargun.http.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.radargun.Service;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.traits.Lifecycle;
+import org.radargun.traits.ProvidesTrait;
+import org.radargun.utils.Fuzzy;
+import org.radargun.utils.RESTAddressListConverter;
+import org.radargun.utils.TimeConverter;
+
+/**
+ * Non-blocking HTTP client; a few event-loop threads serve all requests, therefore the stressors
+ * don't need a thread per outstanding request (see <code>max-in-flight-requests</code> in the test stage).
+ *
+ * With HTTP/1.1 the responses report when the request left the connection pool, so the stressors record
+ * the wait for a connection separately from the server response time. The HTTP/2 client (JDK HTTP client,
+ * Java 11+) does not expose this, therefore with HTTP/2 the wait for a connection or stream is included
+ * in the response time.
+ */
+@Service(doc = "Non-blocking HTTP/1.1 or HTTP/2 REST client for general Web applications")
+public class AsyncHttpService implements Lifecycle {
+
+   private static final Log log = LogFactory.getLog(AsyncHttpService.class);
+   private AsyncHttpClient httpClient = null;
+
+   @Property(doc = "The username to use on an authenticated server. Defaults to null.")
+   private String username;
+
+   @Property(doc = "The password of the username to use on an authenticated server. Defaults to null.")
+   private String password;
+
+   @Property(doc = "The content type used for get operations. Defaults to application/octet-stream.")
+   private String contentType = "application/octet-stream";
+
+   @Property(doc = "Semicolon-separated list of server addresses.", converter = RESTAddressListConverter.class, optional = false)
+   protected List<InetSocketAddress> servers;
+
+   @Property(doc = "Ratio between the number of connections to individual servers. " +
+                   "Servers from the 'servers' list are indexed from 0. Each stressor " +
+                   "chooses a server according to this load balancing setting and keeps " +
+                   "communicating with this single server.", converter = Fuzzy.IntegerConverter.class)
+   protected Fuzzy<Integer> serversLoadBalance;
+
+   @Property(doc = "HTTP protocol version. HTTP_2 requires Java 11 and falls back to HTTP/1.1 when " +
+                   "the server does not support it; with HTTP_2 the wait for a connection is not recorded " +
+                   "separately from the response time. Default is HTTP_1_1.")
+   protected Protocol protocol = Protocol.HTTP_1_1;
+
+   @Property(doc = "Number of threads handling the connections. Default is 2.")
+   protected int eventLoopThreads = 2;
+
+   @Property(doc = "Maximum number of HTTP/1.1 connections to each server. Default is 4.")
+   protected int maxConnectionsPerHost = 4;
+
+   @Property(doc = "Maximum number of requests sent on single HTTP/1.1 connection before receiving the responses. " +
+                   "When all connections are full, the requests wait in the pool. Value 1 disables pipelining. Default is 16.")
+   protected int maxPipelinedRequests = 16;
+
+   @Property(doc = "Timeout for response. Default is 30 seconds.", converter = TimeConverter.class)
+   protected long socketTimeout = 30000;
+
+   @Property(doc = "Timeout for connection. Default is 30 seconds.", converter = TimeConverter.class)
+   protected long connectionTimeout = 30000;
+
+   enum Protocol {
+      HTTP_1_1, HTTP_2
+   }
+
+   @ProvidesTrait
+   public AsyncHttpOperations createOperations() {
+      return new AsyncHttpOperations(this);
+   }
+
+   @ProvidesTrait
+   public Lifecycle getLifecycle() {
+      return this;
+   }
+
+   @Init
+   public void init() {
+      if (eventLoopThreads < 1)
+         throw new IllegalStateException("Number of event loop threads must be >= 1");
+      if (maxConnectionsPerHost < 1)
+         throw new IllegalStateException("Maximum number of connections must be >= 1");
+      if (maxPipelinedRequests < 1)
+         throw new IllegalStateException("Maximum number of pipelined requests must be >= 1");
+      if (serversLoadBalance == null) {
+         Fuzzy.Builder<Integer> builder = new Fuzzy.Builder<>();
+         for (int i=0; i!=servers.size(); i++) {
+            builder.addWeighted(i, BigDecimal.ONE);
+         }
+         serversLoadBalance = builder.create();
+      } else {
+         for (Integer serverIndex: serversLoadBalance.getProbabilityMap().keySet()) {
+            if (serverIndex >= servers.size())
+               throw new IllegalStateException("Load balancing settings for the REST client include server index " +
+                  "which is not in the server list: " + serverIndex);
+         }
+      }
+   }
+
+   @Override
+   public synchronized void start() {
+      if (httpClient != null) {
+         log.warn("Service already started");
+         return;
+      }
+      try {
+         httpClient = protocol == Protocol.HTTP_2 ? new Http2Client(this) : new Http1Client(this);
+      } catch (IOException e) {
+         throw new RuntimeException("Failed to start HTTP client", e);
+      }
+   }
+
+   @Override
+   public synchronized void stop() {
+      if (httpClient == null) {
+         log.warn("Service not started");
+         return;
+      }
+      httpClient.close();
+      httpClient = null;
+   }
+
+   @Override
+   public synchronized boolean isRunning() {
+      return httpClient != null;
+   }
+
+   public synchronized AsyncHttpClient getHttpClient() {
+      return httpClient;
+   }
+
+   public String getContentType() {
+      return contentType;
+   }
+
+   /**
+    * @return Value of the Authorization header, or null if the credentials are not set.
+    */
+   public String getAuthorization() {
+      if (username == null) {
+         return null;
+      }
+      String credentials = username + ":" + (password == null ? "" : password);
+      return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+   }
+
+   public List<InetSocketAddress> getServers() {
+      return servers;
+   }
+
+   public Fuzzy<Integer> getServersLoadBalance() {
+      return serversLoadBalance;
+   }
+
+   public int getEventLoopThreads() {
+      return eventLoopThreads;
+   }
+
+   public int getMaxConnectionsPerHost() {
+      return maxConnectionsPerHost;
+   }
+
+   public int getMaxPipelinedRequests() {
+      return maxPipelinedRequests;
+   }
+
+   public long getSocketTimeout() {
+      return socketTimeout;
+   }
+
+   public long getConnectionTimeout() {
+      return connectionTimeout;
+   }
+}
@@ -0,0 +1,218 @@
+package org.radargun.http.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.radargun.traits.RESTOperations;
+
+/**
+ * HTTP/1.1 client keeping a pool of keep-alive connections to each server, driven by a few
+ * {@link HttpEventLoop event loops}. A request is sent on the least loaded connection; new connection
+ * is opened when all connections have outstanding requests, until the limit of connections is reached.
+ * After that the requests are pipelined, and when all connections have the maximum number of pipelined
+ * requests, the requests wait in the pool. The response is marked as {@link RESTOperations.AsyncResponse#sent() sent}
+ * when it leaves the pool.
+ */
+class Http1Client implements AsyncHttpClient {
+   // number of attempts to send the request again when the server closes keep-alive connection
+   private static final int MAX_RETRIES = 1;
+
+   private final AsyncHttpService service;
+   private final HttpEventLoop[] loops;
+   private final AtomicInteger nextLoop = new AtomicInteger();
+   private final ConcurrentMap<InetSocketAddress, ServerPool> pools = new ConcurrentHashMap<>();
+   private volatile boolean closed;
+
+   Http1Client(AsyncHttpService service) throws IOException {
+      this.service = service;
+      this.loops = new HttpEventLoop[service.getEventLoopThreads()];
+      for (int i = 0; i < loops.length; ++i) {
+         loops[i] = new HttpEventLoop("HttpEventLoop-" + i);
+      }
+   }
+
+   @Override
+   public RESTOperations.AsyncResponse get(InetSocketAddress server, String path, List<Cookie> cookies, MultivaluedMap<String, Object> headers) {
+      StringBuilder sb = new StringBuilder(256).append("GET ").append(path).append(" HTTP/1.1\r\n");
+      sb.append("Host: ").append(server.getHostString()).append(':').append(server.getPort()).append("\r\n");
+      sb.append("Accept: ").append(service.getContentType()).append("\r\n");
+      String authorization = service.getAuthorization();
+      if (authorization != null) {
+         sb.append("Authorization: ").append(authorization).append("\r\n");
+      }
+      if (cookies != null && !cookies.isEmpty()) {
+         sb.append("Cookie: ");
+         for (int i = 0; i < cookies.size(); ++i) {
+            if (i > 0) {
+               sb.append("; ");
+            }
+            sb.append(cookies.get(i).getName()).append('=').append(cookies.get(i).getValue());
+         }
+         sb.append("\r\n");
+      }
+      if (headers != null) {
+         for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            for (Object value : header.getValue()) {
+               sb.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+         }
+      }
+      sb.append("\r\n");
+      Request request = new Request(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+      if (closed) {
+         request.response.completeExceptionally(new IOException("Client stopped"));
+      } else {
+         pools.computeIfAbsent(server, ServerPool::new).submit(request);
+      }
+      return request.response;
+   }
+
+   @Override
+   public void close() {
+      closed = true;
+      for (HttpEventLoop loop : loops) {
+         loop.stop();
+      }
+      for (ServerPool pool : pools.values()) {
+         pool.failPending();
+      }
+   }
+
+   static class Request {
+      final byte[] bytes;
+      final RESTOperations.AsyncResponse response = new RESTOperations.AsyncResponse();
+      int retries;
+
+      Request(byte[] bytes) {
+         this.bytes = bytes;
+      }
+   }
+
+   /**
+    * Connections to single server and requests waiting for a connection.
+    */
+   class ServerPool {
+      final InetSocketAddress address;
+      private final List<Http1Connection> connections = new ArrayList<>();
+      private final ArrayDeque<Request> pending = new ArrayDeque<>();
+
+      ServerPool(InetSocketAddress address) {
+         this.address = address;
+      }
+
+      boolean isClientClosed() {
+         return closed;
+      }
+
+      long connectionTimeout() {
+         return service.getConnectionTimeout();
+      }
+
+      long socketTimeout() {
+         return service.getSocketTimeout();
+      }
+
+      void submit(Request request) {
+         Http1Connection connection;
+         synchronized (this) {
+            connection = acquire();
+            if (connection == null) {
+               pending.add(request);
+               return;
+            }
+         }
+         connection.loop.execute(() -> connection.send(request));
+      }
+
+      void retry(Request request, Throwable cause) {
+         if (closed || request.retries >= MAX_RETRIES) {
+            request.response.completeExceptionally(cause);
+         } else {
+            request.retries++;
+            submit(request);
+         }
+      }
+
+      /**
+       * Called from the connection's event loop after it has received a response.
+       *
+       * @return Next request that should be sent on this connection, or null.
+       */
+      synchronized Request completed(Http1Connection connection) {
+         Request request = pending.poll();
+         if (request == null) {
+            connection.assigned--;
+         }
+         return request;
+      }
+
+      /**
+       * Called from the connection's event loop after the connection was closed.
+       */
+      void closed(Http1Connection connection) {
+         List<Request> requests = new ArrayList<>();
+         List<Http1Connection> targets = new ArrayList<>();
+         synchronized (this) {
+            connections.remove(connection);
+            while (!closed && !pending.isEmpty()) {
+               Http1Connection target = acquire();
+               if (target == null) {
+                  break;
+               }
+               requests.add(pending.poll());
+               targets.add(target);
+            }
+         }
+         for (int i = 0; i < requests.size(); ++i) {
+            Http1Connection target = targets.get(i);
+            Request request = requests.get(i);
+            target.loop.execute(() -> target.send(request));
+         }
+      }
+
+      void failPending() {
+         List<Request> requests;
+         synchronized (this) {
+            requests = new ArrayList<>(pending);
+            pending.clear();
+         }
+         IOException stopped = new IOException("Client stopped");
+         for (Request request : requests) {
+            request.response.completeExceptionally(stopped);
+         }
+      }
+
+      /**
+       * Picks connection for next request; opens new connection if the least loaded one is busy.
+       * Must be called with this pool locked.
+       */
+      private Http1Connection acquire() {
+         Http1Connection best = null;
+         for (Http1Connection connection : connections) {
+            if (connection.assigned < service.getMaxPipelinedRequests() && (best == null || connection.assigned < best.assigned)) {
+               best = connection;
+            }
+         }
+         if ((best == null || best.assigned > 0) && connections.size() < service.getMaxConnectionsPerHost()) {
+            best = new Http1Connection(this, loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)]);
+            connections.add(best);
+            Http1Connection connection = best;
+            connection.loop.execute(connection::connect);
+         }
+         if (best != null) {
+            best.assigned++;
+         }
+         return best;
+      }
+   }
+}
@@ -0,0 +1,202 @@
+package org.radargun.http.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.core.Response;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.utils.TimeService;
+
+/**
+ * Keep-alive HTTP/1.1 connection that writes requests without waiting for the responses (pipelining).
+ * Responses arrive in the order of requests. All methods but the constructor must be called from the
+ * connection's {@link HttpEventLoop}.
+ */
+class Http1Connection {
+   private static final Log log = LogFactory.getLog(Http1Connection.class);
+   private static final int BUFFER_SIZE = 16384;
+
+   final Http1Client.ServerPool pool;
+   final HttpEventLoop loop;
+   // number of requests dispatched to this connection and not completed, guarded by the pool
+   int assigned;
+
+   private final ArrayDeque<Http1Client.Request> inFlight = new ArrayDeque<>();
+   private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+   private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+   private final HttpResponseParser parser = new HttpResponseParser();
+   private SocketChannel channel;
+   private SelectionKey key;
+   private boolean connected;
+   private boolean closed;
+   private long connectStart;
+   private long lastActivity;
+
+   Http1Connection(Http1Client.ServerPool pool, HttpEventLoop loop) {
+      this.pool = pool;
+      this.loop = loop;
+   }
+
+   void connect() {
+      if (pool.isClientClosed()) {
+         close(new IOException("Client stopped"), false);
+         return;
+      }
+      loop.add(this);
+      connectStart = TimeService.currentTimeMillis();
+      try {
+         channel = SocketChannel.open();
+         channel.configureBlocking(false);
+         channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+         key = channel.register(loop.selector(), 0, this);
+         if (channel.connect(pool.address)) {
+            connected();
+         } else {
+            key.interestOps(SelectionKey.OP_CONNECT);
+         }
+      } catch (IOException e) {
+         close(e, false);
+      }
+   }
+
+   void finishConnect() throws IOException {
+      if (channel.finishConnect()) {
+         connected();
+      }
+   }
+
+   private void connected() throws IOException {
+      connected = true;
+      lastActivity = TimeService.currentTimeMillis();
+      if (log.isTraceEnabled()) {
+         log.trace("Connected to " + pool.address);
+      }
+      key.interestOps(SelectionKey.OP_READ);
+      write();
+   }
+
+   void send(Http1Client.Request request) {
+      if (closed) {
+         pool.retry(request, new IOException("Connection closed"));
+         return;
+      }
+      if (inFlight.isEmpty()) {
+         lastActivity = TimeService.currentTimeMillis();
+      }
+      inFlight.add(request);
+      output.add(ByteBuffer.wrap(request.bytes));
+      request.response.sent();
+      if (connected) {
+         try {
+            write();
+         } catch (IOException e) {
+            close(e, false);
+         }
+      }
+   }
+
+   void write() throws IOException {
+      while (!output.isEmpty()) {
+         ByteBuffer buffer = output.peek();
+         channel.write(buffer);
+         if (buffer.hasRemaining()) {
+            break;
+         }
+         output.poll();
+      }
+      key.interestOps(output.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+   }
+
+   void read() throws IOException {
+      int read = 0;
+      while (!closed && (read = channel.read(input)) > 0) {
+         lastActivity = TimeService.currentTimeMillis();
+         input.flip();
+         while (input.hasRemaining() && !closed) {
+            if (parser.parse(input)) {
+               responseCompleted();
+            }
+         }
+         input.clear();
+      }
+      if (read < 0 && !closed) {
+         if (parser.endOfStream()) {
+            responseCompleted();
+         }
+         // requests sent after the server has decided to close the connection can be sent again
+         close(new EOFException("Connection closed by server"), parser.isIdle());
+      }
+   }
+
+   private void responseCompleted() {
+      Http1Client.Request request = inFlight.poll();
+      Response response = parser.build();
+      if (request == null) {
+         close(new IOException("Unexpected response"), false);
+         return;
+      }
+      boolean keepAlive = parser.isKeepAlive();
+      if (keepAlive) {
+         Http1Client.Request next = pool.completed(this);
+         if (next != null) {
+            send(next);
+         }
+      } else {
+         close(new EOFException("Connection closed by server"), true);
+      }
+      request.response.complete(response);
+   }
+
+   void checkTimeout(long now) {
+      if (!connected && now - connectStart > pool.connectionTimeout()) {
+         close(new ConnectException("Connection to " + pool.address + " timed out"), false);
+      } else if (connected && !inFlight.isEmpty() && now - lastActivity > pool.socketTimeout()) {
+         close(new SocketTimeoutException("No response from " + pool.address), false);
+      }
+   }
+
+   /**
+    * @param retry Send the requests without response again on another connection.
+    */
+   void close(Throwable cause, boolean retry) {
+      if (closed) {
+         return;
+      }
+      closed = true;
+      loop.remove(this);
+      if (key != null) {
+         key.cancel();
+      }
+      if (channel != null) {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            log.debug("Failed to close connection", e);
+         }
+      }
+      List<Http1Client.Request> requests = new ArrayList<>(inFlight);
+      inFlight.clear();
+      output.clear();
+      if (log.isTraceEnabled()) {
+         log.trace("Closed connection to " + pool.address + " with " + requests.size() + " requests in flight", cause);
+      }
+      pool.closed(this);
+      for (Http1Client.Request request : requests) {
+         if (retry) {
+            pool.retry(request, cause);
+         } else {
+            request.response.completeExceptionally(cause);
+         }
+      }
+   }
+}
@@ -0,0 +1,158 @@
+package org.radargun.http.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.radargun.traits.RESTOperations;
+
+/**
+ * HTTP/2 client based on the JDK HTTP client, multiplexing the requests over single connection to each server.
+ * For plain-text URLs the connection is upgraded to HTTP/2 if the server supports it, otherwise HTTP/1.1 is used.
+ * The client is accessed through reflection as it requires Java 11 while RadarGun is built for Java 8.
+ *
+ * The JDK client does not expose when the request leaves its connection pool, therefore the time spent
+ * waiting for a connection or for a stream to be available is not separated from the response time.
+ */
+class Http2Client implements AsyncHttpClient {
+   private final AsyncHttpService service;
+   private final ExecutorService executor;
+   private final Object client;
+   private final Object bodyHandler;
+   private final Method sendAsync;
+   private final Method newRequestBuilder;
+   private final Method requestTimeout;
+   private final Method requestHeader;
+   private final Method requestGet;
+   private final Method requestBuild;
+   private final Method statusCode;
+   private final Method responseHeaders;
+   private final Method headersMap;
+   private final Method body;
+
+   Http2Client(AsyncHttpService service) {
+      this.service = service;
+      AtomicInteger threadCounter = new AtomicInteger();
+      this.executor = Executors.newFixedThreadPool(service.getEventLoopThreads(), r -> {
+         Thread thread = new Thread(r, "Http2Client-" + threadCounter.getAndIncrement());
+         thread.setDaemon(true);
+         return thread;
+      });
+      try {
+         Class<?> clientClass = Class.forName("java.net.http.HttpClient");
+         Class<?> clientBuilderClass = Class.forName("java.net.http.HttpClient$Builder");
+         Class<?> versionClass = Class.forName("java.net.http.HttpClient$Version");
+         Class<?> requestClass = Class.forName("java.net.http.HttpRequest");
+         Class<?> requestBuilderClass = Class.forName("java.net.http.HttpRequest$Builder");
+         Class<?> responseClass = Class.forName("java.net.http.HttpResponse");
+         Class<?> bodyHandlerClass = Class.forName("java.net.http.HttpResponse$BodyHandler");
+
+         Object builder = clientClass.getMethod("newBuilder").invoke(null);
+         clientBuilderClass.getMethod("version", versionClass).invoke(builder, versionClass.getField("HTTP_2").get(null));
+         clientBuilderClass.getMethod("executor", Executor.class).invoke(builder, executor);
+         clientBuilderClass.getMethod("connectTimeout", Duration.class).invoke(builder, Duration.ofMillis(service.getConnectionTimeout()));
+         this.client = clientBuilderClass.getMethod("build").invoke(builder);
+         this.bodyHandler = Class.forName("java.net.http.HttpResponse$BodyHandlers").getMethod("ofByteArray").invoke(null);
+         this.sendAsync = clientClass.getMethod("sendAsync", requestClass, bodyHandlerClass);
+
+         this.newRequestBuilder = requestClass.getMethod("newBuilder", URI.class);
+         this.requestTimeout = requestBuilderClass.getMethod("timeout", Duration.class);
+         this.requestHeader = requestBuilderClass.getMethod("header", String.class, String.class);
+         this.requestGet = requestBuilderClass.getMethod("GET");
+         this.requestBuild = requestBuilderClass.getMethod("build");
+
+         this.statusCode = responseClass.getMethod("statusCode");
+         this.responseHeaders = responseClass.getMethod("headers");
+         this.headersMap = Class.forName("java.net.http.HttpHeaders").getMethod("map");
+         this.body = responseClass.getMethod("body");
+      } catch (ClassNotFoundException | NoSuchMethodException | NoSuchFieldException e) {
+         executor.shutdownNow();
+         throw new IllegalStateException("HTTP/2 requires Java 11 or newer, this JVM is " + System.getProperty("java.version"), e);
+      } catch (ReflectiveOperationException e) {
+         executor.shutdownNow();
+         throw new IllegalStateException("Cannot create HTTP/2 client", e);
+      }
+   }
+
+   @Override
+   public RESTOperations.AsyncResponse get(InetSocketAddress server, String path, List<Cookie> cookies, MultivaluedMap<String, Object> headers) {
+      RESTOperations.AsyncResponse response = new RESTOperations.AsyncResponse();
+      try {
+         Object builder = newRequestBuilder.invoke(null, URI.create("http://" + server.getHostString() + ":" + server.getPort() + path));
+         requestTimeout.invoke(builder, Duration.ofMillis(service.getSocketTimeout()));
+         requestHeader.invoke(builder, "Accept", service.getContentType());
+         requestGet.invoke(builder);
+         String authorization = service.getAuthorization();
+         if (authorization != null) {
+            requestHeader.invoke(builder, "Authorization", authorization);
+         }
+         if (cookies != null && !cookies.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (Cookie cookie : cookies) {
+               if (sb.length() > 0) {
+                  sb.append("; ");
+               }
+               sb.append(cookie.getName()).append('=').append(cookie.getValue());
+            }
+            requestHeader.invoke(builder, "Cookie", sb.toString());
+         }
+         if (headers != null) {
+            for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+               for (Object value : header.getValue()) {
+                  requestHeader.invoke(builder, header.getKey(), String.valueOf(value));
+               }
+            }
+         }
+         // the request is not marked as sent: the stressor considers it sent when this method returns
+         CompletableFuture<?> future = (CompletableFuture<?>) sendAsync.invoke(client, requestBuild.invoke(builder), bodyHandler);
+         future.whenComplete((httpResponse, throwable) -> {
+            if (throwable != null) {
+               response.completeExceptionally(throwable);
+            } else {
+               try {
+                  response.complete(toResponse(httpResponse));
+               } catch (Exception e) {
+                  response.completeExceptionally(e);
+               }
+            }
+         });
+      } catch (InvocationTargetException e) {
+         response.completeExceptionally(e.getCause());
+      } catch (ReflectiveOperationException e) {
+         response.completeExceptionally(e);
+      }
+      return response;
+   }
+
+   private Response toResponse(Object httpResponse) throws ReflectiveOperationException {
+      Response.ResponseBuilder builder = Response.status((Integer) statusCode.invoke(httpResponse));
+      Map<String, List<String>> headerMap = (Map<String, List<String>>) headersMap.invoke(responseHeaders.invoke(httpResponse));
+      for (Map.Entry<String, List<String>> header : headerMap.entrySet()) {
+         for (String value : header.getValue()) {
+            builder.header(header.getKey(), value);
+         }
+      }
+      byte[] entity = (byte[]) body.invoke(httpResponse);
+      if (entity != null && entity.length > 0) {
+         builder.entity(entity);
+      }
+      return builder.build();
+   }
+
+   @Override
+   public void close() {
+      executor.shutdownNow();
+   }
+}
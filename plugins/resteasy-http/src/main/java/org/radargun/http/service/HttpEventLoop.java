@@ -0,0 +1,126 @@
+package org.radargun.http.service;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.utils.TimeService;
+
+/**
+ * Single thread handling I/O of a set of {@link Http1Connection connections}. All state of the connections
+ * is accessed only from this thread; other threads pass work through {@link #execute(Runnable)}.
+ */
+class HttpEventLoop implements Runnable {
+   private static final Log log = LogFactory.getLog(HttpEventLoop.class);
+   // period of checking timeouts, in milliseconds
+   private static final long TIMEOUT_CHECK_PERIOD = 100;
+
+   private final Selector selector;
+   private final Thread thread;
+   private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+   private final List<Http1Connection> connections = new ArrayList<>();
+   private volatile boolean running = true;
+
+   HttpEventLoop(String name) throws IOException {
+      selector = Selector.open();
+      thread = new Thread(this, name);
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   Selector selector() {
+      return selector;
+   }
+
+   void execute(Runnable task) {
+      tasks.add(task);
+      if (Thread.currentThread() != thread) {
+         selector.wakeup();
+      }
+   }
+
+   void add(Http1Connection connection) {
+      connections.add(connection);
+   }
+
+   void remove(Http1Connection connection) {
+      connections.remove(connection);
+   }
+
+   void stop() {
+      running = false;
+      selector.wakeup();
+      try {
+         thread.join(TIMEOUT_CHECK_PERIOD * 10);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   @Override
+   public void run() {
+      long lastTimeoutCheck = TimeService.currentTimeMillis();
+      while (running) {
+         try {
+            selector.select(TIMEOUT_CHECK_PERIOD);
+         } catch (IOException e) {
+            log.error("Failed to select", e);
+            break;
+         }
+         Runnable task;
+         while ((task = tasks.poll()) != null) {
+            try {
+               task.run();
+            } catch (RuntimeException e) {
+               log.error("Task failed", e);
+            }
+         }
+         Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+         while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            Http1Connection connection = (Http1Connection) key.attachment();
+            try {
+               if (key.isValid() && key.isConnectable()) {
+                  connection.finishConnect();
+               }
+               if (key.isValid() && key.isWritable()) {
+                  connection.write();
+               }
+               if (key.isValid() && key.isReadable()) {
+                  connection.read();
+               }
+            } catch (IOException | RuntimeException e) {
+               connection.close(e, false);
+            }
+         }
+         long now = TimeService.currentTimeMillis();
+         if (now - lastTimeoutCheck >= TIMEOUT_CHECK_PERIOD) {
+            lastTimeoutCheck = now;
+            for (Http1Connection connection : new ArrayList<>(connections)) {
+               connection.checkTimeout(now);
+            }
+         }
+      }
+      IOException stopped = new IOException("Client stopped");
+      for (Http1Connection connection : new ArrayList<>(connections)) {
+         connection.close(stopped, false);
+      }
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+         task.run();
+      }
+      try {
+         selector.close();
+      } catch (IOException e) {
+         log.error("Failed to close selector", e);
+      }
+   }
+}
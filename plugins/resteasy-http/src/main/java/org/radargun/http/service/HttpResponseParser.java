@@ -0,0 +1,240 @@
+package org.radargun.http.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.core.Response;
+
+/**
+ * Incremental parser of HTTP/1.x responses, supporting bodies delimited by Content-Length,
+ * chunked transfer encoding and end of the stream.
+ */
+class HttpResponseParser {
+   private static final int MAX_LINE_LENGTH = 65536;
+
+   private enum State {
+      STATUS_LINE, HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, UNTIL_CLOSE, COMPLETE
+   }
+
+   private final StringBuilder line = new StringBuilder();
+   private boolean lineComplete;
+   private final List<String> headers = new ArrayList<>();
+   private State state = State.STATUS_LINE;
+   private int status;
+   private boolean keepAlive;
+   private boolean chunked;
+   private long contentLength;
+   private long remaining;
+   private ByteArrayOutputStream body;
+
+   /**
+    * Consumes bytes from the buffer until a complete response is parsed.
+    *
+    * @return True if the response is complete; remaining bytes in the buffer belong to the next response.
+    */
+   boolean parse(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+         switch (state) {
+            case STATUS_LINE:
+               if (readLine(buffer)) {
+                  parseStatusLine(line.toString());
+                  state = State.HEADERS;
+               }
+               break;
+            case HEADERS:
+               if (readLine(buffer)) {
+                  if (line.length() > 0) {
+                     parseHeader(line.toString());
+                  } else {
+                     headersComplete();
+                  }
+               }
+               break;
+            case BODY:
+            case CHUNK_DATA:
+               readBody(buffer);
+               if (remaining == 0) {
+                  state = state == State.BODY ? State.COMPLETE : State.CHUNK_END;
+               }
+               break;
+            case CHUNK_SIZE:
+               if (readLine(buffer)) {
+                  String size = line.toString();
+                  int extension = size.indexOf(';');
+                  try {
+                     remaining = Long.parseLong((extension < 0 ? size : size.substring(0, extension)).trim(), 16);
+                  } catch (NumberFormatException e) {
+                     throw new IOException("Invalid chunk size: " + size);
+                  }
+                  state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+               }
+               break;
+            case CHUNK_END:
+               if (readLine(buffer)) {
+                  state = State.CHUNK_SIZE;
+               }
+               break;
+            case TRAILERS:
+               if (readLine(buffer) && line.length() == 0) {
+                  state = State.COMPLETE;
+               }
+               break;
+            case UNTIL_CLOSE:
+               remaining = buffer.remaining();
+               readBody(buffer);
+               break;
+            default:
+               throw new IllegalStateException(state.toString());
+         }
+         if (state == State.COMPLETE) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Called when the connection was closed by the server.
+    *
+    * @return True if this completes the response.
+    */
+   boolean endOfStream() {
+      if (state == State.UNTIL_CLOSE) {
+         state = State.COMPLETE;
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * @return True if the parser has not received any part of the next response.
+    */
+   boolean isIdle() {
+      return state == State.STATUS_LINE && (lineComplete || line.length() == 0);
+   }
+
+   /**
+    * @return False if the server is going to close the connection after the parsed response.
+    */
+   boolean isKeepAlive() {
+      return keepAlive;
+   }
+
+   /**
+    * Builds the parsed response and resets the parser for the next one.
+    */
+   Response build() {
+      Response.ResponseBuilder builder = Response.status(status);
+      for (int i = 0; i < headers.size(); i += 2) {
+         builder.header(headers.get(i), headers.get(i + 1));
+      }
+      if (body != null && body.size() > 0) {
+         builder.entity(body.toByteArray());
+      }
+      headers.clear();
+      body = null;
+      state = State.STATUS_LINE;
+      return builder.build();
+   }
+
+   /**
+    * Reads bytes until the end of line; the line may span several buffers.
+    */
+   private boolean readLine(ByteBuffer buffer) throws IOException {
+      if (lineComplete) {
+         line.setLength(0);
+         lineComplete = false;
+      }
+      while (buffer.hasRemaining()) {
+         char c = (char) (buffer.get() & 0xFF);
+         if (c == '\n') {
+            lineComplete = true;
+            return true;
+         } else if (c != '\r') {
+            if (line.length() >= MAX_LINE_LENGTH) {
+               throw new IOException("Line too long");
+            }
+            line.append(c);
+         }
+      }
+      return false;
+   }
+
+   private void parseStatusLine(String statusLine) throws IOException {
+      String[] parts = statusLine.split(" ", 3);
+      if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+         throw new IOException("Invalid status line: " + statusLine);
+      }
+      try {
+         status = Integer.parseInt(parts[1]);
+      } catch (NumberFormatException e) {
+         throw new IOException("Invalid status line: " + statusLine);
+      }
+      keepAlive = !parts[0].equals("HTTP/1.0");
+      chunked = false;
+      contentLength = -1;
+   }
+
+   private void parseHeader(String header) throws IOException {
+      int colon = header.indexOf(':');
+      if (colon <= 0) {
+         throw new IOException("Invalid header: " + header);
+      }
+      String name = header.substring(0, colon).trim();
+      String value = header.substring(colon + 1).trim();
+      if (name.equalsIgnoreCase("Content-Length")) {
+         try {
+            contentLength = Long.parseLong(value);
+         } catch (NumberFormatException e) {
+            throw new IOException("Invalid header: " + header);
+         }
+      } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+         chunked = value.toLowerCase().contains("chunked");
+      } else if (name.equalsIgnoreCase("Connection")) {
+         String lowerCase = value.toLowerCase();
+         if (lowerCase.contains("close")) {
+            keepAlive = false;
+         } else if (lowerCase.contains("keep-alive")) {
+            keepAlive = true;
+         }
+      }
+      headers.add(name);
+      headers.add(value);
+   }
+
+   private void headersComplete() {
+      if (status >= 100 && status < 200) {
+         // informational response, the final one follows
+         headers.clear();
+         state = State.STATUS_LINE;
+      } else if (status == 204 || status == 304) {
+         state = State.COMPLETE;
+      } else if (chunked) {
+         body = new ByteArrayOutputStream();
+         state = State.CHUNK_SIZE;
+      } else if (contentLength >= 0) {
+         body = new ByteArrayOutputStream((int) Math.min(contentLength, Integer.MAX_VALUE));
+         remaining = contentLength;
+         state = contentLength == 0 ? State.COMPLETE : State.BODY;
+      } else {
+         body = new ByteArrayOutputStream();
+         keepAlive = false;
+         state = State.UNTIL_CLOSE;
+      }
+   }
+
+   private void readBody(ByteBuffer buffer) {
+      int length = (int) Math.min(remaining, buffer.remaining());
+      if (buffer.hasArray()) {
+         body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+         buffer.position(buffer.position() + length);
+      } else {
+         for (int i = 0; i < length; ++i) {
+            body.write(buffer.get());
+         }
+      }
+      remaining -= length;
+   }
+}
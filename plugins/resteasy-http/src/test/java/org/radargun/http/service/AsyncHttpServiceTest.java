@@ -0,0 +1,122 @@
+package org.radargun.http.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.Response;
+
+import org.radargun.http.HttpStubServer;
+import org.radargun.traits.RESTOperations;
+import org.radargun.utils.TimeService;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class AsyncHttpServiceTest {
+   private static final int RESPONSE_SIZE = 100;
+   private static final Cookie SESSION = new Cookie("JSESSIONID", "session0");
+
+   public void testPipelining() throws Exception {
+      try (HttpStubServer server = new HttpStubServer(RESPONSE_SIZE, 1, false)) {
+         AsyncHttpService service = createService(server, AsyncHttpService.Protocol.HTTP_1_1, 2, 8);
+         try {
+            RESTOperations.AsyncRESTOperationInvoker invoker = invoker(service);
+            Response first = invoker.get(Collections.emptyList(), null);
+            assertEquals(first.getStatus(), 200);
+            assertNotNull(first.getCookies().get("JSESSIONID"));
+
+            List<RESTOperations.AsyncResponse> responses = new ArrayList<>();
+            for (int i = 0; i < 200; ++i) {
+               responses.add(invoker.getAsync(Collections.singletonList(SESSION), null));
+            }
+            for (RESTOperations.AsyncResponse response : responses) {
+               assertEquals(response.join().getStatus(), 200);
+               assertEquals(((byte[]) response.join().getEntity()).length, RESPONSE_SIZE);
+               assertTrue(response.getSentTime() != Long.MIN_VALUE);
+            }
+            assertEquals(server.getRequests(), 201);
+            assertEquals(server.getSessions(), 1);
+            assertTrue(server.getConnections() <= 2, "Connections: " + server.getConnections());
+            assertTrue(server.getPipelinedRequests() > 0);
+         } finally {
+            service.stop();
+         }
+      }
+   }
+
+   public void testConnectionPoolWait() throws Exception {
+      try (HttpStubServer server = new HttpStubServer(RESPONSE_SIZE, 20, true)) {
+         AsyncHttpService service = createService(server, AsyncHttpService.Protocol.HTTP_1_1, 1, 1);
+         try {
+            RESTOperations.AsyncRESTOperationInvoker invoker = invoker(service);
+            List<RESTOperations.AsyncResponse> responses = new ArrayList<>();
+            long start = TimeService.nanoTime();
+            for (int i = 0; i < 5; ++i) {
+               responses.add(invoker.getAsync(Collections.singletonList(SESSION), null));
+            }
+            for (RESTOperations.AsyncResponse response : responses) {
+               assertEquals(((byte[]) response.join().getEntity()).length, RESPONSE_SIZE);
+            }
+            // the last request had to wait for the previous four responses
+            long poolWait = responses.get(4).getSentTime() - start;
+            assertTrue(poolWait >= 4 * 20 * 1000000L, "Pool wait: " + poolWait);
+            assertEquals(server.getConnections(), 1);
+            assertEquals(server.getPipelinedRequests(), 0);
+         } finally {
+            service.stop();
+         }
+      }
+   }
+
+   public void testHttp2FallbackToHttp1() throws Exception {
+      try {
+         Class.forName("java.net.http.HttpClient");
+      } catch (ClassNotFoundException e) {
+         throw new SkipException("HTTP/2 client requires Java 11");
+      }
+      try (HttpStubServer server = new HttpStubServer(RESPONSE_SIZE, 0, false)) {
+         AsyncHttpService service = createService(server, AsyncHttpService.Protocol.HTTP_2, 1, 1);
+         try {
+            RESTOperations.AsyncRESTOperationInvoker invoker = invoker(service);
+            Response response = invoker.get(Collections.emptyList(), null);
+            assertEquals(response.getStatus(), 200);
+            assertNotNull(response.getCookies().get("JSESSIONID"));
+            List<RESTOperations.AsyncResponse> responses = new ArrayList<>();
+            for (int i = 0; i < 20; ++i) {
+               responses.add(invoker.getAsync(Collections.singletonList(SESSION), null));
+            }
+            for (RESTOperations.AsyncResponse asyncResponse : responses) {
+               assertEquals(asyncResponse.join().getStatus(), 200);
+               // the JDK client does not report when the request left the pool
+               assertEquals(asyncResponse.getSentTime(), Long.MIN_VALUE);
+            }
+            assertEquals(server.getSessions(), 1);
+         } finally {
+            service.stop();
+         }
+      }
+   }
+
+   private static AsyncHttpService createService(HttpStubServer server, AsyncHttpService.Protocol protocol,
+                                                 int maxConnections, int maxPipelinedRequests) {
+      AsyncHttpService service = new AsyncHttpService();
+      service.servers = Collections.singletonList(server.getAddress());
+      service.protocol = protocol;
+      service.maxConnectionsPerHost = maxConnections;
+      service.maxPipelinedRequests = maxPipelinedRequests;
+      service.socketTimeout = 5000;
+      service.connectionTimeout = 5000;
+      service.init();
+      service.start();
+      return service;
+   }
+
+   private static RESTOperations.AsyncRESTOperationInvoker invoker(AsyncHttpService service) {
+      return (RESTOperations.AsyncRESTOperationInvoker) service.createOperations().getRESTInvoker("app");
+   }
+}
@@ -8,7 +8,6 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.radargun.Operation;
 import org.radargun.config.Cluster;
@@ -42,6 +41,8 @@ public class TestAggregations {
    public TestAggregations(String testName, List<Report.Test> tests) {
       this.testName = testName;
       Set<String> iterationsNames = new TreeSet<>();
+      // merge the statistics of all iterations in parallel (if these were not merged yet)
+      tests.parallelStream().flatMap(test -> test.getIterations().stream()).forEach(Report.TestIteration::getTotalStatistics);
 
       for (Report.Test test : tests) {
          if (test.iterationsName != null) {
@@ -76,25 +77,25 @@ public class TestAggregations {
    }
 
    private void addIteration(Report.Test test, List<Aggregation> iterations, Report.TestIteration it) {
-      AtomicInteger totalThreads = new AtomicInteger();
+      int totalThreads = 0;
       List<Statistics> nodeStats = new ArrayList<>();
       List<Integer> nodeThreads = new ArrayList<>();
-      Optional<Statistics> totalStats = it.getStatistics().stream()
-         .map(entry -> {
-            int slaveIndex = entry.getKey();
-            List<Statistics> list = entry.getValue();
-            totalThreads.addAndGet(list.size());
-            return list.stream().reduce(Statistics.MERGE).map(ns -> {
-               while (nodeStats.size() <= slaveIndex) {
-                  nodeStats.add(null);
-                  nodeThreads.add(0);
-               }
-               nodeStats.set(slaveIndex, ns);
-               nodeThreads.set(slaveIndex, list.size());
-               return ns;
-            });
-         })
-         .filter(Optional::isPresent).map(Optional::get).reduce(Statistics.MERGE);
+      for (Map.Entry<Integer, List<Statistics>> entry : it.getStatistics()) {
+         int slaveIndex = entry.getKey();
+         int threads = it.getThreadCount(slaveIndex);
+         totalThreads += threads;
+         // merged in background when the statistics were added
+         Statistics ns = it.getNodeStatistics(slaveIndex);
+         if (ns != null) {
+            while (nodeStats.size() <= slaveIndex) {
+               nodeStats.add(null);
+               nodeThreads.add(0);
+            }
+            nodeStats.set(slaveIndex, ns);
+            nodeThreads.set(slaveIndex, threads);
+         }
+      }
+      Optional<Statistics> totalStats = Optional.ofNullable(it.getTotalStatistics());
 
       if (!totalStats.isPresent()) {
          log.warn("There are no stats for this iteration");
@@ -116,7 +117,7 @@ public class TestAggregations {
             }
          }
 
-         iterations.add(new Aggregation(nodeStats, nodeThreads, totalStats.get(), totalThreads.get(), test.getReport(), it));
+         iterations.add(new Aggregation(nodeStats, nodeThreads, totalStats.get(), totalThreads, test.getReport(), it));
          for (String operation : totalStats.get().getOperations()) {
             DefaultOutcome defaultOutcome = totalStats.get().getRepresentation(operation, DefaultOutcome.class);
             if (defaultOutcome == null || defaultOutcome.requests > 0) {
@@ -71,9 +71,8 @@ public class CsvReporter implements Reporter {
    @Override
    public void run(MasterConfig masterConfig, Collection<Report> reports) {
       for (Report report : reports) {
-         for (Report.Test test : report.getTests()) {
-            reportTest(report, test);
-         }
+         // tests are written into separate files
+         report.getTests().parallelStream().forEach(test -> reportTest(report, test));
          reportTimelines(report);
       }
    }
@@ -94,7 +93,7 @@ public class CsvReporter implements Reporter {
                if (slaveStats.getValue().size() <= 0) {
                   continue;
                }
-               Statistics nodeSummary = processRow(it, columns, rows, slaveStats);
+               Statistics nodeSummary = processRow(it, columns, rows, iteration, slaveStats.getKey());
                if (computeTotal) {
                   if (aggregated == null)
                      aggregated = nodeSummary.copy();
@@ -153,10 +152,12 @@ public class CsvReporter implements Reporter {
    }
 
    private Statistics processRow(int it, Set<String> columns, List<Map<String, String>> rows,
-         Map.Entry<Integer, List<Statistics>> slaveStats) {
-      // this reporter is merging statistics from all threads on each node
-      Statistics summary = slaveStats.getValue().stream().filter(o -> o != null).reduce(Statistics.MERGE)
-         .orElseThrow(() -> new IllegalStateException("No statistics!"));
+         Report.TestIteration iteration, int slaveIndex) {
+      // this reporter is using statistics merged from all threads on each node
+      Statistics summary = iteration.getNodeStatistics(slaveIndex);
+      if (summary == null) {
+         throw new IllegalStateException("No statistics!");
+      }
       Map<String, String> rowData = new HashMap<String, String>();
       rows.add(rowData);
       for (String operation : summary.getOperations()) {
@@ -164,10 +165,10 @@ public class CsvReporter implements Reporter {
       }
       columns.addAll(rowData.keySet());
 
-      rowData.put(SLAVE_INDEX, String.valueOf(slaveStats.getKey()));
+      rowData.put(SLAVE_INDEX, String.valueOf(slaveIndex));
       rowData.put(ITERATION, String.valueOf(it));
       rowData.put(PERIOD, String.valueOf(summary.getEnd() - summary.getBegin()));
-      rowData.put(THREAD_COUNT, String.valueOf(slaveStats.getValue().size()));
+      rowData.put(THREAD_COUNT, String.valueOf(iteration.getThreadCount(slaveIndex)));
       return summary;
    }
 
@@ -59,6 +59,11 @@ public class HtmlReporter implements Reporter {
    private Set<String> allTests = new LinkedHashSet<>();
    private Collection<Report> reports;
 
+   @Override
+   public boolean requiresThreadStatistics() {
+      return testReportConfig.getGenerateThreadStats();
+   }
+
    @Override
    public void run(MasterConfig masterConfig, Collection<Report> reports) {
       this.reports = reports;
@@ -107,7 +107,9 @@ public abstract class ReportDocument extends HtmlDocument {
       // We've simplified the rule: when we have more iterations, it's always line chart,
       // with tests/sizes included in the categoryName and iterations on domain axis.
       // When there's only one iteration, we put cluster sizes on domain axis but use bar chart.
-      if (maxIterations > 1 || chartType.requiresLineChart) {
+      if (chartType.fixedDomain) {
+         chart = new LineChart(chartType.defaultDomainLabel, rangeAxisLabel);
+      } else if (maxIterations > 1 || chartType.requiresLineChart) {
          chart = new LineChart(iterationsName != null ? iterationsName : chartType.defaultDomainLabel, rangeAxisLabel);
       } else {
          chart = new BarChart("Cluster size", rangeAxisLabel);
@@ -207,6 +209,21 @@ public abstract class ReportDocument extends HtmlDocument {
                      }
                      break;
                   }
+                  case PERCENTILE_SERIES: {
+                     boolean hasSeries = false;
+                     for (double percentile : configuration.percentiles) {
+                        Percentile.Series series = aggregation.totalStats.getRepresentation(target, Percentile.Series.class, percentile);
+                        if (series == null) continue;
+                        hasSeries = true;
+                        int sample = 0;
+                        for (Percentile value : series.samples) {
+                           chart.addValue(toMillis(value.responseTimeMax), 0, String.format("%s, %.1f %%", seriesCategoryName, percentile),
+                              sample++, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(sample * series.period)));
+                        }
+                     }
+                     if (!hasSeries) return false;
+                     break;
+                  }
                   case OPERATION_THROUGHPUT_GROSS_SERIES: {
                      OperationThroughput.Series series = aggregation.totalStats.getRepresentation(target, OperationThroughput.Series.class);
                      if (series == null) return false;
@@ -217,6 +234,22 @@ public abstract class ReportDocument extends HtmlDocument {
                      }
                      break;
                   }
+                  case RESPONSE_TIME_THROUGHPUT: {
+                     // single point does not make a curve
+                     if (maxIterations <= 1) return false;
+                     OperationThroughput throughput = aggregation.totalStats.getRepresentation(target, OperationThroughput.class);
+                     MeanAndDev meanAndDev = aggregation.totalStats.getRepresentation(target, MeanAndDev.class);
+                     if (throughput == null || meanAndDev == null) return false;
+                     String throughputString = String.format("%.0f", throughput.net);
+                     chart.addValue(toMillis(meanAndDev.mean), 0, categoryName + ", mean", throughput.net, throughputString);
+                     for (double percentile : configuration.percentiles) {
+                        Percentile value = aggregation.totalStats.getRepresentation(target, Percentile.class, percentile);
+                        if (value == null) continue;
+                        chart.addValue(toMillis(value.responseTimeMax), 0, String.format("%s, %.1f %%", categoryName, percentile),
+                           throughput.net, throughputString);
+                     }
+                     break;
+                  }
                   case OPERATION_THROUGHPUT_NET_SERIES: {
                      OperationThroughput.Series series = aggregation.totalStats.getRepresentation(target, OperationThroughput.Series.class);
                      if (series == null) return false;
@@ -241,6 +274,9 @@ public abstract class ReportDocument extends HtmlDocument {
 
    public int getMaxThreads(List<Aggregation> aggregations, final int slaveIndex) {
       return aggregations.stream().map(aggregation -> {
+         if (!aggregation.iteration.hasThreadStatistics()) {
+            return 0;
+         }
          List<Statistics> statistics = aggregation.iteration.getStatistics(slaveIndex);
          return statistics == null ? 0 : statistics.size();
       }).max(Integer::max).orElse(0);
@@ -300,8 +336,10 @@ public abstract class ReportDocument extends HtmlDocument {
       for (ChartDescription cd : new ChartDescription[] {
          new ChartDescription(ChartType.MEAN_AND_DEV, "mean_dev" + "_" + target, "Response time mean", "Response time (ms)"),
          new ChartDescription(ChartType.OPERATION_THROUGHPUT_NET, "throughput_net" + "_" + target, "Operation throughput", "Operations/sec"),
+         new ChartDescription(ChartType.RESPONSE_TIME_THROUGHPUT, "response_time_throughput" + "_" + target, "Response time vs. throughput", "Response time (ms)"),
          new ChartDescription(ChartType.DATA_THROUGHPUT, "data_throughput" + "_" + target, "Data throughput mean", "MB/sec"),
          new ChartDescription(ChartType.MEAN_AND_DEV_SERIES, "mean_dev_series" + "_" + target, "Response time over time", "Response time (ms)"),
+         new ChartDescription(ChartType.PERCENTILE_SERIES, "percentile_series" + "_" + target, "Response time percentiles over time", "Response time (ms)"),
          new ChartDescription(ChartType.REQUESTS_SERIES, "requests_series" + "_" + target, "Requests progression", "Number of requests"),
          new ChartDescription(ChartType.OPERATION_THROUGHPUT_NET_SERIES, "throughput_net_series" + "_" + target, "Operation throughput over time", "Operations/sec"),
       }) {
@@ -545,16 +583,25 @@ public abstract class ReportDocument extends HtmlDocument {
       OPERATION_THROUGHPUT_NET(false, "Iteration"),
       DATA_THROUGHPUT(false, "Iteration"),
       MEAN_AND_DEV_SERIES(true, "Time (seconds)"),
+      PERCENTILE_SERIES(true, "Time (seconds)"),
       REQUESTS_SERIES(true, "Time (seconds)"),
       OPERATION_THROUGHPUT_NET_SERIES(true, "Time (seconds)"),
-      OPERATION_THROUGHPUT_GROSS_SERIES(true, "Time (seconds)");
+      OPERATION_THROUGHPUT_GROSS_SERIES(true, "Time (seconds)"),
+      RESPONSE_TIME_THROUGHPUT(true, "Operations/sec", true);
 
       private final boolean requiresLineChart;
       private final String defaultDomainLabel;
+      // domain axis does not show iterations
+      private final boolean fixedDomain;
 
       ChartType(boolean requiresLineChart, String defaultDomainLabel) {
+         this(requiresLineChart, defaultDomainLabel, false);
+      }
+
+      ChartType(boolean requiresLineChart, String defaultDomainLabel, boolean fixedDomain) {
          this.requiresLineChart = requiresLineChart;
          this.defaultDomainLabel = defaultDomainLabel;
+         this.fixedDomain = fixedDomain;
       }
    }
 
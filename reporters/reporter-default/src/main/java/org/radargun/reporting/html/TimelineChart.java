@@ -36,6 +36,7 @@ import org.radargun.config.Converter;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.reporting.Timeline;
+import org.radargun.reporting.TimelineSeries;
 
 /**
  * Chart showing the events, intervals and values from {@link Timeline}
@@ -70,25 +71,53 @@ public class TimelineChart {
       this.paint = paint;
    }
 
-   public void setEvents(List<? extends Object> events, int slaveIndex, long startTimestamp, long endTimestamp, double lowerBound, double upperBound) {
-      int paintIndex = slaveIndex % DEFAULT_PAINTS.length;
-      if (paintIndex < 0) paintIndex += DEFAULT_PAINTS.length;
-      paint = DEFAULT_PAINTS[paintIndex];
-      this.startTimestamp = startTimestamp;
-      this.endTimestamp = endTimestamp + (startTimestamp == endTimestamp ? 1 : 0);
+   /**
+    * Plots values read directly from the columns; when there are more values than pixels, only minimum
+    * and maximum within each time bucket are plotted.
+    */
+   public void setSeries(TimelineSeries values, int slaveIndex, long startTimestamp, long endTimestamp, double lowerBound, double upperBound) {
+      TimeSeries series = createChart(slaveIndex, startTimestamp, endTimestamp);
 
-      TimeSeries series = new TimeSeries("Slave " + slaveIndex);
-      TimeSeriesCollection dataset = new TimeSeriesCollection(series, GMT);
-      chart = ChartFactory.createTimeSeriesChart(null, "Time from start", null, dataset, false, false, false);
-      chart.setBackgroundPaint(new Color(0, 0, 0, 0));
+      double[] minValues = new double[MAX_EVENT_VALUES];
+      double[] maxValues = new double[MAX_EVENT_VALUES];
+      long[] minTimestamps = new long[MAX_EVENT_VALUES];
+      long[] maxTimestamps = new long[MAX_EVENT_VALUES];
+      boolean[] present = new boolean[MAX_EVENT_VALUES];
 
+      int size = values == null ? 0 : values.size();
+      for (int i = 0; i < size; ++i) {
+         long timestamp = values.timestamp(i);
+         double value = values.doubleValue(i);
+         if (timestamp > this.endTimestamp) {
+            throw new IllegalStateException(String.format("Current timestamp %d is bigger then end timestamp %d", timestamp, this.endTimestamp));
+         }
+         int bucket = (int) ((timestamp - startTimestamp) * (MAX_EVENT_VALUES-1) / (this.endTimestamp - startTimestamp));
+         if (!present[bucket]) {
+            present[bucket] = true;
+            minValues[bucket] = value;
+            maxValues[bucket] = value;
+            minTimestamps[bucket] = timestamp;
+            maxTimestamps[bucket] = timestamp;
+         } else {
+            minValues[bucket] = Math.min(minValues[bucket], value);
+            maxValues[bucket] = Math.max(maxValues[bucket], value);
+            minTimestamps[bucket] = Math.min(minTimestamps[bucket], timestamp);
+            maxTimestamps[bucket] = Math.max(maxTimestamps[bucket], timestamp);
+         }
+      }
+
+      for (int bucket = 0; bucket < MAX_EVENT_VALUES; ++bucket) {
+         if (!present[bucket]) continue;
+         series.addOrUpdate(time(minTimestamps[bucket] - startTimestamp), minValues[bucket]);
+         series.addOrUpdate(time(maxTimestamps[bucket] - startTimestamp), maxValues[bucket]);
+      }
+
+      setAxes(startTimestamp, endTimestamp, lowerBound, upperBound);
+   }
+
+   public void setEvents(List<? extends Object> events, int slaveIndex, long startTimestamp, long endTimestamp, double lowerBound, double upperBound) {
+      TimeSeries series = createChart(slaveIndex, startTimestamp, endTimestamp);
       XYPlot plot = chart.getXYPlot();
-      plot.getRenderer().setSeriesPaint(0, paint);
-      plot.setBackgroundAlpha(0);
-      plot.setDomainGridlinesVisible(false);
-      plot.setDomainZeroBaselineVisible(true);
-      plot.setRangeGridlinesVisible(false);
-      plot.setRangeZeroBaselineVisible(true);
 
       Number[] minValues = new Number[MAX_EVENT_VALUES];
       Number[] maxValues = new Number[MAX_EVENT_VALUES];
@@ -142,6 +171,33 @@ public class TimelineChart {
          series.addOrUpdate(time(maxTimestamps[bucket] - startTimestamp), maxValues[bucket]);
       }
 
+      setAxes(startTimestamp, endTimestamp, lowerBound, upperBound);
+   }
+
+   private TimeSeries createChart(int slaveIndex, long startTimestamp, long endTimestamp) {
+      int paintIndex = slaveIndex % DEFAULT_PAINTS.length;
+      if (paintIndex < 0) paintIndex += DEFAULT_PAINTS.length;
+      paint = DEFAULT_PAINTS[paintIndex];
+      this.startTimestamp = startTimestamp;
+      this.endTimestamp = endTimestamp + (startTimestamp == endTimestamp ? 1 : 0);
+
+      TimeSeries series = new TimeSeries("Slave " + slaveIndex);
+      TimeSeriesCollection dataset = new TimeSeriesCollection(series, GMT);
+      chart = ChartFactory.createTimeSeriesChart(null, "Time from start", null, dataset, false, false, false);
+      chart.setBackgroundPaint(new Color(0, 0, 0, 0));
+
+      XYPlot plot = chart.getXYPlot();
+      plot.getRenderer().setSeriesPaint(0, paint);
+      plot.setBackgroundAlpha(0);
+      plot.setDomainGridlinesVisible(false);
+      plot.setDomainZeroBaselineVisible(true);
+      plot.setRangeGridlinesVisible(false);
+      plot.setRangeZeroBaselineVisible(true);
+      return series;
+   }
+
+   private void setAxes(long startTimestamp, long endTimestamp, double lowerBound, double upperBound) {
+      XYPlot plot = chart.getXYPlot();
       DateAxis dateAxis = (DateAxis) plot.getDomainAxis();
       dateAxis.setTimeZone(GMT);
       dateAxis.setMinimumDate(new Date(0));
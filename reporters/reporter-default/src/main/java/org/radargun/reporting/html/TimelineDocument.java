@@ -17,6 +17,7 @@ import org.radargun.config.Property;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.reporting.Timeline;
+import org.radargun.reporting.TimelineSeries;
 
 /**
  * Presents {@link Timeline timelines} from all slaves and master.
@@ -62,10 +63,10 @@ public class TimelineDocument extends HtmlDocument {
                valueCategories.put(category, valueCategories.size());
             }
 
-            List<Timeline.Value> values = timeline.getValues(category);
+            TimelineSeries series = timeline.getSeries(category);
             double min = Long.MAX_VALUE, max = Long.MIN_VALUE;
-            for (Timeline.Value value : values) {
-               double d = value.value.doubleValue();
+            for (int i = series.size() - 1; i >= 0; --i) {
+               double d = series.doubleValue(i);
                max = Math.max(max, d);
                min = Math.min(min, d);
             }
@@ -130,8 +131,7 @@ public class TimelineDocument extends HtmlDocument {
          /* Charts */
          final AtomicBoolean firstRange = new AtomicBoolean(true);
          for (Timeline timeline : timelines) {
-            List<Timeline.Value> categoryValues = timeline.getValues(valueCategory);
-            final List<Timeline.Value> values = categoryValues != null ? categoryValues : Collections.EMPTY_LIST;
+            final TimelineSeries series = timeline.getSeries(valueCategory);
             final int slaveIndex = timeline.slaveIndex;
             final String valueChartFile = getValueChartFile(valueCategoryId, slaveIndex);
 
@@ -142,7 +142,7 @@ public class TimelineDocument extends HtmlDocument {
                   TimelineChart chart = new TimelineChart();
                   chart.setDimensions(configuration.width, configuration.height);
 
-                  chart.setEvents(values, slaveIndex, startTimestamp, endTimestamp, minValues.get(valueCategory) * 1.1, maxValues.get(valueCategory) * 1.1);
+                  chart.setSeries(series, slaveIndex, startTimestamp, endTimestamp, minValues.get(valueCategory) * 1.1, maxValues.get(valueCategory) * 1.1);
 
 
                   chart.saveChart(directory + File.separator + valueChartFile);
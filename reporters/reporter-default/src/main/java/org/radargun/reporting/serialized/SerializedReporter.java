@@ -36,6 +36,12 @@ public class SerializedReporter implements Reporter {
    @Property(doc = "Directory where the results should be stored. Default is results/serialized.")
    protected String targetDir = "results" + File.separator + "serialized";
 
+   @Override
+   public boolean requiresThreadStatistics() {
+      // the reports may be generated later with any configuration
+      return true;
+   }
+
    @Override
    public void run(MasterConfig masterConfig, Collection<Report> reports) {
       File dir = new File(targetDir);